@@ -0,0 +1,68 @@
+package top.kangyaocoding.ai.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.kangyaocoding.ai.domain.agent.service.audit.AuditAdvisor;
+import top.kangyaocoding.ai.infrastructure.audit.AsyncAuditSink;
+import top.kangyaocoding.ai.infrastructure.audit.SegmentedAuditLog;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 描述: 审计留存配置；请求与响应异步写入 gzip 分段文件，队列与丢弃情况以 agent.audit.* 指标暴露
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 23:35
+ */
+@Configuration
+@EnableConfigurationProperties(AuditConfigProperties.class)
+public class AuditConfig {
+
+    @Bean(destroyMethod = "close")
+    public AsyncAuditSink auditSink(AuditConfigProperties properties, MeterRegistry meterRegistry) throws IOException {
+        SegmentedAuditLog auditLog = SegmentedAuditLog.builder(Path.of(properties.getDirectory()))
+                .segmentBytes(properties.getSegmentBytes())
+                .segmentDuration(Duration.ofMinutes(properties.getSegmentMinutes()))
+                .sync(properties.getSync())
+                .build();
+        AsyncAuditSink sink = AsyncAuditSink.builder(auditLog)
+                .capacity(properties.getCapacity())
+                .batchSize(properties.getBatchSize())
+                .flushInterval(Duration.ofMillis(properties.getFlushIntervalMillis()))
+                .sampleWatermark(properties.getSampleWatermark())
+                .sampleRate(properties.getSampleRate())
+                .build();
+
+        Map<String, ToDoubleFunction<AsyncAuditSink>> results = Map.of(
+                "accepted", AsyncAuditSink::getAccepted,
+                "sampled", AsyncAuditSink::getSampled,
+                "dropped", AsyncAuditSink::getDropped,
+                "written", AsyncAuditSink::getWritten,
+                "failed", AsyncAuditSink::getFailed);
+        results.forEach((result, count) -> FunctionCounter.builder("agent.audit.records", sink, count)
+                .description("审计记录数，result 为 accepted / sampled / dropped / written / failed")
+                .tag("result", result)
+                .register(meterRegistry));
+        Gauge.builder("agent.audit.queue", sink, AsyncAuditSink::getQueued)
+                .description("审计队列中等待写入的记录数")
+                .register(meterRegistry);
+        return sink;
+    }
+
+    /**
+     * 默认的审计 Advisor；各智能体可用 AuditAdvisor.builder 指定自己的 agent 名称
+     */
+    @Bean
+    public AuditAdvisor auditAdvisor(AsyncAuditSink auditSink, AuditConfigProperties properties) {
+        return AuditAdvisor.builder(auditSink).maxPayloadChars(properties.getMaxPayloadChars()).build();
+    }
+
+}
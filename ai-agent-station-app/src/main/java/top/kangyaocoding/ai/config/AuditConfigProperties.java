@@ -0,0 +1,31 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "audit.config", ignoreInvalidFields = true)
+public class AuditConfigProperties {
+
+    /** 审计文件目录 */
+    private String directory = "data/audit";
+    /** 队列容量，必须是 2 的幂 */
+    private Integer capacity = 65536;
+    /** 每批写入的最大记录数 */
+    private Integer batchSize = 512;
+    /** 队列为空时写入线程的最长休眠时间（毫秒），即低负载下的最大落盘延迟 */
+    private Long flushIntervalMillis = 200L;
+    /** 开始抽样的队列占用比例，1 表示不抽样，只在队列满时丢弃 */
+    private Double sampleWatermark = 0.75;
+    /** 超过水位后的接收比例 */
+    private Double sampleRate = 0.1;
+    /** 单个分段压缩后的大小上限（字节） */
+    private Long segmentBytes = 67108864L;
+    /** 单个分段的最长写入时间（分钟） */
+    private Long segmentMinutes = 60L;
+    /** 每批写入后是否 fsync */
+    private Boolean sync = false;
+    /** 每段消息与响应正文的最大字符数 */
+    private Integer maxPayloadChars = 65536;
+
+}
@@ -0,0 +1,84 @@
+package top.kangyaocoding.ai.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.kangyaocoding.ai.infrastructure.cache.CacheService;
+import top.kangyaocoding.ai.infrastructure.cache.CacheSpec;
+import top.kangyaocoding.ai.infrastructure.cache.TieredCache;
+
+import java.time.Duration;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 描述: 缓存配置；替代原 GuavaConfig 的单个 3 秒缓存，各区域命中、淘汰情况以 agent.cache.* 指标暴露
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:30
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(CacheConfigProperties.class)
+public class CacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheService cacheService(CacheConfigProperties properties, ObjectProvider<RedissonClient> redissonClient,
+                                     ObjectProvider<ObjectMapper> objectMapper, MeterRegistry meterRegistry) {
+        CacheService.Builder builder = CacheService.builder()
+                .redisson(redissonClient.getIfAvailable())
+                .objectMapper(objectMapper.getIfAvailable(ObjectMapper::new))
+                .keyPrefix(properties.getKeyPrefix())
+                .lockWait(Duration.ofMillis(properties.getLockWaitMs()))
+                .lockLease(Duration.ofMillis(properties.getLockLeaseMs()));
+        properties.getRegions().forEach((name, region) -> builder.region(new CacheSpec(name, region.getMaximumSize(),
+                Duration.ofMillis(region.getNearTtlMs()), Duration.ofMillis(region.getRemoteTtlMs()), region.getExpiry())));
+        CacheService cacheService = builder.build();
+        cacheService.getRegions().forEach(region -> bindMetrics(region, meterRegistry));
+        log.info("缓存区域 {} Redis:{}", properties.getRegions().keySet(), cacheService.isRemote());
+        return cacheService;
+    }
+
+    private static void bindMetrics(TieredCache region, MeterRegistry meterRegistry) {
+        String name = region.getName();
+        requests(region, "near_hit", TieredCache::getNearHits, meterRegistry);
+        requests(region, "remote_hit", TieredCache::getRemoteHits, meterRegistry);
+        requests(region, "miss", TieredCache::getMisses, meterRegistry);
+        evictions(region, "size", TieredCache::getSizeEvictions, meterRegistry);
+        evictions(region, "expired", TieredCache::getExpiredEvictions, meterRegistry);
+        evictions(region, "invalidated", TieredCache::getInvalidations, meterRegistry);
+        FunctionCounter.builder("agent.cache.load.failures", region, TieredCache::getLoadFailures)
+                .description("加载函数抛出异常的次数")
+                .tag("region", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.cache.remote.errors", region, TieredCache::getRemoteErrors)
+                .description("Redis 操作失败次数，失败后短时间内只用近端缓存")
+                .tag("region", name)
+                .register(meterRegistry);
+        Gauge.builder("agent.cache.size", region, TieredCache::getSize)
+                .description("近端缓存条数")
+                .tag("region", name)
+                .register(meterRegistry);
+    }
+
+    private static void requests(TieredCache region, String result, ToDoubleFunction<TieredCache> count, MeterRegistry meterRegistry) {
+        FunctionCounter.builder("agent.cache.requests", region, count)
+                .description("缓存读取次数，result 为 near_hit（近端命中）/ remote_hit（Redis 命中）/ miss（调用加载函数）")
+                .tags("region", region.getName(), "result", result)
+                .register(meterRegistry);
+    }
+
+    private static void evictions(TieredCache region, String cause, ToDoubleFunction<TieredCache> count, MeterRegistry meterRegistry) {
+        FunctionCounter.builder("agent.cache.evictions", region, count)
+                .description("近端缓存移除次数，cause 为 size（超出容量）/ expired（过期）/ invalidated（其他节点广播失效）")
+                .tags("region", region.getName(), "cause", cause)
+                .register(meterRegistry);
+    }
+
+}
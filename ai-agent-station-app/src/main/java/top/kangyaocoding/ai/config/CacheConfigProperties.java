@@ -0,0 +1,40 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import top.kangyaocoding.ai.infrastructure.cache.CacheRegions;
+import top.kangyaocoding.ai.infrastructure.cache.CacheSpec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "cache.config", ignoreInvalidFields = true)
+public class CacheConfigProperties {
+
+    /** Redis key 前缀，失效频道为 {前缀}:invalidate */
+    private String keyPrefix = "agent:cache";
+    /** 跨节点加载锁的等待时长（毫秒），超时后直接加载 */
+    private Long lockWaitMs = 3000L;
+    /** 跨节点加载锁的租期（毫秒） */
+    private Long lockLeaseMs = 30000L;
+    /** 缓存区域，key 为区域名称 */
+    private Map<String, Region> regions = new LinkedHashMap<>(Map.of(
+            CacheRegions.RETRIEVAL, new Region(),
+            CacheRegions.PROMPT, new Region(),
+            CacheRegions.AGENT_CONFIG, new Region(),
+            CacheRegions.TOOL_RESULT, new Region()));
+
+    @Data
+    public static class Region {
+        /** 近端缓存的最大条数 */
+        private Long maximumSize = 10000L;
+        /** 近端缓存的过期时间（毫秒） */
+        private Long nearTtlMs = 60000L;
+        /** Redis 中的过期时间（毫秒），0 表示只用近端缓存 */
+        private Long remoteTtlMs = 600000L;
+        /** 近端过期方式：AFTER_WRITE / AFTER_ACCESS */
+        private CacheSpec.Expiry expiry = CacheSpec.Expiry.AFTER_WRITE;
+    }
+
+}
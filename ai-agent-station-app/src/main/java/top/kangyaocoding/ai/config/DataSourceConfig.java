@@ -0,0 +1,106 @@
+package top.kangyaocoding.ai.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import top.kangyaocoding.ai.infrastructure.datasource.DataSourcePropertiesValidator;
+import top.kangyaocoding.ai.infrastructure.datasource.JdbcPools;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * 描述: 数据源配置；默认连接池取 spring.datasource.hikari，向量检索与批量写入各用一个命名连接池，连接池指标以 hikaricp.* 暴露
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 09:25
+ */
+@Configuration
+@EnableConfigurationProperties({DataSourceConfigProperties.class, JdbcProperties.class})
+public class DataSourceConfig {
+
+    /**
+     * 默认连接池，创建前校验连接池配置的位置
+     */
+    @Bean
+    @Primary
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties, ConfigurableEnvironment environment) {
+        DataSourcePropertiesValidator.validate(environment);
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public HikariDataSource vectorReadDataSource(DataSourceProperties dataSourceProperties,
+                                                 DataSourceConfigProperties properties,
+                                                 MeterRegistry meterRegistry) {
+        return pool("vector-read", properties.getVectorRead(), dataSourceProperties, meterRegistry);
+    }
+
+    @Bean
+    public HikariDataSource bulkWriteDataSource(DataSourceProperties dataSourceProperties,
+                                                DataSourceConfigProperties properties,
+                                                MeterRegistry meterRegistry) {
+        return pool("bulk-write", properties.getBulkWrite(), dataSourceProperties, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, JdbcProperties jdbcProperties) {
+        return jdbcTemplate(dataSource, jdbcProperties.getTemplate());
+    }
+
+    @Bean
+    public JdbcTemplate vectorReadJdbcTemplate(@Qualifier("vectorReadDataSource") DataSource dataSource,
+                                               JdbcProperties jdbcProperties) {
+        return jdbcTemplate(dataSource, jdbcProperties.getTemplate());
+    }
+
+    @Bean
+    public JdbcTemplate bulkWriteJdbcTemplate(@Qualifier("bulkWriteDataSource") DataSource dataSource,
+                                              JdbcProperties jdbcProperties) {
+        return jdbcTemplate(dataSource, jdbcProperties.getTemplate());
+    }
+
+    private static HikariDataSource pool(String name, DataSourceConfigProperties.Pool pool,
+                                         DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry) {
+        return JdbcPools.builder(name, dataSourceProperties.determineUrl())
+                .username(dataSourceProperties.determineUsername())
+                .password(dataSourceProperties.determinePassword())
+                .driverClassName(dataSourceProperties.determineDriverClassName())
+                .maximumPoolSize(pool.getMaximumPoolSize())
+                .minimumIdle(pool.getMinimumIdle())
+                .connectionTimeout(Duration.ofMillis(pool.getConnectionTimeoutMs()))
+                .idleTimeout(Duration.ofMillis(pool.getIdleTimeoutMs()))
+                .maxLifetime(Duration.ofMillis(pool.getMaxLifetimeMs()))
+                .statementTimeout(pool.getStatementTimeoutMs() > 0 ? Duration.ofMillis(pool.getStatementTimeoutMs()) : null)
+                .readOnly(pool.getReadOnly())
+                .prepareThreshold(pool.getPrepareThreshold())
+                .preparedStatementCacheQueries(pool.getPreparedStatementCacheQueries())
+                .preparedStatementCacheSizeMiB(pool.getPreparedStatementCacheSizeMiB())
+                .reWriteBatchedInserts(pool.getReWriteBatchedInserts())
+                .dataSourceProperties(pool.getDataSourceProperties())
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+
+    private static JdbcTemplate jdbcTemplate(DataSource dataSource, JdbcProperties.Template template) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(template.getFetchSize());
+        jdbcTemplate.setMaxRows(template.getMaxRows());
+        if (template.getQueryTimeout() != null) {
+            jdbcTemplate.setQueryTimeout((int) template.getQueryTimeout().getSeconds());
+        }
+        return jdbcTemplate;
+    }
+
+}
@@ -0,0 +1,57 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "data.source.config", ignoreInvalidFields = true)
+public class DataSourceConfigProperties {
+
+    /** 向量检索连接池，延迟敏感，只执行检索 */
+    private Pool vectorRead = Pool.of(16, 2000L, 5000L, true, false);
+    /** 批量写入连接池，知识库导入、向量写入与建表建索引 */
+    private Pool bulkWrite = Pool.of(4, 60000L, 0L, false, true);
+
+    @Data
+    public static class Pool {
+        /** 最大连接数 */
+        private Integer maximumPoolSize;
+        /** 最小空闲连接数，为空时等于最大连接数 */
+        private Integer minimumIdle;
+        /** 获取连接的超时时间（毫秒） */
+        private Long connectionTimeoutMs;
+        /** 空闲连接存活时间（毫秒） */
+        private Long idleTimeoutMs = 600000L;
+        /** 连接最长生命周期（毫秒） */
+        private Long maxLifetimeMs = 1800000L;
+        /** 语句超时（毫秒），0 表示不限制 */
+        private Long statementTimeoutMs;
+        /** 连接是否只读 */
+        private Boolean readOnly;
+        /** 同一条 SQL 执行多少次后转为服务端预编译，0 表示不使用 */
+        private Integer prepareThreshold = 5;
+        /** 每个连接缓存的预编译语句条数 */
+        private Integer preparedStatementCacheQueries = 256;
+        /** 每个连接预编译语句缓存上限（MiB） */
+        private Integer preparedStatementCacheSizeMiB = 5;
+        /** 是否把批量 INSERT 合并为多值 INSERT */
+        private Boolean reWriteBatchedInserts;
+        /** 额外的驱动参数 */
+        private Map<String, String> dataSourceProperties = new LinkedHashMap<>();
+
+        static Pool of(int maximumPoolSize, long connectionTimeoutMs, long statementTimeoutMs,
+                       boolean readOnly, boolean reWriteBatchedInserts) {
+            Pool pool = new Pool();
+            pool.setMaximumPoolSize(maximumPoolSize);
+            pool.setConnectionTimeoutMs(connectionTimeoutMs);
+            pool.setStatementTimeoutMs(statementTimeoutMs);
+            pool.setReadOnly(readOnly);
+            pool.setReWriteBatchedInserts(reWriteBatchedInserts);
+            return pool;
+        }
+    }
+
+}
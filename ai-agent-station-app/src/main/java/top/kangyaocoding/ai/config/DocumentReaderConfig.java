@@ -0,0 +1,34 @@
+package top.kangyaocoding.ai.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.kangyaocoding.ai.domain.agent.service.rag.StructuredTextSplitter;
+import top.kangyaocoding.ai.infrastructure.reader.IngestionManifest;
+import top.kangyaocoding.ai.infrastructure.reader.StreamingTikaDocumentReader;
+
+import java.nio.file.Path;
+
+/**
+ * 描述: 文档读取配置；流式 Tika 解析，按段送入默认分块器
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 21:20
+ */
+@Configuration
+@EnableConfigurationProperties(DocumentReaderConfigProperties.class)
+public class DocumentReaderConfig {
+
+    @Bean
+    public StreamingTikaDocumentReader streamingTikaDocumentReader(DocumentReaderConfigProperties properties,
+                                                                   StructuredTextSplitter structuredTextSplitter) {
+        int parallelism = properties.getParallelism() > 0 ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        return StreamingTikaDocumentReader.builder(structuredTextSplitter)
+                .manifest(IngestionManifest.load(Path.of(properties.getManifestPath())))
+                .parallelism(parallelism)
+                .segmentChars(properties.getSegmentChars())
+                .maxFileChars(properties.getMaxFileChars())
+                .build();
+    }
+
+}
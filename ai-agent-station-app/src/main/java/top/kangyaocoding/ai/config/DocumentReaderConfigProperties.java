@@ -0,0 +1,19 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "document.reader.config", ignoreInvalidFields = true)
+public class DocumentReaderConfigProperties {
+
+    /** 并行解析的线程数，0 表示 CPU 核数 */
+    private Integer parallelism = 0;
+    /** 每段正文的目标字符数，解析缓冲上限约为其 2 倍 */
+    private Integer segmentChars = 65536;
+    /** 单个文件最多读取的正文字符数，超出部分截断 */
+    private Long maxFileChars = 50000000L;
+    /** 已读取文件清单，用于跳过未变化的文件 */
+    private String manifestPath = "data/ingest-manifest.properties";
+
+}
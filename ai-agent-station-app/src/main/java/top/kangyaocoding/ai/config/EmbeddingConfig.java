@@ -0,0 +1,112 @@
+package top.kangyaocoding.ai.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.ai.vectorstore.pgvector.autoconfigure.PgVectorStoreProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+import top.kangyaocoding.ai.domain.agent.service.singleflight.SingleFlightEmbeddingModel;
+import top.kangyaocoding.ai.infrastructure.embedding.KnowledgeEmbeddingModel;
+import top.kangyaocoding.ai.infrastructure.embedding.OnnxEmbeddingModel;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 描述: 向量模型配置；默认走远程 text-embedding-v4，embedding.config.knowledges 中的知识库改用本地 ONNX 模型，
+ * 本地模型的批量、分词缓存情况以 agent.embedding.onnx.* 指标暴露
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 13:40
+ */
+@Configuration
+@EnableConfigurationProperties(EmbeddingConfigProperties.class)
+public class EmbeddingConfig {
+
+    /**
+     * 向量库与检索注入的 EmbeddingModel；只加载被知识库引用的本地模型，维度与 pgvector 不一致时启动失败
+     */
+    @Bean
+    @Primary
+    public KnowledgeEmbeddingModel knowledgeEmbeddingModel(EmbeddingConfigProperties properties,
+                                                           ObjectProvider<SingleFlightEmbeddingModel> singleFlightEmbeddingModel,
+                                                           OpenAiEmbeddingModel openAiEmbeddingModel,
+                                                           PgVectorStoreProperties pgVectorStoreProperties,
+                                                           MeterRegistry meterRegistry) {
+        SingleFlightEmbeddingModel singleFlight = singleFlightEmbeddingModel.getIfAvailable();
+        EmbeddingModel remote = singleFlight != null ? singleFlight : openAiEmbeddingModel;
+        KnowledgeEmbeddingModel.Builder builder = KnowledgeEmbeddingModel.builder(remote)
+                .knowledgeKey(properties.getKnowledgeKey())
+                .dimensions(pgVectorStoreProperties.getDimensions());
+        Map<String, OnnxEmbeddingModel> loaded = new LinkedHashMap<>();
+        try {
+            properties.getKnowledges().forEach((knowledge, modelName) -> {
+                OnnxEmbeddingModel model = loaded.computeIfAbsent(modelName, name -> onnx(name, properties.getOnnx().get(name)));
+                builder.knowledge(knowledge, model);
+            });
+            KnowledgeEmbeddingModel embeddingModel = builder.build();
+            loaded.values().forEach(model -> bindMetrics(model, meterRegistry));
+            return embeddingModel;
+        } catch (RuntimeException e) {
+            loaded.values().forEach(OnnxEmbeddingModel::close);
+            throw e;
+        }
+    }
+
+    private static OnnxEmbeddingModel onnx(String name, EmbeddingConfigProperties.Onnx onnx) {
+        if (onnx == null || !StringUtils.hasText(onnx.getModelPath())) {
+            throw new IllegalStateException("未配置本地向量模型 embedding.config.onnx." + name + ".model-path");
+        }
+        OnnxEmbeddingModel.Builder builder = OnnxEmbeddingModel.builder()
+                .name(name)
+                .modelPath(Path.of(onnx.getModelPath()))
+                .maxBatchSize(onnx.getMaxBatchSize())
+                .maxSequenceLength(onnx.getMaxSequenceLength())
+                .pooling(onnx.getPooling())
+                .normalize(onnx.getNormalize())
+                .lowerCase(onnx.getLowerCase())
+                .tokenCacheSize(onnx.getTokenCacheSize())
+                .timeout(Duration.ofMillis(onnx.getTimeoutMillis()))
+                .outputName(StringUtils.hasText(onnx.getOutputName()) ? onnx.getOutputName() : null);
+        if (StringUtils.hasText(onnx.getVocabPath())) {
+            builder.vocabPath(Path.of(onnx.getVocabPath()));
+        }
+        if (onnx.getSessions() > 0) {
+            builder.sessions(onnx.getSessions());
+        }
+        return builder.build();
+    }
+
+    private static void bindMetrics(OnnxEmbeddingModel model, MeterRegistry meterRegistry) {
+        FunctionCounter.builder("agent.embedding.onnx.batches", model, OnnxEmbeddingModel::getBatches)
+                .description("推理批次数，texts / batches 为平均批大小")
+                .tag("model", model.getName())
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.embedding.onnx.texts", model, OnnxEmbeddingModel::getTexts)
+                .description("向量化的文本数")
+                .tag("model", model.getName())
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.embedding.onnx.tokenizer.cache", model, OnnxEmbeddingModel::getTokenCacheHits)
+                .description("分词缓存命中情况，result 为 hit / miss")
+                .tags("model", model.getName(), "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.embedding.onnx.tokenizer.cache", model, OnnxEmbeddingModel::getTokenCacheMisses)
+                .description("分词缓存命中情况，result 为 hit / miss")
+                .tags("model", model.getName(), "result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("agent.embedding.onnx.queue", model, OnnxEmbeddingModel::getQueueDepth)
+                .description("等待推理的文本数")
+                .tag("model", model.getName())
+                .register(meterRegistry);
+    }
+
+}
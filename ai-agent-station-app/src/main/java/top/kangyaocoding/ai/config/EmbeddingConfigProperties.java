@@ -0,0 +1,47 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import top.kangyaocoding.ai.infrastructure.embedding.OnnxEmbeddingModel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "embedding.config", ignoreInvalidFields = true)
+public class EmbeddingConfigProperties {
+
+    /** 文档 metadata 中标识知识库的 key */
+    private String knowledgeKey = "knowledge";
+    /** 本地 ONNX 模型，key 为模型名 */
+    private Map<String, Onnx> onnx = new LinkedHashMap<>();
+    /** 知识库 → 本地模型名；未列出的知识库使用远程模型（spring.ai.openai.embedding） */
+    private Map<String, String> knowledges = new LinkedHashMap<>();
+
+    @Data
+    public static class Onnx {
+        /** model.onnx 路径 */
+        private String modelPath;
+        /** vocab.txt 路径，为空时取模型同目录下的 vocab.txt */
+        private String vocabPath;
+        /** 会话数（推理线程数），0 表示 CPU 核数的一半 */
+        private Integer sessions = 0;
+        /** 单次推理的最大文本数 */
+        private Integer maxBatchSize = 32;
+        /** 含 [CLS] 与 [SEP] 的最大 token 数，超出截断 */
+        private Integer maxSequenceLength = 256;
+        /** 池化方式：MEAN（all-MiniLM、text2vec）/ CLS（bge） */
+        private OnnxEmbeddingModel.Pooling pooling = OnnxEmbeddingModel.Pooling.MEAN;
+        /** 是否 L2 归一化 */
+        private Boolean normalize = true;
+        /** 分词前是否转小写，与模型的 do_lower_case 一致 */
+        private Boolean lowerCase = true;
+        /** 分词结果缓存条数，0 表示不缓存 */
+        private Long tokenCacheSize = 10000L;
+        /** 输出名，为空时取模型的第一个输出 */
+        private String outputName;
+        /** 一次调用等待推理结果的时限（毫秒），含排队时间 */
+        private Long timeoutMillis = 30000L;
+    }
+
+}
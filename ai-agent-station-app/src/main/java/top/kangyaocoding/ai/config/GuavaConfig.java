@@ -1,20 +0,0 @@
-package top.kangyaocoding.ai.config;
-
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-import java.util.concurrent.TimeUnit;
-
-@Configuration
-public class GuavaConfig {
-
-    @Bean(name = "cache")
-    public Cache<String, String> cache() {
-        return CacheBuilder.newBuilder()
-                .expireAfterWrite(3, TimeUnit.SECONDS)
-                .build();
-    }
-
-}
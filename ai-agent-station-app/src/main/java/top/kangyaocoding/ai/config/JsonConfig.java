@@ -0,0 +1,22 @@
+package top.kangyaocoding.ai.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.kangyaocoding.ai.trigger.http.ResponseJsonMessageConverter;
+
+/**
+ * 描述: 接口 JSON 输出配置；HttpMessageConverter Bean 由 Spring Boot 排在默认转换器之前，返回 Response 的接口走流式输出
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:55
+ */
+@Configuration
+public class JsonConfig {
+
+    @Bean
+    public ResponseJsonMessageConverter responseJsonMessageConverter(ObjectMapper objectMapper) {
+        return new ResponseJsonMessageConverter(objectMapper);
+    }
+
+}
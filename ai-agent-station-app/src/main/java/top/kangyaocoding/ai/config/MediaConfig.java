@@ -0,0 +1,86 @@
+package top.kangyaocoding.ai.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.kangyaocoding.ai.domain.agent.service.media.MediaAdvisor;
+import top.kangyaocoding.ai.infrastructure.media.MediaCache;
+import top.kangyaocoding.ai.infrastructure.media.MediaPipeline;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 描述: 视觉请求的媒体预处理配置；图片下载一次、缩放到模型的最佳分辨率后按内容哈希缓存在本地，处理情况以 agent.media.* 指标暴露
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:35
+ */
+@Configuration
+@EnableConfigurationProperties(MediaConfigProperties.class)
+public class MediaConfig {
+
+    @Bean(destroyMethod = "close")
+    public MediaPipeline mediaPipeline(MediaConfigProperties properties, MeterRegistry meterRegistry) throws IOException {
+        MediaCache cache = MediaCache.builder(Path.of(properties.getDirectory()))
+                .maxBytes(properties.getMaxBytes())
+                .maxMappedBytes(properties.getMaxMappedBytes())
+                .build();
+        MediaPipeline.Builder builder = MediaPipeline.builder(cache)
+                .delivery(properties.getDelivery())
+                .baseUrl(properties.getBaseUrl())
+                .maxPixels(properties.getMaxPixels())
+                .patchSize(properties.getPatchSize())
+                .jpegQuality(properties.getJpegQuality())
+                .maxDownloadBytes(properties.getMaxDownloadBytes())
+                .trustedHosts(properties.getTrustedHosts())
+                .maxRedirects(properties.getMaxRedirects())
+                .queueCapacity(properties.getQueueCapacity())
+                .timeout(Duration.ofMillis(properties.getTimeoutMillis()));
+        if (properties.getThreads() > 0) {
+            builder.threads(properties.getThreads());
+        }
+        MediaPipeline pipeline = builder.build();
+
+        Map<String, ToDoubleFunction<MediaPipeline>> results = Map.of(
+                "hit", MediaPipeline::getHits,
+                "miss", MediaPipeline::getMisses,
+                "shared", MediaPipeline::getShared,
+                "rejected", MediaPipeline::getRejected,
+                "failed", MediaPipeline::getFailures);
+        results.forEach((result, count) -> FunctionCounter.builder("agent.media.requests", pipeline, count)
+                .description("图片预处理次数，result 为 hit（缓存命中）/ miss（下载或处理）/ shared（合并到进行中的处理）/ rejected / failed")
+                .tag("result", result)
+                .register(meterRegistry));
+        FunctionCounter.builder("agent.media.bytes", pipeline, MediaPipeline::getDownloadedBytes)
+                .description("图片字节数，stage 为 downloaded（下载的原图）/ processed（缩放后）")
+                .tag("stage", "downloaded")
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.media.bytes", pipeline, MediaPipeline::getProcessedBytes)
+                .description("图片字节数，stage 为 downloaded（下载的原图）/ processed（缩放后）")
+                .tag("stage", "processed")
+                .register(meterRegistry);
+        Gauge.builder("agent.media.queue", pipeline, MediaPipeline::getQueueDepth)
+                .description("等待缩放的图片数")
+                .register(meterRegistry);
+        Gauge.builder("agent.media.cache.bytes", cache, MediaCache::getBytes)
+                .description("磁盘缓存中处理后图片的总大小")
+                .register(meterRegistry);
+        return pipeline;
+    }
+
+    /**
+     * 视觉智能体的 ChatClient 加入此 Advisor；直接调用 ChatModel 时可用 MediaPipeline#process 处理消息中的媒体
+     */
+    @Bean
+    public MediaAdvisor mediaAdvisor(MediaPipeline mediaPipeline) {
+        return MediaAdvisor.builder(mediaPipeline).build();
+    }
+
+}
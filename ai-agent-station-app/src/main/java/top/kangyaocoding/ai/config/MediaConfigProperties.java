@@ -0,0 +1,43 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import top.kangyaocoding.ai.infrastructure.media.MediaPipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "media.config", ignoreInvalidFields = true)
+public class MediaConfigProperties {
+
+    /** 处理后图片的缓存目录 */
+    private String directory = "data/media";
+    /** 缓存目录的大小上限（字节），超过时删除最久未使用的图片 */
+    private Long maxBytes = 2147483648L;
+    /** 内存中保留的映射缓冲区总大小（字节） */
+    private Long maxMappedBytes = 268435456L;
+    /** 图片交给模型的方式：INLINE 为 base64 内联，URL 为本服务的 /api/v1/media 地址 */
+    private MediaPipeline.Delivery delivery = MediaPipeline.Delivery.INLINE;
+    /** delivery 为 URL 时模型服务端可访问的媒体接口地址，例如 http://agent.example.com/api/v1/media */
+    private String baseUrl;
+    /** 缩放后的最大像素数，默认与通义千问 VL 的 max_pixels 一致 */
+    private Long maxPixels = 1003520L;
+    /** 缩放后宽高取整的倍数，0 表示不取整 */
+    private Integer patchSize = 28;
+    /** 重编码的 JPEG 质量 */
+    private Float jpegQuality = 0.85f;
+    /** 单张图片的下载大小上限（字节） */
+    private Long maxDownloadBytes = 20971520L;
+    /** 不做内网地址校验的图片主机；其余指向回环、内网、链路本地地址的图片地址一律拒绝下载 */
+    private List<String> trustedHosts = new ArrayList<>();
+    /** 下载图片时最多跟随的重定向次数，每一跳都重新校验目标地址 */
+    private Integer maxRedirects = 3;
+    /** 缩放线程数，0 表示 CPU 核数的一半 */
+    private Integer threads = 0;
+    /** 缩放任务的排队上限，超出时使用原图 */
+    private Integer queueCapacity = 64;
+    /** 一次请求中全部图片的下载与处理时限（毫秒），超时使用原图 */
+    private Long timeoutMillis = 15000L;
+
+}
@@ -0,0 +1,63 @@
+package top.kangyaocoding.ai.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.kangyaocoding.ai.infrastructure.notify.FileNotificationOutbox;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 描述: 通知发件箱配置；智能体的通知工具经 OutboxToolCallback.wrap 包装后只入队，合并、限流与重试情况以 agent.notify.* 指标暴露
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:30
+ */
+@Configuration
+@EnableConfigurationProperties(NotificationConfigProperties.class)
+public class NotificationConfig {
+
+    @Bean(destroyMethod = "close")
+    public FileNotificationOutbox notificationOutbox(NotificationConfigProperties properties, MeterRegistry meterRegistry) throws IOException {
+        FileNotificationOutbox outbox = FileNotificationOutbox.builder(Path.of(properties.getDirectory()))
+                .window(Duration.ofMillis(properties.getWindowMillis()))
+                .maxBatch(properties.getMaxBatch())
+                .maxDigestChars(properties.getMaxDigestChars())
+                .ratePerMinute(properties.getRatePerMinute())
+                .burst(properties.getBurst())
+                .maxAttempts(properties.getMaxAttempts())
+                .initialBackoff(Duration.ofMillis(properties.getInitialBackoffMillis()))
+                .maxBackoff(Duration.ofMillis(properties.getMaxBackoffMillis()))
+                .maxPending(properties.getMaxPending())
+                .sync(properties.getSync())
+                .build();
+
+        Map<String, ToDoubleFunction<FileNotificationOutbox>> results = Map.of(
+                "enqueued", FileNotificationOutbox::getEnqueued,
+                "rejected", FileNotificationOutbox::getRejected,
+                "sent", FileNotificationOutbox::getSent,
+                "dead", FileNotificationOutbox::getDeadLettered);
+        results.forEach((result, count) -> FunctionCounter.builder("agent.notify.messages", outbox, count)
+                .description("通知条数，result 为 enqueued / rejected（改为直接发送）/ sent / dead（多次失败后移出）")
+                .tag("result", result)
+                .register(meterRegistry));
+        FunctionCounter.builder("agent.notify.digests", outbox, FileNotificationOutbox::getDigests)
+                .description("实际发出的消息数，每条消息合并一条或多条通知")
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.notify.retries", outbox, FileNotificationOutbox::getRetries)
+                .description("发送失败后的重试次数")
+                .register(meterRegistry);
+        Gauge.builder("agent.notify.pending", outbox, FileNotificationOutbox::getPending)
+                .description("等待发送的通知数")
+                .register(meterRegistry);
+        return outbox;
+    }
+
+}
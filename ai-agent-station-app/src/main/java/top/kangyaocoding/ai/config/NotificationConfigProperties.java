@@ -0,0 +1,33 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "notification.config", ignoreInvalidFields = true)
+public class NotificationConfigProperties {
+
+    /** 发件箱目录，pending 为待发送、dead 为多次失败后移出的通知 */
+    private String directory = "data/notification";
+    /** 合并窗口（毫秒），队首通知最多等待的时间，期间到达的通知并入同一条摘要 */
+    private Long windowMillis = 10000L;
+    /** 一条摘要最多合并的通知条数 */
+    private Integer maxBatch = 20;
+    /** 一条摘要中正文的字符数上限 */
+    private Integer maxDigestChars = 4000;
+    /** 每个渠道（机器人）每分钟的发送条数，钉钉机器人上限为 20 */
+    private Integer ratePerMinute = 20;
+    /** 每个渠道允许的突发条数 */
+    private Integer burst = 5;
+    /** 同一摘要的最多发送次数 */
+    private Integer maxAttempts = 8;
+    /** 首次重试的等待时间（毫秒），之后逐次翻倍 */
+    private Long initialBackoffMillis = 2000L;
+    /** 重试等待时间上限（毫秒） */
+    private Long maxBackoffMillis = 300000L;
+    /** 待发送通知的上限，达到后通知工具改为直接发送 */
+    private Integer maxPending = 10000;
+    /** 每条通知写入后是否 fsync */
+    private Boolean sync = false;
+
+}
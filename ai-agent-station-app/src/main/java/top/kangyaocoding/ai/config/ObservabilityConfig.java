@@ -0,0 +1,70 @@
+package top.kangyaocoding.ai.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.modelcontextprotocol.client.McpSyncClient;
+import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.kangyaocoding.ai.domain.agent.service.observability.AgentObservationAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.observability.ObservedToolCallback;
+import top.kangyaocoding.ai.domain.agent.service.observability.PipelineObservations;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 描述: 链路观测配置；指标经 /actuator/prometheus 暴露，span 经 OTLP 导出，日志中的 traceId 由 micrometer-tracing 写入 MDC
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:10
+ */
+@Configuration
+@EnableConfigurationProperties(ObservabilityConfigProperties.class)
+public class ObservabilityConfig {
+
+    @Bean
+    public PipelineObservations pipelineObservations(MeterRegistry meterRegistry,
+                                                     ObjectProvider<ObservationRegistry> observationRegistry,
+                                                     ObservabilityConfigProperties properties) {
+        return new PipelineObservations(meterRegistry, observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP),
+                properties.getPayloadSampleRate(), properties.getMaxPayloadChars(), ObservabilityConfig::cachedTokens);
+    }
+
+    /**
+     * OpenAiApi 按 OpenAI 格式解析 usage，只保留 prompt_tokens_details.cached_tokens（通义千问兼容模式同样返回该字段）
+     */
+    private static int cachedTokens(Object nativeUsage) {
+        if (nativeUsage instanceof OpenAiApi.Usage usage) {
+            OpenAiApi.Usage.PromptTokensDetails details = usage.promptTokensDetails();
+            return details == null || details.cachedTokens() == null ? 0 : details.cachedTokens();
+        }
+        return PipelineObservations.mapCachedTokens(nativeUsage);
+    }
+
+    /**
+     * 默认的观测 Advisor；各智能体可用 AgentObservationAdvisor.builder 指定自己的 agent 名称
+     */
+    @Bean
+    public AgentObservationAdvisor agentObservationAdvisor(PipelineObservations pipelineObservations) {
+        return AgentObservationAdvisor.builder(pipelineObservations).build();
+    }
+
+    /**
+     * MCP 工具按服务名打标签；每次获取时从各客户端重新列出工具，与 SyncMcpToolCallbackProvider 行为一致
+     */
+    @Bean
+    public ToolCallbackProvider observedMcpToolCallbacks(ObjectProvider<List<McpSyncClient>> mcpSyncClients,
+                                                         PipelineObservations pipelineObservations) {
+        return () -> mcpSyncClients.getIfAvailable(List::of).stream()
+                .flatMap(client -> Arrays.stream(ObservedToolCallback.wrap(client.getServerInfo().name(),
+                        new SyncMcpToolCallbackProvider(client).getToolCallbacks(), pipelineObservations)))
+                .toArray(ToolCallback[]::new);
+    }
+
+}
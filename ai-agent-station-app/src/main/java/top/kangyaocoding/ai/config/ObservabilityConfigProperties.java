@@ -0,0 +1,15 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "observability.config", ignoreInvalidFields = true)
+public class ObservabilityConfigProperties {
+
+    /** 请求与响应正文的日志抽样率，0 表示不记录 */
+    private Double payloadSampleRate = 0.01;
+    /** 抽样日志中正文的最大字符数 */
+    private Integer maxPayloadChars = 2000;
+
+}
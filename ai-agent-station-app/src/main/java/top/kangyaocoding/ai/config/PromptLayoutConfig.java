@@ -0,0 +1,21 @@
+package top.kangyaocoding.ai.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.kangyaocoding.ai.domain.agent.service.prompt.PromptLayoutAdvisor;
+
+/**
+ * 描述: 提示词布局配置；各智能体的 ChatClient 加入此 Advisor，静态前缀命中模型服务端缓存，命中量见 agent_llm_tokens_total{type="cached"}
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:50
+ */
+@Configuration
+public class PromptLayoutConfig {
+
+    @Bean
+    public PromptLayoutAdvisor promptLayoutAdvisor() {
+        return new PromptLayoutAdvisor();
+    }
+
+}
@@ -0,0 +1,41 @@
+package top.kangyaocoding.ai.config;
+
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 描述: Redis 客户端配置；延迟建立连接，Redis 不可用时应用照常启动，缓存回退到近端
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:30
+ */
+@Configuration
+@EnableConfigurationProperties(RedisClientConfigProperties.class)
+public class RedisClientConfig {
+
+    @Bean(name = "redissonClient", destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "redis.sdk.config", name = "enabled", havingValue = "true")
+    public RedissonClient redissonClient(RedisClientConfigProperties properties) {
+        Config config = new Config();
+        config.setLazyInitialization(true);
+        config.useSingleServer()
+                .setAddress("redis://" + properties.getHost() + ":" + properties.getPort())
+                .setPassword(properties.getPassword())
+                .setConnectionPoolSize(properties.getPoolSize())
+                .setConnectionMinimumIdleSize(properties.getMinIdleSize())
+                .setIdleConnectionTimeout(properties.getIdleTimeout())
+                .setConnectTimeout(properties.getConnectTimeout())
+                .setTimeout(properties.getTimeout())
+                .setRetryAttempts(properties.getRetryAttempts())
+                .setRetryInterval(properties.getRetryInterval())
+                .setPingConnectionInterval(properties.getPingInterval())
+                .setKeepAlive(properties.isKeepAlive());
+        return Redisson.create(config);
+    }
+
+}
@@ -0,0 +1,61 @@
+package top.kangyaocoding.ai.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.kangyaocoding.ai.domain.agent.service.singleflight.SingleFlight;
+import top.kangyaocoding.ai.domain.agent.service.singleflight.SingleFlightAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.singleflight.SingleFlightEmbeddingModel;
+
+/**
+ * 描述: 请求合并配置；并发的相同对话、向量化请求只调用一次上游，合并情况以 agent.singleflight.* 指标暴露
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 11:35
+ */
+@Configuration
+@EnableConfigurationProperties(SingleFlightConfigProperties.class)
+public class SingleFlightConfig {
+
+    /**
+     * 默认的对话合并 Advisor；各智能体加入自己的 ChatClient，agent 取请求上下文中的 agent_id
+     */
+    @Bean
+    public SingleFlightAdvisor singleFlightAdvisor(SingleFlightConfigProperties properties, MeterRegistry meterRegistry) {
+        SingleFlightAdvisor advisor = SingleFlightAdvisor.builder().order(properties.getOrder()).build();
+        bindMetrics(advisor.getSingleFlight(), "chat", meterRegistry);
+        return advisor;
+    }
+
+    /**
+     * 包装自动配置的 OpenAiEmbeddingModel，作为 {@link EmbeddingConfig} 中按知识库选择模型时的默认（远程）模型
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "single.flight.config", name = "embedding", havingValue = "true", matchIfMissing = true)
+    public SingleFlightEmbeddingModel singleFlightEmbeddingModel(OpenAiEmbeddingModel openAiEmbeddingModel, MeterRegistry meterRegistry) {
+        SingleFlightEmbeddingModel embeddingModel = new SingleFlightEmbeddingModel(openAiEmbeddingModel);
+        bindMetrics(embeddingModel.getSingleFlight(), "embedding", meterRegistry);
+        return embeddingModel;
+    }
+
+    private static void bindMetrics(SingleFlight<?, ?> singleFlight, String path, MeterRegistry meterRegistry) {
+        FunctionCounter.builder("agent.singleflight.requests", singleFlight, SingleFlight::getLeaders)
+                .description("请求数，result 为 leader（调用上游）/ shared（合并到进行中的调用）")
+                .tags("path", path, "result", "leader")
+                .register(meterRegistry);
+        FunctionCounter.builder("agent.singleflight.requests", singleFlight, SingleFlight::getShared)
+                .description("请求数，result 为 leader（调用上游）/ shared（合并到进行中的调用）")
+                .tags("path", path, "result", "shared")
+                .register(meterRegistry);
+        Gauge.builder("agent.singleflight.inflight", singleFlight, SingleFlight::getInFlight)
+                .description("进行中的上游调用数")
+                .tag("path", path)
+                .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,15 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "single.flight.config", ignoreInvalidFields = true)
+public class SingleFlightConfigProperties {
+
+    /** 是否合并并发的相同向量化请求，开启时远程向量模型经过合并包装 */
+    private Boolean embedding = true;
+    /** 对话合并 Advisor 的顺序，默认在链首，检索也只执行一次 */
+    private Integer order = Integer.MIN_VALUE + 1000;
+
+}
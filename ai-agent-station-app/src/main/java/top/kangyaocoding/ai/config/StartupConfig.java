@@ -0,0 +1,136 @@
+package top.kangyaocoding.ai.config;
+
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.pgvector.autoconfigure.PgVectorStoreProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import top.kangyaocoding.ai.domain.agent.service.observability.AgentObservationAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.observability.PipelineObservations;
+import top.kangyaocoding.ai.domain.agent.service.rag.FilterExpressionCache;
+import top.kangyaocoding.ai.domain.agent.service.prompt.PromptLayoutAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.rag.RetrievalFanOutAdvisor;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorPrewarm;
+import top.kangyaocoding.ai.startup.StartupWarmUp;
+import top.kangyaocoding.ai.startup.StubEmbeddingModel;
+import top.kangyaocoding.ai.startup.StubEmbeddingVectorStore;
+import top.kangyaocoding.ai.startup.StubOpenAiTransport;
+import top.kangyaocoding.ai.startup.WarmUpHealthIndicator;
+import top.kangyaocoding.ai.startup.WarmUpReplay;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 描述: 启动配置；fast profile 开启延迟初始化，就绪后由 {@link StartupWarmUp} 在后台并行预热
+ * <p>
+ * 预热依次为连接、bean、向量表 pg_prewarm、合成请求回放，{@link WarmUpHealthIndicator} 加入 readiness 分组，预热完成前不接流量。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 10:20
+ */
+@Configuration
+@EnableConfigurationProperties(StartupConfigProperties.class)
+public class StartupConfig {
+
+    /**
+     * 延迟初始化时仍在启动阶段创建的 bean；数据源创建时校验连接池配置，且只建对象不连库
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter eagerInitializationFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(DataSource.class);
+    }
+
+    /**
+     * 预热步骤用到的 bean 在执行时才获取，不提前触发延迟初始化
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "startup.config", name = "warm-up", havingValue = "true")
+    public StartupWarmUp startupWarmUp(StartupConfigProperties properties,
+                                       @Qualifier("bulkWriteJdbcTemplate") ObjectProvider<JdbcTemplate> bulkWriteJdbcTemplate,
+                                       ObjectProvider<PgVectorStoreProperties> pgVectorStoreProperties,
+                                       VectorStoreConfigProperties vectorStoreConfigProperties,
+                                       ObjectProvider<VectorStore> vectorStore,
+                                       ObjectProvider<FilterExpressionCache> filterExpressionCache,
+                                       ObjectProvider<PipelineObservations> pipelineObservations) {
+        StartupWarmUp.Builder builder = StartupWarmUp.builder()
+                .threads(properties.getWarmUpThreads())
+                .timeout(Duration.ofSeconds(properties.getWarmUpTimeoutSeconds()));
+        if (properties.getPrewarmVectorStore()) {
+            builder.step("prewarm", () -> {
+                // 不经过 vector-read 连接池，避免整表读入受检索的语句超时限制
+                PgVectorStoreProperties pgVector = pgVectorStoreProperties.getObject();
+                boolean partitioned = "partitioned".equals(vectorStoreConfigProperties.getLayout());
+                return new PgVectorPrewarm(bulkWriteJdbcTemplate.getObject(), pgVector.getSchemaName(),
+                        partitioned ? vectorStoreConfigProperties.getPartition().getTablePrefix() : pgVector.getTableName(),
+                        partitioned).prewarm();
+            });
+        }
+        StartupConfigProperties.Replay replay = properties.getReplay();
+        if (replay.getEnabled()) {
+            builder.step("replay", () -> {
+                // 检索专用的有界线程池，回放结束即关闭，不占用公共线程池
+                ExecutorService retrievalExecutor = RetrievalFanOutAdvisor.newExecutor("warm-up-retrieval",
+                        properties.getWarmUpThreads(), 64);
+                try {
+                    return replay(replay, vectorStore, pgVectorStoreProperties, filterExpressionCache, pipelineObservations,
+                            retrievalExecutor).run();
+                } finally {
+                    retrievalExecutor.shutdownNow();
+                }
+            });
+        }
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "startup.config", name = "warm-up", havingValue = "true")
+    public WarmUpHealthIndicator warmUpHealthIndicator(StartupWarmUp startupWarmUp, StartupConfigProperties properties) {
+        return new WarmUpHealthIndicator(startupWarmUp, properties.getReplay().getRequireStable());
+    }
+
+    /**
+     * 与线上相同的观测与检索 Advisor，对话模型与问题向量化都换成进程内的桩；不挂审计 Advisor，合成请求不落审计
+     */
+    private static WarmUpReplay replay(StartupConfigProperties.Replay replay,
+                                       ObjectProvider<VectorStore> vectorStore,
+                                       ObjectProvider<PgVectorStoreProperties> pgVectorStoreProperties,
+                                       ObjectProvider<FilterExpressionCache> filterExpressionCache,
+                                       ObjectProvider<PipelineObservations> pipelineObservations,
+                                       Executor retrievalExecutor) {
+        OpenAiChatModel chatModel = OpenAiChatModel.builder()
+                .openAiApi(StubOpenAiTransport.openAiApi(replay.getCompletionTokens()))
+                .defaultOptions(OpenAiChatOptions.builder().model(StubOpenAiTransport.MODEL).build())
+                .build();
+        ChatClient.Builder chatClient = ChatClient.builder(chatModel)
+                .defaultAdvisors(new PromptLayoutAdvisor(),
+                        AgentObservationAdvisor.builder(pipelineObservations.getObject()).agent("warm-up").build());
+        if (replay.getRetrieval()) {
+            StubEmbeddingModel embeddingModel = new StubEmbeddingModel(pgVectorStoreProperties.getObject().getDimensions());
+            chatClient.defaultAdvisors(RetrievalFanOutAdvisor.builder(new StubEmbeddingVectorStore(vectorStore.getObject(), embeddingModel),
+                            retrievalExecutor)
+                    .filterExpressionCache(filterExpressionCache.getObject())
+                    .knowledges(replay.getKnowledges())
+                    .build());
+        }
+        return WarmUpReplay.builder(chatClient.build())
+                .questions(replay.getQuestions())
+                .roundSize(replay.getRoundSize())
+                .maxRounds(replay.getMaxRounds())
+                .stableRounds(replay.getStableRounds())
+                .tolerance(replay.getTolerance())
+                .timeout(Duration.ofSeconds(replay.getTimeoutSeconds()))
+                .build();
+    }
+
+}
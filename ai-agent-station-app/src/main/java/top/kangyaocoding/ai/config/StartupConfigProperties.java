@@ -0,0 +1,53 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "startup.config", ignoreInvalidFields = true)
+public class StartupConfigProperties {
+
+    /** 应用就绪后是否在后台预热 MCP 连接、数据库连接池与延迟初始化的 bean，配合 spring.main.lazy-initialization 使用 */
+    private Boolean warmUp = false;
+    /** 预热并行线程数 */
+    private Integer warmUpThreads = 4;
+    /** 连接预热的最长等待时间（秒），超时后不再等待，继续初始化其余 bean */
+    private Long warmUpTimeoutSeconds = 60L;
+    /** 预热时是否用 pg_prewarm 把向量表及其索引读入共享缓冲区 */
+    private Boolean prewarmVectorStore = true;
+    /** 合成请求回放；开启时就绪探针在回放的 p95 延迟稳定后才转为 UP */
+    private Replay replay = new Replay();
+
+    @Data
+    public static class Replay {
+        /** 是否回放 */
+        private Boolean enabled = true;
+        /** 代表性问题，按顺序循环使用 */
+        private List<String> questions = new ArrayList<>(List.of(
+                "你好，请介绍一下你能做什么",
+                "根据知识库总结一下部署流程的注意事项",
+                "帮我把下面这段话改写得更正式：明天的会改到下午三点"));
+        /** 是否经过检索 Advisor；检索走真实的 VectorStore，预热连接池、索引页与过滤表达式缓存，问题文本由进程内的桩向量化，不调用远程向量模型 */
+        private Boolean retrieval = false;
+        /** 检索的知识库（partition.key 的取值），为空时不按知识库过滤 */
+        private List<String> knowledges = new ArrayList<>();
+        /** 桩模型每次应答的 token 数 */
+        private Integer completionTokens = 16;
+        /** 每轮请求数，同步与流式交替 */
+        private Integer roundSize = 20;
+        /** 最多回放轮数 */
+        private Integer maxRounds = 30;
+        /** p95 连续稳定的轮数 */
+        private Integer stableRounds = 3;
+        /** 相邻两轮 p95 允许的相对变化 */
+        private Double tolerance = 0.2;
+        /** 回放最长时间（秒），超时后按未稳定结束 */
+        private Long timeoutSeconds = 120L;
+        /** 回放未稳定（含整轮失败）时就绪探针是否保持 OUT_OF_SERVICE；关闭时未稳定同样转为 UP，仅在明细中标记 */
+        private Boolean requireStable = true;
+    }
+
+}
@@ -0,0 +1,38 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "text.splitter.config", ignoreInvalidFields = true)
+public class TextSplitterConfigProperties {
+
+    /** 分块线程数，0 表示 CPU 核数 */
+    private Integer parallelism = 0;
+    /** metadata 中标识知识库的 key */
+    private String knowledgeKey = "knowledge";
+    /** 默认分块参数 */
+    private Spec defaults = new Spec();
+    /** 按知识库覆盖的分块参数，未设置的字段取 defaults */
+    private Map<String, Spec> knowledges = new HashMap<>();
+
+    @Data
+    public static class Spec {
+        /** 分块最大 token 数 */
+        private Integer chunkSize;
+        /** 相邻分块重叠的最大 token 数 */
+        private Integer chunkOverlap;
+        /** 分块达到该 token 数后遇到标题才另起分块 */
+        private Integer minChunkTokens;
+        /** 作为章节边界的最深标题级别，0 表示不按标题切分 */
+        private Integer headingLevel;
+        /** 短于该字符数的分块丢弃 */
+        private Integer minChunkLengthToEmbed;
+        /** 单个文档最多分块数 */
+        private Integer maxNumChunks;
+    }
+
+}
@@ -1,14 +1,36 @@
 package top.kangyaocoding.ai.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import top.kangyaocoding.ai.infrastructure.scheduling.PriorityThreadPoolExecutor;
+import top.kangyaocoding.ai.web.TrafficClassificationFilter;
 
+import java.time.Duration;
 import java.util.concurrent.*;
 
+/**
+ * 描述: 线程池配置；按流量类别严格优先、同级按租户加权公平排队，替代 FIFO 队列
+ * <p>
+ * 1. 线程池同时作为 @Async 与 MVC 异步请求（Callable、StreamingResponseBody）的执行器；
+ * 2. HTTP 请求经 {@link TrafficClassificationFilter} 在入口标记类别与租户，请求线程提交的任务按该上下文排队；
+ * 3. 启动预热在 BATCH 上下文中执行，见 {@link top.kangyaocoding.ai.startup.StartupWarmUp}。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:55
+ */
 @Slf4j
 @EnableAsync
 @Configuration
@@ -17,7 +39,7 @@ public class ThreadPoolConfig {
 
     @Bean
     @ConditionalOnMissingBean(ThreadPoolExecutor.class)
-    public ThreadPoolExecutor threadPoolExecutor(ThreadPoolConfigProperties properties) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+    public ThreadPoolExecutor threadPoolExecutor(ThreadPoolConfigProperties properties, ObjectProvider<MeterRegistry> meterRegistry) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
         // 实例化策略
         RejectedExecutionHandler handler;
         switch (properties.getPolicy()){
@@ -28,7 +50,8 @@ public class ThreadPoolConfig {
                 handler = new ThreadPoolExecutor.DiscardPolicy();
                 break;
             case "DiscardOldestPolicy":
-                handler = new ThreadPoolExecutor.DiscardOldestPolicy();
+                // JDK 的 DiscardOldestPolicy 丢弃的是最高优先级的队首，改为只挤出低优先级的排队任务
+                handler = new PriorityThreadPoolExecutor.DiscardLowestPriorityPolicy();
                 break;
             case "CallerRunsPolicy":
                 handler = new ThreadPoolExecutor.CallerRunsPolicy();
@@ -38,13 +61,54 @@ public class ThreadPoolConfig {
                 break;
         }
         // 创建线程池
-        return new ThreadPoolExecutor(properties.getCorePoolSize(),
-                properties.getMaxPoolSize(),
-                properties.getKeepAliveTime(),
-                TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(properties.getBlockQueueSize()),
-                Executors.defaultThreadFactory(),
-                handler);
+        PriorityThreadPoolExecutor.Builder builder = PriorityThreadPoolExecutor.builder()
+                .corePoolSize(properties.getCorePoolSize())
+                .maxPoolSize(properties.getMaxPoolSize())
+                .keepAlive(Duration.ofSeconds(properties.getKeepAliveTime()))
+                .capacity(properties.getBlockQueueSize())
+                .threadFactory(Executors.defaultThreadFactory())
+                .rejectedExecutionHandler(handler)
+                .defaultWeight(properties.getDefaultWeight())
+                .defaultContext(properties.getDefaultClass(), properties.getDefaultTenant())
+                .meterRegistry(meterRegistry.getIfAvailable());
+        properties.getClasses().forEach((trafficClass, policy) -> builder.trafficClass(trafficClass,
+                policy.getPriority(), policy.getCapacity(), Duration.ofMillis(policy.getDeadlineMs())));
+        properties.getTenantWeights().forEach(builder::tenantWeight);
+        log.info("线程池 core={} max={} 队列={} 类别策略={} 租户权重={}", properties.getCorePoolSize(), properties.getMaxPoolSize(),
+                properties.getBlockQueueSize(), properties.getClasses(), properties.getTenantWeights());
+        return builder.build();
+    }
+
+    /**
+     * @Async 方法提交到调度线程池，按调用线程的上下文排队
+     */
+    @Bean
+    public AsyncConfigurer asyncConfigurer(@Qualifier("threadPoolExecutor") ObjectProvider<ThreadPoolExecutor> threadPoolExecutor) {
+        return new AsyncConfigurer() {
+            @Override
+            public Executor getAsyncExecutor() {
+                return threadPoolExecutor.getObject();
+            }
+        };
+    }
+
+    @Bean
+    public WebMvcConfigurer asyncSupportConfigurer(@Qualifier("threadPoolExecutor") ObjectProvider<ThreadPoolExecutor> threadPoolExecutor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new TaskExecutorAdapter(threadPoolExecutor.getObject()));
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<TrafficClassificationFilter> trafficClassificationFilter(ThreadPoolConfigProperties properties) {
+        FilterRegistrationBean<TrafficClassificationFilter> registration = new FilterRegistrationBean<>(
+                new TrafficClassificationFilter(properties.getTenantHeader(), properties.getDefaultTenant()));
+        registration.addUrlPatterns("/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
     }
 
 }
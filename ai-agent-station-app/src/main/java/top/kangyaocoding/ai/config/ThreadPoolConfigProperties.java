@@ -2,6 +2,11 @@ package top.kangyaocoding.ai.config;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import top.kangyaocoding.ai.infrastructure.scheduling.TrafficClass;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
 
 @Data
 @ConfigurationProperties(prefix = "thread.pool.executor.config", ignoreInvalidFields = true)
@@ -13,14 +18,36 @@ public class ThreadPoolConfigProperties {
     private Integer maxPoolSize = 200;
     /** 最大等待时间 */
     private Long keepAliveTime = 10L;
-    /** 最大队列数 */
+    /** 最大队列数（所有流量类别合计） */
     private Integer blockQueueSize = 5000;
     /*
      * AbortPolicy：丢弃任务并抛出RejectedExecutionException异常。
      * DiscardPolicy：直接丢弃任务，但是不会抛出异常
-     * DiscardOldestPolicy：将最早进入队列的任务删除，之后再尝试加入队列的任务被拒绝
+     * DiscardOldestPolicy：从优先级不高于新任务的最低一级队列中挤出最晚轮到的任务，再让新任务入队；没有可挤出的任务时丢弃新任务
      * CallerRunsPolicy：如果任务添加线程池失败，那么主线程自己执行该任务
      * */
     private String policy = "AbortPolicy";
+    /** 未标记流量类别的任务归入的类别 */
+    private TrafficClass defaultClass = TrafficClass.INTERACTIVE;
+    /** 未标记租户的任务归入的租户 */
+    private String defaultTenant = "default";
+    /** HTTP 请求携带租户的请求头，由网关写入 */
+    private String tenantHeader = "X-Tenant-Id";
+    /** 未配置权重的租户的权重 */
+    private Integer defaultWeight = 1;
+    /** 租户权重，同一优先级内按权重分配执行机会 */
+    private Map<String, Integer> tenantWeights = new HashMap<>();
+    /** 各流量类别的调度策略，未配置的类别使用默认值 */
+    private Map<TrafficClass, ClassPolicy> classes = new EnumMap<>(TrafficClass.class);
+
+    @Data
+    public static class ClassPolicy {
+        /** 优先级，数值越小越优先，相同数值的类别按租户公平排队 */
+        private Integer priority = 0;
+        /** 该类别的最大排队数 */
+        private Integer capacity = 1000;
+        /** 排队时限（毫秒），预计或实际超时的任务被拒绝；0 不限 */
+        private Long deadlineMs = 2000L;
+    }
 
 }
@@ -1,19 +1,83 @@
 package top.kangyaocoding.ai.config;
 
+import org.springframework.ai.transformer.splitter.TextSplitter;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import top.kangyaocoding.ai.domain.agent.service.rag.KnowledgeTextSplitters;
+import top.kangyaocoding.ai.domain.agent.service.rag.StructuredTextSplitter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * 描述: 配置TokenTextSplitter
+ * 描述: 配置TokenTextSplitter；以及按结构并行切分的 StructuredTextSplitter，可按知识库配置分块参数
  *
  * @author K·Herbert herbert501@qq.com
  * @since 2025-07-09 14:18
  */
 @Configuration
+@EnableConfigurationProperties(TextSplitterConfigProperties.class)
 public class TokenTextSplitterConfig {
     @Bean
     public TokenTextSplitter tokenTextSplitter() {
         return new TokenTextSplitter();
     }
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool textSplitterPool(TextSplitterConfigProperties properties) {
+        int parallelism = properties.getParallelism() > 0 ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+
+    @Bean
+    public StructuredTextSplitter structuredTextSplitter(TextSplitterConfigProperties properties, ForkJoinPool textSplitterPool) {
+        return splitter(properties.getDefaults(), new TextSplitterConfigProperties.Spec(), textSplitterPool);
+    }
+
+    @Bean
+    public KnowledgeTextSplitters knowledgeTextSplitters(TextSplitterConfigProperties properties,
+                                                         StructuredTextSplitter structuredTextSplitter,
+                                                         ForkJoinPool textSplitterPool) {
+        Map<String, TextSplitter> splitters = new HashMap<>();
+        properties.getKnowledges().forEach((knowledge, spec) ->
+                splitters.put(knowledge, splitter(spec, properties.getDefaults(), textSplitterPool)));
+        return new KnowledgeTextSplitters(structuredTextSplitter, splitters, properties.getKnowledgeKey());
+    }
+
+    /**
+     * spec 中未设置的字段取 defaults，defaults 也未设置时使用 StructuredTextSplitter 的默认值
+     */
+    private static StructuredTextSplitter splitter(TextSplitterConfigProperties.Spec spec,
+                                                   TextSplitterConfigProperties.Spec defaults,
+                                                   ForkJoinPool pool) {
+        StructuredTextSplitter.Builder builder = StructuredTextSplitter.builder().pool(pool);
+        Integer chunkSize = spec.getChunkSize() != null ? spec.getChunkSize() : defaults.getChunkSize();
+        Integer chunkOverlap = spec.getChunkOverlap() != null ? spec.getChunkOverlap() : defaults.getChunkOverlap();
+        Integer minChunkTokens = spec.getMinChunkTokens() != null ? spec.getMinChunkTokens() : defaults.getMinChunkTokens();
+        Integer headingLevel = spec.getHeadingLevel() != null ? spec.getHeadingLevel() : defaults.getHeadingLevel();
+        Integer minChunkLengthToEmbed = spec.getMinChunkLengthToEmbed() != null ? spec.getMinChunkLengthToEmbed() : defaults.getMinChunkLengthToEmbed();
+        Integer maxNumChunks = spec.getMaxNumChunks() != null ? spec.getMaxNumChunks() : defaults.getMaxNumChunks();
+        if (chunkSize != null) {
+            builder.chunkSize(chunkSize);
+        }
+        if (chunkOverlap != null) {
+            builder.chunkOverlap(chunkOverlap);
+        }
+        if (minChunkTokens != null) {
+            builder.minChunkTokens(minChunkTokens);
+        }
+        if (headingLevel != null) {
+            builder.headingLevel(headingLevel);
+        }
+        if (minChunkLengthToEmbed != null) {
+            builder.minChunkLengthToEmbed(minChunkLengthToEmbed);
+        }
+        if (maxNumChunks != null) {
+            builder.maxNumChunks(maxNumChunks);
+        }
+        return builder.build();
+    }
 }
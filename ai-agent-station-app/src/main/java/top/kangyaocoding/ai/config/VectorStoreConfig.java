@@ -0,0 +1,214 @@
+package top.kangyaocoding.ai.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.ai.vectorstore.pgvector.autoconfigure.PgVectorStoreProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import top.kangyaocoding.ai.domain.agent.service.observability.ObservedVectorStore;
+import top.kangyaocoding.ai.domain.agent.service.observability.PipelineObservations;
+import top.kangyaocoding.ai.domain.agent.service.rag.FilterExpressionCache;
+import top.kangyaocoding.ai.infrastructure.cache.CacheRegions;
+import top.kangyaocoding.ai.infrastructure.cache.CacheService;
+import top.kangyaocoding.ai.infrastructure.embedding.KnowledgeEmbeddingModel;
+import top.kangyaocoding.ai.infrastructure.vector.CachedFilterPgVectorStore;
+import top.kangyaocoding.ai.infrastructure.vector.CachedRetrievalVectorStore;
+import top.kangyaocoding.ai.infrastructure.vector.EmbeddedVectorStore;
+import top.kangyaocoding.ai.infrastructure.vector.EmbeddedVectorStoreSynchronizer;
+import top.kangyaocoding.ai.infrastructure.vector.KnowledgeRoutingVectorStore;
+import top.kangyaocoding.ai.infrastructure.vector.PartitionedPgVectorStore;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorFilterSqlConverter;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorMetadataIndexInitializer;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorChangeFeed;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorQuantization;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 描述: 向量检索配置；过滤表达式缓存、元数据索引、存储布局、量化、进程内索引、检索结果缓存、链路观测
+ * <p>
+ * 检索走 vector-read 连接池，写入与建表建索引走 bulk-write 连接池，批量导入不占用在线检索的连接。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 11:20
+ */
+@Configuration
+@EnableConfigurationProperties(VectorStoreConfigProperties.class)
+public class VectorStoreConfig {
+
+    @Bean
+    public FilterExpressionCache filterExpressionCache(VectorStoreConfigProperties properties) {
+        return new FilterExpressionCache(properties.getFilterCacheSize(),
+                new PgVectorFilterSqlConverter(properties.getIndexedMetadataKeys()));
+    }
+
+    /**
+     * 替代自动配置的 PgVectorStore，写入与建表使用 bulk-write 连接池
+     */
+    @Bean
+    public PgVectorStore pgVectorStore(@Qualifier("bulkWriteJdbcTemplate") JdbcTemplate jdbcTemplate,
+                                       EmbeddingModel embeddingModel,
+                                       BatchingStrategy batchingStrategy,
+                                       ObjectProvider<ObservationRegistry> observationRegistry,
+                                       PgVectorStoreProperties pgVectorStoreProperties) {
+        return PgVectorStore.builder(jdbcTemplate, embeddingModel)
+                .schemaName(pgVectorStoreProperties.getSchemaName())
+                .idType(pgVectorStoreProperties.getIdType())
+                .vectorTableName(pgVectorStoreProperties.getTableName())
+                .vectorTableValidationsEnabled(pgVectorStoreProperties.isSchemaValidation())
+                .dimensions(pgVectorStoreProperties.getDimensions())
+                .distanceType(pgVectorStoreProperties.getDistanceType())
+                .removeExistingVectorStoreTable(pgVectorStoreProperties.isRemoveExistingVectorStoreTable())
+                .indexType(pgVectorStoreProperties.getIndexType())
+                .initializeSchema(pgVectorStoreProperties.isInitializeSchema())
+                .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+                .batchingStrategy(batchingStrategy)
+                .maxDocumentBatchSize(pgVectorStoreProperties.getMaxDocumentBatchSize())
+                .build();
+    }
+
+    /**
+     * 依赖 PgVectorStore，保证在其初始化表结构之后再建索引
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "vector.store.config", name = "layout", havingValue = "shared", matchIfMissing = true)
+    public PgVectorMetadataIndexInitializer pgVectorMetadataIndexInitializer(PgVectorStore pgVectorStore,
+                                                                             @Qualifier("bulkWriteJdbcTemplate") JdbcTemplate jdbcTemplate,
+                                                                             PgVectorStoreProperties pgVectorStoreProperties,
+                                                                             VectorStoreConfigProperties properties) {
+        return new PgVectorMetadataIndexInitializer(jdbcTemplate,
+                pgVectorStoreProperties.getSchemaName(),
+                pgVectorStoreProperties.getTableName(),
+                properties.getIndexedMetadataKeys(),
+                properties.getMetadataGinIndex());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "vector.store.config", name = "layout", havingValue = "shared", matchIfMissing = true)
+    public CachedFilterPgVectorStore cachedFilterPgVectorStore(PgVectorStore pgVectorStore,
+                                                               @Qualifier("vectorReadJdbcTemplate") JdbcTemplate jdbcTemplate,
+                                                               EmbeddingModel embeddingModel,
+                                                               FilterExpressionCache filterExpressionCache,
+                                                               PgVectorStoreProperties pgVectorStoreProperties,
+                                                               VectorStoreConfigProperties properties) {
+        VectorStoreConfigProperties.Hnsw hnsw = properties.getHnsw();
+        return new CachedFilterPgVectorStore(pgVectorStore, jdbcTemplate, embeddingModel, filterExpressionCache,
+                pgVectorStoreProperties.getSchemaName(), pgVectorStoreProperties.getTableName(),
+                quantization(properties, pgVectorStoreProperties),
+                hnsw.getM(), hnsw.getEfConstruction(), hnsw.getEfSearch());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "vector.store.config", name = "layout", havingValue = "partitioned")
+    public PartitionedPgVectorStore partitionedPgVectorStore(@Qualifier("bulkWriteJdbcTemplate") JdbcTemplate jdbcTemplate,
+                                                             @Qualifier("vectorReadJdbcTemplate") JdbcTemplate searchJdbcTemplate,
+                                                             EmbeddingModel embeddingModel,
+                                                             BatchingStrategy batchingStrategy,
+                                                             FilterExpressionCache filterExpressionCache,
+                                                             PgVectorStoreProperties pgVectorStoreProperties,
+                                                             VectorStoreConfigProperties properties) {
+        VectorStoreConfigProperties.Partition partition = properties.getPartition();
+        VectorStoreConfigProperties.Hnsw hnsw = properties.getHnsw();
+        return PartitionedPgVectorStore.builder(jdbcTemplate, embeddingModel, filterExpressionCache)
+                .searchJdbcTemplate(searchJdbcTemplate)
+                .batchingStrategy(batchingStrategy)
+                .distanceType(pgVectorStoreProperties.getDistanceType())
+                .schemaName(pgVectorStoreProperties.getSchemaName())
+                .dimensions(pgVectorStoreProperties.getDimensions())
+                .maxDocumentBatchSize(pgVectorStoreProperties.getMaxDocumentBatchSize())
+                .tablePrefix(partition.getTablePrefix())
+                .partitionKey(partition.getKey())
+                .partitionRefreshInterval(Duration.ofMillis(partition.getRefreshIntervalMs()))
+                .m(hnsw.getM())
+                .efConstruction(hnsw.getEfConstruction())
+                .efSearch(hnsw.getEfSearch())
+                .quantization(quantization(properties, pgVectorStoreProperties))
+                .indexedMetadataKeys(properties.getIndexedMetadataKeys())
+                .metadataGinIndex(properties.getMetadataGinIndex())
+                .build();
+    }
+
+    /**
+     * 未配置进程内索引的知识库直接透传给当前布局的存储；进程内索引的变更轮询与回表走 vector-read 连接池，
+     * 建触发器、清理与全量同步走 bulk-write 连接池
+     */
+    @Bean
+    public KnowledgeRoutingVectorStore knowledgeRoutingVectorStore(ObjectProvider<CachedFilterPgVectorStore> cachedFilterPgVectorStore,
+                                                                   ObjectProvider<PartitionedPgVectorStore> partitionedPgVectorStore,
+                                                                   @Qualifier("vectorReadJdbcTemplate") JdbcTemplate jdbcTemplate,
+                                                                   @Qualifier("bulkWriteJdbcTemplate") JdbcTemplate writeJdbcTemplate,
+                                                                   EmbeddingModel embeddingModel,
+                                                                   PgVectorStoreProperties pgVectorStoreProperties,
+                                                                   VectorStoreConfigProperties properties) {
+        boolean partitioned = "partitioned".equals(properties.getLayout());
+        VectorStore delegate = partitioned ? partitionedPgVectorStore.getObject() : cachedFilterPgVectorStore.getObject();
+        VectorStoreConfigProperties.Embedded embedded = properties.getEmbedded();
+        VectorStoreConfigProperties.Hnsw hnsw = properties.getHnsw();
+        String partitionKey = properties.getPartition().getKey();
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "embedded-vector-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<EmbeddedVectorStoreSynchronizer> synchronizers = new ArrayList<>();
+        for (String knowledge : embedded.getKnowledges()) {
+            EmbeddedVectorStore store = EmbeddedVectorStore.builder(embeddingModel)
+                    .dimensions(pgVectorStoreProperties.getDimensions())
+                    .m(hnsw.getM())
+                    .efConstruction(hnsw.getEfConstruction())
+                    .efSearch(hnsw.getEfSearch())
+                    .build();
+            PgVectorChangeFeed changeFeed = partitioned
+                    ? new PgVectorChangeFeed(jdbcTemplate, writeJdbcTemplate, pgVectorStoreProperties.getSchemaName(),
+                    PartitionedPgVectorStore.tableNameOf(properties.getPartition().getTablePrefix(), knowledge), null, null)
+                    : new PgVectorChangeFeed(jdbcTemplate, writeJdbcTemplate, pgVectorStoreProperties.getSchemaName(),
+                    pgVectorStoreProperties.getTableName(), partitionKey, knowledge);
+            synchronizers.add(new EmbeddedVectorStoreSynchronizer(knowledge, store, changeFeed, scheduler,
+                    Path.of(embedded.getSnapshotDir()), embedded.getPollIntervalMs(), embedded.getSnapshotIntervalMs(),
+                    embedded.getChangeRetentionHours(), embedded.getBatchSize()));
+        }
+        return new KnowledgeRoutingVectorStore(delegate, partitionKey, synchronizers, scheduler,
+                embeddingModel instanceof KnowledgeEmbeddingModel knowledgeEmbeddingModel ? knowledgeEmbeddingModel : null);
+    }
+
+    /**
+     * 对外的 VectorStore；路由存储外依次是检索结果缓存与链路观测，命中缓存的检索同样计入 vector_search
+     */
+    @Bean
+    @Primary
+    public VectorStore vectorStore(KnowledgeRoutingVectorStore knowledgeRoutingVectorStore,
+                                   ObjectProvider<CacheService> cacheService,
+                                   PipelineObservations pipelineObservations,
+                                   VectorStoreConfigProperties properties) {
+        VectorStore vectorStore = properties.getRetrievalCache()
+                ? new CachedRetrievalVectorStore(knowledgeRoutingVectorStore, cacheService.getObject().region(CacheRegions.RETRIEVAL))
+                : knowledgeRoutingVectorStore;
+        return new ObservedVectorStore(vectorStore, pipelineObservations);
+    }
+
+    private static PgVectorQuantization quantization(VectorStoreConfigProperties properties,
+                                                     PgVectorStoreProperties pgVectorStoreProperties) {
+        VectorStoreConfigProperties.Quantization quantization = properties.getQuantization();
+        return new PgVectorQuantization(
+                PgVectorQuantization.Type.valueOf(quantization.getType().toUpperCase()),
+                pgVectorStoreProperties.getDimensions(),
+                quantization.getTruncateDimensions(),
+                quantization.getRescoreFactor());
+    }
+
+}
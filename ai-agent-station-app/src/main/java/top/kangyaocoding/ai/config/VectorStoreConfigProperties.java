@@ -0,0 +1,82 @@
+package top.kangyaocoding.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "vector.store.config", ignoreInvalidFields = true)
+public class VectorStoreConfigProperties {
+
+    /** 过滤表达式缓存容量（解析结果、SQL 片段各自独立计数） */
+    private Long filterCacheSize = 1024L;
+    /** 需要建立表达式索引的元数据 key，如 knowledge */
+    private List<String> indexedMetadataKeys = new ArrayList<>(List.of("knowledge"));
+    /** 是否为 metadata 创建 GIN(jsonb_path_ops) 索引 */
+    private Boolean metadataGinIndex = true;
+    /** 是否缓存检索结果，容量与过期见 cache.config.regions.retrieval */
+    private Boolean retrievalCache = true;
+    /**
+     * 存储布局
+     * shared：所有知识库共用 spring.ai.vectorstore.pgvector 的表，按 metadata 过滤
+     * partitioned：每个知识库独立一张表和 HNSW 索引，检索按过滤条件路由
+     */
+    private String layout = "shared";
+    /** 分区存储配置，layout=partitioned 时生效 */
+    private Partition partition = new Partition();
+    /** 自建 HNSW 索引参数（分区表、量化索引） */
+    private Hnsw hnsw = new Hnsw();
+    /** 量化与降维配置，两种布局均生效 */
+    private Quantization quantization = new Quantization();
+    /** 进程内向量索引配置，两种布局均生效 */
+    private Embedded embedded = new Embedded();
+
+    @Data
+    public static class Partition {
+        /** 分区键，对应 metadata 中的 key */
+        private String key = "knowledge";
+        /** 分区表名前缀，注册表为 {prefix}_partition */
+        private String tablePrefix = "vector_store_kb";
+        /** 全分区检索时重新加载分区注册表的间隔（毫秒），用于发现其他节点新建的分区 */
+        private Long refreshIntervalMs = 30000L;
+    }
+
+    @Data
+    public static class Embedded {
+        /** 使用进程内 HNSW 索引检索的知识库（partition.key 的取值），为空时全部走 pgvector */
+        private List<String> knowledges = new ArrayList<>();
+        /** 快照目录，每个知识库一个子目录 */
+        private String snapshotDir = "data/vector-snapshot";
+        /** 变更轮询间隔（毫秒） */
+        private Long pollIntervalMs = 2000L;
+        /** 有变更时的快照间隔（毫秒） */
+        private Long snapshotIntervalMs = 300000L;
+        /** 变更日志保留时长（小时），快照早于此时长时重启全量同步 */
+        private Long changeRetentionHours = 168L;
+        /** 全量读取与变更回表的批大小 */
+        private Integer batchSize = 500;
+    }
+
+    @Data
+    public static class Hnsw {
+        /** HNSW 每层最大连接数 */
+        private Integer m = 16;
+        /** HNSW 构建时候选集大小 */
+        private Integer efConstruction = 64;
+        /** HNSW 检索时候选集大小，量化检索时至少为粗排候选数 */
+        private Integer efSearch = 40;
+    }
+
+    @Data
+    public static class Quantization {
+        /** none / halfvec / binary */
+        private String type = "none";
+        /** Matryoshka 降维后的维度，0 表示不降维 */
+        private Integer truncateDimensions = 0;
+        /** 粗排候选数 = topK * rescoreFactor，再按全精度向量重排 */
+        private Integer rescoreFactor = 4;
+    }
+
+}
@@ -0,0 +1,238 @@
+package top.kangyaocoding.ai.startup;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.modelcontextprotocol.client.McpSyncClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.Assert;
+import top.kangyaocoding.ai.infrastructure.scheduling.TrafficClass;
+import top.kangyaocoding.ai.infrastructure.scheduling.TrafficContext;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 描述: 就绪后的后台预热；开启延迟初始化后，把原本在启动时完成的连接与初始化挪到就绪之后
+ * <p>
+ * 1. 连接：并行完成各 MCP 客户端的 initialize 握手，并从每个 Hikari 连接池取一次连接，触发建池与补齐最小空闲连接；
+ * 2. bean：连接就绪（或超时）后依次创建其余尚未初始化的单例，如 PgVectorStore 的表结构检查、进程内索引加载、模型客户端；
+ * 3. 步骤：bean 初始化后依次执行注册的预热步骤，如向量表 pg_prewarm、合成请求回放；
+ * 4. 单项失败只记录日志，对应 bean 在第一次使用时会再次尝试创建；
+ * 5. 各项在 BATCH 类别、warm-up 租户的 {@link TrafficContext} 中执行，提交到调度线程池的任务排在线上请求之后。
+ * 各项耗时写日志，并通过 {@link #getCompletion()} 对外提供；当前阶段与步骤结果供 {@link WarmUpHealthIndicator} 控制就绪探针。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 10:10
+ */
+@Slf4j
+public class StartupWarmUp implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final ResolvableType MCP_SYNC_CLIENTS = ResolvableType.forClassWithGenerics(List.class, McpSyncClient.class);
+    private static final String WARM_UP_TENANT = "warm-up";
+
+    private final int threads;
+    private final Duration timeout;
+    private final Map<String, Supplier<?>> steps;
+    private final CompletableFuture<Map<String, Long>> completion = new CompletableFuture<>();
+    private final Map<String, Object> results = new ConcurrentHashMap<>();
+    private final AtomicInteger started = new AtomicInteger();
+    private volatile String phase = "pending";
+
+    private StartupWarmUp(Builder builder) {
+        this.threads = builder.threads;
+        this.timeout = builder.timeout;
+        this.steps = new LinkedHashMap<>(builder.steps);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (this.started.getAndIncrement() > 0) {
+            return;
+        }
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        Thread thread = new Thread(() -> this.warmUp(context.getBeanFactory()), "startup-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 预热结束时完成，值为各项耗时（毫秒），失败的项不在其中
+     */
+    public CompletableFuture<Map<String, Long>> getCompletion() {
+        return this.completion;
+    }
+
+    /**
+     * 当前阶段：pending、connections、beans、步骤名或 done
+     */
+    public String getPhase() {
+        return this.phase;
+    }
+
+    /**
+     * 已完成步骤的返回值，失败的步骤不在其中
+     */
+    public Map<String, Object> getResults() {
+        return Map.copyOf(this.results);
+    }
+
+    private void warmUp(ConfigurableListableBeanFactory beanFactory) {
+        long start = System.nanoTime();
+        Map<String, Long> elapsed = new ConcurrentHashMap<>();
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "startup-warm-up-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            this.phase = "connections";
+            Map<String, Runnable> tasks = new LinkedHashMap<>();
+            List<McpSyncClient> mcpSyncClients = this.mcpSyncClients(beanFactory);
+            for (int i = 0; i < mcpSyncClients.size(); i++) {
+                McpSyncClient client = mcpSyncClients.get(i);
+                tasks.put("mcp-" + i, () -> {
+                    if (!client.isInitialized()) {
+                        client.initialize();
+                    }
+                });
+            }
+            beanFactory.getBeansOfType(HikariDataSource.class).values().forEach(dataSource ->
+                    tasks.put("pool-" + dataSource.getPoolName(), () -> {
+                        try (Connection connection = dataSource.getConnection()) {
+                            connection.isValid(5);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }));
+
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            tasks.forEach((name, task) -> futures.add(CompletableFuture.runAsync(() -> timed(name, task, elapsed), executor)));
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(this.timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.warn("连接预热超过 {} 秒未完成，继续初始化其余 bean", this.timeout.toSeconds());
+            } catch (Exception e) {
+                // 单项失败已在 timed 中记录
+            }
+
+            this.phase = "beans";
+            timed("beans", () -> this.initializeSingletons(beanFactory), elapsed);
+            this.steps.forEach((name, step) -> {
+                this.phase = name;
+                try {
+                    timed(name, () -> this.results.put(name, step.get()), elapsed);
+                } catch (RuntimeException e) {
+                    // 已在 timed 中记录，继续后续步骤
+                }
+            });
+            this.phase = "done";
+            log.info("启动预热完成 耗时:{}ms 明细:{}", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), elapsed);
+            this.completion.complete(Map.copyOf(elapsed));
+        } catch (RuntimeException e) {
+            this.phase = "done";
+            log.warn("启动预热失败", e);
+            this.completion.completeExceptionally(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<McpSyncClient> mcpSyncClients(ConfigurableListableBeanFactory beanFactory) {
+        try {
+            List<McpSyncClient> clients = beanFactory.<List<McpSyncClient>>getBeanProvider(MCP_SYNC_CLIENTS).getIfAvailable();
+            return clients == null ? List.of() : clients;
+        } catch (RuntimeException e) {
+            log.warn("获取 MCP 客户端失败", e);
+            return List.of();
+        }
+    }
+
+    private void initializeSingletons(ConfigurableListableBeanFactory beanFactory) {
+        int created = 0;
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (definition.isAbstract() || !definition.isSingleton() || beanFactory.containsSingleton(name)) {
+                continue;
+            }
+            try {
+                beanFactory.getBean(name);
+                created++;
+            } catch (RuntimeException e) {
+                log.warn("预热创建 bean {} 失败，将在首次使用时重试: {}", name, e.getMessage());
+            }
+        }
+        log.info("预热创建延迟初始化的 bean {} 个", created);
+    }
+
+    private static void timed(String name, Runnable task, Map<String, Long> elapsed) {
+        long start = System.nanoTime();
+        try (TrafficContext.Scope scope = TrafficContext.open(TrafficClass.BATCH, WARM_UP_TENANT)) {
+            task.run();
+            elapsed.put(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            log.warn("预热 {} 失败: {}", name, e.getMessage());
+            throw e;
+        }
+    }
+
+    public static final class Builder {
+        private int threads = 4;
+        private Duration timeout = Duration.ofSeconds(60);
+        private final Map<String, Supplier<?>> steps = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * 连接预热的最长等待时间，不限制后续步骤
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * 追加在 bean 初始化之后按注册顺序执行的步骤，返回值记入 {@link StartupWarmUp#getResults()}
+         */
+        public Builder step(String name, Supplier<?> step) {
+            Assert.hasText(name, "name must not be empty");
+            Assert.notNull(step, "step must not be null");
+            this.steps.put(name, step);
+            return this;
+        }
+
+        public StartupWarmUp build() {
+            Assert.isTrue(this.threads > 0, "threads must be positive");
+            Assert.isTrue(this.timeout != null && !this.timeout.isNegative(), "timeout must not be negative");
+            return new StartupWarmUp(this);
+        }
+    }
+
+}
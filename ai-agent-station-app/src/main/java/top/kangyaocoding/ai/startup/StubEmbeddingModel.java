@@ -0,0 +1,71 @@
+package top.kangyaocoding.ai.startup;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 描述: 进程内向量化的桩；由文本哈希生成确定的单位向量，维度与向量列一致
+ * <p>
+ * 预热回放的检索经真实的 VectorStore、连接池与 HNSW 索引执行，只有问题文本的向量化换成本桩，不调用远程模型、不产生费用，
+ * p95 反映的是进程内代码路径与数据库，而不是模型服务的延迟。向量没有语义，检索结果只用于预热，不可用于应答。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:45
+ */
+public class StubEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+
+    public StubEmbeddingModel(int dimensions) {
+        Assert.isTrue(dimensions > 0, "dimensions must be positive");
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+        for (String text : request.getInstructions()) {
+            embeddings.add(new Embedding(this.vector(text), embeddings.size()));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return this.vector(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return this.dimensions;
+    }
+
+    private float[] vector(String text) {
+        long seed = 1125899906842597L;
+        for (byte b : (text == null ? "" : text).getBytes(StandardCharsets.UTF_8)) {
+            seed = 31 * seed + b;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        float[] vector = new float[this.dimensions];
+        double norm = 0;
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) (random.nextDouble() * 2 - 1);
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+}
@@ -0,0 +1,57 @@
+package top.kangyaocoding.ai.startup;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import top.kangyaocoding.ai.infrastructure.embedding.KnowledgeEmbeddingModel;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 描述: 预热回放使用的只读 VectorStore；检索交给线上的 VectorStore，但在 {@link KnowledgeEmbeddingModel#withModel} 范围内执行，
+ * 问题文本由 {@link StubEmbeddingModel} 向量化
+ * <p>
+ * 绑定在执行检索的线程上，检索 Advisor 把检索分发到线程池时同样生效；写入与删除一律拒绝，合成请求不会改动知识库。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:45
+ */
+public class StubEmbeddingVectorStore implements VectorStore {
+
+    private final VectorStore delegate;
+    private final EmbeddingModel embeddingModel;
+
+    public StubEmbeddingVectorStore(VectorStore delegate, EmbeddingModel embeddingModel) {
+        this.delegate = delegate;
+        this.embeddingModel = embeddingModel;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        throw new UnsupportedOperationException("预热回放不写入向量库");
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        throw new UnsupportedOperationException("预热回放不删除向量");
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        throw new UnsupportedOperationException("预热回放不删除向量");
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return KnowledgeEmbeddingModel.withModel(this.embeddingModel, () -> this.delegate.similaritySearch(request));
+    }
+
+    @Override
+    public <T> Optional<T> getNativeClient() {
+        return this.delegate.getNativeClient();
+    }
+
+}
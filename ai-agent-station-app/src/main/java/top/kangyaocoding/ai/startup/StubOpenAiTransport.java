@@ -0,0 +1,142 @@
+package top.kangyaocoding.ai.startup;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 描述: 进程内应答的 OpenAI 兼容桩；同步请求在 RestClient 拦截器中、流式请求在 WebClient 的 ExchangeFunction 中直接返回固定响应
+ * <p>
+ * 请求序列化、响应反序列化与 SSE 解析都走真实代码路径，预热时与线上调用编译同一批热点方法，但不访问网络、不产生费用。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 10:55
+ */
+public final class StubOpenAiTransport {
+
+    public static final String MODEL = "warm-up-stub";
+    private static final String TOKEN = "预热 ";
+
+    private StubOpenAiTransport() {
+    }
+
+    public static OpenAiApi openAiApi(int completionTokens) {
+        return OpenAiApi.builder()
+                .baseUrl("http://warm-up.stub")
+                .apiKey("warm-up")
+                .restClientBuilder(RestClient.builder()
+                        .requestInterceptor((request, body, execution) -> new StubResponse(completion(body, completionTokens))))
+                .webClientBuilder(WebClient.builder()
+                        .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                                .body(stream(completionTokens))
+                                .build())))
+                .build();
+    }
+
+    private static byte[] completion(byte[] body, int tokens) {
+        JSONObject request = JSON.parseObject(new String(body, StandardCharsets.UTF_8));
+        JSONObject response = chunk("chat.completion", request.getString("model"));
+        response.put("choices", array(object("index", 0,
+                "message", object("role", "assistant", "content", TOKEN.repeat(tokens)),
+                "finish_reason", "stop")));
+        response.put("usage", usage(body.length / 4, tokens));
+        return response.toJSONString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Flux<DataBuffer> stream(int tokens) {
+        List<String> events = new ArrayList<>(tokens + 3);
+        for (int i = 0; i < tokens; i++) {
+            JSONObject delta = i == 0 ? object("role", "assistant", "content", TOKEN) : object("content", TOKEN);
+            JSONObject chunk = chunk("chat.completion.chunk", MODEL);
+            chunk.put("choices", array(object("index", 0, "delta", delta)));
+            events.add(chunk.toJSONString());
+        }
+        JSONObject last = chunk("chat.completion.chunk", MODEL);
+        last.put("choices", array(object("index", 0, "delta", new JSONObject(), "finish_reason", "stop")));
+        events.add(last.toJSONString());
+        JSONObject usage = chunk("chat.completion.chunk", MODEL);
+        usage.put("choices", new JSONArray());
+        usage.put("usage", usage(0, tokens));
+        events.add(usage.toJSONString());
+        events.add("[DONE]");
+        return Flux.fromIterable(events).map(event -> DefaultDataBufferFactory.sharedInstance
+                .wrap(("data: " + event + "\n\n").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static JSONObject chunk(String object, String model) {
+        return object("id", "chatcmpl-warm-up", "object", object,
+                "created", System.currentTimeMillis() / 1000, "model", model == null ? MODEL : model);
+    }
+
+    private static JSONObject usage(int promptTokens, int completionTokens) {
+        return object("prompt_tokens", promptTokens, "completion_tokens", completionTokens,
+                "total_tokens", promptTokens + completionTokens);
+    }
+
+    private static JSONObject object(Object... keyValues) {
+        JSONObject object = new JSONObject(true);
+        for (int i = 0; i < keyValues.length; i += 2) {
+            object.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return object;
+    }
+
+    private static JSONArray array(Object... values) {
+        JSONArray array = new JSONArray(values.length);
+        for (Object value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+
+    private record StubResponse(byte[] body) implements ClientHttpResponse {
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return HttpStatus.OK;
+        }
+
+        @Override
+        public String getStatusText() {
+            return HttpStatus.OK.getReasonPhrase();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setContentLength(this.body.length);
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(this.body);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
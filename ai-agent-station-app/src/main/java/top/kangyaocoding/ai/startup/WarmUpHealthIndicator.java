@@ -0,0 +1,49 @@
+package top.kangyaocoding.ai.startup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import java.util.Map;
+
+/**
+ * 描述: 预热状态；预热结束前为 OUT_OF_SERVICE，加入 readiness 分组后就绪探针在预热完成时才转为 UP
+ * <p>
+ * 预热是尽力而为的，步骤抛出异常同样视为完成，明细中保留各步骤结果，避免一次预热异常导致实例永远不接流量。
+ * 回放正常结束但 p95 未稳定（含整轮失败）时，requireStable 为 true 则保持 OUT_OF_SERVICE，实例不以未预热的状态接流量；
+ * 为 false 时转为 UP，明细中 stable 为 false。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 11:05
+ */
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    private final StartupWarmUp startupWarmUp;
+    private final boolean requireStable;
+
+    public WarmUpHealthIndicator(StartupWarmUp startupWarmUp) {
+        this(startupWarmUp, true);
+    }
+
+    public WarmUpHealthIndicator(StartupWarmUp startupWarmUp, boolean requireStable) {
+        this.startupWarmUp = startupWarmUp;
+        this.requireStable = requireStable;
+    }
+
+    @Override
+    public Health health() {
+        if (!this.startupWarmUp.getCompletion().isDone()) {
+            return Health.outOfService().withDetail("phase", this.startupWarmUp.getPhase()).build();
+        }
+        Map<String, Long> elapsed = this.startupWarmUp.getCompletion().exceptionally(e -> Map.of()).getNow(Map.of());
+        Map<String, Object> results = this.startupWarmUp.getResults();
+        boolean stable = results.values().stream()
+                .noneMatch(result -> result instanceof WarmUpReplay.Result replay && !replay.stable());
+        Health.Builder builder = stable || !this.requireStable ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("stable", stable)
+                .withDetail("elapsed", elapsed)
+                .withDetails(results)
+                .build();
+    }
+
+}
@@ -0,0 +1,174 @@
+package top.kangyaocoding.ai.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 回放代表性的合成请求，直到每轮的 p95 延迟稳定
+ * <p>
+ * 1. 请求经过与线上相同的 ChatClient、Advisor 链与 OpenAI 请求响应转换，模型调用由 {@link StubOpenAiTransport} 在进程内应答；
+ * 2. 每轮 roundSize 个请求，同步与流式交替；相邻两轮 p95 的相对变化不超过 tolerance，且连续 stableRounds 轮即视为稳定；
+ * 3. 达到 maxRounds 或 timeout 仍未稳定时结束回放并告警，整轮失败时立即结束，都不会无限期阻塞就绪。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 11:00
+ */
+@Slf4j
+public class WarmUpReplay {
+
+    private final ChatClient chatClient;
+    private final List<String> questions;
+    private final int roundSize;
+    private final int maxRounds;
+    private final int stableRounds;
+    private final double tolerance;
+    private final Duration timeout;
+
+    private WarmUpReplay(Builder builder) {
+        this.chatClient = builder.chatClient;
+        this.questions = List.copyOf(builder.questions);
+        this.roundSize = builder.roundSize;
+        this.maxRounds = builder.maxRounds;
+        this.stableRounds = builder.stableRounds;
+        this.tolerance = builder.tolerance;
+        this.timeout = builder.timeout;
+    }
+
+    public static Builder builder(ChatClient chatClient) {
+        return new Builder(chatClient);
+    }
+
+    public Result run() {
+        long deadline = System.nanoTime() + this.timeout.toNanos();
+        List<Long> p95Micros = new ArrayList<>();
+        int requests = 0;
+        int failures = 0;
+        int streak = 0;
+        while (p95Micros.size() < this.maxRounds) {
+            long[] latencies = new long[this.roundSize];
+            int succeeded = 0;
+            for (int i = 0; i < this.roundSize; i++) {
+                String question = this.questions.get(requests++ % this.questions.size());
+                long start = System.nanoTime();
+                try {
+                    this.request(question, i % 2 == 1);
+                    latencies[succeeded++] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                } catch (RuntimeException e) {
+                    failures++;
+                    log.debug("预热请求失败: {}", e.getMessage());
+                }
+            }
+            if (succeeded == 0) {
+                log.warn("预热回放第 {} 轮请求全部失败，结束回放", p95Micros.size() + 1);
+                return new Result(p95Micros.size(), requests, failures, false, p95Micros);
+            }
+
+            long p95 = p95(Arrays.copyOf(latencies, succeeded));
+            if (!p95Micros.isEmpty() && this.withinTolerance(p95Micros.get(p95Micros.size() - 1), p95)) {
+                streak++;
+            } else {
+                streak = 0;
+            }
+            p95Micros.add(p95);
+            log.debug("预热回放第 {} 轮 p95:{}us", p95Micros.size(), p95);
+            if (streak >= this.stableRounds) {
+                log.info("预热回放 p95 已稳定 轮数:{} 请求:{} 失败:{} p95:{}us", p95Micros.size(), requests, failures, p95);
+                return new Result(p95Micros.size(), requests, failures, true, p95Micros);
+            }
+            if (System.nanoTime() - deadline > 0) {
+                break;
+            }
+        }
+        log.warn("预热回放 {} 轮后 p95 仍未稳定，按未稳定结束 p95:{}us", p95Micros.size(), p95Micros);
+        return new Result(p95Micros.size(), requests, failures, false, p95Micros);
+    }
+
+    private void request(String question, boolean stream) {
+        if (stream) {
+            this.chatClient.prompt().user(question).stream().content().blockLast();
+        } else {
+            this.chatClient.prompt().user(question).call().content();
+        }
+    }
+
+    private boolean withinTolerance(long previous, long current) {
+        return Math.abs(current - previous) <= this.tolerance * Math.max(previous, 1);
+    }
+
+    static long p95(long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(sorted.length * 0.95);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * @param p95Micros 各轮 p95（微秒）
+     */
+    public record Result(int rounds, int requests, int failures, boolean stable, List<Long> p95Micros) {
+    }
+
+    public static final class Builder {
+        private final ChatClient chatClient;
+        private List<String> questions = List.of("你好，请介绍一下你能做什么");
+        private int roundSize = 20;
+        private int maxRounds = 30;
+        private int stableRounds = 3;
+        private double tolerance = 0.2;
+        private Duration timeout = Duration.ofSeconds(120);
+
+        private Builder(ChatClient chatClient) {
+            Assert.notNull(chatClient, "ChatClient must not be null");
+            this.chatClient = chatClient;
+        }
+
+        public Builder questions(List<String> questions) {
+            this.questions = questions;
+            return this;
+        }
+
+        public Builder roundSize(int roundSize) {
+            this.roundSize = roundSize;
+            return this;
+        }
+
+        public Builder maxRounds(int maxRounds) {
+            this.maxRounds = maxRounds;
+            return this;
+        }
+
+        public Builder stableRounds(int stableRounds) {
+            this.stableRounds = stableRounds;
+            return this;
+        }
+
+        /**
+         * 相邻两轮 p95 允许的相对变化，如 0.2 表示 20%
+         */
+        public Builder tolerance(double tolerance) {
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public WarmUpReplay build() {
+            Assert.notEmpty(this.questions, "questions must not be empty");
+            Assert.isTrue(this.roundSize > 0 && this.maxRounds > 0 && this.stableRounds > 0, "roundSize, maxRounds and stableRounds must be positive");
+            Assert.isTrue(this.tolerance >= 0, "tolerance must not be negative");
+            Assert.isTrue(this.timeout != null && !this.timeout.isNegative(), "timeout must not be negative");
+            return new WarmUpReplay(this);
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * 启动优化；延迟初始化的 bean 在应用就绪后由后台并行预热，预热完成前就绪探针不转为 UP
+ */
+package top.kangyaocoding.ai.startup;
@@ -0,0 +1,62 @@
+package top.kangyaocoding.ai.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import top.kangyaocoding.ai.infrastructure.scheduling.TrafficClass;
+import top.kangyaocoding.ai.infrastructure.scheduling.TrafficContext;
+
+import java.io.IOException;
+
+/**
+ * 描述: 在 HTTP 入口标记流量类别与租户；请求线程在 {@link TrafficContext} 作用域内执行，提交到线程池的任务据此排队
+ * <p>
+ * 1. 类别：Accept 含 text/event-stream 的请求为 STREAMING，其余为 INTERACTIVE；
+ * 2. 租户：取租户请求头，缺省或超长时归入默认租户。租户头应由网关写入，客户端自带的值不可信；
+ * 3. 异步派发（SSE、DeferredResult）不再经过本过滤器，其任务在 MVC 异步线程池中按提交线程的上下文排队。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:55
+ */
+public class TrafficClassificationFilter extends OncePerRequestFilter {
+
+    private static final int MAX_TENANT_LENGTH = 64;
+
+    private final String tenantHeader;
+    private final String defaultTenant;
+
+    public TrafficClassificationFilter(String tenantHeader, String defaultTenant) {
+        Assert.hasText(tenantHeader, "tenantHeader must not be empty");
+        Assert.hasText(defaultTenant, "defaultTenant must not be empty");
+        this.tenantHeader = tenantHeader;
+        this.defaultTenant = defaultTenant;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (TrafficContext.Scope scope = TrafficContext.open(trafficClass(request), this.tenant(request))) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    static TrafficClass trafficClass(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE) ? TrafficClass.STREAMING : TrafficClass.INTERACTIVE;
+    }
+
+    String tenant(HttpServletRequest request) {
+        String tenant = request.getHeader(this.tenantHeader);
+        if (!StringUtils.hasText(tenant) || tenant.length() > MAX_TENANT_LENGTH) {
+            return this.defaultTenant;
+        }
+        return tenant.trim();
+    }
+
+}
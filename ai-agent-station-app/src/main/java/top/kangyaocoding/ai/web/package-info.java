@@ -0,0 +1,4 @@
+/**
+ * HTTP 入口的横切处理；请求进入控制器前标记流量类别与租户，供线程池调度
+ */
+package top.kangyaocoding.ai.web;
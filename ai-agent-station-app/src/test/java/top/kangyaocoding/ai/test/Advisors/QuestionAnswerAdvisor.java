@@ -13,13 +13,13 @@ import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.vectorstore.filter.Filter;
-import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
+import top.kangyaocoding.ai.domain.agent.service.rag.FilterExpressionCache;
 
 import java.util.HashMap;
 import java.util.List;
@@ -58,6 +58,7 @@ public class QuestionAnswerAdvisor implements BaseAdvisor {
     private final SearchRequest searchRequest;
     private final PromptTemplate promptTemplate;
     private final Scheduler scheduler;
+    private final FilterExpressionCache filterExpressionCache;
     private final int order;
 
     public QuestionAnswerAdvisor(VectorStore vectorStore) {
@@ -65,12 +66,13 @@ public class QuestionAnswerAdvisor implements BaseAdvisor {
     }
 
     public QuestionAnswerAdvisor(VectorStore vectorStore, SearchRequest searchRequest) {
-        this(vectorStore, searchRequest, null, null, DEFAULT_ORDER);
+        this(vectorStore, searchRequest, null, null, null, DEFAULT_ORDER);
     }
 
     QuestionAnswerAdvisor(VectorStore vectorStore, SearchRequest searchRequest,
                           @Nullable PromptTemplate promptTemplate,
-                          @Nullable Scheduler scheduler, int order) {
+                          @Nullable Scheduler scheduler,
+                          @Nullable FilterExpressionCache filterExpressionCache, int order) {
         Assert.notNull(vectorStore, "VectorStore must not be null");
         Assert.notNull(searchRequest, "SearchRequest must not be null");
 
@@ -78,6 +80,7 @@ public class QuestionAnswerAdvisor implements BaseAdvisor {
         this.searchRequest = searchRequest;
         this.promptTemplate = promptTemplate != null ? promptTemplate : DEFAULT_PROMPT_TEMPLATE;
         this.scheduler = scheduler != null ? scheduler : Schedulers.boundedElastic();
+        this.filterExpressionCache = filterExpressionCache != null ? filterExpressionCache : new FilterExpressionCache();
         this.order = order;
     }
 
@@ -162,7 +165,7 @@ public class QuestionAnswerAdvisor implements BaseAdvisor {
     protected Filter.Expression doGetFilterExpression(Map<String, Object> context) {
         if (context.containsKey(QA_FILTER_EXPRESSION_KEY) &&
                 StringUtils.hasText(context.get(QA_FILTER_EXPRESSION_KEY).toString())) {
-            return new FilterExpressionTextParser().parse(context.get(QA_FILTER_EXPRESSION_KEY).toString());
+            return this.filterExpressionCache.parse(context.get(QA_FILTER_EXPRESSION_KEY).toString());
         }
         return this.searchRequest.getFilterExpression();
     }
@@ -173,6 +176,7 @@ public class QuestionAnswerAdvisor implements BaseAdvisor {
         private SearchRequest searchRequest = SearchRequest.builder().build();
         private PromptTemplate promptTemplate;
         private Scheduler scheduler;
+        private FilterExpressionCache filterExpressionCache;
         private int order = DEFAULT_ORDER;
 
         private Builder(VectorStore vectorStore) {
@@ -200,13 +204,18 @@ public class QuestionAnswerAdvisor implements BaseAdvisor {
             return this;
         }
 
+        public Builder filterExpressionCache(FilterExpressionCache filterExpressionCache) {
+            this.filterExpressionCache = filterExpressionCache;
+            return this;
+        }
+
         public Builder order(int order) {
             this.order = order;
             return this;
         }
 
         public QuestionAnswerAdvisor build() {
-            return new QuestionAnswerAdvisor(vectorStore, searchRequest, promptTemplate, scheduler, order);
+            return new QuestionAnswerAdvisor(vectorStore, searchRequest, promptTemplate, scheduler, filterExpressionCache, order);
         }
     }
 }
@@ -6,17 +6,15 @@ import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
 import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
 import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
 import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
-import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatResponse;
-import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.filter.Filter;
-import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
 import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
+import top.kangyaocoding.ai.domain.agent.service.rag.FilterExpressionCache;
 
 import java.util.HashMap;
 import java.util.List;
@@ -27,6 +25,7 @@ public class RagAnswerAdvisor implements BaseAdvisor {
 
     private final PgVectorStore vectorStore;
     private final SearchRequest searchRequest;
+    private final FilterExpressionCache filterExpressionCache;
 
     // 提示模板：包含 {question_answer_context} 占位符
     private final String userTextAdvise = """
@@ -42,8 +41,13 @@ public class RagAnswerAdvisor implements BaseAdvisor {
         """;
 
     public RagAnswerAdvisor(PgVectorStore vectorStore, SearchRequest searchRequest) {
+        this(vectorStore, searchRequest, new FilterExpressionCache());
+    }
+
+    public RagAnswerAdvisor(PgVectorStore vectorStore, SearchRequest searchRequest, FilterExpressionCache filterExpressionCache) {
         this.vectorStore = vectorStore;
         this.searchRequest = searchRequest;
+        this.filterExpressionCache = filterExpressionCache;
     }
 
     @Override
@@ -76,16 +80,11 @@ public class RagAnswerAdvisor implements BaseAdvisor {
         // 替换模板中的占位符
         String promptWithRag = this.userTextAdvise.replace("{question_answer_context}", documentContext);
 
-        // 拼接到最终输入中
+        // 拼接到当前问题中；系统提示词与对话历史保持不变，作为可被服务端缓存的前缀
         String combinedInput = userText + System.lineSeparator() + promptWithRag;
 
-        // 构建新的 Prompt（只包含 UserMessage）
-        Prompt newPrompt = Prompt.builder()
-                .messages(new UserMessage(combinedInput))
-                .build();
-
-        return ChatClientRequest.builder()
-                .prompt(newPrompt)
+        return chatClientRequest.mutate()
+                .prompt(chatClientRequest.prompt().augmentUserMessage(combinedInput))
                 .context(context)
                 .build();
     }
@@ -120,7 +119,7 @@ public class RagAnswerAdvisor implements BaseAdvisor {
 
     protected Filter.Expression doGetFilterExpression(Map<String, Object> context) {
         if (context.containsKey("qa_filter_expression") && StringUtils.hasText(context.get("qa_filter_expression").toString())) {
-            return new FilterExpressionTextParser().parse(context.get("qa_filter_expression").toString());
+            return this.filterExpressionCache.parse(context.get("qa_filter_expression").toString());
         }
         return this.searchRequest.getFilterExpression();
     }
@@ -12,7 +12,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.PromptChatMemoryAdvisor;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.chat.messages.UserMessage;
@@ -23,12 +23,16 @@ import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 import reactor.core.publisher.Flux;
+import top.kangyaocoding.ai.domain.agent.service.notify.NotificationOutbox;
+import top.kangyaocoding.ai.domain.agent.service.notify.OutboxToolCallback;
+import top.kangyaocoding.ai.domain.agent.service.prompt.PromptLayoutAdvisor;
 import top.kangyaocoding.ai.test.Advisors.QuestionAnswerAdvisor;
 import top.kangyaocoding.ai.test.Advisors.RagAnswerAdvisor;
 
@@ -36,6 +40,7 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 描述: 智能体测试类
@@ -51,6 +56,8 @@ public class AiAgentTest {
     private ChatClient chatClient;
     @Resource
     private PgVectorStore pgVectorStore;
+    @Resource
+    private NotificationOutbox notificationOutbox;
     @Value("${spring.ai.openai.api-key}")
     private String apiKey;
     @Value("${spring.ai.openai.base-url}")
@@ -67,13 +74,16 @@ public class AiAgentTest {
                 .completionsPath("/v1/chat/completions")
                 .embeddingsPath("/v1/embeddings")
                 .build();
+        // 钉钉通知只入发件箱，由后台合并、限流后发送
+        ToolCallback[] toolCallbacks = OutboxToolCallback.wrap(
+                new SyncMcpToolCallbackProvider(fileSystemMcpClient(), mcpDingdingBotClient()).getToolCallbacks(),
+                Set.of("JavaSDKMCPClient_send_text_message"), notificationOutbox);
 
         chatModel = OpenAiChatModel.builder()
                 .openAiApi(openAiApi)
                 .defaultOptions(OpenAiChatOptions.builder()
                         .model("qwen-max-2025-01-25")
-                        .toolCallbacks(new SyncMcpToolCallbackProvider(
-                                fileSystemMcpClient(), mcpDingdingBotClient()).getToolCallbacks())
+                        .toolCallbacks(toolCallbacks)
                         .build())
                 .build();
         chatClient = ChatClient.builder(chatModel)
@@ -92,9 +102,9 @@ public class AiAgentTest {
                         
                         请根据以上规则自动规划任务流程，并调用相应的工具完成操作。
                         """)
-                .defaultToolCallbacks(new SyncMcpToolCallbackProvider(fileSystemMcpClient(), mcpDingdingBotClient()).getToolCallbacks())
+                .defaultToolCallbacks(toolCallbacks)
                 .defaultAdvisors(
-                        PromptChatMemoryAdvisor.builder(
+                        MessageChatMemoryAdvisor.builder(
                                 MessageWindowChatMemory.builder()
                                         .maxMessages(10)
                                         .build()
@@ -103,6 +113,7 @@ public class AiAgentTest {
                                 .topK(5)
                                 .filterExpression("knowledge == '王大瓜知识库'")
                                 .build()),
+                        new PromptLayoutAdvisor(),
                         SimpleLoggerAdvisor.builder().build()
                 ).build();
     }
@@ -224,7 +235,7 @@ public class AiAgentTest {
                         请基于以上模板，优化并扩展以下prompt，确保内容专业、完整且结构清晰，注意不要携带任何引导词或解释，不要使用代码块包围。
                         """)
                 .defaultAdvisors(
-                        PromptChatMemoryAdvisor.builder(
+                        MessageChatMemoryAdvisor.builder(
                                 MessageWindowChatMemory.builder()
                                         .maxMessages(100)
                                         .build()
@@ -233,6 +244,7 @@ public class AiAgentTest {
                                 .topK(5)
                                 .filterExpression("knowledge == 'article-prompt-words'")
                                 .build()),
+                        new PromptLayoutAdvisor(),
                         new SimpleLoggerAdvisor()
                 )
                 .defaultOptions(OpenAiChatOptions.builder()
@@ -268,11 +280,12 @@ public class AiAgentTest {
                             请根据以上规则自动规划任务流程，并调用相应的工具完成操作。
                         """)
                 .defaultAdvisors(
-                        PromptChatMemoryAdvisor.builder(
+                        MessageChatMemoryAdvisor.builder(
                                 MessageWindowChatMemory.builder()
                                         .maxMessages(100)
                                         .build()
                         ).build(),
+                        new PromptLayoutAdvisor(),
                         new SimpleLoggerAdvisor()
                 )
                 .defaultOptions(OpenAiChatOptions.builder()
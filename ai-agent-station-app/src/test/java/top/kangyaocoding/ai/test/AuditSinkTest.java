@@ -0,0 +1,239 @@
+package top.kangyaocoding.ai.test;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import top.kangyaocoding.ai.domain.agent.service.audit.AuditAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.audit.AuditRecord;
+import top.kangyaocoding.ai.domain.agent.service.observability.AgentObservationAdvisor;
+import top.kangyaocoding.ai.infrastructure.audit.AsyncAuditSink;
+import top.kangyaocoding.ai.infrastructure.audit.SegmentedAuditLog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 描述: 审计写入测试；记录经 advisor 异步写入分段 gzip 文件，过载时丢弃而不阻塞调用线程
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 23:40
+ */
+@Slf4j
+public class AuditSinkTest {
+
+    @Test
+    public void test_advisor_writes_compressed_segments() throws Exception {
+        Path directory = Files.createTempDirectory("audit");
+        AsyncAuditSink sink = AsyncAuditSink.builder(SegmentedAuditLog.builder(directory).segmentBytes(2048).build())
+                .batchSize(16)
+                .flushInterval(Duration.ofMillis(5))
+                .build();
+        AuditAdvisor advisor = AuditAdvisor.builder(sink).agent("qa-agent").maxPayloadChars(100).build();
+
+        CallAdvisorChain callChain = new CallAdvisorChain() {
+            @Override
+            public ChatClientResponse nextCall(ChatClientRequest request) {
+                return new ChatClientResponse(response("回答：" + "很长的内容".repeat(50), "qwen3-14b", 120, 30), Map.of());
+            }
+
+            @Override
+            public List<CallAdvisor> getCallAdvisors() {
+                return List.of();
+            }
+        };
+        StreamAdvisorChain streamChain = new StreamAdvisorChain() {
+            @Override
+            public Flux<ChatClientResponse> nextStream(ChatClientRequest request) {
+                return Flux.just(response("你", null, 0, 0), response("好", null, 0, 0), response("", "qwen3-14b", 50, 2))
+                        .map(chatResponse -> new ChatClientResponse(chatResponse, Map.of()));
+            }
+
+            @Override
+            public List<StreamAdvisor> getStreamAdvisors() {
+                return List.of();
+            }
+        };
+        for (int i = 0; i < 100; i++) {
+            advisor.adviseCall(request("conversation-" + i), callChain);
+        }
+        for (int i = 0; i < 10; i++) {
+            advisor.adviseStream(request("stream-" + i), streamChain).blockLast();
+        }
+        sink.close();
+
+        List<JSONObject> records = read(directory);
+        Assert.assertEquals(110, records.size());
+        Assert.assertEquals(110, sink.getWritten());
+        Assert.assertTrue(segments(directory).size() > 1);
+
+        JSONObject first = records.get(0);
+        Assert.assertEquals("qa-agent", first.getString("agent"));
+        Assert.assertEquals("conversation-0", first.getString("conversationId"));
+        Assert.assertEquals("qwen3-14b", first.getString("model"));
+        Assert.assertEquals(2, first.getJSONArray("messages").size());
+        Assert.assertEquals("system", first.getJSONArray("messages").getJSONObject(0).getString("role"));
+        Assert.assertTrue(first.getString("response").endsWith("chars)"));
+        Assert.assertEquals(120, first.getIntValue("promptTokens"));
+
+        JSONObject stream = records.get(109);
+        Assert.assertEquals("stream", stream.getString("mode"));
+        Assert.assertEquals("你好", stream.getString("response"));
+        Assert.assertEquals(2, stream.getIntValue("completionTokens"));
+    }
+
+    @Test
+    public void test_overload_drops_without_blocking() throws Exception {
+        Path directory = Files.createTempDirectory("audit");
+        AsyncAuditSink sink = AsyncAuditSink.builder(SegmentedAuditLog.builder(directory).build())
+                .capacity(256)
+                .sampleWatermark(0.5)
+                .sampleRate(0.1)
+                .build();
+        AuditRecord record = new AuditRecord(System.currentTimeMillis(), "qa-agent", null, "qwen3-14b", "call",
+                List.of(new AuditRecord.Message("user", "今天天气如何".repeat(20))), "晴".repeat(200), 100, 20, 300, null);
+
+        int threads = 4;
+        int perThread = 200_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                long max = 0;
+                for (int i = 0; i < perThread; i++) {
+                    long start = System.nanoTime();
+                    sink.offer(record);
+                    max = Math.max(max, System.nanoTime() - start);
+                }
+                return max;
+            }));
+        }
+        long start = System.nanoTime();
+        for (Future<Long> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        sink.close();
+
+        long total = (long) threads * perThread;
+        log.info("提交 {} 条，平均 {}ns/条；接收:{} 抽样丢弃:{} 溢出丢弃:{} 写入:{}", total, elapsed / total,
+                sink.getAccepted(), sink.getSampled(), sink.getDropped(), sink.getWritten());
+        Assert.assertEquals(total, sink.getAccepted() + sink.getSampled() + sink.getDropped());
+        Assert.assertTrue(sink.getSampled() + sink.getDropped() > 0);
+        Assert.assertEquals(sink.getAccepted(), sink.getWritten());
+        Assert.assertEquals(sink.getWritten(), read(directory).size());
+    }
+
+    @Test
+    public void test_offers_racing_close_are_written_or_dropped() throws Exception {
+        AuditRecord record = new AuditRecord(System.currentTimeMillis(), "qa-agent", null, "qwen3-14b", "call",
+                List.of(new AuditRecord.Message("user", "关闭时的请求")), "好的", 10, 2, 5, null);
+        for (int round = 0; round < 10; round++) {
+            Path directory = Files.createTempDirectory("audit");
+            AtomicBoolean closed = new AtomicBoolean();
+            AsyncAuditSink sink = AsyncAuditSink.builder(SegmentedAuditLog.builder(directory).build())
+                    .capacity(1024)
+                    .sampleWatermark(1)
+                    .build();
+            int threads = 4;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    long offered = 0;
+                    // 关闭后再提交一批，覆盖关闭前后的竞争窗口
+                    for (int tail = 1000; tail > 0; tail -= closed.get() ? 1 : 0) {
+                        sink.offer(record);
+                        offered++;
+                    }
+                    return offered;
+                }));
+            }
+            Thread.sleep(1);
+            sink.close();
+            closed.set(true);
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+            executor.shutdown();
+
+            Assert.assertEquals(total, sink.getAccepted() + sink.getDropped());
+            // 返回 true 的记录都已落盘，没有留在队列里
+            Assert.assertEquals(0, sink.getQueued());
+            Assert.assertEquals(sink.getAccepted(), sink.getWritten());
+            Assert.assertEquals(sink.getWritten(), read(directory).size());
+        }
+    }
+
+    private static ChatClientRequest request(String conversationId) {
+        Prompt prompt = new Prompt(List.of(new SystemMessage("你是一个智能助手"), new UserMessage("今天天气如何")));
+        return new ChatClientRequest(prompt, Map.of(ChatMemory.CONVERSATION_ID, conversationId));
+    }
+
+    private static ChatResponse response(String text, String model, int promptTokens, int completionTokens) {
+        ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder();
+        if (model != null) {
+            metadata.model(model).usage(new DefaultUsage(promptTokens, completionTokens));
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata.build());
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jsonl.gz"))
+                    .sorted(Comparator.comparing(Path::toString))
+                    .toList();
+        }
+    }
+
+    /**
+     * 按文件名顺序读出全部记录；每个分段由多个 gzip member 拼接而成
+     */
+    private static List<JSONObject> read(Path directory) throws IOException {
+        List<JSONObject> records = new ArrayList<>();
+        for (Path segment : segments(directory)) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    records.add(JSON.parseObject(line));
+                }
+            }
+        }
+        return records;
+    }
+
+}
@@ -0,0 +1,94 @@
+package top.kangyaocoding.ai.test;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import top.kangyaocoding.ai.infrastructure.datasource.DataSourcePropertiesValidator;
+import top.kangyaocoding.ai.infrastructure.datasource.JdbcPools;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 描述: 连接池测试；放错层级的连接池配置在启动时报错，命名连接池按驱动设置预编译缓存与语句超时
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 09:35
+ */
+public class DataSourcePoolsTest {
+
+    @Test
+    public void test_misplacedPoolProperties() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("application-dev.yml", Map.of(
+                "spring.datasource.url", "jdbc:postgresql://127.0.0.1:5432/ai-rag-knowledge",
+                "spring.hikari.maximum-pool-size", 25,
+                "spring.type", "com.zaxxer.hikari.HikariDataSource",
+                "spring.datasource.minimumIdle", 15)));
+        try {
+            DataSourcePropertiesValidator.validate(environment);
+            Assert.fail("misplaced pool properties should fail");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("spring.datasource.hikari.maximum-pool-size"));
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("spring.datasource.type"));
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("spring.datasource.hikari.minimumidle"));
+            Assert.assertFalse(e.getMessage(), e.getMessage().contains("spring.datasource.url"));
+        }
+    }
+
+    @Test
+    public void test_applicationYmlPoolProperties() throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        for (PropertySource<?> source : new YamlPropertySourceLoader().load("application-dev.yml",
+                new ClassPathResource("application-dev.yml"))) {
+            environment.getPropertySources().addLast(source);
+        }
+        DataSourcePropertiesValidator.validate(environment);
+        Assert.assertEquals("primary", environment.getProperty("spring.datasource.hikari.pool-name"));
+    }
+
+    @Test
+    public void test_namedPool() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (HikariDataSource dataSource = JdbcPools.builder("vector-read", "jdbc:postgresql://127.0.0.1:5432/ai-rag-knowledge")
+                .maximumPoolSize(16)
+                .statementTimeout(Duration.ofSeconds(5))
+                .readOnly(true)
+                .prepareThreshold(3)
+                .dataSourceProperties(Map.of("preparedStatementCacheQueries", "512"))
+                .meterRegistry(meterRegistry)
+                .build()) {
+            Properties properties = dataSource.getDataSourceProperties();
+            Assert.assertEquals("vector-read", dataSource.getPoolName());
+            Assert.assertEquals(16, dataSource.getMinimumIdle());
+            Assert.assertTrue(dataSource.isReadOnly());
+            Assert.assertEquals("3", properties.getProperty("prepareThreshold"));
+            Assert.assertEquals("512", properties.getProperty("preparedStatementCacheQueries"));
+            Assert.assertEquals("-c statement_timeout=5000", properties.getProperty("options"));
+            Assert.assertEquals("vector-read", properties.getProperty("ApplicationName"));
+            Assert.assertNotNull(dataSource.getMetricsTrackerFactory());
+        }
+
+        try (HikariDataSource dataSource = JdbcPools.builder("bulk-write", "jdbc:mysql://127.0.0.1:3306/agent")
+                .maximumPoolSize(4)
+                .minimumIdle(1)
+                .reWriteBatchedInserts(true)
+                .build()) {
+            Properties properties = dataSource.getDataSourceProperties();
+            Assert.assertEquals(1, dataSource.getMinimumIdle());
+            Assert.assertEquals("true", properties.getProperty("rewriteBatchedStatements"));
+            Assert.assertEquals("true", properties.getProperty("cachePrepStmts"));
+            Assert.assertNull(properties.getProperty("prepareThreshold"));
+            Assert.assertNull(dataSource.getMetricsTrackerFactory());
+        }
+    }
+
+}
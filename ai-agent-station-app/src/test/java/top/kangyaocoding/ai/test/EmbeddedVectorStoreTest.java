@@ -0,0 +1,299 @@
+package top.kangyaocoding.ai.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import top.kangyaocoding.ai.infrastructure.vector.EmbeddedVectorStore;
+import top.kangyaocoding.ai.infrastructure.vector.EmbeddedVectorStoreSynchronizer;
+import top.kangyaocoding.ai.infrastructure.vector.HnswIndex;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorChangeFeed;
+import top.kangyaocoding.ai.test.support.RandomEmbeddingModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 描述: 进程内 HNSW 索引测试；召回率、快照恢复、过滤与删除，不依赖外部服务
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 19:05
+ */
+@Slf4j
+public class EmbeddedVectorStoreTest {
+
+    private static final int DIMENSIONS = 64;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final RandomEmbeddingModel embeddingModel = new RandomEmbeddingModel(DIMENSIONS);
+
+    @Test
+    public void test_recall_and_latency() {
+        int size = 5_000, queries = 200, topK = 10;
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100);
+        float[][] vectors = new float[size][];
+        for (int i = 0; i < size; i++) {
+            vectors[i] = RandomEmbeddingModel.vector("doc-" + i, DIMENSIONS);
+            index.add(String.valueOf(i), vectors[i]);
+        }
+
+        int hits = 0;
+        long nanos = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = RandomEmbeddingModel.vector("query-" + q, DIMENSIONS);
+            Set<String> exact = new HashSet<>();
+            IntStream.range(0, size).boxed()
+                    .sorted(Comparator.comparingDouble(i -> -dot(vectors[i], query)))
+                    .limit(topK)
+                    .forEach(i -> exact.add(String.valueOf(i)));
+
+            long start = System.nanoTime();
+            List<HnswIndex.Neighbor> neighbors = index.search(query, topK, 100, null);
+            nanos += System.nanoTime() - start;
+            hits += (int) neighbors.stream().filter(neighbor -> exact.contains(neighbor.id())).count();
+        }
+        double recall = (double) hits / (queries * topK);
+        log.info("HNSW recall@{}：{} 平均耗时：{}ms 堆外内存：{}KB", topK, recall, nanos / 1_000_000.0 / queries, index.offHeapBytes() / 1024);
+        Assert.assertTrue(recall >= 0.9);
+    }
+
+    @Test
+    public void test_snapshot_round_trip() throws Exception {
+        EmbeddedVectorStore store = this.store();
+        store.add(this.documents(500));
+        Path directory = temporaryFolder.newFolder("snapshot").toPath();
+        store.save(directory);
+
+        EmbeddedVectorStore restored = this.store();
+        restored.load(directory);
+        Assert.assertEquals(store.size(), restored.size());
+
+        SearchRequest request = SearchRequest.builder().query("query").topK(5).build();
+        Assert.assertEquals(ids(store.similaritySearch(request)), ids(restored.similaritySearch(request)));
+
+        // 快照映射区之后继续写入
+        restored.add(this.documents(600).subList(500, 600));
+        Assert.assertEquals(600, restored.size());
+        Assert.assertEquals(5, restored.similaritySearch(request).size());
+    }
+
+    @Test
+    public void test_snapshot_keeps_mapped_version_until_index_grows() throws Exception {
+        Path base = temporaryFolder.newFolder("snapshots").toPath();
+        ChangeFeed feed = new ChangeFeed(this.documents(100));
+        ManualScheduler scheduler = new ManualScheduler();
+        EmbeddedVectorStoreSynchronizer first = this.synchronizer(feed, scheduler, base);
+        scheduler.poll();
+        first.stop();
+        Path root = base.resolve("kb_handbook");
+        Assert.assertEquals(1, versions(root).size());
+        Path loaded = root.resolve(Files.readString(root.resolve("CURRENT")).strip());
+
+        // 重启后 mmap 加载快照；只删除不扩容时索引仍映射着加载的版本，不能删除
+        EmbeddedVectorStoreSynchronizer second = this.synchronizer(feed, scheduler, base);
+        feed.rows.remove("doc-0");
+        feed.changes.add(Set.of("doc-0"));
+        scheduler.poll();
+        Assert.assertTrue(second.getStore().isSnapshotMapped());
+        Assert.assertEquals(99, second.getStore().size());
+        Assert.assertEquals(2, versions(root).size());
+        Assert.assertTrue(versions(root).contains(loaded));
+
+        // 新增文档使索引扩容到堆外内存，之前的版本都可以删除
+        feed.rows.put("doc-100", this.documents(101).get(100));
+        feed.changes.add(Set.of("doc-100"));
+        scheduler.poll();
+        Assert.assertFalse(second.getStore().isSnapshotMapped());
+        Path current = root.resolve(Files.readString(root.resolve("CURRENT")).strip());
+        Assert.assertEquals(List.of(current), versions(root));
+        second.stop();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void test_filter_and_delete() {
+        EmbeddedVectorStore store = this.store();
+        store.add(this.documents(400));
+
+        List<Document> results = store.similaritySearch(SearchRequest.builder()
+                .query("query").topK(10).filterExpression("knowledge == 'kb-1' && chapter >= 50").build());
+        Assert.assertEquals(10, results.size());
+        for (Document document : results) {
+            Assert.assertEquals("kb-1", document.getMetadata().get("knowledge"));
+            Assert.assertTrue(((Number) document.getMetadata().get("chapter")).intValue() >= 50);
+        }
+
+        store.delete(SearchRequest.builder().query("query").filterExpression("knowledge == 'kb-1'").build().getFilterExpression());
+        Assert.assertEquals(300, store.size());
+        Assert.assertTrue(store.similaritySearch(SearchRequest.builder()
+                .query("query").topK(10).filterExpression("knowledge == 'kb-1'").build()).isEmpty());
+    }
+
+    @Test
+    public void test_missing_key_matches_pgvector_semantics() {
+        EmbeddedVectorStore store = this.store();
+        store.add(List.of(
+                Document.builder().id("draft").text("draft").metadata("status", "draft").build(),
+                Document.builder().id("published").text("published").metadata("status", "published").build(),
+                Document.builder().id("untagged").text("untagged").metadata("knowledge", "kb-1").build()));
+
+        // $.status != "draft" 对缺少 status 的文档为 false
+        Assert.assertEquals(Set.of("published"), this.matching(store, new FilterExpressionBuilder().ne("status", "draft").build()));
+        // NIN 转换为 !($.status == "draft")，缺少 status 的文档匹配
+        Assert.assertEquals(Set.of("published", "untagged"),
+                this.matching(store, new FilterExpressionBuilder().nin("status", "draft").build()));
+    }
+
+    private Set<String> matching(EmbeddedVectorStore store, Filter.Expression filter) {
+        return new HashSet<>(ids(store.similaritySearch(SearchRequest.builder()
+                .query("query").topK(10).filterExpression(filter).build())));
+    }
+
+    private EmbeddedVectorStore store() {
+        return EmbeddedVectorStore.builder(embeddingModel).dimensions(DIMENSIONS).build();
+    }
+
+    private List<Document> documents(int count) {
+        List<Document> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            documents.add(Document.builder()
+                    .id("doc-" + i)
+                    .text("chunk-" + i)
+                    .metadata("knowledge", "kb-" + (i % 4))
+                    .metadata("chapter", i / 4)
+                    .build());
+        }
+        return documents;
+    }
+
+    private EmbeddedVectorStoreSynchronizer synchronizer(ChangeFeed feed, ManualScheduler scheduler, Path base) {
+        EmbeddedVectorStoreSynchronizer synchronizer = new EmbeddedVectorStoreSynchronizer("handbook", this.store(), feed,
+                scheduler, base, 1000, 0, 24, 50);
+        synchronizer.start();
+        return synchronizer;
+    }
+
+    private static List<Path> versions(Path root) throws IOException {
+        try (Stream<Path> children = Files.list(root)) {
+            return children.filter(Files::isDirectory).toList();
+        }
+    }
+
+    /**
+     * 只记录最近一次登记的轮询任务，由测试调用 {@link #poll()} 同步执行
+     */
+    private static class ManualScheduler extends ScheduledThreadPoolExecutor {
+
+        private Runnable command;
+
+        private ManualScheduler() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+            this.command = command;
+            return super.schedule(() -> {
+            }, 1, TimeUnit.DAYS);
+        }
+
+        private void poll() {
+            this.command.run();
+        }
+    }
+
+    /**
+     * 内存中的变更流：scan 返回全部行，poll 依次返回排队的变更 id，fetch 不存在的 id 视为已删除
+     */
+    private static class ChangeFeed extends PgVectorChangeFeed {
+
+        private final Map<String, Document> rows = new LinkedHashMap<>();
+        private final Queue<Set<String>> changes = new ArrayDeque<>();
+        private long seq;
+
+        private ChangeFeed(List<Document> documents) {
+            super(null, null, "public", "vector_store", null, null);
+            documents.forEach(document -> this.rows.put(document.getId(), document));
+        }
+
+        @Override
+        public boolean install() {
+            return true;
+        }
+
+        @Override
+        public Cursor snapshotCursor() {
+            return new Cursor(1, this.seq);
+        }
+
+        @Override
+        public void scan(int batchSize, BiConsumer<List<Document>, List<float[]>> consumer) {
+            List<Document> documents = List.copyOf(this.rows.values());
+            consumer.accept(documents, documents.stream().map(document -> RandomEmbeddingModel.vector(document.getId(), DIMENSIONS)).toList());
+        }
+
+        @Override
+        public Changes poll(Cursor cursor, int limit) {
+            Set<String> ids = this.changes.poll();
+            if (ids == null) {
+                return new Changes(Set.of(), cursor);
+            }
+            return new Changes(ids, new Cursor(1, ++this.seq));
+        }
+
+        @Override
+        public Map<String, Map.Entry<Document, float[]>> fetch(Collection<String> ids) {
+            Map<String, Map.Entry<Document, float[]>> fetched = new HashMap<>();
+            for (String id : ids) {
+                Document document = this.rows.get(id);
+                if (document != null) {
+                    fetched.put(id, Map.entry(document, RandomEmbeddingModel.vector(id, DIMENSIONS)));
+                }
+            }
+            return fetched;
+        }
+
+        @Override
+        public int prune(long retentionHours) {
+            return 0;
+        }
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+}
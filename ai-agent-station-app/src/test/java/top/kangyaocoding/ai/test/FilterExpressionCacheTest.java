@@ -0,0 +1,48 @@
+package top.kangyaocoding.ai.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.vectorstore.filter.Filter;
+import top.kangyaocoding.ai.domain.agent.service.rag.FilterExpressionCache;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorFilterSqlConverter;
+
+import java.util.List;
+
+/**
+ * 描述: 过滤表达式缓存测试，不依赖外部服务
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 11:32
+ */
+@Slf4j
+public class FilterExpressionCacheTest {
+
+    private final FilterExpressionCache filterExpressionCache = new FilterExpressionCache(16,
+            new PgVectorFilterSqlConverter(List.of("knowledge")));
+
+    @Test
+    public void test_parse_cached() {
+        Filter.Expression first = filterExpressionCache.parse("knowledge == '王大瓜知识库'");
+        Filter.Expression second = filterExpressionCache.parse("knowledge == '王大瓜知识库'");
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, filterExpressionCache.expressionStats().hitCount());
+        Assert.assertNull(filterExpressionCache.parse(" "));
+    }
+
+    @Test
+    public void test_convert_indexed_key() {
+        String sql = filterExpressionCache.convert("knowledge == '王大瓜知识库'");
+        log.info("SQL 片段：{}", sql);
+        Assert.assertEquals("(metadata::jsonb ->> 'knowledge') = '王大瓜知识库'", sql);
+    }
+
+    @Test
+    public void test_convert_mixed() {
+        String sql = filterExpressionCache.convert("knowledge in ['a', 'b'] && (year >= 2024 || author == 'ok')");
+        log.info("SQL 片段：{}", sql);
+        Assert.assertTrue(sql.startsWith("(metadata::jsonb ->> 'knowledge') IN ('a', 'b') AND metadata::jsonb @@ '"));
+        Assert.assertTrue(sql.endsWith("'::jsonpath"));
+    }
+
+}
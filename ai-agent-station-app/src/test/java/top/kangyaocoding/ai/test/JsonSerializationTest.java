@@ -0,0 +1,75 @@
+package top.kangyaocoding.ai.test;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import top.kangyaocoding.ai.api.response.Response;
+import top.kangyaocoding.ai.domain.agent.service.audit.AuditRecord;
+import top.kangyaocoding.ai.infrastructure.audit.AuditRecordJsonWriter;
+import top.kangyaocoding.ai.trigger.http.ResponseJsonMessageConverter;
+import top.kangyaocoding.ai.types.enums.ResponseCode;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描述: JSON 序列化测试；流式输出与 Jackson、fastjson 的结果等价，控制字符与多字节字符正确转义
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:05
+ */
+public class JsonSerializationTest {
+
+    public record Completion(String conversationId, String content, List<String> sources, Map<String, Integer> usage) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void test_responseMatchesObjectMapper() throws Exception {
+        ResponseJsonMessageConverter converter = new ResponseJsonMessageConverter(this.objectMapper);
+        String content = "检索增强生成\n\"引用\"\t\u0001 😀 ".repeat(5000);
+        List<Response<?>> responses = List.of(
+                Response.<Completion>builder().code(ResponseCode.SUCCESS.getCode()).info(ResponseCode.SUCCESS.getInfo())
+                        .data(new Completion("conversation-1", content, List.of("a.md", "b.md"), Map.of("promptTokens", 300))).build(),
+                Response.<String>builder().code(ResponseCode.SUCCESS.getCode()).info(ResponseCode.SUCCESS.getInfo()).data(content).build(),
+                Response.builder().code(ResponseCode.UN_ERROR.getCode()).info(ResponseCode.UN_ERROR.getInfo()).build());
+
+        for (Response<?> response : responses) {
+            Assert.assertTrue(converter.canWrite(response.getClass(), MediaType.APPLICATION_JSON));
+            MockHttpOutputMessage message = new MockHttpOutputMessage();
+            converter.write(response, MediaType.APPLICATION_JSON, message);
+            Assert.assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(message.getHeaders().getContentType()));
+            JsonNode expected = this.objectMapper.readTree(this.objectMapper.writeValueAsBytes(response));
+            Assert.assertEquals(expected, this.objectMapper.readTree(message.getBodyAsBytes()));
+        }
+        Assert.assertFalse(converter.canRead(Response.class, MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void test_auditRecordsMatchFastjson() throws Exception {
+        List<AuditRecord> records = List.of(
+                new AuditRecord(1760000000000L, "agent-1", "conversation-1", "qwen3-14b", "call",
+                        List.of(new AuditRecord.Message("system", "你是一个智能助手"), new AuditRecord.Message("user", "换行\n与\"引号\"")),
+                        "答案 😀".repeat(3000), 300, 120, 850, null),
+                new AuditRecord(1760000000001L, "agent-1", null, null, "stream", List.of(), null, null, null, 12, "timeout"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AuditRecordJsonWriter.write(records, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        Assert.assertEquals(3, lines.length);
+        Assert.assertEquals("", lines[2]);
+        for (int i = 0; i < records.size(); i++) {
+            JSONObject expected = JSON.parseObject(JSON.toJSONString(records.get(i)));
+            Assert.assertEquals(expected, JSON.parseObject(lines[i]));
+        }
+    }
+
+}
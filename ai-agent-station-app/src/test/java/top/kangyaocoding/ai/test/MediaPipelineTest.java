@@ -0,0 +1,306 @@
+package top.kangyaocoding.ai.test;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.content.Media;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.MimeType;
+import top.kangyaocoding.ai.domain.agent.service.media.MediaAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.media.MediaPreprocessor;
+import top.kangyaocoding.ai.infrastructure.media.MediaCache;
+import top.kangyaocoding.ai.infrastructure.media.MediaPipeline;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 描述: 媒体预处理测试；大图缩到 max_pixels 以内且宽高为 28 的倍数，同一图片只下载、处理一次，重启后仍命中磁盘缓存，失败时使用原图，内网地址与重定向到内网的地址不下载
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:40
+ */
+public class MediaPipelineTest {
+
+    private static final MimeType PNG = MimeType.valueOf("image/png");
+
+    private Path directory;
+    private HttpServer server;
+    private final Map<String, byte[]> images = new ConcurrentHashMap<>();
+    private final Map<String, String> redirects = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> downloads = new ConcurrentHashMap<>();
+
+    @Before
+    public void init() throws Exception {
+        this.directory = Files.createTempDirectory("media-cache");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newFixedThreadPool(8));
+        this.server.createContext("/", exchange -> {
+            try (exchange) {
+                String path = exchange.getRequestURI().getPath();
+                String location = this.redirects.get(path);
+                if (location != null) {
+                    exchange.getResponseHeaders().set("Location", location);
+                    exchange.sendResponseHeaders(302, -1);
+                    return;
+                }
+                byte[] image = this.images.get(path);
+                if (image == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                this.downloads.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+                // 放慢下载，让并发请求落在同一次下载上
+                Thread.sleep(100);
+                exchange.sendResponseHeaders(200, image.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(image);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        this.server.start();
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        this.server.stop(0);
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    public void test_largeImageResizedOnceAndCachedAcrossRestarts() throws Exception {
+        this.images.put("/large.png", png(3000, 2000, false));
+        Media original = media(this.url("/large.png"));
+
+        try (MediaPipeline pipeline = this.pipeline(MediaPipeline.Delivery.INLINE)) {
+            Media processed = pipeline.process(original);
+            Assert.assertEquals("image/jpeg", processed.getMimeType().toString());
+            String data = (String) processed.getData();
+            Assert.assertTrue(data.startsWith("data:image/jpeg;base64,"));
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(data.substring(data.indexOf(',') + 1))));
+            Assert.assertTrue((long) image.getWidth() * image.getHeight() <= 1280L * 28 * 28);
+            Assert.assertEquals(0, image.getWidth() % 28);
+            Assert.assertEquals(0, image.getHeight() % 28);
+            Assert.assertEquals(1.5, (double) image.getWidth() / image.getHeight(), 0.05);
+
+            Assert.assertEquals(data, pipeline.process(original).getData());
+            Assert.assertEquals(1, pipeline.getMisses());
+            Assert.assertEquals(1, pipeline.getHits());
+            Assert.assertTrue(pipeline.getProcessedBytes() < pipeline.getDownloadedBytes());
+        }
+        // 重启后同一地址直接取磁盘缓存
+        try (MediaPipeline pipeline = this.pipeline(MediaPipeline.Delivery.INLINE)) {
+            pipeline.process(original);
+            Assert.assertEquals(1, pipeline.getHits());
+            Assert.assertEquals(0, pipeline.getDownloadedBytes());
+        }
+        Assert.assertEquals(1, this.downloads.get("/large.png").get());
+    }
+
+    @Test
+    public void test_concurrentRequestsShareOneDownload() throws Exception {
+        this.images.put("/shared.png", png(2400, 1800, false));
+        try (MediaPipeline pipeline = this.pipeline(MediaPipeline.Delivery.INLINE)) {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Media>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    futures.add(executor.submit(() -> pipeline.process(media(this.url("/shared.png")))));
+                }
+                Object first = futures.get(0).get().getData();
+                for (Future<Media> future : futures) {
+                    Assert.assertEquals(first, future.get().getData());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            Assert.assertEquals(1, this.downloads.get("/shared.png").get());
+            Assert.assertEquals(1, pipeline.getMisses());
+            Assert.assertEquals(7, pipeline.getShared() + pipeline.getHits());
+        }
+    }
+
+    @Test
+    public void test_urlDeliveryServesOriginalSmallImage() throws Exception {
+        byte[] small = png(200, 100, true);
+        this.images.put("/a.png", small);
+        this.images.put("/b.png", small);
+        try (MediaPipeline pipeline = this.pipeline(MediaPipeline.Delivery.URL)) {
+            Media first = pipeline.process(media(this.url("/a.png")));
+            Media second = pipeline.process(media(this.url("/b.png")));
+            String data = (String) first.getData();
+            Assert.assertTrue(data.startsWith("http://agent.test/api/v1/media/"));
+            // 不同地址的同一张图片指向同一个缓存对象
+            Assert.assertEquals(data, second.getData());
+            // 已经是本服务地址的媒体不再处理
+            Assert.assertSame(first, pipeline.process(first));
+
+            String id = data.substring(data.lastIndexOf('/') + 1);
+            MediaPreprocessor.Content content = pipeline.read(id).orElseThrow();
+            Assert.assertEquals(PNG, content.mimeType());
+            Assert.assertArrayEquals(small, bytes(content.data()));
+            Assert.assertTrue(pipeline.read("../../etc/passwd").isEmpty());
+        }
+    }
+
+    @Test
+    public void test_failuresFallBackToOriginalMedia() throws Exception {
+        try (MediaPipeline pipeline = this.pipeline(MediaPipeline.Delivery.INLINE)) {
+            Media missing = media(this.url("/missing.png"));
+            Assert.assertSame(missing, pipeline.process(missing));
+            Assert.assertEquals(1, pipeline.getFailures());
+
+            Media document = Media.builder().mimeType(MimeType.valueOf("application/pdf")).data(new byte[]{1, 2, 3}).build();
+            Assert.assertSame(document, pipeline.process(document));
+        }
+    }
+
+    @Test
+    public void test_advisorRewritesUserMessageMedia() throws Exception {
+        byte[] large = png(2000, 2000, false);
+        try (MediaPipeline pipeline = this.pipeline(MediaPipeline.Delivery.INLINE)) {
+            CapturingChatModel chatModel = new CapturingChatModel();
+            ChatClient chatClient = ChatClient.builder(chatModel)
+                    .defaultAdvisors(MediaAdvisor.builder(pipeline).build())
+                    .build();
+            chatClient.prompt()
+                    .user(user -> user.text("描述这张图片").media(PNG, new ByteArrayResource(large)))
+                    .call().content();
+
+            UserMessage message = (UserMessage) chatModel.prompt.getInstructions().get(0);
+            Assert.assertEquals("描述这张图片", message.getText());
+            Assert.assertEquals(1, message.getMedia().size());
+            Assert.assertTrue(((String) message.getMedia().get(0).getData()).startsWith("data:image/jpeg;base64,"));
+            Assert.assertEquals(1, pipeline.getMisses());
+        }
+    }
+
+    @Test
+    public void test_internalAddressesRejected() throws Exception {
+        this.images.put("/large.png", png(1200, 800, false));
+        int port = this.server.getAddress().getPort();
+        // 相对地址的重定向仍指向受信任的 127.0.0.1
+        this.redirects.put("/relative.png", "/large.png");
+        // localhost 同样解析到回环地址，但不在受信任主机中
+        this.redirects.put("/internal.png", "http://localhost:" + port + "/large.png");
+        this.redirects.put("/metadata.png", "http://169.254.169.254/latest/meta-data/");
+        this.redirects.put("/loop.png", "/loop.png");
+
+        try (MediaPipeline pipeline = this.pipeline(MediaPipeline.Delivery.INLINE);
+             MediaPipeline untrusted = MediaPipeline.builder(MediaCache.builder(this.directory.resolve("untrusted")).build())
+                     .threads(1)
+                     .build()) {
+            Media loopback = media(this.url("/large.png"));
+            Assert.assertSame(loopback, untrusted.process(loopback));
+            for (String url : List.of("http://10.0.0.1/a.png", "http://[::1]/a.png", "http://[fd00::1]/a.png",
+                    "http://100.64.0.1/a.png", "http://0.0.0.0/a.png")) {
+                Media internal = media(url);
+                Assert.assertSame(url, internal, untrusted.process(internal));
+            }
+            Assert.assertEquals(6, untrusted.getFailures());
+
+            Assert.assertTrue(((String) pipeline.process(media(this.url("/relative.png"))).getData()).startsWith("data:image/"));
+            for (String path : List.of("/internal.png", "/metadata.png", "/loop.png")) {
+                Media redirected = media(this.url(path));
+                Assert.assertSame(path, redirected, pipeline.process(redirected));
+            }
+            Assert.assertEquals(3, pipeline.getFailures());
+            Assert.assertEquals(1, this.downloads.get("/large.png").get());
+        }
+        Assert.assertThrows(IllegalArgumentException.class, () -> MediaPipeline.builder(MediaCache.builder(this.directory).build())
+                .httpClient(HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build())
+                .build());
+    }
+
+    private MediaPipeline pipeline(MediaPipeline.Delivery delivery) throws IOException {
+        return MediaPipeline.builder(MediaCache.builder(this.directory).build())
+                .delivery(delivery)
+                .baseUrl("http://agent.test/api/v1/media/")
+                .trustedHosts(List.of("127.0.0.1"))
+                .threads(2)
+                .build();
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort() + path;
+    }
+
+    private static Media media(String url) {
+        return Media.builder().mimeType(PNG).data(URI.create(url)).build();
+    }
+
+    private static byte[] png(int width, int height, boolean alpha) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillOval(width / 4, height / 4, width / 2, height / 2);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static class CapturingChatModel implements ChatModel {
+        private Prompt prompt;
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            this.prompt = prompt;
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+        }
+
+        @Override
+        public ChatOptions getDefaultOptions() {
+            return ToolCallingChatOptions.builder().build();
+        }
+    }
+
+}
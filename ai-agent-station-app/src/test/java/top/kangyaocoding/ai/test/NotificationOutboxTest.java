@@ -0,0 +1,203 @@
+package top.kangyaocoding.ai.test;
+
+import io.modelcontextprotocol.client.McpSyncClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.util.FileSystemUtils;
+import top.kangyaocoding.ai.domain.agent.service.notify.Notification;
+import top.kangyaocoding.ai.domain.agent.service.notify.OutboxToolCallback;
+import top.kangyaocoding.ai.infrastructure.notify.FileNotificationOutbox;
+import top.kangyaocoding.ai.test.support.StubDingTalkMcpServer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * 描述: 通知发件箱测试；工具调用只入队，经本地钉钉 MCP 服务按渠道合并、限流、重试送达，重启后继续发送
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:40
+ */
+public class NotificationOutboxTest {
+
+    private Path directory;
+    private final List<AutoCloseable> closeables = new ArrayList<>();
+
+    @Before
+    public void init() throws Exception {
+        this.directory = Files.createTempDirectory("notification");
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        Collections.reverse(this.closeables);
+        for (AutoCloseable closeable : this.closeables) {
+            closeable.close();
+        }
+        FileSystemUtils.deleteRecursively(this.directory);
+    }
+
+    @Test
+    public void test_toolCallsCoalescedIntoDigests() throws Exception {
+        Path log = this.directory.resolve("dingtalk.jsonl");
+        // 机器人每分钟只允许 3 条，30 条通知逐条发送必然被限流
+        McpSyncClient client = this.closeLater(StubDingTalkMcpServer.client(log, 3, 0, 50));
+        FileNotificationOutbox outbox = this.closeLater(FileNotificationOutbox.builder(this.directory.resolve("outbox"))
+                .window(Duration.ofMillis(300))
+                .maxBatch(20)
+                .ratePerMinute(3)
+                .burst(3)
+                .build());
+        ToolCallback tool = this.sendTextTool(client, outbox);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 30; i++) {
+            Assert.assertTrue(tool.call("{\"content\":\"文章 " + i + " 已发布\"}").contains("发送队列"));
+        }
+        // 智能体不等待 MCP 往返与限流
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+        await(() -> outbox.getSent() == 30, Duration.ofSeconds(20));
+        List<String> delivered = StubDingTalkMcpServer.delivered(log);
+        Assert.assertEquals(2, delivered.size());
+        Assert.assertTrue(delivered.get(0).startsWith("共 20 条通知"));
+        Assert.assertTrue(delivered.get(1).startsWith("共 10 条通知"));
+        String all = String.join("\n", delivered);
+        for (int i = 0; i < 30; i++) {
+            Assert.assertTrue(all.contains("文章 " + i + " 已发布"));
+        }
+        Assert.assertEquals(2, outbox.getDigests());
+        Assert.assertEquals(0, outbox.getRetries());
+        Assert.assertEquals(0, outbox.getPending());
+        Assert.assertTrue(isEmpty(this.directory.resolve("outbox").resolve("pending")));
+    }
+
+    @Test
+    public void test_differentArgumentsNotMerged() throws Exception {
+        Path log = this.directory.resolve("dingtalk.jsonl");
+        McpSyncClient client = this.closeLater(StubDingTalkMcpServer.client(log, 20, 0, 0));
+        FileNotificationOutbox outbox = this.closeLater(FileNotificationOutbox.builder(this.directory.resolve("outbox"))
+                .window(Duration.ofMillis(200))
+                .build());
+        ToolCallback tool = this.sendTextTool(client, outbox);
+
+        tool.call("{\"content\":\"a\"}");
+        tool.call("{\"content\":\"b\",\"atMobiles\":[\"13800000000\"]}");
+        tool.call("{\"atMobiles\":[\"13800000000\"],\"content\":\"c\"}");
+        await(() -> outbox.getSent() == 3, Duration.ofSeconds(10));
+
+        Assert.assertEquals(List.of("a", "共 2 条通知"), StubDingTalkMcpServer.delivered(log).stream()
+                .map(content -> content.split("\n")[0]).toList());
+    }
+
+    @Test
+    public void test_retriesWithBackoff() throws Exception {
+        Path log = this.directory.resolve("dingtalk.jsonl");
+        McpSyncClient client = this.closeLater(StubDingTalkMcpServer.client(log, 20, 2, 0));
+        FileNotificationOutbox outbox = this.closeLater(FileNotificationOutbox.builder(this.directory.resolve("outbox"))
+                .window(Duration.ZERO)
+                .initialBackoff(Duration.ofMillis(100))
+                .build());
+        ToolCallback tool = this.sendTextTool(client, outbox);
+
+        tool.call("{\"content\":\"重试后送达\"}");
+        await(() -> outbox.getSent() == 1, Duration.ofSeconds(10));
+        Assert.assertEquals(List.of("重试后送达"), StubDingTalkMcpServer.delivered(log));
+        Assert.assertEquals(2, outbox.getRetries());
+    }
+
+    @Test
+    public void test_tokenBucketSpacesSends() throws Exception {
+        List<Long> sentAt = Collections.synchronizedList(new ArrayList<>());
+        FileNotificationOutbox outbox = this.closeLater(FileNotificationOutbox.builder(this.directory.resolve("outbox"))
+                .window(Duration.ZERO)
+                .maxBatch(1)
+                .ratePerMinute(600)
+                .burst(1)
+                .build());
+        outbox.register("bot", notification -> sentAt.add(System.nanoTime()));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(outbox.offer(new Notification("bot", "{}", "n" + i, System.currentTimeMillis())));
+        }
+        await(() -> outbox.getSent() == 5, Duration.ofSeconds(10));
+        // 每秒 10 条、突发 1 条：5 条至少间隔 4 个 100ms
+        Assert.assertTrue(sentAt.get(4) - sentAt.get(0) >= TimeUnit.MILLISECONDS.toNanos(350));
+    }
+
+    @Test
+    public void test_pendingSurvivesRestartAndDeadLetters() throws Exception {
+        Path outboxDirectory = this.directory.resolve("outbox");
+        FileNotificationOutbox first = FileNotificationOutbox.builder(outboxDirectory).build();
+        // 未注册发送方的渠道只积压
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(first.offer(new Notification("bot", "{}", "n" + i, System.currentTimeMillis())));
+        }
+        first.close();
+        Assert.assertFalse(first.offer(new Notification("bot", "{}", "closed", System.currentTimeMillis())));
+
+        List<String> texts = Collections.synchronizedList(new ArrayList<>());
+        FileNotificationOutbox second = this.closeLater(FileNotificationOutbox.builder(outboxDirectory).build());
+        Assert.assertEquals(3, second.getPending());
+        second.register("bot", notification -> texts.add(notification.text()));
+        await(() -> second.getSent() == 3, Duration.ofSeconds(10));
+        Assert.assertEquals(1, texts.size());
+        Assert.assertTrue(texts.get(0).startsWith("共 3 条通知"));
+
+        FileNotificationOutbox failing = this.closeLater(FileNotificationOutbox.builder(this.directory.resolve("failing"))
+                .window(Duration.ZERO)
+                .maxAttempts(2)
+                .initialBackoff(Duration.ofMillis(50))
+                .build());
+        failing.register("bot", notification -> {
+            throw new IllegalStateException("errcode 300001");
+        });
+        failing.offer(new Notification("bot", "{}", "失败", System.currentTimeMillis()));
+        await(() -> failing.getDeadLettered() == 1, Duration.ofSeconds(10));
+        Assert.assertEquals(1, failing.getRetries());
+        try (Stream<Path> dead = Files.list(this.directory.resolve("failing").resolve("dead"))) {
+            Assert.assertEquals(1, dead.count());
+        }
+    }
+
+    private ToolCallback sendTextTool(McpSyncClient client, FileNotificationOutbox outbox) {
+        ToolCallback[] callbacks = new SyncMcpToolCallbackProvider(client).getToolCallbacks();
+        String name = Arrays.stream(callbacks).map(callback -> callback.getToolDefinition().name())
+                .filter(toolName -> toolName.endsWith(StubDingTalkMcpServer.TOOL)).findFirst().orElseThrow();
+        ToolCallback[] wrapped = OutboxToolCallback.wrap(callbacks, Set.of(name), outbox);
+        Assert.assertTrue(wrapped[0] instanceof OutboxToolCallback);
+        return wrapped[0];
+    }
+
+    private <T extends AutoCloseable> T closeLater(T closeable) {
+        this.closeables.add(closeable);
+        return closeable;
+    }
+
+    private static boolean isEmpty(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findAny().isEmpty();
+        }
+    }
+
+    private static void await(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("等待超时", System.nanoTime() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+package top.kangyaocoding.ai.test;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import top.kangyaocoding.ai.infrastructure.embedding.KnowledgeEmbeddingModel;
+import top.kangyaocoding.ai.infrastructure.embedding.OnnxEmbeddingModel;
+import top.kangyaocoding.ai.infrastructure.embedding.WordPieceTokenizer;
+import top.kangyaocoding.ai.infrastructure.vector.KnowledgeRoutingVectorStore;
+import top.kangyaocoding.ai.test.support.RandomEmbeddingModel;
+import top.kangyaocoding.ai.test.support.SyntheticOnnxModel;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 描述: 本地 ONNX 向量模型测试；分词与 BertTokenizer 一致，批量推理与逐条推理结果相同，按知识库选择模型并校验维度，跨模型的检索按模型拆分
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 13:50
+ */
+public class OnnxEmbeddingModelTest {
+
+    private static final List<String> WORDS = List.of("知", "识", "库", "检", "索", "向", "量", ",", ".", "spring", "ai",
+            "embed", "##ding", "##s", "model", "cafe", "local");
+
+    private static Path directory;
+    private static SyntheticOnnxModel synthetic;
+    private static Path modelPath;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        directory = Files.createTempDirectory("onnx-embedding");
+        synthetic = new SyntheticOnnxModel(SyntheticOnnxModel.vocabulary(WORDS), 16, 0, 0);
+        modelPath = synthetic.write(directory);
+    }
+
+    @AfterClass
+    public static void cleanup() throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    public void test_wordPiece() throws Exception {
+        WordPieceTokenizer tokenizer = WordPieceTokenizer.load(directory.resolve("vocab.txt"), true);
+        Assert.assertArrayEquals(ids("[CLS]", "spring", "ai", "embed", "##ding", "##s", ",", "知", "识", "库", "[SEP]"),
+                tokenizer.encode("Spring AI Embeddings,知识库", 64));
+        // 去重音、未登录词、控制字符
+        Assert.assertArrayEquals(ids("[CLS]", "cafe", "[UNK]", "local", "[SEP]"),
+                tokenizer.encode("Café\u0000 unknown\tlocal", 64));
+        // 截断时保留 [SEP]
+        Assert.assertArrayEquals(ids("[CLS]", "知", "识", "[SEP]"), tokenizer.encode("知识库检索", 4));
+    }
+
+    @Test
+    public void test_batchedEqualsSingle() {
+        try (OnnxEmbeddingModel model = model("batched", 2, 8)) {
+            Assert.assertEquals(16, model.dimensions());
+            List<String> texts = List.of("知识库", "spring ai embeddings local model", "检索", "向量 知识库 检索 spring");
+            List<float[]> batched = model.embed(texts);
+            for (int i = 0; i < texts.size(); i++) {
+                Assert.assertArrayEquals(model.embed(texts.get(i)), batched.get(i), 1e-5f);
+            }
+            // 输出即词向量，均值池化后归一化
+            float[] expected = new float[16];
+            for (String token : List.of("[CLS]", "检", "索", "[SEP]")) {
+                float[] row = synthetic.row(synthetic.id(token));
+                for (int d = 0; d < expected.length; d++) {
+                    expected[d] += row[d] / 4;
+                }
+            }
+            Assert.assertArrayEquals(normalized(expected), batched.get(2), 1e-5f);
+            Assert.assertEquals(1.0, norm(batched.get(1)), 1e-5);
+        }
+    }
+
+    @Test
+    public void test_concurrentCallsShareBatchesAndTokens() throws Exception {
+        try (OnnxEmbeddingModel model = model("concurrent", 1, 16)) {
+            String[] texts = {"知识库", "检索", "向量", "spring ai", "local model", "知识库 检索"};
+            float[][] expected = new float[texts.length][];
+            for (int i = 0; i < texts.length; i++) {
+                expected[i] = model.embed(texts[i]);
+            }
+            long batchesBefore = model.getBatches();
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<float[]>> futures = new ArrayList<>();
+                for (int i = 0; i < 240; i++) {
+                    String text = texts[i % texts.length];
+                    futures.add(executor.submit(() -> model.embed(text)));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    Assert.assertArrayEquals(expected[i % texts.length], futures.get(i).get(), 1e-5f);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            Assert.assertTrue(model.getBatches() - batchesBefore <= 240);
+            Assert.assertEquals(texts.length, model.getTokenCacheMisses());
+            Assert.assertEquals(240, model.getTokenCacheHits());
+            Assert.assertEquals(0, model.getQueueDepth());
+        }
+    }
+
+    @Test
+    public void test_closedModelRejectsCalls() {
+        OnnxEmbeddingModel model = model("closed", 1, 4);
+        model.close();
+        Assert.assertThrows(IllegalStateException.class, () -> model.embed("知识库"));
+    }
+
+    @Test
+    public void test_knowledgeRouting() throws Exception {
+        RandomEmbeddingModel remote = new RandomEmbeddingModel(16);
+        OnnxEmbeddingModel local = model("local", 1, 8);
+        KnowledgeEmbeddingModel routing = KnowledgeEmbeddingModel.builder(remote)
+                .knowledge("handbook", local)
+                .dimensions(16)
+                .build();
+        try {
+            Document handbook = new Document("知识库检索", Map.of("knowledge", "handbook"));
+            Document other = new Document("知识库检索", Map.of("knowledge", "faq"));
+            Document untagged = new Document("知识库检索");
+            List<float[]> embeddings = routing.embed(List.of(other, handbook, untagged),
+                    EmbeddingOptionsBuilder.builder().build(), new TokenCountBatchingStrategy());
+            Assert.assertArrayEquals(local.embed(handbook), embeddings.get(1), 1e-6f);
+            Assert.assertArrayEquals(remote.embed(other), embeddings.get(0), 1e-6f);
+            Assert.assertArrayEquals(remote.embed(untagged), embeddings.get(2), 1e-6f);
+
+            // 检索问题按当前线程绑定的知识库选择模型
+            Assert.assertArrayEquals(local.embed("知识库检索"),
+                    KnowledgeEmbeddingModel.withKnowledge("handbook", () -> routing.embed("知识库检索")), 1e-6f);
+            Assert.assertArrayEquals(remote.embed("知识库检索"), routing.embed("知识库检索"), 1e-6f);
+            Assert.assertSame(remote, routing.select("faq"));
+        } finally {
+            routing.destroy();
+        }
+        Assert.assertThrows(IllegalStateException.class, () -> local.embed("知识库"));
+    }
+
+    @Test
+    public void test_searchAcrossModelsFansOut() throws Exception {
+        RandomEmbeddingModel remote = new RandomEmbeddingModel(16);
+        KnowledgeEmbeddingModel routing = KnowledgeEmbeddingModel.builder(remote)
+                .knowledge("handbook", model("fan-out", 1, 8))
+                .dimensions(16)
+                .build();
+        SimpleVectorStore store = SimpleVectorStore.builder(routing).build();
+        store.add(List.of(new Document("handbook", "知识库检索", Map.of("knowledge", "handbook")),
+                new Document("faq", "知识库检索", Map.of("knowledge", "faq")),
+                new Document("guide", "向量检索", Map.of("knowledge", "guide"))));
+        KnowledgeRoutingVectorStore vectorStore = new KnowledgeRoutingVectorStore(store, "knowledge", List.of(),
+                Executors.newSingleThreadScheduledExecutor(), routing);
+        try {
+            // 每个知识库的文档都用写入时的模型向量化问题，同一文本的相似度为 1
+            List<Document> unfiltered = vectorStore.similaritySearch(SearchRequest.builder().query("知识库检索").topK(2).build());
+            Assert.assertEquals(Set.of("handbook", "faq"), unfiltered.stream().map(Document::getId).collect(Collectors.toSet()));
+            unfiltered.forEach(document -> Assert.assertEquals(1.0, document.getScore(), 1e-4));
+
+            List<Document> filtered = vectorStore.similaritySearch(SearchRequest.builder().query("知识库检索").topK(3)
+                    .filterExpression(new FilterExpressionBuilder().in("knowledge", "handbook", "guide").build()).build());
+            Assert.assertEquals("handbook", filtered.get(0).getId());
+            Assert.assertEquals(1.0, filtered.get(0).getScore(), 1e-4);
+            Assert.assertTrue(filtered.stream().allMatch(document -> Set.of("handbook", "guide").contains(document.getId())));
+        } finally {
+            vectorStore.destroy();
+            routing.destroy();
+        }
+    }
+
+    @Test
+    public void test_dimensionMismatchRejected() {
+        EmbeddingModel remote = new RandomEmbeddingModel(1536);
+        try (OnnxEmbeddingModel local = model("mismatch", 1, 4)) {
+            IllegalStateException e = Assert.assertThrows(IllegalStateException.class, () -> KnowledgeEmbeddingModel.builder(remote)
+                    .knowledge("handbook", local)
+                    .dimensions(1536)
+                    .build());
+            Assert.assertTrue(e.getMessage().contains("spring.ai.vectorstore.pgvector.dimensions"));
+        }
+    }
+
+    private static OnnxEmbeddingModel model(String name, int sessions, int maxBatchSize) {
+        return OnnxEmbeddingModel.builder()
+                .name(name)
+                .modelPath(modelPath)
+                .sessions(sessions)
+                .maxBatchSize(maxBatchSize)
+                .maxSequenceLength(32)
+                .build();
+    }
+
+    private static int[] ids(String... tokens) {
+        int[] ids = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            ids[i] = synthetic.id(tokens[i]);
+            Assert.assertTrue(tokens[i], ids[i] >= 0);
+        }
+        return ids;
+    }
+
+    private static float[] normalized(float[] vector) {
+        double norm = norm(vector);
+        float[] result = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = (float) (vector[i] / norm);
+        }
+        return result;
+    }
+
+    private static double norm(float[] vector) {
+        double sum = 0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        return Math.sqrt(sum);
+    }
+
+}
@@ -23,6 +23,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
 import reactor.core.publisher.Flux;
+import top.kangyaocoding.ai.infrastructure.media.MediaPipeline;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -47,6 +48,8 @@ public class OpenAiTest {
     private PgVectorStore pgVectorStore;
     @Resource
     private TokenTextSplitter tokenTextSplitter;
+    @Resource
+    private MediaPipeline mediaPipeline;
 
     @Test
     public void testCall() {
@@ -80,12 +83,13 @@ public class OpenAiTest {
     @Test
     public void testImage() throws URISyntaxException {
         log.info("测试image服务");
+        // 图片下载一次并缩放后缓存，再次运行直接取 data/media 中的缓存
         UserMessage userMessage = UserMessage.builder()
                 .text("请用中文描述这个图片")
-                .media(Media.builder()
+                .media(mediaPipeline.process(Media.builder()
                         .mimeType(MimeType.valueOf(MimeTypeUtils.IMAGE_PNG_VALUE))
                         .data(new URI("https://img-s-msn-com.akamaized.net/tenant/amp/entityid/AAOEcgc.img"))
-                        .build())
+                        .build()))
                 .build();
         ChatResponse chatResponse = openAiChatModel.call(new Prompt(userMessage,
                 OpenAiChatOptions.builder()
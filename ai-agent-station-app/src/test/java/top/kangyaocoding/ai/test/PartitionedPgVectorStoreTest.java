@@ -0,0 +1,186 @@
+package top.kangyaocoding.ai.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import top.kangyaocoding.ai.domain.agent.service.rag.FilterExpressionCache;
+import top.kangyaocoding.ai.infrastructure.vector.PartitionedPgVectorStore;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorFilterSqlConverter;
+import top.kangyaocoding.ai.test.support.RandomEmbeddingModel;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 描述: 分表向量存储的分区映射测试；其他节点新建的分区在本节点的检索与删除中可见，不需要数据库
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:50
+ */
+public class PartitionedPgVectorStoreTest {
+
+    private static final Pattern REGISTER = Pattern.compile("INSERT INTO \\S+_partition .*");
+    private static final Pattern CREATED = Pattern.compile("CREATE (?:TABLE|INDEX) IF NOT EXISTS (?:public\\.)?(\\S+)");
+
+    @Test
+    public void test_partitionCreatedByAnotherNodeIsVisible() {
+        RegistryJdbcTemplate jdbcTemplate = new RegistryJdbcTemplate();
+        PartitionedPgVectorStore nodeA = store(jdbcTemplate);
+        PartitionedPgVectorStore nodeB = store(jdbcTemplate);
+        Assert.assertTrue(nodeB.getPartitions().isEmpty());
+
+        nodeA.add(List.of(new Document("部署手册", Map.of("knowledge", "handbook"))));
+        Assert.assertEquals(Map.of("handbook", "vector_store_kb_handbook"), jdbcTemplate.registry);
+
+        // 指定分区未命中时从注册表重新加载
+        jdbcTemplate.statements.clear();
+        nodeB.delete(new FilterExpressionBuilder().eq("knowledge", "handbook").build());
+        Assert.assertEquals(Map.of("handbook", "vector_store_kb_handbook"), nodeB.getPartitions());
+        Assert.assertTrue(jdbcTemplate.statements.toString(),
+                jdbcTemplate.statements.contains("DELETE FROM public.vector_store_kb_handbook"));
+
+        // 删除全部分区中的 id 前重新加载
+        nodeA.add(List.of(new Document("回滚流程", Map.of("knowledge", "runbook"))));
+        jdbcTemplate.statements.clear();
+        nodeB.delete(List.of("id-1"));
+        Assert.assertTrue(jdbcTemplate.statements.toString(),
+                jdbcTemplate.statements.contains("DELETE FROM public.vector_store_kb_runbook WHERE id = ?"));
+    }
+
+    @Test
+    public void test_concurrentCreationRegistersOnce() throws Exception {
+        RegistryJdbcTemplate jdbcTemplate = new RegistryJdbcTemplate();
+        PartitionedPgVectorStore store = store(jdbcTemplate);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> store.add(List.of(new Document("文档", Map.of("knowledge", "handbook")))));
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(Map.of("handbook", "vector_store_kb_handbook"), store.getPartitions());
+        Assert.assertEquals(Map.of("handbook", "vector_store_kb_handbook"), jdbcTemplate.registry);
+    }
+
+    @Test
+    public void test_identifiersDerivedFromMaxLengthTableNameStayDistinct() {
+        String tablePrefix = "vector_store_" + "x".repeat(50);
+        String tableName = PartitionedPgVectorStore.tableNameOf(tablePrefix, "handbook");
+        Assert.assertEquals(63, tableName.length());
+
+        RegistryJdbcTemplate jdbcTemplate = new RegistryJdbcTemplate();
+        PartitionedPgVectorStore store = PartitionedPgVectorStore.builder(jdbcTemplate, new RandomEmbeddingModel(8),
+                        new FilterExpressionCache(64, new PgVectorFilterSqlConverter(List.of())))
+                .dimensions(8)
+                .tablePrefix(tablePrefix)
+                .indexedMetadataKeys(List.of("source"))
+                .metadataGinIndex(true)
+                .build();
+        store.afterPropertiesSet();
+        store.add(List.of(new Document("部署手册", Map.of("knowledge", "handbook"))));
+
+        // 以 63 字符的表名为前缀的索引名也不超过上限，且互不相同、不与表名相同（否则 PG 截断后 IF NOT EXISTS 静默跳过）
+        List<String> names = new ArrayList<>();
+        for (String statement : jdbcTemplate.statements) {
+            Matcher matcher = CREATED.matcher(statement.strip());
+            if (matcher.lookingAt()) {
+                names.add(matcher.group(1));
+            }
+        }
+        // 分区注册表、分区表、向量索引、GIN 索引、元数据键索引
+        Assert.assertEquals(names.toString(), 5, names.size());
+        Assert.assertTrue(names.toString(), names.contains(tableName));
+        Assert.assertEquals(names.toString(), names.size(), new HashSet<>(names).size());
+        names.forEach(name -> Assert.assertTrue(name, name.length() <= 63));
+    }
+
+    private static PartitionedPgVectorStore store(JdbcTemplate jdbcTemplate) {
+        PartitionedPgVectorStore store = PartitionedPgVectorStore.builder(jdbcTemplate, new RandomEmbeddingModel(8),
+                        new FilterExpressionCache(64, new PgVectorFilterSqlConverter(List.of())))
+                .dimensions(8)
+                .partitionRefreshInterval(Duration.ofMinutes(10))
+                .build();
+        store.afterPropertiesSet();
+        return store;
+    }
+
+    /**
+     * 只模拟分区注册表：登记写入内存 Map，查询从 Map 返回；其余语句只记录不执行
+     */
+    private static class RegistryJdbcTemplate extends JdbcTemplate {
+
+        private final Map<String, String> registry = new ConcurrentHashMap<>();
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void execute(String sql) {
+            this.statements.add(sql);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            this.statements.add(sql);
+            if (REGISTER.matcher(sql).matches()) {
+                this.registry.putIfAbsent((String) args[0], (String) args[1]);
+            }
+            return 1;
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            this.statements.add(sql);
+            // 新建的分区表视为已存在，以便创建元数据索引
+            return requiredType.cast(sql.contains("information_schema.tables"));
+        }
+
+        @Override
+        public int update(String sql) {
+            this.statements.add(sql);
+            return 1;
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            this.statements.add(sql);
+            return new int[batchArgs.size()];
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            this.statements.add(sql);
+            for (Map.Entry<String, String> entry : Map.copyOf(this.registry).entrySet()) {
+                try {
+                    rch.processRow(row(entry.getKey(), entry.getValue()));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        private static ResultSet row(String partitionValue, String tableName) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        if (!"getString".equals(method.getName())) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return "partition_value".equals(args[0]) ? partitionValue : tableName;
+                    });
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package top.kangyaocoding.ai.test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import reactor.core.publisher.Flux;
+import top.kangyaocoding.ai.domain.agent.service.observability.AgentObservationAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.observability.ObservedToolCallback;
+import top.kangyaocoding.ai.domain.agent.service.observability.ObservedVectorStore;
+import top.kangyaocoding.ai.domain.agent.service.observability.PipelineObservations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 链路观测测试；LLM 计时、首 token、token 用量，以及下游阶段继承 agent 标签，不依赖外部服务
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:20
+ */
+@Slf4j
+public class PipelineObservationsTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PipelineObservations observations = new PipelineObservations(meterRegistry, observationRegistry(meterRegistry), 1.0, 100);
+
+    @Test
+    public void test_call_records_llm_and_nested_stages() {
+        VectorStore vectorStore = new ObservedVectorStore(new StaticVectorStore(), observations);
+        ToolCallback tool = ObservedToolCallback.wrap("weather-server", new ToolCallback[]{new EchoToolCallback()}, observations)[0];
+        AgentObservationAdvisor advisor = AgentObservationAdvisor.builder(observations).agent("qa-agent").build();
+
+        CallAdvisorChain chain = new CallAdvisorChain() {
+            @Override
+            public ChatClientResponse nextCall(ChatClientRequest request) {
+                vectorStore.similaritySearch(SearchRequest.builder().query("q").build());
+                tool.call("{}");
+                return new ChatClientResponse(response("回答", "qwen3-14b", 120, 30), Map.of());
+            }
+
+            @Override
+            public List<CallAdvisor> getCallAdvisors() {
+                return List.of();
+            }
+        };
+        advisor.adviseCall(request(), chain);
+
+        Assert.assertEquals(1, meterRegistry.get(PipelineObservations.LLM_OBSERVATION)
+                .tags(PipelineObservations.AGENT, "qa-agent", PipelineObservations.MODEL, "qwen3-14b", PipelineObservations.MODE, "call").timer().count());
+        Assert.assertEquals(1, meterRegistry.get(PipelineObservations.PIPELINE_OBSERVATION)
+                .tags(PipelineObservations.STAGE, "vector_search", PipelineObservations.AGENT, "qa-agent").timer().count());
+        Assert.assertEquals(1, meterRegistry.get(PipelineObservations.PIPELINE_OBSERVATION)
+                .tags(PipelineObservations.STAGE, "tool_call", PipelineObservations.AGENT, "qa-agent", ObservedToolCallback.SERVER, "weather-server").timer().count());
+        Assert.assertEquals(120, meterRegistry.get(PipelineObservations.TOKENS_METRIC).tags("type", "prompt").counter().count(), 0);
+        Assert.assertEquals(30, meterRegistry.get(PipelineObservations.TOKENS_METRIC).tags("type", "completion").counter().count(), 0);
+    }
+
+    @Test
+    public void test_stream_records_first_token() {
+        AgentObservationAdvisor advisor = AgentObservationAdvisor.builder(observations).agent("stream-agent").build();
+        StreamAdvisorChain chain = new StreamAdvisorChain() {
+            @Override
+            public Flux<ChatClientResponse> nextStream(ChatClientRequest request) {
+                return Flux.just(response("你", null, 0, 0), response("好", null, 0, 0), response("", "qwen3-14b", 50, 2))
+                        .delayElements(Duration.ofMillis(50))
+                        .map(chatResponse -> new ChatClientResponse(chatResponse, Map.of()));
+            }
+
+            @Override
+            public List<StreamAdvisor> getStreamAdvisors() {
+                return List.of();
+            }
+        };
+        Assert.assertEquals(3, advisor.adviseStream(request(), chain).collectList().block().size());
+
+        Timer ttft = meterRegistry.get(PipelineObservations.TTFT_METRIC).tags(PipelineObservations.AGENT, "stream-agent").timer();
+        Timer total = meterRegistry.get(PipelineObservations.LLM_OBSERVATION).tags(PipelineObservations.AGENT, "stream-agent").timer();
+        Assert.assertEquals(1, ttft.count());
+        Assert.assertTrue(ttft.totalTime(TimeUnit.MILLISECONDS) < total.totalTime(TimeUnit.MILLISECONDS));
+        Assert.assertEquals(50, meterRegistry.get(PipelineObservations.TOKENS_METRIC)
+                .tags(PipelineObservations.AGENT, "stream-agent", "type", "prompt").counter().count(), 0);
+    }
+
+    @Test
+    public void test_overhead() {
+        PipelineObservations noop = new PipelineObservations(meterRegistry, ObservationRegistry.NOOP, 0, 100);
+        VectorStore observed = new ObservedVectorStore(new StaticVectorStore(), observations);
+        VectorStore unobserved = new ObservedVectorStore(new StaticVectorStore(), noop);
+        SearchRequest request = SearchRequest.builder().query("q").build();
+        int iterations = 200_000;
+        for (int i = 0; i < iterations; i++) {
+            observed.similaritySearch(request);
+            unobserved.similaritySearch(request);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            observed.similaritySearch(request);
+        }
+        long observedNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            unobserved.similaritySearch(request);
+        }
+        long noopNanos = System.nanoTime() - start;
+        log.info("单次阶段观测开销：{}ns，未接入监控：{}ns", observedNanos / iterations, noopNanos / iterations);
+        Assert.assertTrue(observedNanos / iterations < 20_000);
+    }
+
+    private static ObservationRegistry observationRegistry(MeterRegistry meterRegistry) {
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        return registry;
+    }
+
+    private static ChatClientRequest request() {
+        return new ChatClientRequest(new Prompt("今天天气如何"), Map.of());
+    }
+
+    private static ChatResponse response(String text, String model, int promptTokens, int completionTokens) {
+        ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder();
+        if (model != null) {
+            metadata.model(model).usage(new DefaultUsage(promptTokens, completionTokens));
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata.build());
+    }
+
+    private static class StaticVectorStore implements VectorStore {
+
+        @Override
+        public void add(List<Document> documents) {
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            return List.of();
+        }
+    }
+
+    private static class EchoToolCallback implements ToolCallback {
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return ToolDefinition.builder().name("echo").description("echo").inputSchema("{}").build();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return toolInput;
+        }
+    }
+
+}
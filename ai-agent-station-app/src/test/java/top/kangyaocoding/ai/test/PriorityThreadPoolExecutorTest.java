@@ -0,0 +1,287 @@
+package top.kangyaocoding.ai.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import top.kangyaocoding.ai.infrastructure.scheduling.PriorityThreadPoolExecutor;
+import top.kangyaocoding.ai.infrastructure.scheduling.TrafficClass;
+import top.kangyaocoding.ai.infrastructure.scheduling.TrafficContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 描述: 流量调度线程池测试；交互式严格优先于批处理，同级按租户权重分配，排队超时的任务提前或出队时被拒绝
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:10
+ */
+public class PriorityThreadPoolExecutorTest {
+
+    @Test
+    public void test_interactiveOvertakesBatchBacklog() throws Exception {
+        PriorityThreadPoolExecutor executor = singleThread().build();
+        try {
+            CountDownLatch release = block(executor);
+            List<String> order = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                executor.execute(TrafficClass.BATCH, "t", () -> order.add("batch"));
+            }
+            executor.execute(TrafficClass.INGESTION, "t", () -> order.add("ingestion"));
+            // 未显式标记时取提交线程的上下文
+            try (TrafficContext.Scope ignored = TrafficContext.open(TrafficClass.INTERACTIVE, "t")) {
+                executor.execute(() -> order.add("interactive"));
+            }
+            Assert.assertEquals(5, executor.getQueueDepth(TrafficClass.BATCH));
+            Assert.assertEquals(1, executor.getQueueDepth(TrafficClass.INTERACTIVE));
+
+            release.countDown();
+            drain(executor);
+            Assert.assertEquals("interactive", order.get(0));
+            Assert.assertEquals("ingestion", order.get(order.size() - 1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_weightedFairShareAcrossTenants() throws Exception {
+        PriorityThreadPoolExecutor executor = singleThread().tenantWeight("gold", 3).build();
+        try {
+            CountDownLatch release = block(executor);
+            List<String> order = new CopyOnWriteArrayList<>();
+            // 积压多的租户先入队，也不会挤占后入队的租户
+            for (int i = 0; i < 40; i++) {
+                executor.execute(TrafficClass.BATCH, "bronze", () -> order.add("bronze"));
+            }
+            for (int i = 0; i < 40; i++) {
+                executor.execute(TrafficClass.BATCH, "gold", () -> order.add("gold"));
+            }
+            release.countDown();
+            drain(executor);
+
+            long gold = order.subList(0, 40).stream().filter("gold"::equals).count();
+            Assert.assertEquals(30, gold, 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_workerRunsInTaskContext() throws Exception {
+        PriorityThreadPoolExecutor executor = singleThread().build();
+        try {
+            Future<TrafficContext> nested = executor.submit(TrafficClass.BATCH, "tenant-a",
+                    () -> executor.submit(TrafficContext::current)).get(5, TimeUnit.SECONDS);
+            // 任务内提交的子任务沿用外层任务的类别与租户
+            Assert.assertEquals(new TrafficContext(TrafficClass.BATCH, "tenant-a"), nested.get(5, TimeUnit.SECONDS));
+            // 同一工作线程执行下一个任务时换成该任务的上下文
+            Assert.assertEquals(new TrafficContext(TrafficClass.INGESTION, "tenant-b"),
+                    executor.submit(TrafficClass.INGESTION, "tenant-b", TrafficContext::current).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_expiredSubmissionFailsAtDequeue() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PriorityThreadPoolExecutor executor = singleThread()
+                .trafficClass(TrafficClass.INTERACTIVE, 0, 100, Duration.ofMillis(50))
+                .meterRegistry(registry)
+                .build();
+        try {
+            CountDownLatch release = block(executor);
+            Future<String> expired = executor.submit(TrafficClass.INTERACTIVE, "t", () -> "late");
+            Thread.sleep(100);
+            release.countDown();
+            try {
+                expired.get(5, TimeUnit.SECONDS);
+                Assert.fail("task past its queue deadline should fail");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+            drain(executor);
+            Assert.assertEquals(1, registry.get("agent.scheduler.expired")
+                    .tags("class", "interactive", "result", "dropped").counter().count(), 0);
+            Assert.assertEquals(0, registry.get("agent.scheduler.queue").tag("class", "interactive").gauge().value(), 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_estimatedWaitRejectsEarly() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PriorityThreadPoolExecutor executor = singleThread()
+                .trafficClass(TrafficClass.INTERACTIVE, 0, 100, Duration.ofMillis(100))
+                .meterRegistry(registry)
+                .build();
+        try {
+            // 先积累执行耗时样本：每个任务约 60ms
+            executor.submit(TrafficClass.INTERACTIVE, "t", () -> sleep(60)).get(5, TimeUnit.SECONDS);
+            CountDownLatch release = block(executor);
+            executor.submit(TrafficClass.INTERACTIVE, "t", () -> sleep(60));
+            executor.submit(TrafficClass.INTERACTIVE, "t", () -> sleep(60));
+            // 前方两个任务约 120ms，超过 100ms 的排队时限，线程池已满，直接拒绝
+            try {
+                executor.submit(TrafficClass.INTERACTIVE, "t", () -> sleep(60));
+                Assert.fail("submission expected to miss its deadline should be rejected");
+            } catch (RejectedExecutionException expected) {
+                // ignore
+            }
+            // 低优先级积压不计入交互式的等待估算
+            executor.submit(TrafficClass.BATCH, "t", () -> sleep(1));
+            release.countDown();
+            drain(executor);
+
+            Assert.assertEquals(1, registry.get("agent.scheduler.overflow")
+                    .tags("class", "interactive", "reason", "deadline").counter().count(), 0);
+            Assert.assertEquals(1, registry.get("agent.scheduler.rejected").tag("class", "interactive").counter().count(), 0);
+            Assert.assertTrue(registry.get("agent.scheduler.wait").tag("class", "interactive").timer().count() >= 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_discardLowestPriorityKeepsInteractiveTasks() throws Exception {
+        PriorityThreadPoolExecutor executor = singleThread()
+                .capacity(2)
+                .rejectedExecutionHandler(new PriorityThreadPoolExecutor.DiscardLowestPriorityPolicy())
+                .build();
+        try {
+            CountDownLatch release = block(executor);
+            Future<String> interactive = executor.submit(TrafficClass.INTERACTIVE, "t", () -> "interactive");
+            Future<String> ingestion = executor.submit(TrafficClass.INGESTION, "t", () -> "ingestion");
+            // 队列已满：挤出最低一级的入库任务，交互式任务保留
+            Future<String> batch = executor.submit(TrafficClass.BATCH, "t", () -> "batch");
+            // 没有优先级不高于新任务的排队任务时丢弃新任务本身
+            Future<String> overflow = executor.submit(TrafficClass.INGESTION, "t", () -> "overflow");
+            Assert.assertEquals(1, executor.getQueueDepth(TrafficClass.INTERACTIVE));
+            Assert.assertEquals(1, executor.getQueueDepth(TrafficClass.BATCH));
+            Assert.assertEquals(0, executor.getQueueDepth(TrafficClass.INGESTION));
+
+            release.countDown();
+            Assert.assertEquals("interactive", interactive.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals("batch", batch.get(5, TimeUnit.SECONDS));
+            for (Future<String> discarded : List.of(ingestion, overflow)) {
+                try {
+                    discarded.get(5, TimeUnit.SECONDS);
+                    Assert.fail("discarded task should fail");
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_discardOldestPolicyRejected() {
+        singleThread().rejectedExecutionHandler(new ThreadPoolExecutor.DiscardOldestPolicy()).build();
+    }
+
+    @Test
+    public void test_submitRacingPoolInspectionDoesNotDeadlock() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        for (int round = 0; round < 5; round++) {
+            PriorityThreadPoolExecutor executor = PriorityThreadPoolExecutor.builder()
+                    .corePoolSize(2)
+                    .maxPoolSize(4)
+                    .capacity(100_000)
+                    .trafficClass(TrafficClass.INTERACTIVE, 0, 100_000, Duration.ofSeconds(10))
+                    .rejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy())
+                    .build();
+            // 有执行耗时样本后入队才会估算等待
+            executor.submit(TrafficClass.INTERACTIVE, "t", () -> sleep(1)).get(5, TimeUnit.SECONDS);
+            AtomicBoolean stop = new AtomicBoolean();
+            Thread submitter = daemon(() -> {
+                while (!stop.get()) {
+                    executor.execute(TrafficClass.INTERACTIVE, "t", () -> {
+                    });
+                }
+            });
+            // getTaskCount、toString 与 shutdownNow 都在持有线程池 mainLock 时访问队列
+            Thread inspector = daemon(() -> {
+                while (!stop.get()) {
+                    executor.getTaskCount();
+                    executor.toString();
+                }
+            });
+            Thread.sleep(300);
+            // 在独立线程上关闭，死锁时断言失败而不是挂住测试
+            Thread closer = daemon(executor::shutdownNow);
+            closer.join(2000);
+            stop.set(true);
+            submitter.join(2000);
+            inspector.join(2000);
+            Assert.assertNull("deadlocked threads", threads.findDeadlockedThreads());
+            Assert.assertFalse(closer.isAlive() || submitter.isAlive() || inspector.isAlive());
+        }
+    }
+
+    private static PriorityThreadPoolExecutor.Builder singleThread() {
+        return PriorityThreadPoolExecutor.builder().corePoolSize(1).maxPoolSize(1);
+    }
+
+    /**
+     * 占住唯一的线程，使后续任务排队
+     */
+    private static CountDownLatch block(PriorityThreadPoolExecutor executor) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(TrafficClass.INTERACTIVE, "blocker", () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static void drain(PriorityThreadPoolExecutor executor) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getQueue().size() > 0 || executor.getActiveCount() > 0) {
+            Assert.assertTrue("queue not drained in time", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static String sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+
+    private static Thread daemon(Runnable runnable) {
+        Thread thread = new Thread(() -> {
+            try {
+                runnable.run();
+            } catch (RejectedExecutionException ignored) {
+                // 关闭后提交被拒绝
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+}
@@ -0,0 +1,155 @@
+package top.kangyaocoding.ai.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import top.kangyaocoding.ai.domain.agent.service.observability.PipelineObservations;
+import top.kangyaocoding.ai.domain.agent.service.prompt.PromptLayout;
+import top.kangyaocoding.ai.domain.agent.service.prompt.PromptLayoutAdvisor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描述: 提示词布局测试；静态前缀在前、易变内容在当前问题之前，工具按名称排序，前缀指纹只随静态部分变化，缓存命中 token 单独计量
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:55
+ */
+public class PromptLayoutTest {
+
+    @Test
+    public void test_volatileContentMovesAfterStablePrefix() {
+        CapturingChatModel chatModel = new CapturingChatModel();
+        ChatClient chatClient = ChatClient.builder(chatModel).defaultAdvisors(new PromptLayoutAdvisor()).build();
+
+        chatClient.prompt()
+                .system("你是运维助手。\r\n")
+                .messages(PromptLayout.system("检索结果：磁盘使用率 91%", PromptLayout.Tier.VOLATILE),
+                        new UserMessage("上一个问题"),
+                        new AssistantMessage("上一个回答"),
+                        PromptLayout.system("用户：值班工程师", PromptLayout.Tier.SESSION))
+                .user("磁盘快满了怎么办？")
+                .call().content();
+
+        List<String> texts = chatModel.prompt.getInstructions().stream().map(Message::getText).toList();
+        Assert.assertEquals(List.of("你是运维助手。", "用户：值班工程师", "上一个问题", "上一个回答",
+                "检索结果：磁盘使用率 91%", "磁盘快满了怎么办？"), texts);
+    }
+
+    @Test
+    public void test_loneCarriageReturnAndUnknownTier() {
+        CapturingChatModel chatModel = new CapturingChatModel();
+        ChatClient chatClient = ChatClient.builder(chatModel).defaultAdvisors(new PromptLayoutAdvisor()).build();
+
+        chatClient.prompt()
+                // 只换行符不同、长度不变的文本同样归一化
+                .system("第一行\r第二行")
+                .messages(SystemMessage.builder().text("未知层级").metadata(Map.of(PromptLayout.TIER, "scratch")).build(),
+                        new UserMessage("上一个问题"),
+                        PromptLayout.system("检索结果", PromptLayout.Tier.VOLATILE))
+                .user("当前问题")
+                .call().content();
+
+        List<String> texts = chatModel.prompt.getInstructions().stream().map(Message::getText).toList();
+        // 无法识别的层级按未标记的系统消息处理
+        Assert.assertEquals(List.of("第一行\n第二行", "未知层级", "上一个问题", "检索结果", "当前问题"), texts);
+        Assert.assertEquals(PromptLayout.Tier.SESSION, PromptLayout.tier(SystemMessage.builder().text("t")
+                .metadata(Map.of(PromptLayout.TIER, "session")).build()));
+        Assert.assertNull(PromptLayout.tier(UserMessage.builder().text("t").metadata(Map.of(PromptLayout.TIER, "")).build()));
+    }
+
+    @Test
+    public void test_prefixHashIgnoresToolOrderAndVolatileParts() {
+        CapturingChatModel chatModel = new CapturingChatModel();
+        ChatClient chatClient = ChatClient.builder(chatModel).defaultAdvisors(new PromptLayoutAdvisor()).build();
+
+        ChatClientResponse first = chatClient.prompt().system("固定设定")
+                .toolCallbacks(tool("weather"), tool("calendar"))
+                .messages(PromptLayout.system("检索结果 A", PromptLayout.Tier.VOLATILE))
+                .user("问题 A").call().chatClientResponse();
+        List<String> tools = ((ToolCallingChatOptions) chatModel.prompt.getOptions()).getToolCallbacks().stream()
+                .map(callback -> callback.getToolDefinition().name()).toList();
+        Assert.assertEquals(List.of("calendar", "weather"), tools);
+
+        ChatClientResponse second = chatClient.prompt().system("固定设定\n")
+                .toolCallbacks(tool("calendar"), tool("weather"))
+                .messages(PromptLayout.system("检索结果 B", PromptLayout.Tier.VOLATILE))
+                .user("问题 B").call().chatClientResponse();
+        ChatClientResponse changed = chatClient.prompt().system("新的设定")
+                .toolCallbacks(tool("calendar"), tool("weather"))
+                .user("问题 A").call().chatClientResponse();
+
+        Object hash = first.context().get(PromptLayout.PREFIX_HASH);
+        Assert.assertNotNull(hash);
+        Assert.assertEquals(hash, second.context().get(PromptLayout.PREFIX_HASH));
+        Assert.assertNotEquals(hash, changed.context().get(PromptLayout.PREFIX_HASH));
+    }
+
+    @Test
+    public void test_cachedTokensRecordedFromNativeUsage() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PipelineObservations observations = new PipelineObservations(registry, ObservationRegistry.NOOP, 0, 100);
+
+        // OpenAI 兼容格式（通义千问）与 DeepSeek 格式
+        observations.recordUsage("agent", "qwen", new DefaultUsage(1000, 50, 1050,
+                Map.of("prompt_tokens_details", Map.of("cached_tokens", 800))));
+        observations.recordUsage("agent", "deepseek", new DefaultUsage(1000, 50, 1050,
+                Map.of("prompt_cache_hit_tokens", 640)));
+        observations.recordUsage("agent", "qwen", new DefaultUsage(1000, 50, 1050, Map.of()));
+
+        Assert.assertEquals(800, registry.get(PipelineObservations.TOKENS_METRIC)
+                .tags("model", "qwen", "type", "cached").counter().count(), 0);
+        Assert.assertEquals(640, registry.get(PipelineObservations.TOKENS_METRIC)
+                .tags("model", "deepseek", "type", "cached").counter().count(), 0);
+        Assert.assertEquals(2000, registry.get(PipelineObservations.TOKENS_METRIC)
+                .tags("model", "qwen", "type", "prompt").counter().count(), 0);
+    }
+
+    private static ToolCallback tool(String name) {
+        ToolDefinition definition = ToolDefinition.builder().name(name).description(name + " tool").inputSchema("{}").build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return "";
+            }
+        };
+    }
+
+    private static class CapturingChatModel implements ChatModel {
+        private Prompt prompt;
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            this.prompt = prompt;
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+        }
+
+        @Override
+        public ChatOptions getDefaultOptions() {
+            return ToolCallingChatOptions.builder().build();
+        }
+    }
+
+}
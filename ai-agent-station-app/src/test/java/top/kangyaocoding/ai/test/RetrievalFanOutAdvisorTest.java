@@ -0,0 +1,199 @@
+package top.kangyaocoding.ai.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import top.kangyaocoding.ai.domain.agent.service.observability.ObservedVectorStore;
+import top.kangyaocoding.ai.domain.agent.service.observability.PipelineObservations;
+import top.kangyaocoding.ai.domain.agent.service.rag.RetrievalFanOutAdvisor;
+import top.kangyaocoding.ai.infrastructure.embedding.KnowledgeEmbeddingModel;
+import top.kangyaocoding.ai.infrastructure.scheduling.TrafficClass;
+import top.kangyaocoding.ai.infrastructure.scheduling.TrafficContext;
+import top.kangyaocoding.ai.test.support.RandomEmbeddingModel;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 描述: 并行检索测试；耗时取决于最慢的一次检索、超时隔离、按 id 去重合并，不依赖外部服务
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 19:50
+ */
+@Slf4j
+public class RetrievalFanOutAdvisorTest {
+
+    private static final long SEARCH_MILLIS = 200;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+    private final AtomicInteger searches = new AtomicInteger();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void test_latency_bounded_by_slowest_search() {
+        RetrievalFanOutAdvisor advisor = RetrievalFanOutAdvisor.builder(new SleepingVectorStore(), executor)
+                .searchRequest(SearchRequest.builder().topK(3).build())
+                .knowledges(List.of("kb-a", "kb-b", "kb-c"))
+                .queryExpander(query -> List.of(new Query(query.text() + " 改写1"), new Query(query.text() + " 改写2")))
+                .maxDocuments(20)
+                .build();
+
+        long start = System.currentTimeMillis();
+        List<Document> documents = advisor.retrieve("问题", null);
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("检索 {} 次，耗时 {}ms，合并后 {} 条", searches.get(), elapsed, documents.size());
+
+        // 3 个查询 × 3 个知识库
+        Assert.assertEquals(9, searches.get());
+        Assert.assertTrue(elapsed < SEARCH_MILLIS * 3);
+        // 每次检索都命中的公共文档只保留一条，且 RRF 合并后排在最前
+        Assert.assertEquals("shared", documents.get(0).getId());
+        Assert.assertEquals(documents.size(), documents.stream().map(Document::getId).distinct().count());
+        Assert.assertEquals(1 + 3 * 3, documents.size());
+        // score 仍是相似度，RRF 分数在 metadata 中
+        Assert.assertEquals(0.5, documents.get(0).getScore(), 1e-9);
+        Assert.assertEquals(9.0 / (60 + 2), (Double) documents.get(0).getMetadata().get(RetrievalFanOutAdvisor.FUSED_SCORE), 1e-9);
+        Assert.assertEquals(0.9, documents.get(1).getScore(), 1e-9);
+    }
+
+    @Test
+    public void test_full_executor_skips_search() {
+        ExecutorService bounded = RetrievalFanOutAdvisor.newExecutor("retrieval-test", 1, 1);
+        try {
+            RetrievalFanOutAdvisor advisor = RetrievalFanOutAdvisor.builder(new SleepingVectorStore(), bounded)
+                    .searchRequest(SearchRequest.builder().topK(3).build())
+                    .knowledges(List.of("kb-a", "kb-b", "kb-c"))
+                    .maxDocuments(20)
+                    .build();
+            // 1 个线程 + 1 个排队位置，第三次检索被拒绝，按空结果处理
+            List<Document> documents = advisor.retrieve("问题", null);
+            Assert.assertEquals(2, searches.get());
+            Assert.assertEquals(1 + 2, documents.size());
+        } finally {
+            bounded.shutdownNow();
+        }
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> RetrievalFanOutAdvisor.builder(new SleepingVectorStore(), ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    public void test_slow_search_times_out() {
+        RetrievalFanOutAdvisor advisor = RetrievalFanOutAdvisor.builder(new SleepingVectorStore(), executor)
+                .searchRequest(SearchRequest.builder().topK(3).build())
+                .knowledges(List.of("kb-a", "slow"))
+                .searchTimeout(Duration.ofMillis(SEARCH_MILLIS * 2))
+                .maxDocuments(20)
+                .build();
+
+        long start = System.currentTimeMillis();
+        List<Document> documents = advisor.retrieve("问题", null);
+        long elapsed = System.currentTimeMillis() - start;
+
+        Assert.assertTrue(elapsed < SEARCH_MILLIS * 4);
+        Assert.assertTrue(documents.stream().noneMatch(document -> document.getId().startsWith("slow")));
+        Assert.assertEquals(2, documents.size());
+    }
+
+    @Test
+    public void test_searches_run_in_caller_context() {
+        List<Observation.Context> searchObservations = new CopyOnWriteArrayList<>();
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                if (PipelineObservations.PIPELINE_OBSERVATION.equals(context.getName())) {
+                    searchObservations.add(context);
+                }
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        PipelineObservations observations = new PipelineObservations(new SimpleMeterRegistry(), observationRegistry, 0, 0);
+        Set<String> contexts = ConcurrentHashMap.newKeySet();
+        VectorStore contextRecording = new SleepingVectorStore() {
+            @Override
+            public List<Document> similaritySearch(SearchRequest request) {
+                contexts.add(KnowledgeEmbeddingModel.isOverridden() + "/" + TrafficContext.current());
+                return super.similaritySearch(request);
+            }
+        };
+        RetrievalFanOutAdvisor advisor = RetrievalFanOutAdvisor.builder(new ObservedVectorStore(contextRecording, observations), executor)
+                .searchRequest(SearchRequest.builder().topK(3).build())
+                .knowledges(List.of("kb-a", "kb-b"))
+                .queryExpander(query -> List.of(new Query(query.text() + " 改写")))
+                .build();
+
+        Observation llm = observations.llm("support-bot", "call").start();
+        try (Observation.Scope ignored = llm.openScope();
+             TrafficContext.Scope traffic = TrafficContext.open(TrafficClass.INTERACTIVE, "tenant-a")) {
+            KnowledgeEmbeddingModel.withModel(new RandomEmbeddingModel(8), () -> advisor.retrieve("问题", null));
+        } finally {
+            llm.stop();
+        }
+
+        // 原始问题与改写变体的检索都挂在 LLM 调用之下，带上调用方的 agent 标签与线程上下文
+        Assert.assertEquals(4, searchObservations.size());
+        for (Observation.Context context : searchObservations) {
+            Assert.assertSame(llm, context.getParentObservation());
+            Assert.assertEquals("support-bot", context.getLowCardinalityKeyValue(PipelineObservations.AGENT).getValue());
+        }
+        Assert.assertEquals(Set.of("true/" + new TrafficContext(TrafficClass.INTERACTIVE, "tenant-a")), contexts);
+    }
+
+    /**
+     * 每次检索固定耗时；返回一个所有检索共有的文档和一个按 (知识库, 查询) 区分的文档
+     */
+    private class SleepingVectorStore implements VectorStore {
+
+        @Override
+        public void add(List<Document> documents) {
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            searches.incrementAndGet();
+            String knowledge = (String) ((Filter.Value) request.getFilterExpression().right()).value();
+            try {
+                Thread.sleep("slow".equals(knowledge) ? SEARCH_MILLIS * 10 : SEARCH_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(
+                    Document.builder().id("shared").text("公共文档").score(0.5).build(),
+                    Document.builder().id(knowledge + "-" + request.getQuery().hashCode()).text(request.getQuery()).score(0.9).build());
+        }
+    }
+
+}
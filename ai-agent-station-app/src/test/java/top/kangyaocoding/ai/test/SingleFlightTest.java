@@ -0,0 +1,272 @@
+package top.kangyaocoding.ai.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import top.kangyaocoding.ai.domain.agent.service.singleflight.SingleFlight;
+import top.kangyaocoding.ai.domain.agent.service.singleflight.SingleFlightAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.singleflight.SingleFlightEmbeddingModel;
+import top.kangyaocoding.ai.test.support.RandomEmbeddingModel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 描述: 请求合并测试；并发的相同请求只调用一次上游，流式分片完整分发给晚到的订阅者，不同请求互不合并
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 11:40
+ */
+public class SingleFlightTest {
+
+    private static final int CONCURRENCY = 8;
+
+    @Test
+    public void test_concurrentCallsShareOneUpstream() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger upstream = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> singleFlight.execute("q", () -> {
+                    upstream.incrementAndGet();
+                    await(release);
+                    return "answer";
+                }), executor));
+            }
+            waitUntil(() -> singleFlight.getLeaders() + singleFlight.getShared() == CONCURRENCY);
+            release.countDown();
+            for (CompletableFuture<String> result : results) {
+                Assert.assertEquals("answer", result.get(5, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, upstream.get());
+            Assert.assertEquals(CONCURRENCY - 1, singleFlight.getShared());
+            Assert.assertEquals(0, singleFlight.getInFlight());
+
+            // 结束后的相同请求重新调用上游
+            Assert.assertEquals("again", singleFlight.execute("q", () -> "again"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_failureFansOutToWaiters() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> singleFlight.execute("q", () -> {
+                    await(release);
+                    throw new IllegalStateException("upstream failed");
+                }), executor));
+            }
+            waitUntil(() -> singleFlight.getLeaders() + singleFlight.getShared() == 2);
+            release.countDown();
+            for (CompletableFuture<String> result : results) {
+                try {
+                    result.get(5, TimeUnit.SECONDS);
+                    Assert.fail("waiters should see the upstream failure");
+                } catch (ExecutionException e) {
+                    Assert.assertEquals("upstream failed", e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_streamReplaysToLateSubscriber() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger subscriptions = new AtomicInteger();
+        Flux<String> upstream = Flux.just("a", "b", "c", "d")
+                .delayElements(Duration.ofMillis(50))
+                .doOnSubscribe(subscription -> subscriptions.incrementAndGet());
+
+        CompletableFuture<List<String>> first = singleFlight.stream("q", () -> upstream).collectList().toFuture();
+        waitUntil(() -> singleFlight.getInFlight() == 1);
+        sleep(120);
+        List<String> late = singleFlight.stream("q", () -> upstream).collectList().block(Duration.ofSeconds(5));
+
+        Assert.assertEquals(List.of("a", "b", "c", "d"), first.join());
+        Assert.assertEquals(List.of("a", "b", "c", "d"), late);
+        Assert.assertEquals(1, subscriptions.get());
+        Assert.assertEquals(1, singleFlight.getShared());
+        waitUntil(() -> singleFlight.getInFlight() == 0);
+    }
+
+    @Test
+    public void test_streamKeyRemovedBeforeTerminalSignal() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger inFlightOnComplete = new AtomicInteger(-1);
+        singleFlight.stream("q", () -> Flux.just("a"))
+                .doOnComplete(() -> inFlightOnComplete.set(singleFlight.getInFlight()))
+                .blockLast(Duration.ofSeconds(5));
+        // 收到完成信号时 key 已移除，此时到达的相同请求不会订阅到已结束的流上
+        Assert.assertEquals(0, inFlightOnComplete.get());
+
+        // 全部订阅者取消后同样立即移除，之后的请求用自己的上游重新发起
+        AtomicInteger subscriptions = new AtomicInteger();
+        Disposable leader = singleFlight.stream("q", () -> Flux.<String>never()
+                .doOnSubscribe(subscription -> subscriptions.incrementAndGet())).subscribe();
+        Assert.assertEquals(1, singleFlight.getInFlight());
+        leader.dispose();
+        Assert.assertEquals(0, singleFlight.getInFlight());
+        Assert.assertEquals(List.of("b"), singleFlight.stream("q", () -> Flux.just("b")).collectList().block(Duration.ofSeconds(5)));
+        Assert.assertEquals(1, subscriptions.get());
+        Assert.assertEquals(3, singleFlight.getLeaders());
+    }
+
+    @Test
+    public void test_advisorCollapsesIdenticalPrompts() throws Exception {
+        CountingChatModel chatModel = new CountingChatModel();
+        SingleFlightAdvisor advisor = SingleFlightAdvisor.builder().build();
+        ChatClient chatClient = ChatClient.builder(chatModel).defaultAdvisors(advisor).build();
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                // 首尾与连续空白不同的相同问题
+                String question = i % 2 == 0 ? "如何 部署？" : "  如何   部署？ ";
+                results.add(CompletableFuture.supplyAsync(() -> chatClient.prompt().user(question).call().content(), executor));
+            }
+            waitUntil(() -> advisor.getSingleFlight().getLeaders() + advisor.getSingleFlight().getShared() == CONCURRENCY);
+            chatModel.release.countDown();
+            for (CompletableFuture<String> result : results) {
+                Assert.assertEquals("回答:如何 部署？", result.get(5, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, chatModel.calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_advisorKeepsDifferentToolContextsApart() throws Exception {
+        CountingChatModel chatModel = new CountingChatModel();
+        SingleFlightAdvisor advisor = SingleFlightAdvisor.builder().build();
+        ChatClient chatClient = ChatClient.builder(chatModel).defaultAdvisors(advisor).build();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // 不同的工具上下文（如不同用户）即使问题相同也不合并
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (String user : List.of("a", "b")) {
+                results.add(CompletableFuture.supplyAsync(() -> chatClient.prompt().user("我的订单状态")
+                        .toolContext(Map.of("user", user)).call().content(), executor));
+            }
+            waitUntil(() -> advisor.getSingleFlight().getLeaders() + advisor.getSingleFlight().getShared() == 2);
+            chatModel.release.countDown();
+            for (CompletableFuture<String> result : results) {
+                result.get(5, TimeUnit.SECONDS);
+            }
+            Assert.assertEquals(2, advisor.getSingleFlight().getLeaders());
+            Assert.assertEquals(2, chatModel.calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_embeddingCollapsesIdenticalQueries() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        EmbeddingModel delegate = new RandomEmbeddingModel(8) {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                calls.incrementAndGet();
+                await(release);
+                return super.call(request);
+            }
+        };
+        SingleFlightEmbeddingModel embeddingModel = new SingleFlightEmbeddingModel(delegate);
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<CompletableFuture<float[]>> results = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> embeddingModel.embed("热门问题"), executor));
+            }
+            waitUntil(() -> embeddingModel.getSingleFlight().getLeaders() + embeddingModel.getSingleFlight().getShared() == CONCURRENCY);
+            release.countDown();
+            float[] expected = RandomEmbeddingModel.vector("热门问题", 8);
+            for (CompletableFuture<float[]> result : results) {
+                Assert.assertArrayEquals(expected, result.get(5, TimeUnit.SECONDS), 0f);
+            }
+            Assert.assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class CountingChatModel implements ChatModel {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            this.calls.incrementAndGet();
+            await(this.release);
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("回答:" + prompt.getUserMessage().getText().strip()
+                    .replaceAll("\\s+", " ")))));
+        }
+
+        @Override
+        public ChatOptions getDefaultOptions() {
+            return ToolCallingChatOptions.builder().build();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("latch timeout");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("condition not met in time", System.nanoTime() < deadline);
+            sleep(5);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+package top.kangyaocoding.ai.test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.support.GenericApplicationContext;
+import reactor.core.publisher.Flux;
+import top.kangyaocoding.ai.domain.agent.service.observability.AgentObservationAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.observability.PipelineObservations;
+import top.kangyaocoding.ai.infrastructure.embedding.KnowledgeEmbeddingModel;
+import top.kangyaocoding.ai.startup.StartupWarmUp;
+import top.kangyaocoding.ai.startup.StubEmbeddingModel;
+import top.kangyaocoding.ai.startup.StubEmbeddingVectorStore;
+import top.kangyaocoding.ai.startup.StubOpenAiTransport;
+import top.kangyaocoding.ai.startup.WarmUpHealthIndicator;
+import top.kangyaocoding.ai.startup.WarmUpReplay;
+import top.kangyaocoding.ai.test.support.RandomEmbeddingModel;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 启动预热测试；桩模型经真实 OpenAI 转换路径应答，预热完成前就绪探针为 OUT_OF_SERVICE
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 11:10
+ */
+public class StartupWarmUpTest {
+
+    @Test
+    public void test_replayThroughStubModel() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PipelineObservations observations = new PipelineObservations(meterRegistry, ObservationRegistry.NOOP, 0, 0);
+        OpenAiChatModel chatModel = OpenAiChatModel.builder()
+                .openAiApi(StubOpenAiTransport.openAiApi(4))
+                .defaultOptions(OpenAiChatOptions.builder().model(StubOpenAiTransport.MODEL).build())
+                .build();
+        ChatClient chatClient = ChatClient.builder(chatModel)
+                .defaultAdvisors(AgentObservationAdvisor.builder(observations).agent("warm-up").build())
+                .build();
+
+        Assert.assertEquals("预热 ".repeat(4), chatClient.prompt().user("你好").call().content());
+        Assert.assertEquals("预热 ".repeat(4), String.join("", chatClient.prompt().user("你好").stream().content().collectList().block()));
+
+        WarmUpReplay.Result result = WarmUpReplay.builder(chatClient)
+                .questions(List.of("你好", "总结一下部署流程"))
+                .roundSize(10)
+                .maxRounds(50)
+                .stableRounds(2)
+                .tolerance(10)
+                .timeout(Duration.ofSeconds(60))
+                .build()
+                .run();
+        Assert.assertTrue(result.toString(), result.stable());
+        Assert.assertEquals(0, result.failures());
+        Assert.assertEquals(result.rounds() * 10, result.requests());
+        Assert.assertEquals(result.rounds(), result.p95Micros().size());
+    }
+
+    @Test
+    public void test_replayStopsWhenEveryRequestFails() {
+        ChatClient chatClient = ChatClient.builder(OpenAiChatModel.builder()
+                        .openAiApi(StubOpenAiTransport.openAiApi(4))
+                        .build())
+                .defaultAdvisors(new FailingAdvisor())
+                .build();
+        WarmUpReplay.Result result = WarmUpReplay.builder(chatClient).roundSize(4).build().run();
+        Assert.assertFalse(result.stable());
+        Assert.assertEquals(4, result.failures());
+        Assert.assertEquals(0, result.rounds());
+    }
+
+    @Test
+    public void test_readinessWaitsForWarmUp() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        StartupWarmUp warmUp = StartupWarmUp.builder()
+                .threads(1)
+                .timeout(Duration.ofSeconds(5))
+                .step("gate", () -> {
+                    try {
+                        return gate.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                })
+                .step("broken", () -> {
+                    throw new IllegalStateException("broken");
+                })
+                .build();
+        WarmUpHealthIndicator indicator = new WarmUpHealthIndicator(warmUp);
+        Assert.assertEquals(Status.OUT_OF_SERVICE, indicator.health().getStatus());
+
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            context.refresh();
+            warmUp.onApplicationEvent(new ApplicationReadyEvent(new SpringApplication(), new String[0], context, Duration.ZERO));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!"gate".equals(warmUp.getPhase()) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Health waiting = indicator.health();
+            Assert.assertEquals(Status.OUT_OF_SERVICE, waiting.getStatus());
+            Assert.assertEquals("gate", waiting.getDetails().get("phase"));
+
+            gate.countDown();
+            Map<String, Long> elapsed = warmUp.getCompletion().get(10, TimeUnit.SECONDS);
+            Assert.assertTrue(elapsed.toString(), elapsed.containsKey("gate"));
+            Assert.assertFalse(elapsed.containsKey("broken"));
+
+            Health ready = indicator.health();
+            Assert.assertEquals(Status.UP, ready.getStatus());
+            Assert.assertEquals(Boolean.TRUE, ready.getDetails().get("gate"));
+            Assert.assertEquals("done", warmUp.getPhase());
+        }
+    }
+
+    @Test
+    public void test_readinessRequiresStableReplay() throws Exception {
+        StartupWarmUp warmUp = StartupWarmUp.builder()
+                .threads(1)
+                .step("replay", () -> new WarmUpReplay.Result(30, 600, 0, false, List.of(900L, 400L, 1200L)))
+                .build();
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            context.refresh();
+            warmUp.onApplicationEvent(new ApplicationReadyEvent(new SpringApplication(), new String[0], context, Duration.ZERO));
+            warmUp.getCompletion().get(10, TimeUnit.SECONDS);
+        }
+        Health required = new WarmUpHealthIndicator(warmUp, true).health();
+        Assert.assertEquals(Status.OUT_OF_SERVICE, required.getStatus());
+        Assert.assertEquals(Boolean.FALSE, required.getDetails().get("stable"));
+
+        Health bestEffort = new WarmUpHealthIndicator(warmUp, false).health();
+        Assert.assertEquals(Status.UP, bestEffort.getStatus());
+        Assert.assertEquals(Boolean.FALSE, bestEffort.getDetails().get("stable"));
+    }
+
+    @Test
+    public void test_retrievalReplayEmbedsInProcess() {
+        EmbeddingModel remote = new RandomEmbeddingModel(8) {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                throw new IllegalStateException("remote embedding must not be called");
+            }
+        };
+        KnowledgeEmbeddingModel embeddingModel = KnowledgeEmbeddingModel.builder(remote).build();
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+        StubEmbeddingModel stub = new StubEmbeddingModel(8);
+        KnowledgeEmbeddingModel.withModel(stub, () -> {
+            vectorStore.add(List.of(new Document("部署"), new Document("回滚")));
+            return null;
+        });
+        Assert.assertThrows(IllegalStateException.class, () -> vectorStore.similaritySearch("部署"));
+
+        StubEmbeddingVectorStore warmUpStore = new StubEmbeddingVectorStore(vectorStore, stub);
+        // 同一文本得到同一向量，相似度为 1
+        Assert.assertEquals("部署", warmUpStore.similaritySearch(SearchRequest.builder().query("部署").topK(1).build()).get(0).getText());
+        Assert.assertThrows(UnsupportedOperationException.class, () -> warmUpStore.add(List.of(new Document("x"))));
+    }
+
+    private static class FailingAdvisor implements CallAdvisor, StreamAdvisor {
+
+        @Override
+        public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+            throw new IllegalStateException("embedding service unavailable");
+        }
+
+        @Override
+        public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+            return Flux.error(new IllegalStateException("embedding service unavailable"));
+        }
+
+        @Override
+        public String getName() {
+            return "failing";
+        }
+
+        @Override
+        public int getOrder() {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package top.kangyaocoding.ai.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import top.kangyaocoding.ai.domain.agent.service.rag.StructuredTextSplitter;
+import top.kangyaocoding.ai.infrastructure.reader.DocumentSink;
+import top.kangyaocoding.ai.infrastructure.reader.IngestionManifest;
+import top.kangyaocoding.ai.infrastructure.reader.IngestionReport;
+import top.kangyaocoding.ai.infrastructure.reader.StreamingTikaDocumentReader;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 描述: 流式文档读取测试；按段输出、目录与 zip 条目增量读取、单文件截断，不依赖外部服务
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 21:30
+ */
+@Slf4j
+public class StreamingTikaDocumentReaderTest {
+
+    private static final int SEGMENT_CHARS = 16 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final StructuredTextSplitter splitter = StructuredTextSplitter.builder().chunkSize(400).build();
+
+    @Test
+    public void test_incremental_directory_and_archive() throws Exception {
+        Path root = temporaryFolder.newFolder("docs").toPath();
+        Files.writeString(root.resolve("guide.md"), "# 指南\n\n## 安装\n\n执行安装脚本。\n\n## 使用\n\n调用接口。\n");
+        Files.writeString(root.resolve("notes.txt"), "第一条笔记。\n第二条笔记。\n");
+        Files.createDirectories(root.resolve("sub"));
+        Files.writeString(root.resolve("sub/page.html"), "<html><head><title>标题不入库</title></head><body><h2>小节</h2><p>段落内容</p><pre>int a = 1;</pre></body></html>");
+        zip(root.resolve("bundle.zip"), "a.txt", "压缩包条目 A", "dir/b.md", "# B\n\n压缩包条目 B");
+
+        Path manifestFile = temporaryFolder.getRoot().toPath().resolve("manifest.properties");
+        RecordingSink sink = new RecordingSink();
+        IngestionReport first = reader(IngestionManifest.load(manifestFile)).read(root, sink);
+        Assert.assertEquals(new IngestionReport(5, 0, 0, 0, 0, sink.chunks.get()), first);
+        Assert.assertEquals(Set.of("guide.md", "notes.txt", "sub/page.html", "bundle.zip!/a.txt", "bundle.zip!/dir/b.md"), sink.begun);
+        String html = sink.texts.stream().filter(text -> text.contains("段落内容")).findFirst().orElseThrow();
+        Assert.assertTrue(html.contains("## 小节") && html.contains("```\nint a = 1;") && !html.contains("标题不入库"));
+
+        // 重新加载清单后再次读取：全部跳过
+        sink = new RecordingSink();
+        IngestionReport second = reader(IngestionManifest.load(manifestFile)).read(root, sink);
+        Assert.assertEquals(new IngestionReport(0, 4, 0, 0, 0, 0), second);
+
+        // 仅修改时间变化按摘要判断仍跳过；内容变化、删除、压缩包内单个条目变化分别处理
+        Path notes = root.resolve("notes.txt");
+        Files.setLastModifiedTime(notes, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        Files.writeString(root.resolve("guide.md"), "# 指南\n\n内容已更新。\n");
+        Files.delete(root.resolve("sub/page.html"));
+        zip(root.resolve("bundle.zip"), "a.txt", "压缩包条目 A", "dir/b.md", "# B\n\n条目 B 已更新");
+        sink = new RecordingSink();
+        IngestionReport third = reader(IngestionManifest.load(manifestFile)).read(root, sink);
+        Assert.assertEquals(Set.of("guide.md", "bundle.zip!/dir/b.md"), sink.begun);
+        Assert.assertEquals(Set.of("sub/page.html"), sink.removed);
+        Assert.assertEquals(2, third.parsed());
+        Assert.assertEquals(2, third.skipped());
+        Assert.assertEquals(1, third.removed());
+    }
+
+    @Test
+    public void test_large_file_bounded_segments() throws Exception {
+        Path file = temporaryFolder.newFile("app.log").toPath();
+        long size = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; size < 32L * 1024 * 1024; i++) {
+                String line = "2026-10-18 21:30:00.000 INFO [worker-" + (i % 16) + "] request " + i + " handled in " + (i % 97) + "ms\n";
+                writer.write(line);
+                size += line.length();
+            }
+        }
+
+        AtomicLong maxSegment = new AtomicLong();
+        AtomicLong chars = new AtomicLong();
+        TextSplitter measuring = new TextSplitter() {
+            @Override
+            protected List<String> splitText(String text) {
+                maxSegment.accumulateAndGet(text.length(), Math::max);
+                chars.addAndGet(text.length());
+                return List.of(text.substring(0, Math.min(16, text.length())));
+            }
+        };
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        IngestionReport report = StreamingTikaDocumentReader.builder(measuring).segmentChars(SEGMENT_CHARS).build()
+                .read(file, chunks -> {
+                });
+        System.gc();
+        log.info("读取 {}MB 日志：{} 最大段 {} 字符 读取前后堆占用 {}MB -> {}MB", size >> 20, report, maxSegment.get(),
+                before >> 20, (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+        Assert.assertEquals(1, report.parsed());
+        Assert.assertTrue(maxSegment.get() <= SEGMENT_CHARS * 2);
+        Assert.assertTrue(chars.get() >= size - 1024);
+
+        // 单文件字符上限
+        IngestionReport truncated = StreamingTikaDocumentReader.builder(measuring).segmentChars(SEGMENT_CHARS).maxFileChars(1_000_000).build()
+                .read(file, chunks -> {
+                });
+        Assert.assertEquals(1, truncated.truncated());
+    }
+
+    private StreamingTikaDocumentReader reader(IngestionManifest manifest) {
+        return StreamingTikaDocumentReader.builder(splitter).manifest(manifest).parallelism(4).segmentChars(SEGMENT_CHARS).build();
+    }
+
+    private static void zip(Path path, String... entries) throws Exception {
+        try (OutputStream out = Files.newOutputStream(path); ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                ZipEntry entry = new ZipEntry(entries[i]);
+                entry.setTime(0);
+                zip.putNextEntry(entry);
+                zip.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private static class RecordingSink implements DocumentSink {
+
+        private final Set<String> begun = ConcurrentHashMap.newKeySet();
+        private final Set<String> removed = ConcurrentHashMap.newKeySet();
+        private final Set<String> texts = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger chunks = new AtomicInteger();
+
+        @Override
+        public void begin(String source) {
+            begun.add(source);
+        }
+
+        @Override
+        public void accept(List<Document> documents) {
+            chunks.addAndGet(documents.size());
+            documents.forEach(document -> texts.add(document.getText()));
+        }
+
+        @Override
+        public void remove(String source) {
+            removed.add(source);
+        }
+    }
+
+}
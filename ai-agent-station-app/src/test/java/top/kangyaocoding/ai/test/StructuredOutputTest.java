@@ -0,0 +1,120 @@
+package top.kangyaocoding.ai.test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import top.kangyaocoding.ai.domain.agent.service.structured.IncrementalJsonReader;
+import top.kangyaocoding.ai.domain.agent.service.structured.StructuredOutput;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 描述: 流式结构化输出测试；标题、标签、简述在正文生成完之前发出，任意切分位置的结果与一次性解析相同
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 13:10
+ */
+public class StructuredOutputTest {
+
+    record Article(String title, List<String> tags, String summary, int words, String content) {
+    }
+
+    @Test
+    public void test_fieldsEmittedBeforeContentFinishes() {
+        StructuredOutput<Article> output = StructuredOutput.of(Article.class);
+        Sinks.Many<ChatResponse> sink = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<StructuredOutput.Value> fields = output.fields(sink.asFlux()).share();
+
+        List<String> received = new CopyOnWriteArrayList<>();
+        fields.subscribe(value -> received.add(value.name()));
+        Mono<Article> article = output.object(fields).cache();
+        article.subscribe();
+        // 下游通知只依赖简述
+        Mono<String> summary = StructuredOutput.field(fields, "summary", String.class).cache();
+        summary.subscribe();
+
+        for (String chunk : List.of("```json\n{\"title\": \"Spring AI 流式", "结构化输出\", \"tags\": [\"Spring AI\", \"JSON\"]",
+                ", \"summary\": \"边生成边解析\\u", "FF0C字段完整即发出\", \"words\": 12", "00, \"content\": \"# 正文\\n")) {
+            sink.tryEmitNext(response(chunk));
+        }
+        Assert.assertEquals(List.of("title", "tags", "summary", "words"), received);
+        Assert.assertEquals("边生成边解析，字段完整即发出", summary.block(Duration.ZERO));
+
+        sink.tryEmitNext(response("第一段……\"}\n```"));
+        sink.tryEmitComplete();
+        Article result = article.block(Duration.ofSeconds(1));
+        Assert.assertEquals(new Article("Spring AI 流式结构化输出", List.of("Spring AI", "JSON"), "边生成边解析，字段完整即发出",
+                1200, "# 正文\n第一段……"), result);
+        Assert.assertTrue(output.getFormat().contains("title, tags, summary, words, content"));
+    }
+
+    @Test
+    public void test_anySplitMatchesFullParse() throws Exception {
+        String json = """
+                {"title":"a\\"b\\\\c\\u4e2d","score":-1.5e2,"ok":true,"none":null,
+                 "nested":{"k":[1,{"x":"}]\\""}]},"list":[],"big":12345678901234567890}""";
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Object> expected = objectMapper.readValue(json, new TypeReference<>() {
+        });
+        for (int split = 1; split < json.length(); split++) {
+            Map<String, Object> actual = new LinkedHashMap<>();
+            IncrementalJsonReader reader = new IncrementalJsonReader((name, value, composite) ->
+                    actual.put(name, composite ? read(objectMapper, (String) value) : value));
+            reader.feed(json.substring(0, split));
+            reader.feed(json.substring(split));
+            reader.end();
+            Assert.assertEquals(expected.keySet(), actual.keySet());
+            Assert.assertEquals(expected.get("title"), actual.get("title"));
+            Assert.assertEquals(expected.get("nested"), actual.get("nested"));
+            Assert.assertEquals(-150.0, ((Number) actual.get("score")).doubleValue(), 0);
+            Assert.assertEquals(expected.get("big").toString(), actual.get("big").toString());
+        }
+    }
+
+    @Test
+    public void test_incompleteOutputFailsAfterEmittedFields() {
+        StructuredOutput<Article> output = StructuredOutput.of(Article.class);
+        List<String> received = new ArrayList<>();
+        try {
+            output.contentFields(Flux.just("{\"title\": \"标题\", \"summary\": \"简", "述"))
+                    .doOnNext(value -> received.add(value.name()))
+                    .blockLast();
+            Assert.fail("incomplete output should fail");
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage().contains("JSON 不完整"));
+        }
+        Assert.assertEquals(List.of("title"), received);
+
+        try {
+            output.contentFields(Flux.just("{\"words\": \"很多\"}")).blockLast();
+            Assert.fail("unconvertible field should fail");
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage().contains("words"));
+        }
+    }
+
+    private static Object read(ObjectMapper objectMapper, String json) {
+        try {
+            return objectMapper.readValue(json, Object.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+}
@@ -0,0 +1,122 @@
+package top.kangyaocoding.ai.test;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.document.Document;
+import top.kangyaocoding.ai.domain.agent.service.rag.StructuredTextSplitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 描述: 结构化分块测试；标题与代码块边界、重叠、超长文本细分、并行与串行结果一致
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 20:30
+ */
+@Slf4j
+public class StructuredTextSplitterTest {
+
+    private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void test_markdown_boundaries() {
+        StructuredTextSplitter splitter = StructuredTextSplitter.builder()
+                .chunkSize(120).chunkOverlap(0).minChunkTokens(30).pool(pool).build();
+        String code = "```java\n" + "int value = compute(index);\n".repeat(10) + "```\n";
+        String markdown = "# 指南\n\n## 安装\n\n" + paragraph("安装步骤", 6) + "\n" + code + "\n## 使用\n\n" + paragraph("使用说明", 6)
+                + "\n### 进阶\n\n" + paragraph("进阶用法", 3);
+
+        List<Document> chunks = splitter.apply(List.of(Document.builder().text(markdown).metadata("source", "guide.md").build()));
+        chunks.forEach(chunk -> log.info("section:{} tokens:{}", chunk.getMetadata().get(StructuredTextSplitter.SECTION), ENCODING.countTokens(chunk.getText())));
+
+        Assert.assertTrue(chunks.size() > 2);
+        for (Document chunk : chunks) {
+            Assert.assertEquals("guide.md", chunk.getMetadata().get("source"));
+            Assert.assertTrue(ENCODING.countTokens(chunk.getText()) <= 120);
+            // 代码块要么完整出现，要么不出现
+            Assert.assertEquals(0, count(chunk.getText(), "```") % 2);
+            // 标题不会落在分块末尾
+            Assert.assertFalse(chunk.getText().lines().reduce((a, b) -> b).orElse("").startsWith("#"));
+        }
+        Assert.assertTrue(chunks.stream().anyMatch(chunk -> chunk.getText().contains(code.strip())));
+        // 二级标题处另起分块，章节路径写入 metadata
+        Assert.assertTrue(chunks.stream().anyMatch(chunk -> chunk.getText().startsWith("## 使用")
+                && "指南 > 使用".equals(chunk.getMetadata().get(StructuredTextSplitter.SECTION))));
+        Assert.assertTrue(chunks.stream().anyMatch(chunk -> "指南 > 使用 > 进阶".equals(chunk.getMetadata().get(StructuredTextSplitter.SECTION))));
+    }
+
+    @Test
+    public void test_overlap_and_oversize() {
+        StructuredTextSplitter splitter = StructuredTextSplitter.builder()
+                .chunkSize(200).chunkOverlap(60).pool(pool).build();
+        List<Document> chunks = splitter.apply(List.of(new Document(paragraph("重叠", 20))));
+        Assert.assertTrue(chunks.size() > 2);
+        for (int i = 1; i < chunks.size(); i++) {
+            String previous = chunks.get(i - 1).getText();
+            String first = chunks.get(i).getText().lines().findFirst().orElseThrow();
+            Assert.assertTrue(previous.contains(first));
+        }
+
+        // 没有任何换行与标点的超长文本按字符窗口细分
+        String oversize = "abcdefghij".repeat(2000);
+        List<Document> windows = StructuredTextSplitter.builder().chunkSize(100).chunkOverlap(0).pool(pool).build()
+                .apply(List.of(new Document(oversize)));
+        Assert.assertTrue(windows.size() > 1);
+        Assert.assertEquals(oversize, String.join("", windows.stream().map(Document::getText).toList()));
+        windows.forEach(window -> Assert.assertTrue(ENCODING.countTokens(window.getText()) <= 100));
+    }
+
+    @Test
+    public void test_parallel_matches_sequential() {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            documents.add(Document.builder().text("# 文档" + i + "\n\n" + paragraph("内容" + i, 40)).metadata("index", i).build());
+        }
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            List<Document> sequential = StructuredTextSplitter.builder().pool(single).chunkSize(200).build().apply(documents);
+            List<Document> parallel = StructuredTextSplitter.builder().pool(pool).chunkSize(200).build().apply(documents);
+            Assert.assertEquals(texts(sequential), texts(parallel));
+            Assert.assertEquals(sequential.stream().map(document -> document.getMetadata().get("index")).toList(),
+                    parallel.stream().map(document -> document.getMetadata().get("index")).toList());
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    private static String paragraph(String topic, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(topic).append(" 第").append(i).append("段：检索增强生成先从知识库召回相关片段，再交给模型组织答案。\n")
+                    .append("Retrieval augmented generation keeps answers grounded in the knowledge base.\n\n");
+        }
+        return text.toString();
+    }
+
+    private static int count(String text, String pattern) {
+        int count = 0;
+        for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + pattern.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    private static List<String> texts(List<Document> documents) {
+        return documents.stream().map(Document::getText).toList();
+    }
+
+}
@@ -0,0 +1,308 @@
+package top.kangyaocoding.ai.test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import redis.embedded.RedisServer;
+import top.kangyaocoding.ai.infrastructure.cache.CacheRegions;
+import top.kangyaocoding.ai.infrastructure.cache.CacheService;
+import top.kangyaocoding.ai.infrastructure.cache.CacheSpec;
+import top.kangyaocoding.ai.infrastructure.cache.TieredCache;
+import top.kangyaocoding.ai.infrastructure.embedding.KnowledgeEmbeddingModel;
+import top.kangyaocoding.ai.infrastructure.vector.CachedRetrievalVectorStore;
+import top.kangyaocoding.ai.test.support.RandomEmbeddingModel;
+
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 描述: 二级缓存测试；以内嵌 Redis 模拟两个节点，验证跨节点命中、失效广播、加载防击穿、近端容量淘汰与检索结果缓存
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:35
+ */
+public class TieredCacheTest {
+
+    private static RedisServer redisServer;
+    private static RedissonClient nodeA;
+    private static RedissonClient nodeB;
+
+    record Hit(String id, double score) {
+    }
+
+    @BeforeClass
+    public static void startRedis() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        nodeA = redisson(port);
+        nodeB = redisson(port);
+    }
+
+    @AfterClass
+    public static void stopRedis() throws Exception {
+        nodeA.shutdown();
+        nodeB.shutdown();
+        redisServer.stop();
+    }
+
+    @Test
+    public void test_secondNodeHitsRedis() {
+        String prefix = prefix();
+        try (CacheService a = service(nodeA, prefix); CacheService b = service(nodeB, prefix)) {
+            AtomicInteger loads = new AtomicInteger();
+            TypeReference<List<Hit>> type = new TypeReference<>() {
+            };
+            List<Hit> hits = List.of(new Hit("doc-1", 0.92), new Hit("doc-2", 0.87));
+
+            Assert.assertEquals(hits, a.region(CacheRegions.RETRIEVAL).get("q", type, () -> {
+                loads.incrementAndGet();
+                return hits;
+            }));
+            TieredCache regionB = b.region(CacheRegions.RETRIEVAL);
+            Assert.assertEquals(hits, regionB.get("q", type, () -> {
+                loads.incrementAndGet();
+                return List.of();
+            }));
+            Assert.assertEquals(hits, regionB.get("q", type, List::of));
+
+            Assert.assertEquals(1, loads.get());
+            Assert.assertEquals(1, regionB.getRemoteHits());
+            Assert.assertEquals(1, regionB.getNearHits());
+            Assert.assertEquals(0, regionB.getMisses());
+        }
+    }
+
+    @Test
+    public void test_putInvalidatesOtherNodes() {
+        String prefix = prefix();
+        try (CacheService a = service(nodeA, prefix); CacheService b = service(nodeB, prefix)) {
+            TieredCache regionA = a.region(CacheRegions.AGENT_CONFIG);
+            TieredCache regionB = b.region(CacheRegions.AGENT_CONFIG);
+            Assert.assertEquals("v1", regionA.get("agent-1", String.class, () -> "v1"));
+            Assert.assertEquals("v1", regionB.get("agent-1", String.class, () -> "unused"));
+
+            regionA.put("agent-1", "v2");
+            waitUntil(() -> regionB.getInvalidations() == 1);
+            Assert.assertEquals("v2", regionB.getIfPresent("agent-1", String.class));
+
+            regionB.invalidate("agent-1");
+            waitUntil(() -> regionA.getInvalidations() == 1);
+            Assert.assertEquals("v3", regionA.get("agent-1", String.class, () -> "v3"));
+        }
+    }
+
+    @Test
+    public void test_concurrentMissesLoadOnce() throws Exception {
+        String prefix = prefix();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try (CacheService a = service(nodeA, prefix); CacheService b = service(nodeB, prefix)) {
+            AtomicInteger loads = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                TieredCache region = (i % 2 == 0 ? a : b).region(CacheRegions.TOOL_RESULT);
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    await(start);
+                    return region.get("weather:hangzhou", String.class, () -> {
+                        loads.incrementAndGet();
+                        sleep(200);
+                        return "晴";
+                    });
+                }, executor));
+            }
+            start.countDown();
+            for (CompletableFuture<String> result : results) {
+                Assert.assertEquals("晴", result.get(10, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_retrievalResultsSharedAndNotPoisonedByStubSearches() {
+        String prefix = prefix();
+        try (CacheService a = service(nodeA, prefix); CacheService b = service(nodeB, prefix)) {
+            CountingVectorStore store = new CountingVectorStore();
+            VectorStore storeA = new CachedRetrievalVectorStore(store, a.region(CacheRegions.RETRIEVAL));
+            VectorStore storeB = new CachedRetrievalVectorStore(store, b.region(CacheRegions.RETRIEVAL));
+            SearchRequest request = SearchRequest.builder().query("磁盘满了").topK(2)
+                    .filterExpression("knowledge == 'ops'").build();
+
+            // 预热回放以桩模型向量化，结果不读也不写缓存
+            KnowledgeEmbeddingModel.withModel(new RandomEmbeddingModel(8), () -> storeA.similaritySearch(request));
+            Assert.assertEquals(1, store.searches.get());
+            Assert.assertEquals(0, a.region(CacheRegions.RETRIEVAL).getSize());
+
+            List<Document> first = storeA.similaritySearch(request);
+            List<Document> second = storeB.similaritySearch(request);
+            Assert.assertEquals(2, store.searches.get());
+            Assert.assertEquals(List.of("doc-1"), second.stream().map(Document::getId).toList());
+            Assert.assertEquals(first.get(0).getScore(), second.get(0).getScore());
+            Assert.assertEquals("ops", second.get(0).getMetadata().get("knowledge"));
+
+            // 调用方修改元数据不影响缓存
+            second.get(0).getMetadata().put("rank", 1);
+            Assert.assertFalse(storeB.similaritySearch(request).get(0).getMetadata().containsKey("rank"));
+
+            // 写入后各节点的缓存失效
+            storeA.add(List.of(new Document("新文档")));
+            waitUntil(() -> b.region(CacheRegions.RETRIEVAL).getInvalidations() == 1);
+            storeB.similaritySearch(request);
+            Assert.assertEquals(3, store.searches.get());
+        }
+    }
+
+    @Test
+    public void test_loadStartedBeforeInvalidateAllIsNotWrittenBack() throws Exception {
+        String prefix = prefix();
+        try (CacheService a = service(nodeA, prefix); CacheService b = service(nodeB, prefix)) {
+            TieredCache regionA = a.region(CacheRegions.RETRIEVAL);
+            TieredCache regionB = b.region(CacheRegions.RETRIEVAL);
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<String> stale = CompletableFuture.supplyAsync(() -> regionA.get("q", String.class, () -> {
+                loading.countDown();
+                await(release);
+                return "stale";
+            }));
+            Assert.assertTrue(loading.await(5, TimeUnit.SECONDS));
+            regionA.invalidateAll();
+            release.countDown();
+            Assert.assertEquals("stale", stale.get(5, TimeUnit.SECONDS));
+
+            // 失效前开始的加载不写回，两个节点都重新加载
+            waitUntil(() -> regionB.getGeneration() == regionA.getGeneration());
+            Assert.assertEquals(1, regionA.getGeneration());
+            Assert.assertEquals("fresh", regionB.get("q", String.class, () -> "fresh"));
+            Assert.assertEquals("fresh", regionA.get("q", String.class, () -> "unused"));
+        }
+    }
+
+    @Test
+    public void test_nearOnlyBoundsSizeAndSkipsNulls() {
+        try (CacheService cacheService = CacheService.builder()
+                .region(new CacheSpec(CacheRegions.PROMPT, 2, Duration.ofMinutes(1), Duration.ofMinutes(1), CacheSpec.Expiry.AFTER_ACCESS))
+                .build()) {
+            TieredCache region = cacheService.region(CacheRegions.PROMPT);
+            Assert.assertFalse(region.isRemote());
+            for (int i = 0; i < 3; i++) {
+                String value = "prompt-" + i;
+                region.get(value, String.class, () -> value);
+            }
+            Assert.assertEquals(2, region.getSize());
+            Assert.assertEquals(1, region.getSizeEvictions());
+
+            AtomicInteger loads = new AtomicInteger();
+            for (int i = 0; i < 2; i++) {
+                Assert.assertNull(region.get("missing", String.class, () -> {
+                    loads.incrementAndGet();
+                    return null;
+                }));
+            }
+            Assert.assertEquals(2, loads.get());
+            try {
+                cacheService.region("unknown");
+                Assert.fail("unknown region should be rejected");
+            } catch (IllegalArgumentException expected) {
+                // ignore
+            }
+        }
+    }
+
+    private static CacheService service(RedissonClient redisson, String prefix) {
+        CacheService.Builder builder = CacheService.builder().redisson(redisson).keyPrefix(prefix);
+        for (String region : List.of(CacheRegions.RETRIEVAL, CacheRegions.AGENT_CONFIG, CacheRegions.TOOL_RESULT)) {
+            builder.region(new CacheSpec(region, 100, Duration.ofMinutes(1), Duration.ofMinutes(1), CacheSpec.Expiry.AFTER_WRITE));
+        }
+        CacheService cacheService = builder.build();
+        // 失效频道在后台订阅
+        waitUntil(cacheService::isSubscribed);
+        return cacheService;
+    }
+
+    private static RedissonClient redisson(int port) {
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + port).setConnectionMinimumIdleSize(1);
+        return Redisson.create(config);
+    }
+
+    private static String prefix() {
+        return "test:" + UUID.randomUUID();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("condition not met in time", System.nanoTime() < deadline);
+            sleep(5);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class CountingVectorStore implements VectorStore {
+
+        private final AtomicInteger searches = new AtomicInteger();
+
+        @Override
+        public void add(List<Document> documents) {
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            this.searches.incrementAndGet();
+            return List.of(Document.builder().id("doc-1").text("清理日志目录")
+                    .metadata(new HashMap<>(Map.of("knowledge", "ops"))).score(0.91).build());
+        }
+    }
+
+}
@@ -0,0 +1,266 @@
+package top.kangyaocoding.ai.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorQuantization;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * 描述: 量化与降维的召回率、延迟、内存对比
+ * <p>
+ * 进程内模拟 pgvector 的两阶段检索：按量化表示暴力取 topK * rescoreFactor 个候选，再用全精度余弦距离重排，
+ * 与全精度精确检索的 topK 比较 recall@k。语料按簇生成，方差随维度衰减，近似 Matryoshka 向量"前面的维度更重要"的分布。
+ * 延迟只反映距离计算量的相对差异，不代表 HNSW 的真实耗时。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 16:40
+ */
+@Slf4j
+public class VectorQuantizationHarnessTest {
+
+    private static final int DIMENSIONS = 256;
+    private static final int CORPUS_SIZE = 20_000;
+    private static final int CLUSTERS = 64;
+    private static final int QUERIES = 200;
+    private static final int TOP_K = 10;
+    private static final int[] RESCORE_FACTORS = {1, 4, 10};
+
+    @Test
+    public void test_recall_latency_memory() {
+        float[][] corpus = vectors(CORPUS_SIZE, 1L);
+        float[][] queries = vectors(QUERIES, 2L);
+        int[][] exact = new int[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            exact[q] = exactTopK(corpus, queries[q], TOP_K);
+        }
+
+        Object[][] cases = {
+                {PgVectorQuantization.Type.NONE, 0},
+                {PgVectorQuantization.Type.NONE, DIMENSIONS / 4},
+                {PgVectorQuantization.Type.HALFVEC, 0},
+                {PgVectorQuantization.Type.HALFVEC, DIMENSIONS / 2},
+                {PgVectorQuantization.Type.BINARY, 0},
+                {PgVectorQuantization.Type.BINARY, DIMENSIONS / 2},
+        };
+
+        StringBuilder report = new StringBuilder("\ntype      truncate  rescore  recall@k  avg(ms)  bytes/vector\n");
+        for (Object[] c : cases) {
+            PgVectorQuantization.Type type = (PgVectorQuantization.Type) c[0];
+            int truncate = (Integer) c[1];
+            double previousRecall = 0;
+            for (int factor : RESCORE_FACTORS) {
+                PgVectorQuantization quantization = new PgVectorQuantization(type, DIMENSIONS, truncate, factor);
+                Coarse coarse = new Coarse(type, truncate > 0 ? truncate : DIMENSIONS, corpus);
+
+                long nanos = 0;
+                int hits = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    long start = System.nanoTime();
+                    int[] candidates = coarse.topK(queries[q], quantization.candidates(TOP_K));
+                    int[] result = rescore(corpus, queries[q], candidates, TOP_K);
+                    nanos += System.nanoTime() - start;
+                    hits += overlap(exact[q], result);
+                }
+                double recall = (double) hits / (QUERIES * TOP_K);
+                report.append(String.format("%-9s %-9d %-8d %-9.4f %-8.3f %d%n", type, truncate, factor, recall,
+                        nanos / 1_000_000.0 / QUERIES, quantization.bytesPerVector()));
+
+                if (!quantization.isEnabled()) {
+                    Assert.assertEquals(1.0, recall, 1e-9);
+                }
+                // 候选集随 rescoreFactor 单调变大，重排后的召回率不会下降
+                Assert.assertTrue(recall + 1e-9 >= previousRecall);
+                previousRecall = recall;
+            }
+        }
+        log.info("量化检索对比：{}", report);
+    }
+
+    /**
+     * 量化后的语料；NONE 与 HALFVEC 用余弦距离，BINARY 用汉明距离
+     */
+    private static final class Coarse {
+
+        private final PgVectorQuantization.Type type;
+        private final int dimensions;
+        private final float[][] vectors;
+        private final long[][] bits;
+
+        private Coarse(PgVectorQuantization.Type type, int dimensions, float[][] corpus) {
+            this.type = type;
+            this.dimensions = dimensions;
+            if (type == PgVectorQuantization.Type.BINARY) {
+                this.vectors = null;
+                this.bits = new long[corpus.length][];
+                for (int i = 0; i < corpus.length; i++) {
+                    this.bits[i] = binaryQuantize(corpus[i], dimensions);
+                }
+            } else {
+                this.bits = null;
+                this.vectors = new float[corpus.length][];
+                for (int i = 0; i < corpus.length; i++) {
+                    this.vectors[i] = this.quantize(corpus[i]);
+                }
+            }
+        }
+
+        private int[] topK(float[] query, int k) {
+            double[] distances = new double[CORPUS_SIZE];
+            if (this.type == PgVectorQuantization.Type.BINARY) {
+                long[] q = binaryQuantize(query, this.dimensions);
+                for (int i = 0; i < CORPUS_SIZE; i++) {
+                    distances[i] = hamming(this.bits[i], q);
+                }
+            } else {
+                float[] q = this.quantize(query);
+                for (int i = 0; i < CORPUS_SIZE; i++) {
+                    distances[i] = cosineDistance(this.vectors[i], q);
+                }
+            }
+            return smallest(distances, k);
+        }
+
+        private float[] quantize(float[] vector) {
+            float[] result = Arrays.copyOf(vector, this.dimensions);
+            if (this.type == PgVectorQuantization.Type.HALFVEC) {
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = toHalfPrecision(result[i]);
+                }
+            }
+            return result;
+        }
+
+    }
+
+    private static float[][] vectors(int count, long seed) {
+        SplittableRandom centroidRandom = new SplittableRandom(42L);
+        float[][] centroids = new float[CLUSTERS][DIMENSIONS];
+        for (float[] centroid : centroids) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                centroid[d] = (float) (gaussian(centroidRandom) * scale(d));
+            }
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        float[][] vectors = new float[count][DIMENSIONS];
+        for (float[] vector : vectors) {
+            float[] centroid = centroids[random.nextInt(CLUSTERS)];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = centroid[d] + (float) (0.5 * gaussian(random) * scale(d));
+            }
+            normalize(vector);
+        }
+        return vectors;
+    }
+
+    private static double scale(int dimension) {
+        return 1.0 / Math.sqrt(1.0 + dimension / 16.0);
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        double u = 1.0 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+    }
+
+    private static void normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) (vector[i] / norm);
+        }
+    }
+
+    /**
+     * 截断尾数到 10 位，与 float16 的精度一致（不模拟指数范围，归一化向量的分量不会溢出）
+     */
+    private static float toHalfPrecision(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        bits = (bits + 0x1000) & 0xFFFFE000;
+        return Float.intBitsToFloat(bits);
+    }
+
+    private static long[] binaryQuantize(float[] vector, int dimensions) {
+        long[] bits = new long[(dimensions + 63) / 64];
+        for (int d = 0; d < dimensions; d++) {
+            if (vector[d] > 0) {
+                bits[d >>> 6] |= 1L << (d & 63);
+            }
+        }
+        return bits;
+    }
+
+    private static int hamming(long[] a, long[] b) {
+        int distance = 0;
+        for (int i = 0; i < a.length; i++) {
+            distance += Long.bitCount(a[i] ^ b[i]);
+        }
+        return distance;
+    }
+
+    private static double cosineDistance(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return 1 - dot / Math.sqrt(normA * normB);
+    }
+
+    private static int[] exactTopK(float[][] corpus, float[] query, int k) {
+        double[] distances = new double[corpus.length];
+        for (int i = 0; i < corpus.length; i++) {
+            distances[i] = cosineDistance(corpus[i], query);
+        }
+        return smallest(distances, k);
+    }
+
+    private static int[] rescore(float[][] corpus, float[] query, int[] candidates, int k) {
+        double[] distances = new double[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            distances[i] = cosineDistance(corpus[candidates[i]], query);
+        }
+        int[] order = smallest(distances, Math.min(k, candidates.length));
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = candidates[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * 距离最小的 k 个下标；距离相同时取下标小者，保证结果稳定
+     */
+    private static int[] smallest(double[] distances, int k) {
+        return IntStream.range(0, distances.length)
+                .boxed()
+                .sorted((a, b) -> distances[a] != distances[b] ? Double.compare(distances[a], distances[b]) : Integer.compare(a, b))
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static int overlap(int[] expected, int[] actual) {
+        Set<Integer> set = new HashSet<>();
+        for (int i : expected) {
+            set.add(i);
+        }
+        int count = 0;
+        for (int i : actual) {
+            if (set.contains(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,136 @@
+package top.kangyaocoding.ai.test;
+
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import top.kangyaocoding.ai.domain.agent.service.rag.FilterExpressionCache;
+import top.kangyaocoding.ai.infrastructure.vector.CachedFilterPgVectorStore;
+import top.kangyaocoding.ai.infrastructure.vector.PartitionedPgVectorStore;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorFilterSqlConverter;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorMetadataIndexInitializer;
+import top.kangyaocoding.ai.test.support.RandomEmbeddingModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描述: 共享表与按知识库分表两种布局的检索延迟随语料规模变化的对比，需要连接 dev 环境的 pgvector
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 15:02
+ */
+@Slf4j
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class VectorStoreLayoutBenchmarkTest {
+
+    private static final int DIMENSIONS = 256;
+    private static final int KNOWLEDGE_COUNT = 8;
+    private static final int TOP_K = 5;
+    private static final int WARMUP_QUERIES = 50;
+    private static final int MEASURE_QUERIES = 200;
+    private static final int[] CORPUS_SIZES = {10_000, 50_000, 100_000};
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void test_latency_vs_corpus_size() {
+        EmbeddingModel embeddingModel = new RandomEmbeddingModel(DIMENSIONS);
+        FilterExpressionCache filterExpressionCache = new FilterExpressionCache(1024, new PgVectorFilterSqlConverter(List.of("knowledge")));
+
+        StringBuilder report = new StringBuilder("\nlayout       corpus   p50(ms)  p95(ms)  p99(ms)  avgHits\n");
+        for (int corpusSize : CORPUS_SIZES) {
+            List<Document> corpus = corpus(corpusSize);
+
+            String sharedTable = "bench_shared_" + corpusSize;
+            PgVectorStore pgVectorStore = PgVectorStore.builder(jdbcTemplate, embeddingModel)
+                    .vectorTableName(sharedTable)
+                    .dimensions(DIMENSIONS)
+                    .distanceType(PgVectorStore.PgDistanceType.COSINE_DISTANCE)
+                    .indexType(PgVectorStore.PgIndexType.HNSW)
+                    .initializeSchema(true)
+                    .removeExistingVectorStoreTable(true)
+                    .build();
+            pgVectorStore.afterPropertiesSet();
+            new PgVectorMetadataIndexInitializer(jdbcTemplate, PgVectorStore.DEFAULT_SCHEMA_NAME, sharedTable, List.of("knowledge"), true)
+                    .afterPropertiesSet();
+            VectorStore shared = new CachedFilterPgVectorStore(pgVectorStore, jdbcTemplate, embeddingModel, filterExpressionCache,
+                    PgVectorStore.DEFAULT_SCHEMA_NAME, sharedTable);
+
+            PartitionedPgVectorStore partitioned = PartitionedPgVectorStore.builder(jdbcTemplate, embeddingModel, filterExpressionCache)
+                    .tablePrefix("bench_kb_" + corpusSize)
+                    .dimensions(DIMENSIONS)
+                    .build();
+            partitioned.afterPropertiesSet();
+
+            try {
+                shared.add(corpus);
+                partitioned.add(corpus);
+                report.append(measure("shared", corpusSize, shared));
+                report.append(measure("partitioned", corpusSize, partitioned));
+            } finally {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + sharedTable);
+                for (Map.Entry<String, String> entry : partitioned.getPartitions().entrySet()) {
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + entry.getValue());
+                }
+                jdbcTemplate.execute("DROP TABLE IF EXISTS bench_kb_" + corpusSize + "_partition");
+            }
+        }
+        log.info("检索延迟对比：{}", report);
+    }
+
+    private String measure(String layout, int corpusSize, VectorStore vectorStore) {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            vectorStore.similaritySearch(request(i));
+        }
+        long[] latencies = new long[MEASURE_QUERIES];
+        long hits = 0;
+        for (int i = 0; i < MEASURE_QUERIES; i++) {
+            long start = System.nanoTime();
+            List<Document> documents = vectorStore.similaritySearch(request(WARMUP_QUERIES + i));
+            latencies[i] = System.nanoTime() - start;
+            hits += documents == null ? 0 : documents.size();
+        }
+        Arrays.sort(latencies);
+        return String.format("%-12s %-8d %-8.2f %-8.2f %-8.2f %.2f%n", layout, corpusSize,
+                percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                (double) hits / MEASURE_QUERIES);
+    }
+
+    private static SearchRequest request(int i) {
+        return SearchRequest.builder()
+                .query("query-" + i)
+                .topK(TOP_K)
+                .filterExpression("knowledge == 'kb-" + (i % KNOWLEDGE_COUNT) + "'")
+                .build();
+    }
+
+    private static List<Document> corpus(int size) {
+        List<Document> documents = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            documents.add(Document.builder()
+                    .text("chunk-" + i)
+                    .metadata("knowledge", "kb-" + (i % KNOWLEDGE_COUNT))
+                    .build());
+        }
+        return documents;
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+    }
+
+}
@@ -0,0 +1,134 @@
+package top.kangyaocoding.ai.test.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.server.transport.StdioServerTransportProvider;
+import io.modelcontextprotocol.spec.McpSchema;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 描述: 本地的钉钉机器人 MCP 服务；与 mcp-dingding-bot 一样经 stdio 提供 send_text_message，不访问钉钉
+ * <p>
+ * 1. 收到的每条消息正文以一行 JSON 追加到 STUB_DINGTALK_LOG 指定的文件，测试读取该文件核对送达内容；
+ * 2. STUB_DINGTALK_RATE_PER_MINUTE 模拟机器人每分钟的发送上限，超出时与钉钉一样返回 send too fast 错误；
+ * 3. STUB_DINGTALK_FAIL_FIRST 让前若干次调用失败，STUB_DINGTALK_LATENCY_MILLIS 模拟每次调用的耗时。
+ * 测试中用 {@link #client} 以子进程启动，走完整的 MCP stdio 往返。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:35
+ */
+public class StubDingTalkMcpServer {
+
+    public static final String TOOL = "send_text_message";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String INPUT_SCHEMA = """
+            {"type":"object","properties":{"content":{"type":"string","description":"消息正文"},\
+            "atMobiles":{"type":"array","items":{"type":"string"},"description":"需要 @ 的手机号"}},"required":["content"]}""";
+
+    public static void main(String[] args) throws Exception {
+        // stdout 是协议通道，日志等其他输出全部改到 stderr
+        PrintStream protocol = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+
+        Path log = Path.of(System.getenv("STUB_DINGTALK_LOG"));
+        int ratePerMinute = Integer.parseInt(System.getenv().getOrDefault("STUB_DINGTALK_RATE_PER_MINUTE", "20"));
+        int failFirst = Integer.parseInt(System.getenv().getOrDefault("STUB_DINGTALK_FAIL_FIRST", "0"));
+        long latencyMillis = Long.parseLong(System.getenv().getOrDefault("STUB_DINGTALK_LATENCY_MILLIS", "0"));
+        AtomicInteger calls = new AtomicInteger();
+        List<Long> sentAt = new ArrayList<>();
+
+        McpServerFeatures.SyncToolSpecification sendText = new McpServerFeatures.SyncToolSpecification(
+                new McpSchema.Tool(TOOL, "发送钉钉机器人文本消息", INPUT_SCHEMA),
+                (exchange, arguments) -> {
+                    sleep(latencyMillis);
+                    if (calls.incrementAndGet() <= failFirst) {
+                        return new McpSchema.CallToolResult("errcode 500: stub failure", true);
+                    }
+                    synchronized (sentAt) {
+                        long now = System.currentTimeMillis();
+                        sentAt.removeIf(time -> now - time >= 60_000);
+                        if (sentAt.size() >= ratePerMinute) {
+                            return new McpSchema.CallToolResult("errcode 660026: send too fast", true);
+                        }
+                        sentAt.add(now);
+                    }
+                    try {
+                        Files.writeString(log, OBJECT_MAPPER.writeValueAsString(arguments) + "\n", StandardCharsets.UTF_8,
+                                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    } catch (IOException e) {
+                        return new McpSchema.CallToolResult(e.toString(), true);
+                    }
+                    return new McpSchema.CallToolResult("{\"errcode\":0,\"errmsg\":\"ok\"}", false);
+                });
+        McpServer.sync(new StdioServerTransportProvider(OBJECT_MAPPER, System.in, protocol))
+                .serverInfo("stub-dingtalk-bot", "1.0.0")
+                .capabilities(McpSchema.ServerCapabilities.builder().tools(true).build())
+                .tools(sendText)
+                .build();
+        // 传输线程不阻止退出，主线程一直等待，由客户端关闭时结束子进程
+        new CountDownLatch(1).await();
+    }
+
+    /**
+     * 以子进程启动本服务并完成初始化；调用方负责 close
+     */
+    public static McpSyncClient client(Path log, int ratePerMinute, int failFirst, long latencyMillis) {
+        // SDK 按平台默认字符集读取 stdin，子进程固定为 UTF-8
+        ServerParameters parameters = ServerParameters.builder(Path.of(System.getProperty("java.home"), "bin", "java").toString())
+                .args("-Dfile.encoding=UTF-8", "-cp", System.getProperty("java.class.path"), StubDingTalkMcpServer.class.getName())
+                .env(Map.of("STUB_DINGTALK_LOG", log.toString(),
+                        "STUB_DINGTALK_RATE_PER_MINUTE", String.valueOf(ratePerMinute),
+                        "STUB_DINGTALK_FAIL_FIRST", String.valueOf(failFirst),
+                        "STUB_DINGTALK_LATENCY_MILLIS", String.valueOf(latencyMillis)))
+                .build();
+        McpSyncClient client = McpClient.sync(new StdioClientTransport(parameters)).requestTimeout(Duration.ofSeconds(20)).build();
+        client.initialize();
+        return client;
+    }
+
+    /**
+     * 已送达的消息正文，按送达顺序
+     */
+    public static List<String> delivered(Path log) throws IOException {
+        List<String> contents = new ArrayList<>();
+        if (!Files.exists(log)) {
+            return contents;
+        }
+        for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+            contents.add(OBJECT_MAPPER.readTree(line).path("content").asText());
+        }
+        return contents;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
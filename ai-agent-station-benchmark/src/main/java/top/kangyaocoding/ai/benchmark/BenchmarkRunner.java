@@ -0,0 +1,43 @@
+package top.kangyaocoding.ai.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 描述: JMH 基准入口，结果以 JSON 写入 benchmark.output（默认 target/benchmark/jmh-result.json）
+ * <p>
+ * 参数为要运行的基准名正则，缺省运行 jmh 包下全部基准；-Dbenchmark.quick=true 时各 1 轮、每轮 1 秒，只用于冒烟。
+ * 运行：mvn -pl ai-agent-station-benchmark -am package -DskipTests 后
+ * java -jar ai-agent-station-benchmark/target/ai-agent-station-benchmark.jar [AdvisorBenchmark]
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 23:00
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path output = Path.of(System.getProperty("benchmark.output", "target/benchmark/jmh-result.json"));
+        Files.createDirectories(output.toAbsolutePath().getParent());
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : BenchmarkRunner.class.getPackageName() + ".jmh.")
+                .resultFormat(ResultFormatType.JSON)
+                .result(output.toString())
+                .shouldFailOnError(true);
+        if (Boolean.getBoolean("benchmark.quick")) {
+            options.forks(1)
+                    .warmupIterations(1).warmupTime(TimeValue.seconds(1))
+                    .measurementIterations(1).measurementTime(TimeValue.seconds(1));
+        }
+        new Runner(options.build()).run();
+    }
+
+}
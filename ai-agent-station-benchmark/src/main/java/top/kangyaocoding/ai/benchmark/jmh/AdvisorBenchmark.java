@@ -0,0 +1,135 @@
+package top.kangyaocoding.ai.benchmark.jmh;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import top.kangyaocoding.ai.benchmark.support.KnowledgeCorpus;
+import top.kangyaocoding.ai.domain.agent.service.observability.AgentObservationAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.observability.PipelineObservations;
+import top.kangyaocoding.ai.domain.agent.service.rag.RetrievalFanOutAdvisor;
+import top.kangyaocoding.ai.infrastructure.vector.EmbeddedVectorStore;
+import top.kangyaocoding.ai.test.support.RandomEmbeddingModel;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: advisor 自身开销；检索走内存 HNSW 向量库，模型调用由固定响应的链代替
+ * <p>
+ * 1. retrievalBefore / retrievalAfter：RetrievalFanOutAdvisor 的检索、拼接上下文与回填元数据，knowledges 为并行检索的知识库数；
+ * 2. observationCall / observationCallNoop：AgentObservationAdvisor 接入与未接入监控时每次调用的额外开销。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:55
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdvisorBenchmark {
+
+    @Param({"1", "4"})
+    private int knowledges;
+
+    private ExecutorService executor;
+    private RetrievalFanOutAdvisor retrievalAdvisor;
+    private AgentObservationAdvisor observationAdvisor;
+    private AgentObservationAdvisor noopObservationAdvisor;
+    private ChatClientRequest request;
+    private ChatClientResponse retrievedResponse;
+    private CallAdvisorChain chain;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        EmbeddedVectorStore vectorStore = EmbeddedVectorStore.builder(new RandomEmbeddingModel(256)).dimensions(256).build();
+        vectorStore.add(KnowledgeCorpus.documents(5_000, 4));
+        this.executor = RetrievalFanOutAdvisor.newExecutor("benchmark-retrieval", 4, 64);
+        this.retrievalAdvisor = RetrievalFanOutAdvisor.builder(vectorStore, this.executor)
+                .searchRequest(SearchRequest.builder().topK(4).build())
+                .knowledges(KnowledgeCorpus.knowledges(this.knowledges))
+                .knowledgeKey(KnowledgeCorpus.KNOWLEDGE)
+                .build();
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        this.observationAdvisor = AgentObservationAdvisor.builder(new PipelineObservations(meterRegistry, observationRegistry, 0.0, 2000))
+                .agent("benchmark").build();
+        this.noopObservationAdvisor = AgentObservationAdvisor.builder(new PipelineObservations(meterRegistry, ObservationRegistry.NOOP, 0.0, 2000))
+                .agent("benchmark").build();
+
+        this.request = new ChatClientRequest(new Prompt(KnowledgeCorpus.QUESTIONS.get(0)), Map.of());
+        ChatResponse chatResponse = new ChatResponse(List.of(new Generation(new AssistantMessage("检索增强生成先召回再生成。"))),
+                ChatResponseMetadata.builder().model("stub-model").usage(new DefaultUsage(200, 20)).build());
+        ChatClientResponse response = new ChatClientResponse(chatResponse, Map.of());
+        List<Document> documents = vectorStore.similaritySearch(SearchRequest.builder().query(KnowledgeCorpus.QUESTIONS.get(0)).topK(4).build());
+        this.retrievedResponse = new ChatClientResponse(chatResponse, Map.of(RetrievalFanOutAdvisor.RETRIEVED_DOCUMENTS, documents));
+        this.chain = new CallAdvisorChain() {
+            @Override
+            public ChatClientResponse nextCall(ChatClientRequest chatClientRequest) {
+                return response;
+            }
+
+            @Override
+            public List<CallAdvisor> getCallAdvisors() {
+                return List.of();
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Benchmark
+    public ChatClientRequest retrievalBefore() {
+        return this.retrievalAdvisor.before(this.request, this.chain);
+    }
+
+    @Benchmark
+    public ChatClientResponse retrievalAfter() {
+        return this.retrievalAdvisor.after(this.retrievedResponse, this.chain);
+    }
+
+    @Benchmark
+    public ChatClientResponse observationCall() {
+        return this.observationAdvisor.adviseCall(this.request, this.chain);
+    }
+
+    @Benchmark
+    public ChatClientResponse observationCallNoop() {
+        return this.noopObservationAdvisor.adviseCall(this.request, this.chain);
+    }
+
+}
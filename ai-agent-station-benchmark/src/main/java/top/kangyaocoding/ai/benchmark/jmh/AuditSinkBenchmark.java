@@ -0,0 +1,84 @@
+package top.kangyaocoding.ai.benchmark.jmh;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import top.kangyaocoding.ai.domain.agent.service.audit.AuditRecord;
+import top.kangyaocoding.ai.infrastructure.audit.AsyncAuditSink;
+import top.kangyaocoding.ai.infrastructure.audit.SegmentedAuditLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 审计写入吞吐；4 个线程并发提交约 2KB 的记录
+ * <p>
+ * 1. asyncOffer：{@link AsyncAuditSink} 入队，写入线程批量压缩落盘；分数是调用线程的提交速率，包含过载时被抽样、丢弃的提交，实际落盘条数见结束时的日志；
+ * 2. synchronousAppend：调用线程加锁后逐条压缩写入，相当于同步日志的做法。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 23:45
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class AuditSinkBenchmark {
+
+    private Path directory;
+    private AsyncAuditSink asyncSink;
+    private SegmentedAuditLog synchronousLog;
+    private AuditRecord record;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("audit-benchmark");
+        this.asyncSink = AsyncAuditSink.builder(SegmentedAuditLog.builder(this.directory.resolve("async")).build()).build();
+        this.synchronousLog = SegmentedAuditLog.builder(this.directory.resolve("sync")).build();
+        this.record = new AuditRecord(System.currentTimeMillis(), "benchmark", "conversation-1", "qwen3-14b", "call",
+                List.of(new AuditRecord.Message("system", "你是一个智能助手"),
+                        new AuditRecord.Message("user", "检索增强生成的流程是什么？".repeat(30))),
+                "检索增强生成先从知识库召回相关片段，再交给模型组织答案。".repeat(20), 300, 120, 850, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.asyncSink.close();
+        this.synchronousLog.close();
+        log.info("异步写入 接收:{} 写入:{} 抽样丢弃:{} 溢出丢弃:{}", this.asyncSink.getAccepted(), this.asyncSink.getWritten(),
+                this.asyncSink.getSampled(), this.asyncSink.getDropped());
+        FileSystemUtils.deleteRecursively(this.directory);
+    }
+
+    @Benchmark
+    public boolean asyncOffer() {
+        return this.asyncSink.offer(this.record);
+    }
+
+    @Benchmark
+    public void synchronousAppend() throws IOException {
+        synchronized (this.synchronousLog) {
+            this.synchronousLog.append(List.of(this.record));
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package top.kangyaocoding.ai.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+import org.springframework.ai.vectorstore.pgvector.PgVectorFilterExpressionConverter;
+import top.kangyaocoding.ai.domain.agent.service.rag.FilterExpressionCache;
+import top.kangyaocoding.ai.infrastructure.vector.PgVectorFilterSqlConverter;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 过滤表达式解析与转换；对比 ANTLR 直接解析、{@link FilterExpressionCache} 缓存命中，以及两种 pgvector 转换器
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:55
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterParseBenchmark {
+
+    @Param({
+            "knowledge == 'kb-1'",
+            "knowledge in ['kb-1', 'kb-2'] && year >= 2020 && (author == 'herbert' || tag == 'rag')"
+    })
+    private String text;
+
+    private Filter.Expression expression;
+    private FilterExpressionCache cache;
+    private PgVectorFilterExpressionConverter pgVectorConverter;
+    private PgVectorFilterSqlConverter indexedConverter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.expression = new FilterExpressionTextParser().parse(this.text);
+        this.pgVectorConverter = new PgVectorFilterExpressionConverter();
+        this.indexedConverter = new PgVectorFilterSqlConverter(Set.of("knowledge"));
+        this.cache = new FilterExpressionCache(FilterExpressionCache.DEFAULT_MAXIMUM_SIZE, this.indexedConverter);
+    }
+
+    @Benchmark
+    public Filter.Expression parse() {
+        return new FilterExpressionTextParser().parse(this.text);
+    }
+
+    @Benchmark
+    public Filter.Expression parseCached() {
+        return this.cache.parse(this.text);
+    }
+
+    @Benchmark
+    public String convertPgVector() {
+        return this.pgVectorConverter.convertExpression(this.expression);
+    }
+
+    @Benchmark
+    public String convertIndexed() {
+        return this.indexedConverter.convertExpression(this.expression);
+    }
+
+    @Benchmark
+    public String convertCached() {
+        return this.cache.convert(this.text);
+    }
+
+}
@@ -0,0 +1,134 @@
+package top.kangyaocoding.ai.benchmark.jmh;
+
+import com.alibaba.fastjson.JSON;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import top.kangyaocoding.ai.api.response.Response;
+import top.kangyaocoding.ai.domain.agent.service.audit.AuditRecord;
+import top.kangyaocoding.ai.infrastructure.audit.AuditRecordJsonWriter;
+import top.kangyaocoding.ai.trigger.http.ResponseJsonMessageConverter;
+import top.kangyaocoding.ai.types.enums.ResponseCode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: JSON 序列化；对比 fastjson 先生成 String 再编码，与 Jackson 生成器直接写输出流
+ * <p>
+ * 1. response*：接口返回的 {@code Response<Completion>}，正文长度可调；objectMapper 为 Spring 默认的 Jackson 转换器做法，streaming 为 {@link ResponseJsonMessageConverter}；
+ * 2. audit*：一批 16 条审计记录，streaming 为 {@link AuditRecordJsonWriter}。
+ * 输出写入只计字节数的空流，排除目标流本身的开销；分配量用 -prof gc 查看（gc.alloc.rate.norm），fastjson 每次约为正文的数倍。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:00
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    public record Completion(String conversationId, String model, String content, int promptTokens, int completionTokens) {
+    }
+
+    @Param({"2000", "200000"})
+    private int contentLength;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CountingOutputStream out = new CountingOutputStream();
+    private ResponseJsonMessageConverter converter;
+    private Response<Completion> response;
+    private List<AuditRecord> records;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder content = new StringBuilder(this.contentLength);
+        while (content.length() < this.contentLength) {
+            content.append("检索增强生成先从知识库召回相关片段，再交给模型组织答案。\"引用\"保留原文。\n");
+        }
+        content.setLength(this.contentLength);
+        this.converter = new ResponseJsonMessageConverter(this.objectMapper);
+        this.response = Response.<Completion>builder()
+                .code(ResponseCode.SUCCESS.getCode())
+                .info(ResponseCode.SUCCESS.getInfo())
+                .data(new Completion("conversation-1", "qwen3-14b", content.toString(), 300, this.contentLength / 2))
+                .build();
+        this.records = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            this.records.add(new AuditRecord(System.currentTimeMillis(), "benchmark", "conversation-" + i, "qwen3-14b", "call",
+                    List.of(new AuditRecord.Message("system", "你是一个智能助手"),
+                            new AuditRecord.Message("user", "检索增强生成的流程是什么？".repeat(30))),
+                    content.substring(0, Math.min(content.length(), 8192)), 300, 120, 850, null));
+        }
+    }
+
+    @Benchmark
+    public long responseFastjson() throws IOException {
+        this.out.write(JSON.toJSONString(this.response).getBytes(StandardCharsets.UTF_8));
+        return this.out.count;
+    }
+
+    @Benchmark
+    public long responseObjectMapper() throws IOException {
+        this.objectMapper.writeValue(this.out, this.response);
+        return this.out.count;
+    }
+
+    @Benchmark
+    public long responseStreaming() throws IOException {
+        this.converter.write(this.response, this.out);
+        return this.out.count;
+    }
+
+    @Benchmark
+    public long auditFastjson() throws IOException {
+        for (AuditRecord record : this.records) {
+            this.out.write(JSON.toJSONString(record).getBytes(StandardCharsets.UTF_8));
+            this.out.write('\n');
+        }
+        return this.out.count;
+    }
+
+    @Benchmark
+    public long auditStreaming() throws IOException {
+        AuditRecordJsonWriter.write(this.records, this.out);
+        return this.out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.count += len;
+        }
+
+        @Override
+        public void close() {
+            // 与响应流一样由调用方负责关闭
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package top.kangyaocoding.ai.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.document.Document;
+import top.kangyaocoding.ai.benchmark.support.KnowledgeCorpus;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 提示词渲染；检索上下文拼入 RAG 模板的几种方式，contextChars 为上下文长度
+ * <p>
+ * 1. templateNew：每次新建 PromptTemplate 再渲染（StringTemplate 每次重新解析模板）；
+ * 2. templateReuse：复用已创建的 PromptTemplate；
+ * 3. stringReplace：advisor 中使用的 String.replace 占位符替换。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:55
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptRenderBenchmark {
+
+    private static final String TEMPLATE = """
+            Context information is below, surrounded by ---------------------
+
+            ---------------------
+            {question_answer_context}
+            ---------------------
+
+            Given the context and provided history information and not prior knowledge,
+            reply to the user comment. If the answer is not in the context, inform
+            the user that you can't answer the question.
+            """;
+
+    @Param({"2000", "20000"})
+    private int contextChars;
+
+    private String context;
+    private Map<String, Object> variables;
+    private PromptTemplate template;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder context = new StringBuilder(this.contextChars);
+        for (Document document : KnowledgeCorpus.documents(this.contextChars / 20, 1)) {
+            context.append(document.getText()).append(System.lineSeparator());
+        }
+        this.context = context.substring(0, this.contextChars);
+        this.variables = Map.of("question_answer_context", this.context);
+        this.template = new PromptTemplate(TEMPLATE);
+    }
+
+    @Benchmark
+    public String templateNew() {
+        return new PromptTemplate(TEMPLATE).render(this.variables);
+    }
+
+    @Benchmark
+    public String templateReuse() {
+        return this.template.render(this.variables);
+    }
+
+    @Benchmark
+    public String stringReplace() {
+        return TEMPLATE.replace("{question_answer_context}", this.context);
+    }
+
+}
@@ -0,0 +1,139 @@
+package top.kangyaocoding.ai.benchmark.jmh;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.publisher.Flux;
+import top.kangyaocoding.ai.domain.agent.service.structured.IncrementalJsonReader;
+import top.kangyaocoding.ai.domain.agent.service.structured.StructuredOutput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 流式结构化输出；对比 {@link IncrementalJsonReader} 增量解析与“拼完整段补全再用 Jackson 解析”
+ * <p>
+ * 补全按约 4 个字符一个分片切开，模拟 token 流；正文长度可调，标题、标签、简述排在正文之前。
+ * incremental / buffered 只比较解析本身，summary* 比较拿到简述所需的解析量，stream* 走完整的 {@code Flux<ChatResponse>} 并得到同一个 Article 对象。
+ * 解析吞吐两者接近，增量解析的收益在于字段就绪的时间不随正文长度增长。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 13:15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StructuredOutputBenchmark {
+
+    public record Article(String title, List<String> tags, String summary, String content) {
+    }
+
+    @Param({"2000", "20000"})
+    private int contentLength;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private StructuredOutput<Article> structuredOutput;
+    private String[] chunks;
+    private List<ChatResponse> responses;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        StringBuilder content = new StringBuilder(this.contentLength);
+        while (content.length() < this.contentLength) {
+            content.append("## 小节\n流式补全逐 token 返回，\"结构化\"字段在正文之前完成。\n");
+        }
+        String json = "```json\n" + this.objectMapper.writeValueAsString(new Article("Spring AI 流式结构化输出",
+                List.of("Spring AI", "JSON", "Reactor"), "边生成边解析，字段完整即发出，通知不必等待正文。", content.toString())) + "\n```";
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < json.length(); i += 4) {
+            parts.add(json.substring(i, Math.min(json.length(), i + 4)));
+        }
+        this.chunks = parts.toArray(String[]::new);
+        this.responses = parts.stream().map(part -> new ChatResponse(List.of(new Generation(new AssistantMessage(part))))).toList();
+        this.structuredOutput = StructuredOutput.of(Article.class, this.objectMapper);
+    }
+
+    @Benchmark
+    public void incremental(Blackhole blackhole) {
+        IncrementalJsonReader reader = new IncrementalJsonReader((name, value, composite) -> blackhole.consume(value));
+        for (String chunk : this.chunks) {
+            reader.feed(chunk);
+        }
+        reader.end();
+    }
+
+    @Benchmark
+    public Article buffered() {
+        StringBuilder buffer = new StringBuilder();
+        for (String chunk : this.chunks) {
+            buffer.append(chunk);
+        }
+        return this.readArticle(buffer);
+    }
+
+    /**
+     * 取到简述即可开始通知：增量解析在读完简述后停止，一次性解析必须等整段补全
+     */
+    @Benchmark
+    public Object summaryIncremental() {
+        Object[] summary = new Object[1];
+        IncrementalJsonReader reader = new IncrementalJsonReader((name, value, composite) -> {
+            if ("summary".equals(name)) {
+                summary[0] = value;
+            }
+        });
+        for (int i = 0; i < this.chunks.length && summary[0] == null; i++) {
+            reader.feed(this.chunks[i]);
+        }
+        return summary[0];
+    }
+
+    @Benchmark
+    public Object summaryBuffered() {
+        return this.buffered().summary();
+    }
+
+    @Benchmark
+    public Article streamIncremental() {
+        return this.structuredOutput.object(this.structuredOutput.fields(Flux.fromIterable(this.responses))).block();
+    }
+
+    @Benchmark
+    public Article streamBuffered() {
+        return Flux.fromIterable(this.responses)
+                .map(response -> response.getResult().getOutput().getText())
+                .collect(StringBuilder::new, StringBuilder::append)
+                .map(this::readArticle)
+                .block();
+    }
+
+    private Article readArticle(StringBuilder buffer) {
+        // 模型输出常带代码块，一次性解析前需先截出 JSON
+        int start = buffer.indexOf("{");
+        int end = buffer.lastIndexOf("}");
+        try {
+            return this.objectMapper.readValue(buffer.substring(start, end + 1), Article.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
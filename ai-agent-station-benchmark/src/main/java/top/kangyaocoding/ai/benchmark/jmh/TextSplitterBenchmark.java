@@ -0,0 +1,126 @@
+package top.kangyaocoding.ai.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import top.kangyaocoding.ai.domain.agent.service.rag.StructuredTextSplitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 分块基准；同样的 Markdown 语料（总量 sizeMb），分成 documents 个文档，对比 TokenTextSplitter 与 StructuredTextSplitter 单线程 / 并行
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 20:40
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class TextSplitterBenchmark {
+
+    @Param({"1", "8"})
+    private int sizeMb;
+
+    @Param({"1", "32"})
+    private int documents;
+
+    private List<Document> corpus;
+    private ForkJoinPool single;
+    private TokenTextSplitter tokenTextSplitter;
+    private StructuredTextSplitter sequential;
+    private StructuredTextSplitter parallel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.corpus = corpus(this.sizeMb * 1024 * 1024, this.documents);
+        this.single = new ForkJoinPool(1);
+        this.tokenTextSplitter = new TokenTextSplitter();
+        this.sequential = StructuredTextSplitter.builder().pool(this.single).build();
+        this.parallel = StructuredTextSplitter.builder().pool(ForkJoinPool.commonPool()).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.single.shutdown();
+    }
+
+    @Benchmark
+    public List<Document> tokenTextSplitter() {
+        return this.tokenTextSplitter.apply(this.corpus);
+    }
+
+    @Benchmark
+    public List<Document> structuredSequential() {
+        return this.sequential.apply(this.corpus);
+    }
+
+    @Benchmark
+    public List<Document> structuredParallel() {
+        return this.parallel.apply(this.corpus);
+    }
+
+    /**
+     * 中英文混排的 Markdown：多级标题、段落、代码块、列表
+     */
+    static List<Document> corpus(int totalChars, int documents) {
+        Random random = new Random(42);
+        String[] sentences = {
+                "检索增强生成先从知识库召回相关片段，再交给模型组织答案。",
+                "向量索引使用 HNSW，ef_search 越大召回越高、延迟越大。",
+                "Chunking strategy has a large impact on retrieval quality and embedding cost.",
+                "每个知识库可以单独配置分块大小与重叠长度。",
+                "The splitter keeps code blocks intact whenever they fit into a single chunk.",
+        };
+        List<Document> corpus = new ArrayList<>(documents);
+        int perDocument = totalChars / documents;
+        for (int d = 0; d < documents; d++) {
+            StringBuilder text = new StringBuilder(perDocument + 1024);
+            text.append("# 文档 ").append(d).append("\n\n");
+            int section = 0;
+            while (text.length() < perDocument) {
+                text.append("## 第 ").append(++section).append(" 章\n\n");
+                for (int p = 0, paragraphs = 2 + random.nextInt(6); p < paragraphs; p++) {
+                    for (int s = 0, count = 2 + random.nextInt(8); s < count; s++) {
+                        text.append(sentences[random.nextInt(sentences.length)]);
+                    }
+                    text.append("\n\n");
+                }
+                if (random.nextInt(3) == 0) {
+                    text.append("```java\n");
+                    for (int line = 0, lines = 5 + random.nextInt(30); line < lines; line++) {
+                        text.append("    List<Document> chunks = splitter.apply(documents.subList(").append(line).append(", size));\n");
+                    }
+                    text.append("```\n\n");
+                }
+                if (random.nextInt(2) == 0) {
+                    for (int item = 0; item < 5; item++) {
+                        text.append("- 要点 ").append(item).append("：").append(sentences[random.nextInt(sentences.length)]).append('\n');
+                    }
+                    text.append('\n');
+                }
+            }
+            corpus.add(new Document(text.toString()));
+        }
+        return corpus;
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * JMH 微基准；advisor、提示词渲染、过滤表达式解析、分块、流式结构化输出解析与 JSON 序列化
+ */
+package top.kangyaocoding.ai.benchmark.jmh;
@@ -0,0 +1,212 @@
+package top.kangyaocoding.ai.benchmark.load;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.ai.openai.OpenAiEmbeddingOptions;
+import top.kangyaocoding.ai.benchmark.stub.StubOpenAiServer;
+import top.kangyaocoding.ai.benchmark.support.KnowledgeCorpus;
+import top.kangyaocoding.ai.infrastructure.embedding.OnnxEmbeddingModel;
+import top.kangyaocoding.ai.test.support.SyntheticOnnxModel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 描述: 向量模型对比压测；本地 ONNX 模型与经桩服务的远程模型分别跑检索与导入两个场景，结果写入 JSON
+ * <p>
+ * 1. query：concurrency 个线程各自逐条向量化检索问题，对应线上并发检索，本地模型的并发请求在工作线程上合并成批；
+ * 2. ingest：单线程按向量库写入的方式（TokenCountBatchingStrategy）向量化 batch 个分块，对应知识库导入；
+ * 3. 远程模型走 OpenAiEmbeddingModel → 桩服务 /v1/embeddings，响应时间固定为 stub.embeddingLatency，只体现网络往返与排队；
+ * 本地模型默认为合成的 MiniLM 规模模型（384 维、6 层），embedding.model 指定真实的 model.onnx 时使用真实模型。
+ * 参数均为系统属性：
+ * embedding.model（model.onnx 路径，同目录需有 vocab.txt）、embedding.sessions（CPU 核数 / 2）、embedding.maxBatchSize（32）、
+ * stub.embeddingLatency（毫秒，50）、load.concurrency（16）、load.batch（64）、load.warmup（秒，3）、load.duration（秒，10）、
+ * load.output（target/benchmark/embedding-result.json）。
+ * 运行：java -cp target/ai-agent-station-benchmark.jar top.kangyaocoding.ai.benchmark.load.EmbeddingBenchmark
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:00
+ */
+@Slf4j
+public class EmbeddingBenchmark {
+
+    public record EmbeddingReport(String name, String model, int concurrency, int batch, double seconds,
+                                  long requests, long texts, long errors, double throughput,
+                                  LoadReport.Percentiles latency) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 16);
+        int batch = Integer.getInteger("load.batch", 64);
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("load.warmup", 3));
+        Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration", 10));
+        Path output = Path.of(System.getProperty("load.output", "target/benchmark/embedding-result.json"));
+        List<Document> documents = KnowledgeCorpus.documents(2000, 2);
+
+        Path directory = null;
+        Path modelPath;
+        if (System.getProperty("embedding.model") != null) {
+            modelPath = Path.of(System.getProperty("embedding.model"));
+        } else {
+            directory = Files.createTempDirectory("embedding-benchmark");
+            modelPath = new SyntheticOnnxModel(SyntheticOnnxModel.vocabulary(words(documents)), 384, 6, 1536).write(directory);
+        }
+        List<EmbeddingReport> reports = new ArrayList<>();
+        try (OnnxEmbeddingModel local = OnnxEmbeddingModel.builder()
+                .name("local")
+                .modelPath(modelPath)
+                .sessions(Integer.getInteger("embedding.sessions", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)))
+                .maxBatchSize(Integer.getInteger("embedding.maxBatchSize", 32))
+                .build();
+             StubOpenAiServer server = StubOpenAiServer.builder()
+                     .embeddingLatency(Duration.ofMillis(Integer.getInteger("stub.embeddingLatency", 50)))
+                     .embeddingDimensions(local.dimensions())
+                     .threads(Math.max(64, concurrency * 4))
+                     .build()
+                     .start()) {
+            EmbeddingModel remote = new OpenAiEmbeddingModel(LoadBenchmark.openAiApi(server.getBaseUrl()), MetadataMode.EMBED,
+                    OpenAiEmbeddingOptions.builder().model("stub-embedding").build());
+            for (EmbeddingModel model : List.of(remote, local)) {
+                String name = model == local ? "local" : "remote";
+                reports.add(run("query", name, model, concurrency, 1, documents, warmup, duration));
+                reports.add(run("ingest", name, model, 1, batch, documents, warmup, duration));
+            }
+            log.info("本地模型 批次:{} 文本:{} 平均批大小:{}", local.getBatches(), local.getTexts(),
+                    local.getBatches() == 0 ? 0 : local.getTexts() / local.getBatches());
+        } finally {
+            if (directory != null) {
+                try (Stream<Path> paths = Files.walk(directory)) {
+                    for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        }
+        write(output, reports);
+        log.info("压测结果已写入 {}", output.toAbsolutePath());
+    }
+
+    /**
+     * batch 为 1 时逐条向量化文本，否则按向量库写入的方式向量化 batch 个文档；文档轮流取用，避免只测到重复文本
+     */
+    private static EmbeddingReport run(String scenario, String name, EmbeddingModel model, int concurrency, int batch,
+                                       List<Document> documents, Duration warmup, Duration duration) throws Exception {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureTo = measureFrom + duration.toNanos();
+        AtomicInteger cursor = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    long errors = 0;
+                    while (System.nanoTime() < measureTo) {
+                        int from = Math.floorMod(cursor.getAndAdd(batch), documents.size() - batch);
+                        long start = System.nanoTime();
+                        try {
+                            if (batch == 1) {
+                                model.embed(documents.get(from).getText());
+                            } else {
+                                model.embed(documents.subList(from, from + batch), EmbeddingOptionsBuilder.builder().build(),
+                                        new TokenCountBatchingStrategy());
+                            }
+                            if (start >= measureFrom) {
+                                if (count == latencies.length) {
+                                    latencies = Arrays.copyOf(latencies, count * 2);
+                                }
+                                latencies[count++] = System.nanoTime() - start;
+                            }
+                        } catch (RuntimeException e) {
+                            if (start >= measureFrom) {
+                                errors++;
+                            }
+                            log.debug("向量化失败 {}-{}", scenario, name, e);
+                        }
+                    }
+                    // 最后一位存放失败数
+                    long[] result = Arrays.copyOf(latencies, count + 1);
+                    result[count] = errors;
+                    return result;
+                }));
+            }
+            long[] latencies = new long[0];
+            long errors = 0;
+            for (Future<long[]> future : futures) {
+                long[] result = future.get();
+                int count = result.length - 1;
+                latencies = Arrays.copyOf(latencies, latencies.length + count);
+                System.arraycopy(result, 0, latencies, latencies.length - count, count);
+                errors += result[count];
+            }
+            double seconds = duration.toMillis() / 1000.0;
+            long texts = (long) latencies.length * batch;
+            EmbeddingReport report = new EmbeddingReport(scenario + "-" + name, name, concurrency, batch, seconds,
+                    latencies.length, texts, errors, Math.round(texts / seconds * 100) / 100.0,
+                    LoadReport.Percentiles.of(latencies, latencies.length));
+            log.info("压测完成 {} 请求:{} 失败:{} 吞吐:{} 条/s 耗时 p50:{}ms p99:{}ms", report.name(), report.requests(),
+                    report.errors(), report.throughput(), report.latency().p50(), report.latency().p99());
+            return report;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 合成模型的词表：语料中的中日韩字符与小写英文单词、标点
+     */
+    private static List<String> words(List<Document> documents) {
+        Set<String> words = new LinkedHashSet<>();
+        List<String> texts = new ArrayList<>(KnowledgeCorpus.QUESTIONS);
+        documents.forEach(document -> texts.add(document.getText()));
+        for (String text : texts) {
+            StringBuilder word = new StringBuilder();
+            text.toLowerCase(Locale.ROOT).codePoints().forEach(codePoint -> {
+                if (Character.isLetterOrDigit(codePoint) && codePoint < 0x2E80) {
+                    word.appendCodePoint(codePoint);
+                    return;
+                }
+                if (!word.isEmpty()) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                }
+                if (!Character.isWhitespace(codePoint)) {
+                    words.add(new String(Character.toChars(codePoint)));
+                }
+            });
+            if (!word.isEmpty()) {
+                words.add(word.toString());
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    private static void write(Path file, List<EmbeddingReport> reports) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.writeString(file, JSON.toJSONString(reports, SerializerFeature.PrettyFormat), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,119 @@
+package top.kangyaocoding.ai.benchmark.load;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.ai.openai.OpenAiEmbeddingOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import top.kangyaocoding.ai.benchmark.stub.StubOpenAiServer;
+import top.kangyaocoding.ai.benchmark.support.KnowledgeCorpus;
+import top.kangyaocoding.ai.domain.agent.service.observability.AgentObservationAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.observability.ObservedVectorStore;
+import top.kangyaocoding.ai.domain.agent.service.observability.PipelineObservations;
+import top.kangyaocoding.ai.domain.agent.service.rag.RetrievalFanOutAdvisor;
+import top.kangyaocoding.ai.infrastructure.vector.EmbeddedVectorStore;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 描述: 全链路压测入口；本地桩模型 + 内存向量库，依次压测同步与流式调用，结果写入 JSON
+ * <p>
+ * 链路与线上一致：ChatClient → AgentObservationAdvisor → RetrievalFanOutAdvisor（向量化走桩服务的 /v1/embeddings）→ OpenAiChatModel。
+ * 参数均为系统属性：
+ * stub.latency（首 token 前等待毫秒，200）、stub.tokensPerSecond（50）、stub.completionTokens（100）、
+ * load.concurrency（16）、load.warmup（秒，5）、load.duration（秒，30）、load.documents（2000）、load.knowledges（2）、
+ * load.output（target/benchmark/load-result.json）。
+ * 运行：java -cp target/ai-agent-station-benchmark.jar top.kangyaocoding.ai.benchmark.load.LoadBenchmark
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:50
+ */
+@Slf4j
+public class LoadBenchmark {
+
+    private static final int DIMENSIONS = 256;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 16);
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("load.warmup", 5));
+        Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration", 30));
+        Path output = Path.of(System.getProperty("load.output", "target/benchmark/load-result.json"));
+
+        try (StubOpenAiServer server = StubOpenAiServer.builder()
+                .latency(Duration.ofMillis(Integer.getInteger("stub.latency", 200)))
+                .tokensPerSecond(Integer.getInteger("stub.tokensPerSecond", 50))
+                .completionTokens(Integer.getInteger("stub.completionTokens", 100))
+                .embeddingDimensions(DIMENSIONS)
+                .threads(Math.max(64, concurrency * 4))
+                .build()
+                .start()) {
+            ChatClient chatClient = chatClient(server.getBaseUrl(),
+                    Integer.getInteger("load.documents", 2000), Integer.getInteger("load.knowledges", 2));
+            List<LoadReport> reports = List.of(
+                    LoadHarness.builder("call", chatClient).questions(KnowledgeCorpus.QUESTIONS)
+                            .concurrency(concurrency).warmup(warmup).duration(duration).build().run(),
+                    LoadHarness.builder("stream", chatClient).questions(KnowledgeCorpus.QUESTIONS).stream(true)
+                            .concurrency(concurrency).warmup(warmup).duration(duration).build().run());
+            LoadReport.write(output, reports);
+            log.info("压测结果已写入 {}", output.toAbsolutePath());
+        }
+    }
+
+    /**
+     * 按线上方式组装 ChatClient；模型与向量化都指向桩服务
+     */
+    public static ChatClient chatClient(String baseUrl, int documents, int knowledges) {
+        OpenAiApi openAiApi = openAiApi(baseUrl);
+        EmbeddingModel embeddingModel = new OpenAiEmbeddingModel(openAiApi, MetadataMode.EMBED,
+                OpenAiEmbeddingOptions.builder().model("stub-embedding").build());
+        EmbeddedVectorStore vectorStore = EmbeddedVectorStore.builder(embeddingModel).dimensions(DIMENSIONS).build();
+        vectorStore.add(KnowledgeCorpus.documents(documents, knowledges));
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        PipelineObservations observations = new PipelineObservations(meterRegistry, observationRegistry, 0.0, 2000);
+        VectorStore observedVectorStore = new ObservedVectorStore(vectorStore, observations);
+
+        OpenAiChatModel chatModel = OpenAiChatModel.builder()
+                .openAiApi(openAiApi)
+                .defaultOptions(OpenAiChatOptions.builder().model("stub-model").streamUsage(true).build())
+                .build();
+        return ChatClient.builder(chatModel)
+                .defaultAdvisors(
+                        AgentObservationAdvisor.builder(observations).agent("benchmark").build(),
+                        // 检索线程为守护线程，随压测进程退出
+                        RetrievalFanOutAdvisor.builder(observedVectorStore,
+                                        RetrievalFanOutAdvisor.newExecutor("benchmark-retrieval", Math.max(4, knowledges * 16), 1024))
+                                .knowledges(KnowledgeCorpus.knowledges(knowledges))
+                                .knowledgeKey(KnowledgeCorpus.KNOWLEDGE)
+                                .maxDocuments(5)
+                                .build())
+                .build();
+    }
+
+    /**
+     * 流式调用走 WebClient，使用 JDK HttpClient 连接器，避免引入 Netty
+     */
+    public static OpenAiApi openAiApi(String baseUrl) {
+        return OpenAiApi.builder()
+                .baseUrl(baseUrl)
+                .apiKey("stub")
+                .webClientBuilder(WebClient.builder().clientConnector(new JdkClientHttpConnector()))
+                .build();
+    }
+
+}
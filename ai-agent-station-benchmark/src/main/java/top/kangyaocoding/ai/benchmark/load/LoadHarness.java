@@ -0,0 +1,206 @@
+package top.kangyaocoding.ai.benchmark.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 描述: 闭环压测；concurrency 个线程各自循环发起 ChatClient 调用，直到 warmup + duration 结束
+ * <p>
+ * 1. 经过完整的 ChatClient 链路（advisor、ChatModel、HTTP 客户端），模型一侧一般接 {@link top.kangyaocoding.ai.benchmark.stub.StubOpenAiServer}；
+ * 2. 预热期内的请求照常发起但不计入结果；
+ * 3. 记录每次请求的总耗时，流式调用另记首个分片的耗时，completion token 取响应 usage。
+ * 耗时样本按线程各自记录，结束后合并排序计算分位数。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:40
+ */
+@Slf4j
+public class LoadHarness {
+
+    private final String name;
+    private final ChatClient chatClient;
+    private final List<String> questions;
+    private final boolean stream;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+
+    private LoadHarness(Builder builder) {
+        this.name = builder.name;
+        this.chatClient = builder.chatClient;
+        this.questions = List.copyOf(builder.questions);
+        this.stream = builder.stream;
+        this.concurrency = builder.concurrency;
+        this.warmup = builder.warmup;
+        this.duration = builder.duration;
+    }
+
+    public static Builder builder(String name, ChatClient chatClient) {
+        return new Builder(name, chatClient);
+    }
+
+    public LoadReport run() throws Exception {
+        long measureFrom = System.nanoTime() + this.warmup.toNanos();
+        long measureTo = measureFrom + this.duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(this.concurrency);
+        try {
+            List<Future<Samples>> futures = new ArrayList<>(this.concurrency);
+            for (int i = 0; i < this.concurrency; i++) {
+                futures.add(executor.submit(() -> this.worker(measureFrom, measureTo)));
+            }
+            Samples total = new Samples();
+            for (Future<Samples> future : futures) {
+                total.merge(future.get());
+            }
+            double seconds = this.duration.toMillis() / 1000.0;
+            LoadReport report = new LoadReport(this.name, this.stream, this.concurrency, seconds,
+                    total.latency.count, total.errors, Math.round(total.latency.count / seconds * 100) / 100.0, total.completionTokens,
+                    LoadReport.Percentiles.of(total.latency.values, total.latency.count),
+                    this.stream ? LoadReport.Percentiles.of(total.firstToken.values, total.firstToken.count) : null);
+            log.info("压测完成 {} 请求:{} 失败:{} 吞吐:{}/s 耗时 p50:{}ms p99:{}ms", this.name, report.requests(), report.errors(),
+                    report.throughput(), report.latency().p50(), report.latency().p99());
+            return report;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Samples worker(long measureFrom, long measureTo) {
+        Samples samples = new Samples();
+        while (System.nanoTime() < measureTo) {
+            String question = this.questions.get(ThreadLocalRandom.current().nextInt(this.questions.size()));
+            long start = System.nanoTime();
+            try {
+                long[] firstToken = {-1};
+                ChatResponse response;
+                if (this.stream) {
+                    response = this.chatClient.prompt().user(question).stream().chatResponse()
+                            .doOnNext(chunk -> {
+                                if (firstToken[0] < 0) {
+                                    firstToken[0] = System.nanoTime() - start;
+                                }
+                            })
+                            .filter(chunk -> chunk.getMetadata() != null && usage(chunk) > 0)
+                            .blockLast();
+                } else {
+                    response = this.chatClient.prompt().user(question).call().chatResponse();
+                }
+                long elapsed = System.nanoTime() - start;
+                if (start >= measureFrom && start < measureTo) {
+                    samples.latency.add(elapsed);
+                    if (firstToken[0] >= 0) {
+                        samples.firstToken.add(firstToken[0]);
+                    }
+                    samples.completionTokens += response == null ? 0 : usage(response);
+                }
+            } catch (RuntimeException e) {
+                if (start >= measureFrom) {
+                    samples.errors++;
+                }
+                log.debug("压测请求失败 {}", this.name, e);
+            }
+        }
+        return samples;
+    }
+
+    private static long usage(ChatResponse response) {
+        Usage usage = response.getMetadata().getUsage();
+        return usage == null || usage.getCompletionTokens() == null ? 0 : usage.getCompletionTokens();
+    }
+
+    private static final class Samples {
+        private final Recorder latency = new Recorder();
+        private final Recorder firstToken = new Recorder();
+        private long errors;
+        private long completionTokens;
+
+        private void merge(Samples other) {
+            this.latency.merge(other.latency);
+            this.firstToken.merge(other.firstToken);
+            this.errors += other.errors;
+            this.completionTokens += other.completionTokens;
+        }
+    }
+
+    private static final class Recorder {
+        private long[] values = new long[1024];
+        private int count;
+
+        private void add(long value) {
+            if (this.count == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.count * 2);
+            }
+            this.values[this.count++] = value;
+        }
+
+        private void merge(Recorder other) {
+            for (int i = 0; i < other.count; i++) {
+                this.add(other.values[i]);
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private final String name;
+        private final ChatClient chatClient;
+        private List<String> questions = List.of("介绍一下检索增强生成");
+        private boolean stream;
+        private int concurrency = 8;
+        private Duration warmup = Duration.ofSeconds(5);
+        private Duration duration = Duration.ofSeconds(30);
+
+        private Builder(String name, ChatClient chatClient) {
+            Assert.hasText(name, "name must not be empty");
+            Assert.notNull(chatClient, "ChatClient must not be null");
+            this.name = name;
+            this.chatClient = chatClient;
+        }
+
+        public Builder questions(List<String> questions) {
+            this.questions = questions;
+            return this;
+        }
+
+        public Builder stream(boolean stream) {
+            this.stream = stream;
+            return this;
+        }
+
+        public Builder concurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder warmup(Duration warmup) {
+            this.warmup = warmup;
+            return this;
+        }
+
+        public Builder duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        public LoadHarness build() {
+            Assert.notEmpty(this.questions, "questions must not be empty");
+            Assert.isTrue(this.concurrency > 0, "concurrency must be positive");
+            Assert.isTrue(this.warmup != null && !this.warmup.isNegative(), "warmup must not be negative");
+            Assert.isTrue(this.duration != null && !this.duration.isZero() && !this.duration.isNegative(), "duration must be positive");
+            return new LoadHarness(this);
+        }
+    }
+
+}
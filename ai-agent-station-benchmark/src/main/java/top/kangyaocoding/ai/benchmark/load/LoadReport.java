@@ -0,0 +1,57 @@
+package top.kangyaocoding.ai.benchmark.load;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 描述: 一个压测场景的结果；耗时单位为毫秒，流式场景另有首 token 耗时
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:40
+ */
+public record LoadReport(String name, boolean stream, int concurrency, double seconds,
+                         long requests, long errors, double throughput, long completionTokens,
+                         Percentiles latency, Percentiles firstToken) {
+
+    public record Percentiles(long count, double mean, double p50, double p90, double p99, double max) {
+
+        static Percentiles of(long[] nanos, int count) {
+            if (count == 0) {
+                return new Percentiles(0, 0, 0, 0, 0, 0);
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            double sum = 0;
+            for (long value : sorted) {
+                sum += value;
+            }
+            return new Percentiles(count, millis(sum / count), millis(percentile(sorted, 0.5)),
+                    millis(percentile(sorted, 0.9)), millis(percentile(sorted, 0.99)), millis(sorted[count - 1]));
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+        }
+
+        private static double millis(double nanos) {
+            return Math.round(nanos / 1_000) / 1_000.0;
+        }
+    }
+
+    /**
+     * 以 JSON 数组写入文件，便于与历史结果对比
+     */
+    public static void write(Path file, List<LoadReport> reports) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Files.writeString(file, JSON.toJSONString(reports, SerializerFeature.PrettyFormat), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * 全链路压测；经过完整 ChatClient 链路发起同步与流式调用，统计吞吐、耗时分位数与首 token 耗时；另有本地 ONNX 与远程向量模型的对比压测
+ */
+package top.kangyaocoding.ai.benchmark.load;
@@ -0,0 +1,4 @@
+/**
+ * 性能基准；JMH 微基准、本地 OpenAI 兼容桩服务与全链路压测，结果以 JSON 输出便于对比回归
+ */
+package top.kangyaocoding.ai.benchmark;
@@ -0,0 +1,160 @@
+package top.kangyaocoding.ai.benchmark.startup;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 描述: 启动耗时基准；每种启动方式以子进程启动应用若干次，统计到输出 Started 日志的耗时，结果写入 JSON
+ * <p>
+ * 1. eager：环境 profile 原样启动，所有 bean 在启动阶段初始化；
+ * 2. lazy：叠加 fast profile，延迟初始化，MCP 客户端不在启动时握手；
+ * 3. lazy-cds：在 2 的基础上使用 AppCDS 归档，需先以 -Pcds 构建应用（生成 target/cds）；
+ * 4. lazy-aot：在 2 的基础上加载 AOT 生成的 bean 定义，需先以 -Paot 构建应用。
+ * 参数均为系统属性：
+ * startup.jar（ai-agent-station-app/target/ai-agent-station-app.jar）、startup.cds（ai-agent-station-app/target/cds）、
+ * startup.aot（false）、startup.profiles（dev）、startup.runs（5）、startup.timeout（秒，180）、
+ * startup.args（追加给应用的参数，空格分隔）、startup.output（target/benchmark/startup-result.json）。
+ * 运行：java -cp ai-agent-station-benchmark/target/ai-agent-station-benchmark.jar top.kangyaocoding.ai.benchmark.startup.StartupBenchmark
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 10:45
+ */
+@Slf4j
+public class StartupBenchmark {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds \\(process running for ([0-9.]+)\\)");
+    private static final Pattern FAILED = Pattern.compile("APPLICATION FAILED TO START|Application run failed|^Caused by: .*|^Error: .*");
+    private static final String CDS_ARCHIVE = "application.jsa";
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(System.getProperty("startup.jar", "ai-agent-station-app/target/ai-agent-station-app.jar")).toAbsolutePath();
+        Path cds = Path.of(System.getProperty("startup.cds", "ai-agent-station-app/target/cds")).toAbsolutePath();
+        String profiles = System.getProperty("startup.profiles", "dev");
+        int runs = Integer.getInteger("startup.runs", 5);
+        long timeoutSeconds = Integer.getInteger("startup.timeout", 180);
+        List<String> appArgs = split(System.getProperty("startup.args", ""));
+        Path output = Path.of(System.getProperty("startup.output", "target/benchmark/startup-result.json"));
+        if (!Files.exists(jar)) {
+            throw new IllegalArgumentException("应用 jar 不存在，请先构建 ai-agent-station-app：" + jar);
+        }
+
+        List<Variant> variants = new ArrayList<>();
+        variants.add(new Variant("eager", jar.getParent(), List.of(), jar.toString(), profiles));
+        variants.add(new Variant("lazy", jar.getParent(), List.of(), jar.toString(), profiles + ",fast"));
+        if (Files.exists(cds.resolve(CDS_ARCHIVE))) {
+            // 与训练运行相同的工作目录和相对类路径，否则归档因类路径不一致而不被使用
+            variants.add(new Variant("lazy-cds", cds, List.of("-XX:SharedArchiveFile=" + CDS_ARCHIVE),
+                    jar.getFileName().toString(), profiles + ",fast"));
+        } else {
+            log.info("未找到 CDS 归档 {}，跳过 lazy-cds", cds.resolve(CDS_ARCHIVE));
+        }
+        if (Boolean.getBoolean("startup.aot")) {
+            variants.add(new Variant("lazy-aot", jar.getParent(), List.of("-Dspring.aot.enabled=true"), jar.toString(), profiles + ",fast"));
+        }
+
+        List<StartupReport> reports = new ArrayList<>();
+        for (Variant variant : variants) {
+            StartupReport report = variant.run(runs, timeoutSeconds, appArgs);
+            log.info("{} 成功 {}/{} wall[{}] started[{}] process[{}]{}", report.name(), report.runs() - report.failures(), report.runs(),
+                    report.wall(), report.started(), report.process(),
+                    report.lastError() == null ? "" : " 失败原因: " + report.lastError());
+            reports.add(report);
+        }
+        StartupReport.write(output, reports);
+        log.info("启动基准结果已写入 {}", output.toAbsolutePath());
+    }
+
+    private record Variant(String name, Path workingDirectory, List<String> jvmArgs, String jar, String profiles) {
+
+        StartupReport run(int runs, long timeoutSeconds, List<String> appArgs) throws IOException, InterruptedException {
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(this.jvmArgs);
+            command.add("-jar");
+            command.add(this.jar);
+            command.add("--spring.profiles.active=" + this.profiles);
+            command.add("--server.port=0");
+            command.addAll(appArgs);
+
+            List<Double> wall = new ArrayList<>();
+            List<Double> started = new ArrayList<>();
+            List<Double> process = new ArrayList<>();
+            String lastError = null;
+            for (int i = 0; i < runs; i++) {
+                Result result = launch(command, this.workingDirectory, timeoutSeconds);
+                if (result.error() != null) {
+                    lastError = result.error();
+                    continue;
+                }
+                wall.add(result.wallMillis());
+                started.add(result.startedMillis());
+                process.add(result.processMillis());
+            }
+            return new StartupReport(this.name, command, runs, runs - wall.size(), lastError,
+                    StartupReport.Summary.of(wall), StartupReport.Summary.of(started), StartupReport.Summary.of(process));
+        }
+    }
+
+    private record Result(double wallMillis, double startedMillis, double processMillis, String error) {
+    }
+
+    /**
+     * 拉起进程并读取日志直到 Started 或失败；无论结果如何都结束进程
+     */
+    private static Result launch(List<String> command, Path workingDirectory, long timeoutSeconds) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).directory(workingDirectory.toFile()).redirectErrorStream(true).start();
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        Thread reader = new Thread(() -> {
+            String error = null;
+            try (BufferedReader lines = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    Matcher started = STARTED.matcher(line);
+                    if (started.find()) {
+                        result.complete(new Result(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                                Double.parseDouble(started.group(1)) * 1000, Double.parseDouble(started.group(2)) * 1000, null));
+                    } else if (FAILED.matcher(line).find()) {
+                        error = line.length() > 300 ? line.substring(0, 300) : line;
+                    }
+                }
+            } catch (IOException e) {
+                error = e.toString();
+            }
+            result.complete(new Result(0, 0, 0, error != null ? error : "进程退出，未输出 Started 日志"));
+        }, "startup-benchmark-reader");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            return result.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            return new Result(0, 0, 0, "超过 " + timeoutSeconds + " 秒未启动");
+        } catch (Exception e) {
+            return new Result(0, 0, 0, e.toString());
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static List<String> split(String args) {
+        return args.isBlank() ? List.of() : Arrays.asList(args.trim().split("\\s+"));
+    }
+
+}
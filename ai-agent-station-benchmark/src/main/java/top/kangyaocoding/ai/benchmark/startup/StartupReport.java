@@ -0,0 +1,49 @@
+package top.kangyaocoding.ai.benchmark.startup;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 描述: 一种启动方式的结果；耗时单位为毫秒
+ * <p>
+ * wall 为从拉起进程到输出 Started 日志的墙钟时间，started 为 Spring 自报的上下文启动耗时，process 为 JVM 启动至今的耗时。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 10:40
+ */
+public record StartupReport(String name, List<String> command, int runs, int failures, String lastError,
+                            Summary wall, Summary started, Summary process) {
+
+    public record Summary(int count, double min, double median, double max) {
+
+        static Summary of(List<Double> values) {
+            if (values.isEmpty()) {
+                return new Summary(0, 0, 0, 0);
+            }
+            double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+            double median = sorted.length % 2 == 1 ? sorted[sorted.length / 2]
+                    : (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+            return new Summary(sorted.length, sorted[0], median, sorted[sorted.length - 1]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("min %.0f / median %.0f / max %.0f", this.min, this.median, this.max);
+        }
+    }
+
+    /**
+     * 以 JSON 数组写入文件，便于与历史结果对比
+     */
+    public static void write(Path file, List<StartupReport> reports) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.writeString(file, JSON.toJSONString(reports, SerializerFeature.PrettyFormat), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * 启动耗时基准；以子进程多次启动应用，对比默认、延迟初始化、AppCDS 与 AOT 的启动耗时
+ */
+package top.kangyaocoding.ai.benchmark.startup;
@@ -0,0 +1,308 @@
+package top.kangyaocoding.ai.benchmark.stub;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+import top.kangyaocoding.ai.test.support.RandomEmbeddingModel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 描述: 本地 OpenAI 兼容桩服务，压测与基准不访问真实模型
+ * <p>
+ * 1. /v1/chat/completions：等待 latency 后按 tokensPerSecond 的速率生成 completionTokens 个 token；
+ * 请求带 stream=true 时以 SSE 逐个推送，带 stream_options.include_usage 时最后追加 usage 分片；
+ * 2. /v1/embeddings：等待 embeddingLatency 后按文本哈希返回确定的单位向量，维度为 embeddingDimensions；
+ * 3. prompt token 按 4 个字符 1 个 token 估算，只用于 usage 统计。
+ * 基于 JDK HttpServer，每个请求占用一个线程，threads 需不小于压测并发数。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:30
+ */
+@Slf4j
+public class StubOpenAiServer implements AutoCloseable {
+
+    private static final String TOKEN = "token ";
+
+    private final Duration latency;
+    private final int tokensPerSecond;
+    private final int completionTokens;
+    private final int embeddingDimensions;
+    private final Duration embeddingLatency;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong chatRequests = new AtomicLong();
+    private final AtomicLong embeddingRequests = new AtomicLong();
+
+    private StubOpenAiServer(Builder builder) throws IOException {
+        this.latency = builder.latency;
+        this.tokensPerSecond = builder.tokensPerSecond;
+        this.completionTokens = builder.completionTokens;
+        this.embeddingDimensions = builder.embeddingDimensions;
+        this.embeddingLatency = builder.embeddingLatency;
+        this.executor = Executors.newFixedThreadPool(builder.threads);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", builder.port), 1024);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/v1/chat/completions", this::chat);
+        this.server.createContext("/v1/embeddings", this::embeddings);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public StubOpenAiServer start() {
+        this.server.start();
+        log.info("OpenAI 桩服务已启动 {} latency:{}ms tokensPerSecond:{} completionTokens:{}", this.getBaseUrl(),
+                this.latency.toMillis(), this.tokensPerSecond, this.completionTokens);
+        return this;
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort();
+    }
+
+    public long getChatRequests() {
+        return this.chatRequests.get();
+    }
+
+    public long getEmbeddingRequests() {
+        return this.embeddingRequests.get();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            this.chatRequests.incrementAndGet();
+            JSONObject request = body(exchange);
+            String model = request.getString("model");
+            int promptTokens = promptTokens(request.getJSONArray("messages"));
+            Integer maxTokens = request.getInteger("max_tokens");
+            int tokens = maxTokens != null ? Math.min(maxTokens, this.completionTokens) : this.completionTokens;
+
+            long start = System.nanoTime();
+            park(start + this.latency.toNanos());
+            if (request.getBooleanValue("stream")) {
+                JSONObject streamOptions = request.getJSONObject("stream_options");
+                boolean includeUsage = streamOptions != null && streamOptions.getBooleanValue("include_usage");
+                this.stream(exchange, model, promptTokens, tokens, includeUsage, System.nanoTime());
+                return;
+            }
+            park(System.nanoTime() + this.tokenNanos(tokens));
+            JSONObject response = completion("chat.completion", model);
+            response.put("choices", array(object(
+                    "index", 0,
+                    "message", object("role", "assistant", "content", TOKEN.repeat(tokens)),
+                    "finish_reason", "stop")));
+            response.put("usage", usage(promptTokens, tokens));
+            write(exchange, "application/json", response.toJSONString());
+        }
+    }
+
+    private void stream(HttpExchange exchange, String model, int promptTokens, int tokens, boolean includeUsage, long start) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < tokens; i++) {
+            park(start + this.tokenNanos(i));
+            JSONObject delta = i == 0 ? object("role", "assistant", "content", TOKEN) : object("content", TOKEN);
+            JSONObject chunk = completion("chat.completion.chunk", model);
+            chunk.put("choices", array(object("index", 0, "delta", delta)));
+            event(out, chunk.toJSONString());
+        }
+        JSONObject last = completion("chat.completion.chunk", model);
+        last.put("choices", array(object("index", 0, "delta", new JSONObject(), "finish_reason", "stop")));
+        event(out, last.toJSONString());
+        if (includeUsage) {
+            JSONObject usage = completion("chat.completion.chunk", model);
+            usage.put("choices", new JSONArray());
+            usage.put("usage", usage(promptTokens, tokens));
+            event(out, usage.toJSONString());
+        }
+        event(out, "[DONE]");
+    }
+
+    private void embeddings(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            this.embeddingRequests.incrementAndGet();
+            long start = System.nanoTime();
+            JSONObject request = body(exchange);
+            Object input = request.get("input");
+            JSONArray inputs = input instanceof JSONArray array ? array : array(input);
+            JSONArray data = new JSONArray(inputs.size());
+            int promptTokens = 0;
+            for (int i = 0; i < inputs.size(); i++) {
+                String text = inputs.getString(i);
+                promptTokens += Math.max(1, text.length() / 4);
+                data.add(object("object", "embedding", "index", i,
+                        "embedding", RandomEmbeddingModel.vector(text, this.embeddingDimensions)));
+            }
+            park(start + this.embeddingLatency.toNanos());
+            JSONObject response = object("object", "list", "data", data, "model", request.getString("model"),
+                    "usage", object("prompt_tokens", promptTokens, "total_tokens", promptTokens));
+            write(exchange, "application/json", response.toJSONString());
+        }
+    }
+
+    private long tokenNanos(int tokens) {
+        return this.tokensPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(tokens) / this.tokensPerSecond;
+    }
+
+    private static JSONObject completion(String object, String model) {
+        return object("id", "chatcmpl-stub", "object", object,
+                "created", System.currentTimeMillis() / 1000, "model", model);
+    }
+
+    private static JSONObject usage(int promptTokens, int completionTokens) {
+        return object("prompt_tokens", promptTokens, "completion_tokens", completionTokens,
+                "total_tokens", promptTokens + completionTokens);
+    }
+
+    private static JSONObject object(Object... keyValues) {
+        JSONObject object = new JSONObject(true);
+        for (int i = 0; i < keyValues.length; i += 2) {
+            object.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return object;
+    }
+
+    private static JSONArray array(Object... values) {
+        JSONArray array = new JSONArray(values.length);
+        for (Object value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+
+    private static int promptTokens(JSONArray messages) {
+        if (messages == null) {
+            return 0;
+        }
+        int chars = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            String content = messages.getJSONObject(i).getString("content");
+            chars += content == null ? 0 : content.length();
+        }
+        return Math.max(1, chars / 4);
+    }
+
+    private static JSONObject body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return JSON.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void write(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void event(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * 等到指定时刻；按绝对时间计算，累计误差不随 token 数增长
+     */
+    private static void park(long deadline) {
+        for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    public static class Builder {
+
+        private Duration latency = Duration.ofMillis(200);
+        private int tokensPerSecond = 50;
+        private int completionTokens = 100;
+        private int embeddingDimensions = 1536;
+        private Duration embeddingLatency = Duration.ZERO;
+        private int threads = 256;
+        private int port = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * 首 token 前的等待时间
+         */
+        public Builder latency(Duration latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * 生成速率；0 表示不限速
+         */
+        public Builder tokensPerSecond(int tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+            return this;
+        }
+
+        public Builder completionTokens(int completionTokens) {
+            this.completionTokens = completionTokens;
+            return this;
+        }
+
+        public Builder embeddingDimensions(int embeddingDimensions) {
+            this.embeddingDimensions = embeddingDimensions;
+            return this;
+        }
+
+        /**
+         * 向量化请求的响应时间，与批大小无关，模拟远程向量服务的网络往返与排队
+         */
+        public Builder embeddingLatency(Duration embeddingLatency) {
+            this.embeddingLatency = embeddingLatency;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * 0 表示随机端口
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public StubOpenAiServer build() throws IOException {
+            Assert.notNull(this.latency, "latency must not be null");
+            Assert.isTrue(!this.latency.isNegative(), "latency must not be negative");
+            Assert.isTrue(this.tokensPerSecond >= 0, "tokensPerSecond must not be negative");
+            Assert.isTrue(this.completionTokens > 0, "completionTokens must be positive");
+            Assert.isTrue(this.embeddingDimensions > 0, "embeddingDimensions must be positive");
+            Assert.notNull(this.embeddingLatency, "embeddingLatency must not be null");
+            Assert.isTrue(!this.embeddingLatency.isNegative(), "embeddingLatency must not be negative");
+            Assert.isTrue(this.threads > 0, "threads must be positive");
+            return new StubOpenAiServer(this);
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * 本地桩服务；OpenAI 兼容的对话与向量化接口，延迟与生成速率可配置
+ */
+package top.kangyaocoding.ai.benchmark.stub;
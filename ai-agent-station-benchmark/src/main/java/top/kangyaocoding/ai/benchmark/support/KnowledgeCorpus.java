@@ -0,0 +1,63 @@
+package top.kangyaocoding.ai.benchmark.support;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 描述: 基准与压测共用的知识库语料；固定种子生成，knowledge 元数据为 kb-0 ~ kb-(knowledges-1)
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:45
+ */
+public final class KnowledgeCorpus {
+
+    public static final String KNOWLEDGE = "knowledge";
+
+    private static final String[] SENTENCES = {
+            "检索增强生成先从知识库召回相关片段，再交给模型组织答案。",
+            "向量索引使用 HNSW，ef_search 越大召回越高、延迟越大。",
+            "Chunking strategy has a large impact on retrieval quality and embedding cost.",
+            "每个知识库可以单独配置分块大小与重叠长度。",
+            "The splitter keeps code blocks intact whenever they fit into a single chunk.",
+            "智能体通过 MCP 调用外部工具，工具结果会拼回对话上下文。",
+    };
+
+    public static final List<String> QUESTIONS = List.of(
+            "检索增强生成的流程是什么？",
+            "HNSW 的 ef_search 参数如何影响召回？",
+            "How does chunking affect retrieval quality?",
+            "知识库的分块大小怎么配置？",
+            "智能体如何调用外部工具？");
+
+    private KnowledgeCorpus() {
+    }
+
+    /**
+     * count 个文档，每个 2~5 句，按序号轮流分配到各知识库
+     */
+    public static List<Document> documents(int count, int knowledges) {
+        Random random = new Random(42);
+        List<Document> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int s = 0, sentences = 2 + random.nextInt(4); s < sentences; s++) {
+                text.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+            }
+            documents.add(new Document("doc-" + i, text.toString(), Map.of(KNOWLEDGE, "kb-" + i % knowledges)));
+        }
+        return documents;
+    }
+
+    public static List<String> knowledges(int knowledges) {
+        List<String> names = new ArrayList<>(knowledges);
+        for (int i = 0; i < knowledges; i++) {
+            names.add("kb-" + i);
+        }
+        return names;
+    }
+
+}
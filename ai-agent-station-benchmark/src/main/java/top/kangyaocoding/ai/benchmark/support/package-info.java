@@ -0,0 +1,4 @@
+/**
+ * 基准与压测共用的语料；本地向量模型与合成 ONNX 模型在 ai-agent-station-test-support 中，与单元测试共用
+ */
+package top.kangyaocoding.ai.benchmark.support;
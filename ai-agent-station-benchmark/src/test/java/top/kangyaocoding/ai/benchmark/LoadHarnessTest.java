@@ -0,0 +1,79 @@
+package top.kangyaocoding.ai.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import top.kangyaocoding.ai.benchmark.load.LoadBenchmark;
+import top.kangyaocoding.ai.benchmark.load.LoadHarness;
+import top.kangyaocoding.ai.benchmark.load.LoadReport;
+import top.kangyaocoding.ai.benchmark.stub.StubOpenAiServer;
+import top.kangyaocoding.ai.benchmark.support.KnowledgeCorpus;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 描述: 桩服务与压测工具冒烟；短时间跑通同步、流式两种调用并输出 JSON
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 23:05
+ */
+@Slf4j
+public class LoadHarnessTest {
+
+    private static StubOpenAiServer server;
+    private static ChatClient chatClient;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = StubOpenAiServer.builder()
+                .latency(Duration.ofMillis(50))
+                .tokensPerSecond(1000)
+                .completionTokens(20)
+                .embeddingDimensions(256)
+                .build()
+                .start();
+        chatClient = LoadBenchmark.chatClient(server.getBaseUrl(), 200, 2);
+    }
+
+    @AfterClass
+    public static void stop() {
+        server.close();
+    }
+
+    @Test
+    public void test_call_and_stream() throws Exception {
+        LoadReport call = LoadHarness.builder("call", chatClient).questions(KnowledgeCorpus.QUESTIONS)
+                .concurrency(4).warmup(Duration.ofMillis(500)).duration(Duration.ofSeconds(2)).build().run();
+        LoadReport stream = LoadHarness.builder("stream", chatClient).questions(KnowledgeCorpus.QUESTIONS).stream(true)
+                .concurrency(4).warmup(Duration.ofMillis(500)).duration(Duration.ofSeconds(2)).build().run();
+
+        Assert.assertEquals(0, call.errors());
+        Assert.assertEquals(0, stream.errors());
+        Assert.assertTrue(call.requests() > 0 && stream.requests() > 0);
+        // 桩服务首 token 前等待 50ms，生成 20 个 token 再需约 20ms
+        Assert.assertTrue(call.latency().p50() >= 70);
+        Assert.assertEquals(20 * call.requests(), call.completionTokens());
+        Assert.assertEquals(20 * stream.requests(), stream.completionTokens());
+        Assert.assertTrue(stream.firstToken().p50() >= 50 && stream.firstToken().p50() < stream.latency().p50());
+        // 每次调用先检索（向量化请求）再调用模型
+        Assert.assertTrue(server.getEmbeddingRequests() >= server.getChatRequests());
+
+        Path output = Files.createTempFile("load-result", ".json");
+        LoadReport.write(output, List.of(call, stream));
+        JSONArray reports = JSON.parseArray(Files.readString(output));
+        log.info("压测结果：{}", reports);
+        Assert.assertEquals(2, reports.size());
+        Assert.assertEquals("stream", reports.getJSONObject(1).getString("name"));
+        Assert.assertNotNull(reports.getJSONObject(1).getJSONObject("firstToken").getDouble("p99"));
+        Files.delete(output);
+    }
+
+}
@@ -0,0 +1,205 @@
+package top.kangyaocoding.ai.domain.agent.service.audit;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.core.Ordered;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import top.kangyaocoding.ai.domain.agent.service.observability.AgentObservationAdvisor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 审计 Advisor，替代 SimpleLoggerAdvisor 的同步全量日志
+ * <p>
+ * 1. 调用结束后组装 {@link AuditRecord} 交给 {@link AuditSink}，调用线程只做一次非阻塞入队，序列化与写盘都在写入线程；
+ * 2. 流式调用在各分片到达时累计正文，流结束（含出错、取消）后提交一条记录；
+ * 3. 每段正文截断到 maxPayloadChars，限制单条记录与队列的内存占用。
+ * 默认顺序在链尾，记录的是检索等 advisor 增强后真正发给模型的消息。
+ * agent 取请求上下文中的 {@link AgentObservationAdvisor#AGENT_ID}，会话 id 取 {@link ChatMemory#CONVERSATION_ID}。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 23:15
+ */
+public class AuditAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private static final String UNKNOWN = "unknown";
+
+    private final AuditSink sink;
+    private final String agent;
+    private final int maxPayloadChars;
+    private final int order;
+
+    private AuditAdvisor(AuditSink sink, String agent, int maxPayloadChars, int order) {
+        this.sink = sink;
+        this.agent = agent;
+        this.maxPayloadChars = maxPayloadChars;
+        this.order = order;
+    }
+
+    public static Builder builder(AuditSink sink) {
+        return new Builder(sink);
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        long timestamp = System.currentTimeMillis();
+        long start = System.nanoTime();
+        ChatClientResponse response;
+        try {
+            response = chain.nextCall(request);
+        } catch (RuntimeException e) {
+            this.offer(request, "call", timestamp, start, null, null, null, e);
+            throw e;
+        }
+        ChatResponse chatResponse = response.chatResponse();
+        this.offer(request, "call", timestamp, start, model(chatResponse), text(chatResponse), usage(chatResponse), null);
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.defer(() -> {
+            long timestamp = System.currentTimeMillis();
+            long start = System.nanoTime();
+            StreamState state = new StreamState();
+            return chain.nextStream(request)
+                    .doOnNext(response -> {
+                        ChatResponse chatResponse = response.chatResponse();
+                        String text = text(chatResponse);
+                        if (text != null && state.text.length() < this.maxPayloadChars) {
+                            state.text.append(text);
+                        }
+                        if (state.model == null) {
+                            state.model = model(chatResponse);
+                        }
+                        Usage usage = usage(chatResponse);
+                        if (usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0) {
+                            state.usage = usage;
+                        }
+                    })
+                    .doOnError(e -> state.error = e)
+                    .doFinally(signal -> this.offer(request, "stream", timestamp, start, state.model,
+                            state.text.toString(), state.usage, state.error));
+        });
+    }
+
+    /**
+     * 流式分片按顺序到达，状态只在同一订阅内读写
+     */
+    private static final class StreamState {
+        private final StringBuilder text = new StringBuilder();
+        private String model;
+        private Usage usage;
+        private Throwable error;
+    }
+
+    private void offer(ChatClientRequest request, String mode, long timestamp, long start,
+                       String model, String response, Usage usage, Throwable error) {
+        List<Message> instructions = request.prompt().getInstructions();
+        List<AuditRecord.Message> messages = new ArrayList<>(instructions.size());
+        for (Message message : instructions) {
+            messages.add(new AuditRecord.Message(message.getMessageType().getValue(), this.abbreviate(message.getText())));
+        }
+        Object agent = request.context().get(AgentObservationAdvisor.AGENT_ID);
+        Object conversationId = request.context().get(ChatMemory.CONVERSATION_ID);
+        this.sink.offer(new AuditRecord(timestamp,
+                agent != null ? agent.toString() : this.agent,
+                conversationId != null ? conversationId.toString() : null,
+                model != null ? model : requestModel(request),
+                mode, messages, this.abbreviate(response),
+                usage == null ? null : usage.getPromptTokens(),
+                usage == null ? null : usage.getCompletionTokens(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                error == null ? null : error.toString()));
+    }
+
+    private String abbreviate(String text) {
+        if (text == null || text.length() <= this.maxPayloadChars) {
+            return text;
+        }
+        return text.substring(0, this.maxPayloadChars) + "...(" + text.length() + " chars)";
+    }
+
+    private static String requestModel(ChatClientRequest request) {
+        ChatOptions options = request.prompt().getOptions();
+        return options != null && StringUtils.hasText(options.getModel()) ? options.getModel() : UNKNOWN;
+    }
+
+    private static String model(ChatResponse response) {
+        if (response == null || response.getMetadata() == null || !StringUtils.hasText(response.getMetadata().getModel())) {
+            return null;
+        }
+        return response.getMetadata().getModel();
+    }
+
+    private static Usage usage(ChatResponse response) {
+        return response == null || response.getMetadata() == null ? null : response.getMetadata().getUsage();
+    }
+
+    private static String text(ChatResponse response) {
+        if (response == null) {
+            return null;
+        }
+        Generation generation = response.getResult();
+        return generation == null || generation.getOutput() == null ? null : generation.getOutput().getText();
+    }
+
+    @Override
+    public String getName() {
+        return AuditAdvisor.class.getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    public static class Builder {
+
+        private final AuditSink sink;
+        private String agent = UNKNOWN;
+        private int maxPayloadChars = 65536;
+        private int order = Ordered.LOWEST_PRECEDENCE - 900;
+
+        private Builder(AuditSink sink) {
+            Assert.notNull(sink, "AuditSink must not be null");
+            this.sink = sink;
+        }
+
+        public Builder agent(String agent) {
+            this.agent = agent;
+            return this;
+        }
+
+        public Builder maxPayloadChars(int maxPayloadChars) {
+            this.maxPayloadChars = maxPayloadChars;
+            return this;
+        }
+
+        public Builder order(int order) {
+            this.order = order;
+            return this;
+        }
+
+        public AuditAdvisor build() {
+            Assert.hasText(this.agent, "agent must not be empty");
+            Assert.isTrue(this.maxPayloadChars > 0, "maxPayloadChars must be positive");
+            return new AuditAdvisor(this.sink, this.agent, this.maxPayloadChars, this.order);
+        }
+    }
+
+}
@@ -0,0 +1,18 @@
+package top.kangyaocoding.ai.domain.agent.service.audit;
+
+import java.util.List;
+
+/**
+ * 描述: 一次 LLM 调用的审计记录；messages 为发给模型的完整消息（含检索拼入的上下文），正文可能已按上限截断
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 23:10
+ */
+public record AuditRecord(long timestamp, String agent, String conversationId, String model, String mode,
+                          List<Message> messages, String response, Integer promptTokens, Integer completionTokens,
+                          long latencyMillis, String error) {
+
+    public record Message(String role, String text) {
+    }
+
+}
@@ -0,0 +1,16 @@
+package top.kangyaocoding.ai.domain.agent.service.audit;
+
+/**
+ * 描述: 审计记录的接收端；实现必须是非阻塞的，过载时丢弃或抽样，而不是让调用线程等待
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 23:10
+ */
+public interface AuditSink {
+
+    /**
+     * 提交一条记录，返回是否被接收；未接收的记录由实现自行计数
+     */
+    boolean offer(AuditRecord record);
+
+}
@@ -0,0 +1,4 @@
+/**
+ * 审计留存；对话请求与响应异步入队，由基础设施层批量落盘，不阻塞调用线程
+ */
+package top.kangyaocoding.ai.domain.agent.service.audit;
@@ -0,0 +1,112 @@
+package top.kangyaocoding.ai.domain.agent.service.media;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.content.Media;
+import org.springframework.core.Ordered;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 描述: 视觉请求的媒体预处理；发给模型之前把用户消息中的图片交给 {@link MediaPreprocessor} 下载、缩放并缓存
+ * <p>
+ * 1. 一次请求中所有用户消息的图片一起处理，实现可以并行下载与缩放；
+ * 2. 没有媒体或处理结果与原媒体相同时不重建提示词；
+ * 3. 流式调用的 before 在 {@link BaseAdvisor#getScheduler()} 上执行，下载与缩放不占用事件循环线程。
+ * 默认顺序在请求合并 Advisor 之前，合并与审计看到的都是处理后的媒体。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:10
+ */
+public class MediaAdvisor implements BaseAdvisor {
+
+    private final MediaPreprocessor preprocessor;
+    private final int order;
+
+    private MediaAdvisor(Builder builder) {
+        this.preprocessor = builder.preprocessor;
+        this.order = builder.order;
+    }
+
+    public static Builder builder(MediaPreprocessor preprocessor) {
+        return new Builder(preprocessor);
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+        List<Message> messages = chatClientRequest.prompt().getInstructions();
+        List<Media> media = new ArrayList<>();
+        for (Message message : messages) {
+            if (message instanceof UserMessage userMessage) {
+                media.addAll(userMessage.getMedia());
+            }
+        }
+        if (media.isEmpty()) {
+            return chatClientRequest;
+        }
+        List<Media> processed = this.preprocessor.process(media);
+        boolean changed = false;
+        for (int i = 0; i < media.size() && !changed; i++) {
+            changed = processed.get(i) != media.get(i);
+        }
+        if (!changed) {
+            return chatClientRequest;
+        }
+        List<Message> rewritten = new ArrayList<>(messages.size());
+        int next = 0;
+        for (Message message : messages) {
+            if (message instanceof UserMessage userMessage && !userMessage.getMedia().isEmpty()) {
+                int count = userMessage.getMedia().size();
+                rewritten.add(userMessage.mutate().media(new ArrayList<>(processed.subList(next, next + count))).build());
+                next += count;
+            } else {
+                rewritten.add(message);
+            }
+        }
+        return chatClientRequest.mutate()
+                .prompt(chatClientRequest.prompt().mutate().messages(rewritten).build())
+                .build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+        return chatClientResponse;
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    @Override
+    public String getName() {
+        return MediaAdvisor.class.getSimpleName();
+    }
+
+    public static class Builder {
+
+        private final MediaPreprocessor preprocessor;
+        private int order = Ordered.HIGHEST_PRECEDENCE + 500;
+
+        private Builder(MediaPreprocessor preprocessor) {
+            Assert.notNull(preprocessor, "MediaPreprocessor must not be null");
+            this.preprocessor = preprocessor;
+        }
+
+        public Builder order(int order) {
+            this.order = order;
+            return this;
+        }
+
+        public MediaAdvisor build() {
+            return new MediaAdvisor(this);
+        }
+    }
+
+}
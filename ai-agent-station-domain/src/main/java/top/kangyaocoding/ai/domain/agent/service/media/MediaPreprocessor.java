@@ -0,0 +1,46 @@
+package top.kangyaocoding.ai.domain.agent.service.media;
+
+import org.springframework.ai.content.Media;
+import org.springframework.util.MimeType;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 描述: 媒体预处理；把用户消息中的图片转换成视觉模型直接可用的形式
+ * <p>
+ * 返回的 Media 数据为 base64 data URL 或本服务提供的地址，不是图片的媒体原样返回；
+ * 预处理失败时同样返回原 Media，请求照常发出，只是没有缩放与缓存的收益。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:05
+ */
+public interface MediaPreprocessor {
+
+    Media process(Media media);
+
+    /**
+     * 批量处理；实现可以并行下载与缩放，结果与 media 一一对应
+     */
+    default List<Media> process(List<Media> media) {
+        List<Media> processed = new ArrayList<>(media.size());
+        for (Media item : media) {
+            processed.add(this.process(item));
+        }
+        return processed;
+    }
+
+    /**
+     * 按 id 读取已处理的媒体，供本地地址对外提供；id 为本地地址的最后一段
+     */
+    Optional<Content> read(String id);
+
+    /**
+     * @param data 只读缓冲区，调用方不应修改其内容
+     */
+    record Content(MimeType mimeType, ByteBuffer data) {
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * 多模态媒体预处理；图片在发给视觉模型之前下载、缩放并缓存，重复的图片不再重复下载和计费
+ */
+package top.kangyaocoding.ai.domain.agent.service.media;
@@ -0,0 +1,14 @@
+package top.kangyaocoding.ai.domain.agent.service.notify;
+
+/**
+ * 描述: 一条待发送的通知；合并后的摘要同样以 Notification 交给发送方
+ *
+ * @param channel   渠道，即通知工具名，一个机器人一个渠道
+ * @param arguments 除正文外的工具参数（JSON 对象，键按字母排序），相同的参数才会合并到同一条摘要
+ * @param text      正文
+ * @param createdAt 入队时间（毫秒）
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:10
+ */
+public record Notification(String channel, String arguments, String text, long createdAt) {
+}
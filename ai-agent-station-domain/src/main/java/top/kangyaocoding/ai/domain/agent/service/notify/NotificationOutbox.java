@@ -0,0 +1,21 @@
+package top.kangyaocoding.ai.domain.agent.service.notify;
+
+/**
+ * 描述: 通知发件箱；入队后立即返回，由实现负责持久化、合并、限流与重试
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:10
+ */
+public interface NotificationOutbox {
+
+    /**
+     * 注册渠道的发送方；未注册的渠道只积压不发送，注册后开始发送（包括重启前遗留的通知）
+     */
+    void register(String channel, NotificationSender sender);
+
+    /**
+     * 提交一条通知，返回是否被接收；未接收时（积压过多、已关闭、持久化失败）由调用方直接发送
+     */
+    boolean offer(Notification notification);
+
+}
@@ -0,0 +1,14 @@
+package top.kangyaocoding.ai.domain.agent.service.notify;
+
+/**
+ * 描述: 渠道的实际发送方，由后台分发线程调用；抛出异常表示发送失败，发件箱按退避重试
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:10
+ */
+@FunctionalInterface
+public interface NotificationSender {
+
+    void send(Notification notification) throws Exception;
+
+}
@@ -0,0 +1,127 @@
+package top.kangyaocoding.ai.domain.agent.service.notify;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 描述: 通知工具的发件箱包装；模型调用通知工具时只把消息放入 {@link NotificationOutbox}，不等待 MCP 往返与机器人限流
+ * <p>
+ * 1. 工具定义不变，模型看到的仍是原工具；参数中的 textField 为正文，其余参数作为合并的依据；
+ * 2. 入队成功即返回“已加入发送队列”，由发件箱在后台合并为摘要，再通过原工具发送；
+ * 3. 参数无法解析、缺少正文或发件箱拒绝时，直接调用原工具，行为与未包装时一致。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:15
+ */
+public class OutboxToolCallback implements ToolCallback {
+
+    /** mcp-dingding-bot 的 send_text_message 正文参数 */
+    public static final String DEFAULT_TEXT_FIELD = "content";
+    static final String QUEUED = "消息已加入发送队列，将在后台合并发送";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final ToolCallback delegate;
+    private final String channel;
+    private final String textField;
+    private final NotificationOutbox outbox;
+
+    public OutboxToolCallback(ToolCallback delegate, String textField, NotificationOutbox outbox) {
+        this.delegate = delegate;
+        this.channel = delegate.getToolDefinition().name();
+        this.textField = textField;
+        this.outbox = outbox;
+        outbox.register(this.channel, this::deliver);
+    }
+
+    public static ToolCallback[] wrap(ToolCallback[] callbacks, Set<String> toolNames, NotificationOutbox outbox) {
+        return wrap(callbacks, toolNames, DEFAULT_TEXT_FIELD, outbox);
+    }
+
+    /**
+     * 包装名称在 toolNames 中的工具，其余原样返回
+     */
+    public static ToolCallback[] wrap(ToolCallback[] callbacks, Set<String> toolNames, String textField, NotificationOutbox outbox) {
+        ToolCallback[] wrapped = new ToolCallback[callbacks.length];
+        for (int i = 0; i < callbacks.length; i++) {
+            wrapped[i] = toolNames.contains(callbacks[i].getToolDefinition().name())
+                    ? new OutboxToolCallback(callbacks[i], textField, outbox) : callbacks[i];
+        }
+        return wrapped;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return this.delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return this.delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        Notification notification = this.notification(toolInput);
+        if (notification != null && this.outbox.offer(notification)) {
+            return QUEUED;
+        }
+        return this.delegate.call(toolInput);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        Notification notification = this.notification(toolInput);
+        if (notification != null && this.outbox.offer(notification)) {
+            return QUEUED;
+        }
+        return this.delegate.call(toolInput, toolContext);
+    }
+
+    /**
+     * 拆出正文，其余参数按键排序，相同参数的通知才能合并
+     */
+    private Notification notification(String toolInput) {
+        JsonNode input;
+        try {
+            input = OBJECT_MAPPER.readTree(toolInput);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+        if (!(input instanceof ObjectNode arguments) || !arguments.path(this.textField).isTextual()) {
+            return null;
+        }
+        String text = arguments.remove(this.textField).asText();
+        Map<String, JsonNode> sorted = new TreeMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = arguments.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            sorted.put(field.getKey(), field.getValue());
+        }
+        try {
+            return new Notification(this.channel, OBJECT_MAPPER.writeValueAsString(sorted), text, System.currentTimeMillis());
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 把摘要正文放回参数，通过原工具发送；原工具返回错误时抛出异常，由发件箱重试
+     */
+    private void deliver(Notification notification) throws JsonProcessingException {
+        ObjectNode arguments = (ObjectNode) OBJECT_MAPPER.readTree(notification.arguments());
+        arguments.put(this.textField, notification.text());
+        this.delegate.call(OBJECT_MAPPER.writeValueAsString(arguments));
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * 通知发件箱；智能体的通知工具调用改为入队，由基础设施层合并、限流后在后台发送，智能体不等待送达
+ */
+package top.kangyaocoding.ai.domain.agent.service.notify;
@@ -0,0 +1,213 @@
+package top.kangyaocoding.ai.domain.agent.service.observability;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.core.Ordered;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: LLM 调用观测，替代 SimpleLoggerAdvisor 的全量 JSON 日志
+ * <p>
+ * 1. 记录 agent.llm 计时器与 span（标签 agent、model、mode），流式调用另记首 token 耗时；
+ * 2. 按响应中的 usage 累计 prompt / completion / cached token；流式响应取最后一个带 usage 的分片；
+ * 3. span 在调用期间作为当前 Observation，下游的检索、工具调用等阶段自动成为其子 span 并带上 agent 标签；
+ * 4. 请求与响应正文只在抽样命中时截断后打印，未命中的请求不拼接任何字符串。
+ * 默认顺序靠近链尾，计时只覆盖模型调用本身；需要统计整条链路时把 order 调到最前。
+ * agent 取请求上下文中的 {@link #AGENT_ID}，没有时取构建时指定的名称。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 21:50
+ */
+@Slf4j
+public class AgentObservationAdvisor implements CallAdvisor, StreamAdvisor {
+
+    public static final String AGENT_ID = "agent_id";
+
+    private final PipelineObservations observations;
+    private final String agent;
+    private final int order;
+
+    private AgentObservationAdvisor(PipelineObservations observations, String agent, int order) {
+        this.observations = observations;
+        this.agent = agent;
+        this.order = order;
+    }
+
+    public static Builder builder(PipelineObservations observations) {
+        return new Builder(observations);
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        String agent = this.agent(request);
+        boolean sampled = this.observations.samplePayload();
+        Observation observation = this.observations.llm(agent, "call").start();
+        long start = System.nanoTime();
+        try (Observation.Scope scope = observation.openScope()) {
+            ChatClientResponse response = chain.nextCall(request);
+            ChatResponse chatResponse = response.chatResponse();
+            String model = model(request, chatResponse);
+            observation.lowCardinalityKeyValue(PipelineObservations.MODEL, model);
+            Usage usage = chatResponse == null || chatResponse.getMetadata() == null ? null : chatResponse.getMetadata().getUsage();
+            this.observations.recordUsage(agent, model, usage);
+            if (sampled) {
+                this.logPayload(agent, model, request, text(chatResponse), usage, System.nanoTime() - start);
+            }
+            return response;
+        } catch (RuntimeException e) {
+            observation.lowCardinalityKeyValue(PipelineObservations.MODEL, model(request, null));
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.defer(() -> {
+            String agent = this.agent(request);
+            boolean sampled = this.observations.samplePayload();
+            Observation observation = this.observations.llm(agent, "stream").start();
+            long start = System.nanoTime();
+            StreamState state = new StreamState(sampled);
+            return chain.nextStream(request)
+                    .doOnNext(response -> {
+                        ChatResponse chatResponse = response.chatResponse();
+                        if (!state.first) {
+                            state.first = true;
+                            state.model = model(request, chatResponse);
+                            this.observations.recordFirstToken(agent, state.model, System.nanoTime() - start);
+                        }
+                        if (chatResponse != null && chatResponse.getMetadata() != null) {
+                            Usage usage = chatResponse.getMetadata().getUsage();
+                            if (usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0) {
+                                state.usage = usage;
+                            }
+                        }
+                        if (state.text != null) {
+                            String text = text(chatResponse);
+                            if (text != null) {
+                                state.text.append(text);
+                            }
+                        }
+                    })
+                    .doOnError(observation::error)
+                    .doFinally(signal -> {
+                        String model = state.model != null ? state.model : model(request, null);
+                        observation.lowCardinalityKeyValue(PipelineObservations.MODEL, model);
+                        this.observations.recordUsage(agent, model, state.usage);
+                        if (state.text != null) {
+                            this.logPayload(agent, model, request, state.text.toString(), state.usage, System.nanoTime() - start);
+                        }
+                        observation.stop();
+                    })
+                    .contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    /**
+     * 流式分片按顺序到达，状态只在同一订阅内读写
+     */
+    private static final class StreamState {
+        private final StringBuilder text;
+        private boolean first;
+        private String model;
+        private Usage usage;
+
+        private StreamState(boolean sampled) {
+            this.text = sampled ? new StringBuilder() : null;
+        }
+    }
+
+    private String agent(ChatClientRequest request) {
+        Object agent = request.context().get(AGENT_ID);
+        return agent != null ? agent.toString() : this.agent;
+    }
+
+    private static String model(ChatClientRequest request, ChatResponse response) {
+        if (response != null && response.getMetadata() != null && StringUtils.hasText(response.getMetadata().getModel())) {
+            return response.getMetadata().getModel();
+        }
+        ChatOptions options = request.prompt().getOptions();
+        if (options != null && StringUtils.hasText(options.getModel())) {
+            return options.getModel();
+        }
+        return PipelineObservations.UNKNOWN;
+    }
+
+    private static String text(ChatResponse response) {
+        if (response == null) {
+            return null;
+        }
+        Generation generation = response.getResult();
+        return generation == null || generation.getOutput() == null ? null : generation.getOutput().getText();
+    }
+
+    private void logPayload(String agent, String model, ChatClientRequest request, String response, Usage usage, long nanos) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        UserMessage userMessage = request.prompt().getUserMessage();
+        log.info("LLM 抽样 agent:{} model:{} 耗时:{}ms tokens:{}/{} cached:{} 请求:{} 响应:{}", agent, model,
+                TimeUnit.NANOSECONDS.toMillis(nanos),
+                usage == null ? null : usage.getPromptTokens(), usage == null ? null : usage.getCompletionTokens(),
+                this.observations.cachedTokens(usage),
+                this.observations.abbreviate(userMessage == null ? null : userMessage.getText()),
+                this.observations.abbreviate(response));
+    }
+
+    @Override
+    public String getName() {
+        return AgentObservationAdvisor.class.getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    public static class Builder {
+
+        private final PipelineObservations observations;
+        private String agent = PipelineObservations.UNKNOWN;
+        private int order = Ordered.LOWEST_PRECEDENCE - 1000;
+
+        private Builder(PipelineObservations observations) {
+            Assert.notNull(observations, "PipelineObservations must not be null");
+            this.observations = observations;
+        }
+
+        public Builder agent(String agent) {
+            this.agent = agent;
+            return this;
+        }
+
+        public Builder order(int order) {
+            this.order = order;
+            return this;
+        }
+
+        public AgentObservationAdvisor build() {
+            Assert.hasText(this.agent, "agent must not be empty");
+            return new AgentObservationAdvisor(this.observations, this.agent, this.order);
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package top.kangyaocoding.ai.domain.agent.service.observability;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+
+/**
+ * 描述: 对话记忆观测包装；读取记为 memory_load，写入与清理记为 memory_save
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:00
+ */
+public class ObservedChatMemory implements ChatMemory {
+
+    private final ChatMemory delegate;
+    private final PipelineObservations observations;
+
+    public ObservedChatMemory(ChatMemory delegate, PipelineObservations observations) {
+        this.delegate = delegate;
+        this.observations = observations;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        this.observations.run(PipelineStage.MEMORY_SAVE, () -> this.delegate.add(conversationId, messages));
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        return this.observations.observe(PipelineStage.MEMORY_LOAD, () -> this.delegate.get(conversationId));
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        this.observations.run(PipelineStage.MEMORY_SAVE, () -> this.delegate.clear(conversationId));
+    }
+
+}
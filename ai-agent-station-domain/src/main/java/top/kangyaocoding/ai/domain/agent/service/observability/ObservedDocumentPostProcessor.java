@@ -0,0 +1,30 @@
+package top.kangyaocoding.ai.domain.agent.service.observability;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.postretrieval.document.DocumentPostProcessor;
+
+import java.util.List;
+
+/**
+ * 描述: 检索后处理（重排、压缩）观测包装，记为 rerank
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:00
+ */
+public class ObservedDocumentPostProcessor implements DocumentPostProcessor {
+
+    private final DocumentPostProcessor delegate;
+    private final PipelineObservations observations;
+
+    public ObservedDocumentPostProcessor(DocumentPostProcessor delegate, PipelineObservations observations) {
+        this.delegate = delegate;
+        this.observations = observations;
+    }
+
+    @Override
+    public List<Document> process(Query query, List<Document> documents) {
+        return this.observations.observe(PipelineStage.RERANK, () -> this.delegate.process(query, documents));
+    }
+
+}
@@ -0,0 +1,39 @@
+package top.kangyaocoding.ai.domain.agent.service.observability;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * 描述: 向量化观测包装，记为 embedding；批量接口最终都经过 call，只在 call 与单文档 embed 上计时
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:00
+ */
+public class ObservedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final PipelineObservations observations;
+
+    public ObservedEmbeddingModel(EmbeddingModel delegate, PipelineObservations observations) {
+        this.delegate = delegate;
+        this.observations = observations;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return this.observations.observe(PipelineStage.EMBEDDING, () -> this.delegate.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return this.observations.observe(PipelineStage.EMBEDDING, () -> this.delegate.embed(document));
+    }
+
+    @Override
+    public int dimensions() {
+        return this.delegate.dimensions();
+    }
+
+}
@@ -0,0 +1,58 @@
+package top.kangyaocoding.ai.domain.agent.service.observability;
+
+import io.micrometer.common.KeyValues;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * 描述: 工具调用观测包装，记为 tool_call，附加 server（MCP 服务名）与 tool 标签
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:00
+ */
+public class ObservedToolCallback implements ToolCallback {
+
+    public static final String SERVER = "server";
+    public static final String TOOL = "tool";
+
+    private final ToolCallback delegate;
+    private final PipelineObservations observations;
+    private final KeyValues keyValues;
+
+    public ObservedToolCallback(ToolCallback delegate, String server, PipelineObservations observations) {
+        this.delegate = delegate;
+        this.observations = observations;
+        this.keyValues = KeyValues.of(SERVER, server, TOOL, delegate.getToolDefinition().name());
+    }
+
+    public static ToolCallback[] wrap(String server, ToolCallback[] callbacks, PipelineObservations observations) {
+        ToolCallback[] observed = new ToolCallback[callbacks.length];
+        for (int i = 0; i < callbacks.length; i++) {
+            observed[i] = new ObservedToolCallback(callbacks[i], server, observations);
+        }
+        return observed;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return this.delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return this.delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return this.observations.observe(PipelineStage.TOOL_CALL, this.keyValues, () -> this.delegate.call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return this.observations.observe(PipelineStage.TOOL_CALL, this.keyValues, () -> this.delegate.call(toolInput, toolContext));
+    }
+
+}
@@ -0,0 +1,61 @@
+package top.kangyaocoding.ai.domain.agent.service.observability;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 描述: 向量库观测包装；检索记为 vector_search，写入与删除记为 vector_write
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 22:00
+ */
+public class ObservedVectorStore implements VectorStore {
+
+    private final VectorStore delegate;
+    private final PipelineObservations observations;
+
+    public ObservedVectorStore(VectorStore delegate, PipelineObservations observations) {
+        this.delegate = delegate;
+        this.observations = observations;
+    }
+
+    @Override
+    public String getName() {
+        return this.delegate.getName();
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        this.observations.run(PipelineStage.VECTOR_WRITE, () -> this.delegate.add(documents));
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        this.observations.run(PipelineStage.VECTOR_WRITE, () -> this.delegate.delete(idList));
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        this.observations.run(PipelineStage.VECTOR_WRITE, () -> this.delegate.delete(filterExpression));
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return this.observations.observe(PipelineStage.VECTOR_SEARCH, () -> this.delegate.similaritySearch(request));
+    }
+
+    @Override
+    public <T> Optional<T> getNativeClient() {
+        return this.delegate.getNativeClient();
+    }
+
+    public VectorStore getDelegate() {
+        return this.delegate;
+    }
+
+}
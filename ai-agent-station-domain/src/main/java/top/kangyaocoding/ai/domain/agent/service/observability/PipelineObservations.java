@@ -0,0 +1,183 @@
+package top.kangyaocoding.ai.domain.agent.service.observability;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.ObservationView;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * 描述: 智能体处理链路的指标与链路追踪入口
+ * <p>
+ * 1. 各阶段（记忆、向量化、检索、重排、工具调用）以 Observation 记录：接入 Prometheus 时生成 agent.pipeline 计时器，
+ * 接入 OpenTelemetry 时生成 span，并挂在当前 LLM 调用的 span 之下；
+ * 2. 阶段观测从当前 Observation 链上取 agent 标签，调用方无需逐层传递；
+ * 3. 首 token 耗时与 token 用量直接写 MeterRegistry，计量器按标签缓存，热路径上不重复构建；
+ * 4. 请求与响应正文只按 payloadSampleRate 抽样记录日志，并截断到 maxPayloadChars；
+ * 5. 模型服务端前缀缓存命中的 token 记为 type=cached（是 prompt 的一部分），从各厂商的原始 usage 中提取。
+ * 未接入监控时 ObservationRegistry 为 NOOP，观测调用退化为直接执行。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 21:40
+ */
+public class PipelineObservations {
+
+    public static final String AGENT = "agent";
+    public static final String MODEL = "model";
+    public static final String STAGE = "stage";
+    public static final String MODE = "mode";
+    public static final String UNKNOWN = "unknown";
+
+    public static final String PIPELINE_OBSERVATION = "agent.pipeline";
+    public static final String LLM_OBSERVATION = "agent.llm";
+    public static final String TTFT_METRIC = "agent.llm.ttft";
+    public static final String TOKENS_METRIC = "agent.llm.tokens";
+
+    private final ObservationRegistry observationRegistry;
+    private final Meter.MeterProvider<Timer> firstTokenTimers;
+    private final Meter.MeterProvider<Counter> tokenCounters;
+    private final double payloadSampleRate;
+    private final int maxPayloadChars;
+    private final ToIntFunction<Object> cachedTokens;
+
+    public PipelineObservations(MeterRegistry meterRegistry, ObservationRegistry observationRegistry,
+                                double payloadSampleRate, int maxPayloadChars) {
+        this(meterRegistry, observationRegistry, payloadSampleRate, maxPayloadChars, PipelineObservations::mapCachedTokens);
+    }
+
+    /**
+     * @param cachedTokens 从 {@link Usage#getNativeUsage()} 提取缓存命中的 prompt token 数，没有时返回 0
+     */
+    public PipelineObservations(MeterRegistry meterRegistry, ObservationRegistry observationRegistry,
+                                double payloadSampleRate, int maxPayloadChars, ToIntFunction<Object> cachedTokens) {
+        Assert.notNull(meterRegistry, "MeterRegistry must not be null");
+        Assert.notNull(observationRegistry, "ObservationRegistry must not be null");
+        this.observationRegistry = observationRegistry;
+        this.firstTokenTimers = Timer.builder(TTFT_METRIC)
+                .description("流式调用从发起到收到首个响应的耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .withRegistry(meterRegistry);
+        this.tokenCounters = Counter.builder(TOKENS_METRIC)
+                .description("LLM token 用量，type 为 prompt / completion / cached（prompt 中命中服务端前缀缓存的部分）")
+                .withRegistry(meterRegistry);
+        this.payloadSampleRate = payloadSampleRate;
+        this.maxPayloadChars = maxPayloadChars;
+        this.cachedTokens = cachedTokens;
+    }
+
+    public <T> T observe(PipelineStage stage, Supplier<T> work) {
+        return this.observe(stage, KeyValues.empty(), work);
+    }
+
+    public <T> T observe(PipelineStage stage, KeyValues keyValues, Supplier<T> work) {
+        if (this.observationRegistry.isNoop()) {
+            return work.get();
+        }
+        return Observation.createNotStarted(PIPELINE_OBSERVATION, this.observationRegistry)
+                .contextualName(stage.getValue())
+                .lowCardinalityKeyValue(STAGE, stage.getValue())
+                .lowCardinalityKeyValue(AGENT, this.currentAgent())
+                .lowCardinalityKeyValues(keyValues)
+                .observe(work);
+    }
+
+    public void run(PipelineStage stage, Runnable work) {
+        this.observe(stage, KeyValues.empty(), () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * 一次 LLM 调用的观测，未启动；model 在响应返回后补充
+     */
+    public Observation llm(String agent, String mode) {
+        return Observation.createNotStarted(LLM_OBSERVATION, this.observationRegistry)
+                .contextualName("llm " + agent)
+                .lowCardinalityKeyValue(AGENT, agent)
+                .lowCardinalityKeyValue(MODE, mode);
+    }
+
+    public void recordFirstToken(String agent, String model, long nanos) {
+        this.firstTokenTimers.withTags(AGENT, agent, MODEL, model).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordUsage(String agent, String model, Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        if (usage.getPromptTokens() != null && usage.getPromptTokens() > 0) {
+            this.tokenCounters.withTags(AGENT, agent, MODEL, model, "type", "prompt").increment(usage.getPromptTokens());
+        }
+        if (usage.getCompletionTokens() != null && usage.getCompletionTokens() > 0) {
+            this.tokenCounters.withTags(AGENT, agent, MODEL, model, "type", "completion").increment(usage.getCompletionTokens());
+        }
+        int cached = this.cachedTokens(usage);
+        if (cached > 0) {
+            this.tokenCounters.withTags(AGENT, agent, MODEL, model, "type", "cached").increment(cached);
+        }
+    }
+
+    public int cachedTokens(Usage usage) {
+        if (usage == null || usage.getNativeUsage() == null) {
+            return 0;
+        }
+        return this.cachedTokens.applyAsInt(usage.getNativeUsage());
+    }
+
+    /**
+     * 原始 usage 为 Map 时：OpenAI 兼容格式的 prompt_tokens_details.cached_tokens（通义千问等），或 DeepSeek 的 prompt_cache_hit_tokens
+     */
+    public static int mapCachedTokens(Object nativeUsage) {
+        if (!(nativeUsage instanceof Map<?, ?> usage)) {
+            return 0;
+        }
+        if (usage.get("prompt_tokens_details") instanceof Map<?, ?> details && details.get("cached_tokens") instanceof Number cached) {
+            return cached.intValue();
+        }
+        return usage.get("prompt_cache_hit_tokens") instanceof Number cached ? cached.intValue() : 0;
+    }
+
+    /**
+     * 当前 Observation 链上最近的 agent 标签，没有时为 unknown
+     */
+    public String currentAgent() {
+        ObservationView observation = this.observationRegistry.getCurrentObservation();
+        while (observation != null) {
+            KeyValue agent = observation.getContextView().getLowCardinalityKeyValue(AGENT);
+            if (agent != null) {
+                return agent.getValue();
+            }
+            observation = observation.getContextView().getParentObservation();
+        }
+        return UNKNOWN;
+    }
+
+    public boolean samplePayload() {
+        return this.payloadSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < this.payloadSampleRate;
+    }
+
+    public String abbreviate(String text) {
+        if (text == null || text.length() <= this.maxPayloadChars) {
+            return text;
+        }
+        return text.substring(0, this.maxPayloadChars) + "...(" + text.length() + " chars)";
+    }
+
+    public ObservationRegistry getObservationRegistry() {
+        return this.observationRegistry;
+    }
+
+}
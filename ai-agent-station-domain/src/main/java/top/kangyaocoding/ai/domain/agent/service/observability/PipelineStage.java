@@ -0,0 +1,37 @@
+package top.kangyaocoding.ai.domain.agent.service.observability;
+
+/**
+ * 描述: 智能体处理链路的阶段，作为指标与链路 span 的 stage 标签
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 21:40
+ */
+public enum PipelineStage {
+
+    /** 读取对话记忆 */
+    MEMORY_LOAD("memory_load"),
+    /** 写入对话记忆 */
+    MEMORY_SAVE("memory_save"),
+    /** 向量化 */
+    EMBEDDING("embedding"),
+    /** 向量检索 */
+    VECTOR_SEARCH("vector_search"),
+    /** 向量写入 */
+    VECTOR_WRITE("vector_write"),
+    /** 检索结果重排 */
+    RERANK("rerank"),
+    /** 工具调用 */
+    TOOL_CALL("tool_call"),
+    ;
+
+    private final String value;
+
+    PipelineStage(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return this.value;
+    }
+
+}
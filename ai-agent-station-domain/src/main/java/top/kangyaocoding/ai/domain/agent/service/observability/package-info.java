@@ -0,0 +1,4 @@
+/**
+ * 智能体链路观测；LLM 调用与各阶段的指标、链路 span 和抽样日志
+ */
+package top.kangyaocoding.ai.domain.agent.service.observability;
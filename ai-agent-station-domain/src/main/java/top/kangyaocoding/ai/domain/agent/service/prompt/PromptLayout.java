@@ -0,0 +1,57 @@
+package top.kangyaocoding.ai.domain.agent.service.prompt;
+
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+
+import java.util.Map;
+
+/**
+ * 描述: 消息在提示词中的层级；写在消息 metadata 的 {@link #TIER} 中，由 {@link PromptLayoutAdvisor} 按层级排序
+ * <p>
+ * 未标记的系统消息视为 {@link Tier#STATIC}，其余未标记的消息视为对话历史，保持原有顺序；标记值无法识别时按未标记处理。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:40
+ */
+public final class PromptLayout {
+
+    public static final String TIER = "prompt_layout";
+    /** 请求上下文中稳定前缀的指纹，前缀变化（缓存失效）时指纹随之变化 */
+    public static final String PREFIX_HASH = "prompt_prefix_hash";
+
+    public enum Tier {
+        /** 智能体的固定设定，所有请求相同 */
+        STATIC,
+        /** 会话内长期不变的上下文，如用户画像、会话摘要 */
+        SESSION,
+        /** 每次请求都不同的内容，如检索结果、当前时间，排在当前问题之前 */
+        VOLATILE
+    }
+
+    private PromptLayout() {
+    }
+
+    public static SystemMessage system(String text, Tier tier) {
+        return SystemMessage.builder().text(text).metadata(Map.of(TIER, tier.name())).build();
+    }
+
+    /**
+     * @return 消息的层级；未标记或标记无法识别的非系统消息为 null
+     */
+    public static Tier tier(Message message) {
+        Object tier = message.getMetadata().get(TIER);
+        if (tier instanceof Tier value) {
+            return value;
+        }
+        if (tier != null) {
+            for (Tier value : Tier.values()) {
+                if (value.name().equalsIgnoreCase(tier.toString().trim())) {
+                    return value;
+                }
+            }
+        }
+        return message.getMessageType() == MessageType.SYSTEM ? Tier.STATIC : null;
+    }
+
+}
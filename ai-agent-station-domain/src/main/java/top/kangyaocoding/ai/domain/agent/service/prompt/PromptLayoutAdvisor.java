@@ -0,0 +1,215 @@
+package top.kangyaocoding.ai.domain.agent.service.prompt;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.core.Ordered;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 描述: 提示词布局；把请求整理成“稳定前缀 + 易变后缀”，命中通义千问、DeepSeek 等服务端的前缀缓存
+ * <p>
+ * 1. 消息顺序：静态系统消息 → 会话级上下文 → 对话历史 → 易变内容 → 当前问题，层级见 {@link PromptLayout}；
+ * 2. 工具定义按名称排序，MCP 工具列表的顺序变化不会打断前缀；
+ * 3. 静态与会话级系统消息统一换行符并去掉尾部空白，不同节点、不同平台拼出的前缀逐字节相同；
+ * 4. 前缀指纹写入请求上下文 {@link PromptLayout#PREFIX_HASH}，可与 agent.llm.tokens{type=cached} 对照排查缓存未命中。
+ * 默认顺序在检索、记忆等改写提示词的 Advisor 之后、观测 Advisor 之前；已符合布局的请求不重建提示词。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:45
+ */
+public class PromptLayoutAdvisor implements BaseAdvisor {
+
+    private static final Comparator<ToolCallback> BY_NAME = Comparator.comparing(callback -> callback.getToolDefinition().name());
+
+    private final int order;
+
+    public PromptLayoutAdvisor() {
+        this(Ordered.LOWEST_PRECEDENCE - 2000);
+    }
+
+    public PromptLayoutAdvisor(int order) {
+        this.order = order;
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+        Prompt prompt = chatClientRequest.prompt();
+        List<Message> messages = prompt.getInstructions();
+
+        List<Message> prefix = new ArrayList<>();
+        List<Message> session = new ArrayList<>();
+        List<Message> history = new ArrayList<>();
+        List<Message> volatiles = new ArrayList<>();
+        int last = messages.size() - 1;
+        // 末尾未标记的用户消息是当前问题，始终放在最后
+        Message current = last >= 0 && messages.get(last).getMessageType() == MessageType.USER
+                && PromptLayout.tier(messages.get(last)) == null ? messages.get(last) : null;
+        int end = current != null ? last : messages.size();
+        for (int i = 0; i < end; i++) {
+            Message message = messages.get(i);
+            PromptLayout.Tier tier = PromptLayout.tier(message);
+            if (tier == null) {
+                history.add(message);
+            } else {
+                switch (tier) {
+                    case STATIC -> prefix.add(normalize(message));
+                    case SESSION -> session.add(normalize(message));
+                    case VOLATILE -> volatiles.add(message);
+                }
+            }
+        }
+        List<Message> ordered = new ArrayList<>(messages.size());
+        ordered.addAll(prefix);
+        ordered.addAll(session);
+        ordered.addAll(history);
+        ordered.addAll(volatiles);
+        if (current != null) {
+            ordered.add(current);
+        }
+
+        ChatOptions options = sortTools(prompt.getOptions());
+        Map<String, Object> context = new HashMap<>(chatClientRequest.context());
+        context.put(PromptLayout.PREFIX_HASH, prefixHash(prefix, session, options));
+
+        ChatClientRequest.Builder builder = chatClientRequest.mutate().context(context);
+        if (!sameElements(ordered, messages) || options != prompt.getOptions()) {
+            builder.prompt(prompt.mutate().messages(ordered).chatOptions(options).build());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+        return chatClientResponse;
+    }
+
+    /**
+     * 统一换行符、去掉尾部空白；文本未变化时返回原消息
+     */
+    private static Message normalize(Message message) {
+        if (!(message instanceof SystemMessage systemMessage) || systemMessage.getText() == null) {
+            return message;
+        }
+        String text = systemMessage.getText();
+        String normalized = text.indexOf('\r') >= 0 ? text.replace("\r\n", "\n").replace('\r', '\n').stripTrailing() : text.stripTrailing();
+        if (normalized.equals(text)) {
+            return message;
+        }
+        return SystemMessage.builder().text(normalized).metadata(systemMessage.getMetadata()).build();
+    }
+
+    /**
+     * 工具回调与工具名按名称排序；已有序时返回原对象
+     */
+    private static ChatOptions sortTools(ChatOptions options) {
+        if (!(options instanceof ToolCallingChatOptions toolOptions)) {
+            return options;
+        }
+        List<ToolCallback> callbacks = toolOptions.getToolCallbacks();
+        Set<String> names = toolOptions.getToolNames();
+        boolean callbacksSorted = callbacks == null || isSorted(callbacks.iterator(), BY_NAME);
+        boolean namesSorted = names == null || names instanceof TreeSet<?> || isSorted(names.iterator(), Comparator.naturalOrder());
+        if (callbacksSorted && namesSorted) {
+            return options;
+        }
+        ToolCallingChatOptions copy = toolOptions.copy();
+        if (!callbacksSorted) {
+            List<ToolCallback> sorted = new ArrayList<>(callbacks);
+            sorted.sort(BY_NAME);
+            copy.setToolCallbacks(sorted);
+        }
+        if (!namesSorted) {
+            copy.setToolNames(new TreeSet<>(names));
+        }
+        return copy;
+    }
+
+    private static <T> boolean isSorted(Iterator<T> iterator, Comparator<? super T> comparator) {
+        if (!iterator.hasNext()) {
+            return true;
+        }
+        T previous = iterator.next();
+        while (iterator.hasNext()) {
+            T next = iterator.next();
+            if (comparator.compare(previous, next) > 0) {
+                return false;
+            }
+            previous = next;
+        }
+        return true;
+    }
+
+    /**
+     * 静态、会话级消息与工具定义的指纹；String 的 hashCode 有缓存，长提示词重复计算的开销很小
+     */
+    private static long prefixHash(List<Message> prefix, List<Message> session, ChatOptions options) {
+        long hash = 1125899906842597L;
+        if (options instanceof ToolCallingChatOptions toolOptions) {
+            if (toolOptions.getToolCallbacks() != null) {
+                for (ToolCallback callback : toolOptions.getToolCallbacks()) {
+                    ToolDefinition definition = callback.getToolDefinition();
+                    hash = mix(hash, definition.name());
+                    hash = mix(hash, definition.description());
+                    hash = mix(hash, definition.inputSchema());
+                }
+            }
+            if (toolOptions.getToolNames() != null) {
+                for (String name : toolOptions.getToolNames()) {
+                    hash = mix(hash, name);
+                }
+            }
+        }
+        for (Message message : prefix) {
+            hash = mix(hash, message.getText());
+        }
+        for (Message message : session) {
+            hash = mix(hash, message.getText());
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        return 31 * hash + (value == null ? 0 : value.hashCode());
+    }
+
+    private static boolean sameElements(List<Message> left, List<Message> right) {
+        if (left.size() != right.size()) {
+            return false;
+        }
+        for (int i = 0; i < left.size(); i++) {
+            if (left.get(i) != right.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    @Override
+    public String getName() {
+        return PromptLayoutAdvisor.class.getSimpleName();
+    }
+
+}
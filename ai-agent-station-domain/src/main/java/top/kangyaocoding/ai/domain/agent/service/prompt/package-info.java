@@ -0,0 +1,4 @@
+/**
+ * 提示词布局；静态系统提示词、工具定义与长期上下文排在前面形成字节稳定的前缀，便于模型服务端缓存
+ */
+package top.kangyaocoding.ai.domain.agent.service.prompt;
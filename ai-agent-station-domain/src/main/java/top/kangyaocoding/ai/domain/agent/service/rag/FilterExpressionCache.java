@@ -0,0 +1,100 @@
+package top.kangyaocoding.ai.domain.agent.service.rag;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionConverter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * 描述: 过滤表达式缓存
+ * <p>
+ * 按字符串缓存 ANTLR 解析后的 {@link Filter.Expression}，并按表达式缓存其在具体向量库下的转换结果（如 pgvector 的 SQL 片段），
+ * 两级缓存均有容量上限。{@link FilterExpressionTextParser} 自带的缓存无上限且随实例创建，所以每次未命中时都新建解析器。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 10:12
+ */
+public class FilterExpressionCache {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 1024;
+
+    private final LoadingCache<String, Filter.Expression> expressionCache;
+    private final LoadingCache<Filter.Expression, String> convertedCache;
+
+    public FilterExpressionCache() {
+        this(DEFAULT_MAXIMUM_SIZE, null);
+    }
+
+    public FilterExpressionCache(long maximumSize, @Nullable FilterExpressionConverter converter) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+        this.expressionCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build(CacheLoader.from(text -> new FilterExpressionTextParser().parse(text)));
+        this.convertedCache = converter == null ? null : CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build(CacheLoader.from(converter::convertExpression));
+    }
+
+    /**
+     * 解析过滤表达式，空白文本返回 null
+     */
+    @Nullable
+    public Filter.Expression parse(@Nullable String textFilterExpression) {
+        if (!StringUtils.hasText(textFilterExpression)) {
+            return null;
+        }
+        return getUnchecked(this.expressionCache, textFilterExpression.trim());
+    }
+
+    /**
+     * 转换为向量库原生的过滤片段，null 表达式返回空串
+     */
+    public String convert(@Nullable Filter.Expression expression) {
+        Assert.state(this.convertedCache != null, "FilterExpressionConverter is not configured");
+        if (expression == null) {
+            return "";
+        }
+        return getUnchecked(this.convertedCache, expression);
+    }
+
+    public String convert(@Nullable String textFilterExpression) {
+        return this.convert(this.parse(textFilterExpression));
+    }
+
+    public CacheStats expressionStats() {
+        return this.expressionCache.stats();
+    }
+
+    @Nullable
+    public CacheStats convertedStats() {
+        return this.convertedCache == null ? null : this.convertedCache.stats();
+    }
+
+    public void invalidateAll() {
+        this.expressionCache.invalidateAll();
+        if (this.convertedCache != null) {
+            this.convertedCache.invalidateAll();
+        }
+    }
+
+    private static <K, V> V getUnchecked(LoadingCache<K, V> cache, K key) {
+        try {
+            return cache.getUnchecked(key);
+        } catch (UncheckedExecutionException e) {
+            // 解析/转换异常原样抛出，保持与直接调用解析器一致
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package top.kangyaocoding.ai.domain.agent.service.rag;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描述: 按知识库选择分块器
+ * <p>
+ * 不同知识库的文档结构差异较大（如接口文档适合大块、问答对适合小块），可为知识库单独配置分块参数，未配置的使用默认分块器。
+ * 切分后的分块写入 knowledgeKey = knowledge 的 metadata，供检索时过滤与分区路由。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 20:20
+ */
+public class KnowledgeTextSplitters {
+
+    private final TextSplitter defaultSplitter;
+    private final Map<String, TextSplitter> splitters;
+    private final String knowledgeKey;
+
+    public KnowledgeTextSplitters(TextSplitter defaultSplitter, Map<String, TextSplitter> splitters, String knowledgeKey) {
+        Assert.notNull(defaultSplitter, "defaultSplitter must not be null");
+        Assert.hasText(knowledgeKey, "knowledgeKey must not be empty");
+        this.defaultSplitter = defaultSplitter;
+        this.splitters = Map.copyOf(splitters);
+        this.knowledgeKey = knowledgeKey;
+    }
+
+    public TextSplitter of(String knowledge) {
+        return this.splitters.getOrDefault(knowledge, this.defaultSplitter);
+    }
+
+    public List<Document> split(String knowledge, List<Document> documents) {
+        List<Document> chunks = this.of(knowledge).apply(documents);
+        for (Document chunk : chunks) {
+            chunk.getMetadata().put(this.knowledgeKey, knowledge);
+        }
+        return chunks;
+    }
+
+}
@@ -0,0 +1,399 @@
+package top.kangyaocoding.ai.domain.agent.service.rag;
+
+import io.micrometer.context.ContextSnapshotFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.preretrieval.query.expansion.QueryExpander;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 描述: 多查询、多知识库并行检索
+ * <p>
+ * 1. 查询：原始问题，以及可选的 {@link QueryExpander}（一般用便宜的小模型）改写出的若干变体；
+ * 2. 知识库：为每个 knowledge 追加 {@code knowledge == 'x'} 条件，未配置时只用基础过滤条件；
+ * 3. 查询 × 知识库的每个组合并发检索，单次检索超时或失败按空结果处理，不影响其他检索；
+ * 原始问题的检索与改写同时开始，改写完成后再发起变体检索，总耗时约为 max(原始检索, 改写 + 变体检索)，而不是逐个累加。
+ * 结果按文档 id 去重，按 {@link MergeStrategy} 合并出的分数排序后取前 maxDocuments 条拼入用户消息；
+ * 文档的 score 保持向量检索的相似度（多次命中取最高），合并分数写入 metadata 的 {@link #FUSED_SCORE}，不影响下游按相似度阈值过滤。
+ * 检索是阻塞 IO，必须传入独立的有界线程池（见 {@link #newExecutor}）：超时只是不再等待，不会中断检索，
+ * 卡住的 JDBC 或向量化调用会一直占用线程，放在 ForkJoinPool.commonPool() 上会拖住整个进程的并行流与异步任务；
+ * 线程池满时该次检索按空结果处理。
+ * 检索与改写在线程池上执行时沿用调用线程的上下文（context-propagation 注册的全部 ThreadLocal：当前 Observation、向量模型的知识库绑定、
+ * 流量类别等），检索的 span 挂在当前 LLM 调用之下并带上 agent 标签。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 19:30
+ */
+@Slf4j
+public class RetrievalFanOutAdvisor implements BaseAdvisor {
+
+    public static final String RETRIEVED_DOCUMENTS = "qa_retrieved_documents";
+    public static final String FILTER_EXPRESSION = "qa_filter_expression";
+    /** 合并后的分数，MAX 为各次检索的最高相似度，RECIPROCAL_RANK 为 RRF 分数 */
+    public static final String FUSED_SCORE = "fused_score";
+
+    private static final String DEFAULT_USER_TEXT_ADVISE = """
+            Context information is below, surrounded by ---------------------
+
+            ---------------------
+            {question_answer_context}
+            ---------------------
+
+            Given the context and provided history information and not prior knowledge,
+            reply to the user comment. If the answer is not in the context, inform
+            the user that you can't answer the question.
+            """;
+
+    private static final ContextSnapshotFactory SNAPSHOTS = ContextSnapshotFactory.builder().build();
+
+    /** RRF 的平滑常数，取论文中的经验值 */
+    private static final int RRF_K = 60;
+
+    public enum MergeStrategy {
+        /** 取各次检索中的最高分 */
+        MAX,
+        /** Reciprocal Rank Fusion：score = Σ 1 / (60 + rank)，被多个查询命中的文档排名更靠前 */
+        RECIPROCAL_RANK,
+    }
+
+    private final VectorStore vectorStore;
+    private final SearchRequest searchRequest;
+    private final FilterExpressionCache filterExpressionCache;
+    private final QueryExpander queryExpander;
+    private final List<String> knowledges;
+    private final String knowledgeKey;
+    private final Executor executor;
+    private final Duration searchTimeout;
+    private final Duration expandTimeout;
+    private final MergeStrategy mergeStrategy;
+    private final int maxDocuments;
+    private final String userTextAdvise;
+    private final int order;
+
+    private RetrievalFanOutAdvisor(Builder builder) {
+        this.vectorStore = builder.vectorStore;
+        this.searchRequest = builder.searchRequest;
+        this.filterExpressionCache = builder.filterExpressionCache;
+        this.queryExpander = builder.queryExpander;
+        this.knowledges = List.copyOf(builder.knowledges);
+        this.knowledgeKey = builder.knowledgeKey;
+        this.executor = builder.executor;
+        this.searchTimeout = builder.searchTimeout;
+        this.expandTimeout = builder.expandTimeout;
+        this.mergeStrategy = builder.mergeStrategy;
+        this.maxDocuments = builder.maxDocuments > 0 ? builder.maxDocuments : builder.searchRequest.getTopK();
+        this.userTextAdvise = builder.userTextAdvise;
+        this.order = builder.order;
+    }
+
+    /**
+     * @param executor 检索专用的有界线程池，不要使用 ForkJoinPool.commonPool()
+     */
+    public static Builder builder(VectorStore vectorStore, Executor executor) {
+        return new Builder(vectorStore, executor);
+    }
+
+    /**
+     * 检索专用线程池：固定线程数、有界队列、守护线程，队列满时拒绝提交，由调用方按空结果处理
+     */
+    public static ExecutorService newExecutor(String name, int threads, int capacity) {
+        Assert.hasText(name, "name must not be empty");
+        Assert.isTrue(threads > 0 && capacity > 0, "threads and capacity must be positive");
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+        Map<String, Object> context = new HashMap<>(chatClientRequest.context());
+        String userText = chatClientRequest.prompt().getUserMessage().getText();
+
+        List<Document> documents = this.retrieve(userText, this.doGetFilterExpression(context));
+        context.put(RETRIEVED_DOCUMENTS, documents);
+
+        String documentContext = documents.stream()
+                .map(Document::getText)
+                .collect(Collectors.joining(System.lineSeparator()));
+        String augmented = userText + System.lineSeparator() + this.userTextAdvise.replace("{question_answer_context}", documentContext);
+
+        return chatClientRequest.mutate()
+                .prompt(chatClientRequest.prompt().augmentUserMessage(augmented))
+                .context(context)
+                .build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+        if (chatClientResponse.chatResponse() == null) {
+            return chatClientResponse;
+        }
+        ChatResponse chatResponse = ChatResponse.builder()
+                .from(chatClientResponse.chatResponse())
+                .metadata(RETRIEVED_DOCUMENTS, chatClientResponse.context().get(RETRIEVED_DOCUMENTS))
+                .build();
+        return chatClientResponse.mutate().chatResponse(chatResponse).build();
+    }
+
+    /**
+     * 并发执行全部检索并合并结果
+     */
+    public List<Document> retrieve(String query, Filter.Expression baseFilter) {
+        List<Filter.Expression> filters = this.filters(baseFilter);
+        // 在调用线程上捕获上下文；变体检索在改写完成的线程上发起，同样使用这份上下文
+        Executor executor = SNAPSHOTS.captureAll().wrapExecutor(this.executor);
+
+        List<CompletableFuture<List<Document>>> searches = new ArrayList<>();
+        for (Filter.Expression filter : filters) {
+            searches.add(this.search(executor, query, filter));
+        }
+        CompletableFuture<List<List<Document>>> expanded = this.queryExpander == null
+                ? CompletableFuture.completedFuture(List.of())
+                : this.expand(executor, query).thenCompose(variants -> {
+            List<CompletableFuture<List<Document>>> variantSearches = new ArrayList<>();
+            for (String variant : variants) {
+                for (Filter.Expression filter : filters) {
+                    variantSearches.add(this.search(executor, variant, filter));
+                }
+            }
+            return CompletableFuture.allOf(variantSearches.toArray(CompletableFuture[]::new))
+                    .thenApply(ignored -> variantSearches.stream().map(CompletableFuture::join).toList());
+        });
+
+        // 每次检索的结果作为一个独立的排名列表参与合并
+        List<List<Document>> results = new ArrayList<>();
+        for (CompletableFuture<List<Document>> search : searches) {
+            results.add(search.join());
+        }
+        results.addAll(expanded.join());
+        return this.merge(results);
+    }
+
+    private CompletableFuture<List<String>> expand(Executor executor, String query) {
+        CompletableFuture<List<String>> expansion;
+        try {
+            expansion = CompletableFuture.supplyAsync(() -> this.queryExpander.expand(new Query(query)).stream()
+                    .map(Query::text)
+                    .filter(StringUtils::hasText)
+                    .filter(text -> !text.equals(query))
+                    .distinct()
+                    .toList(), executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("检索线程池已满，跳过查询改写");
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return expansion
+                .completeOnTimeout(List.of(), this.expandTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    log.warn("查询改写失败，仅使用原始问题检索", e);
+                    return List.of();
+                });
+    }
+
+    private CompletableFuture<List<Document>> search(Executor executor, String query, Filter.Expression filter) {
+        SearchRequest request = SearchRequest.from(this.searchRequest)
+                .query(query)
+                .filterExpression(filter)
+                .build();
+        CompletableFuture<List<Document>> search;
+        try {
+            search = CompletableFuture.supplyAsync(() -> this.vectorStore.similaritySearch(request), executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("检索线程池已满，跳过检索 query:{} filter:{}", query, filter);
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return search
+                .completeOnTimeout(List.of(), this.searchTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    log.warn("检索失败 query:{} filter:{}", query, filter, e);
+                    return List.of();
+                });
+    }
+
+    private List<Filter.Expression> filters(Filter.Expression baseFilter) {
+        if (this.knowledges.isEmpty()) {
+            return Collections.singletonList(baseFilter);
+        }
+        List<Filter.Expression> filters = new ArrayList<>(this.knowledges.size());
+        for (String knowledge : this.knowledges) {
+            Filter.Expression knowledgeFilter = new Filter.Expression(Filter.ExpressionType.EQ,
+                    new Filter.Key(this.knowledgeKey), new Filter.Value(knowledge));
+            filters.add(baseFilter == null ? knowledgeFilter
+                    : new Filter.Expression(Filter.ExpressionType.AND, new Filter.Group(baseFilter), knowledgeFilter));
+        }
+        return filters;
+    }
+
+    private List<Document> merge(List<List<Document>> results) {
+        Map<String, Document> documents = new LinkedHashMap<>();
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Double> similarities = new HashMap<>();
+        for (List<Document> result : results) {
+            List<Document> ranked = result.stream()
+                    .sorted(Comparator.comparingDouble((Document document) -> score(document)).reversed())
+                    .toList();
+            for (int rank = 0; rank < ranked.size(); rank++) {
+                Document document = ranked.get(rank);
+                documents.putIfAbsent(document.getId(), document);
+                if (document.getScore() != null) {
+                    similarities.merge(document.getId(), document.getScore(), Math::max);
+                }
+                double score = this.mergeStrategy == MergeStrategy.RECIPROCAL_RANK ? 1.0 / (RRF_K + rank + 1) : score(document);
+                scores.merge(document.getId(), score, this.mergeStrategy == MergeStrategy.RECIPROCAL_RANK ? Double::sum : Math::max);
+            }
+        }
+        return documents.values().stream()
+                .sorted(Comparator.comparingDouble((Document document) -> scores.get(document.getId())).reversed())
+                .limit(this.maxDocuments)
+                .map(document -> {
+                    // Builder.metadata 直接持有传入的 Map，复制一份，避免改到原文档
+                    Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+                    metadata.put(FUSED_SCORE, scores.get(document.getId()));
+                    return document.mutate()
+                            .metadata(metadata)
+                            .score(similarities.get(document.getId()))
+                            .build();
+                })
+                .toList();
+    }
+
+    private static double score(Document document) {
+        return document.getScore() == null ? 0 : document.getScore();
+    }
+
+    protected Filter.Expression doGetFilterExpression(Map<String, Object> context) {
+        if (context.containsKey(FILTER_EXPRESSION) && StringUtils.hasText(context.get(FILTER_EXPRESSION).toString())) {
+            return this.filterExpressionCache.parse(context.get(FILTER_EXPRESSION).toString());
+        }
+        return this.searchRequest.getFilterExpression();
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    public static final class Builder {
+        private final VectorStore vectorStore;
+        private SearchRequest searchRequest = SearchRequest.builder().build();
+        private FilterExpressionCache filterExpressionCache = new FilterExpressionCache();
+        private QueryExpander queryExpander;
+        private List<String> knowledges = List.of();
+        private String knowledgeKey = "knowledge";
+        private final Executor executor;
+        private Duration searchTimeout = Duration.ofSeconds(3);
+        private Duration expandTimeout = Duration.ofSeconds(3);
+        private MergeStrategy mergeStrategy = MergeStrategy.RECIPROCAL_RANK;
+        private int maxDocuments;
+        private String userTextAdvise = DEFAULT_USER_TEXT_ADVISE;
+        private int order = 0;
+
+        private Builder(VectorStore vectorStore, Executor executor) {
+            Assert.notNull(vectorStore, "VectorStore must not be null");
+            Assert.notNull(executor, "Executor must not be null");
+            Assert.isTrue(executor != ForkJoinPool.commonPool(), "检索是阻塞 IO，不能使用 ForkJoinPool.commonPool()");
+            this.vectorStore = vectorStore;
+            this.executor = executor;
+        }
+
+        public Builder searchRequest(SearchRequest searchRequest) {
+            this.searchRequest = searchRequest;
+            return this;
+        }
+
+        public Builder filterExpressionCache(FilterExpressionCache filterExpressionCache) {
+            this.filterExpressionCache = filterExpressionCache;
+            return this;
+        }
+
+        /**
+         * 查询改写，如 MultiQueryExpander.builder().chatClientBuilder(小模型).includeOriginal(false).build()
+         */
+        public Builder queryExpander(QueryExpander queryExpander) {
+            this.queryExpander = queryExpander;
+            return this;
+        }
+
+        public Builder knowledges(List<String> knowledges) {
+            this.knowledges = knowledges;
+            return this;
+        }
+
+        public Builder knowledgeKey(String knowledgeKey) {
+            this.knowledgeKey = knowledgeKey;
+            return this;
+        }
+
+        public Builder searchTimeout(Duration searchTimeout) {
+            this.searchTimeout = searchTimeout;
+            return this;
+        }
+
+        public Builder expandTimeout(Duration expandTimeout) {
+            this.expandTimeout = expandTimeout;
+            return this;
+        }
+
+        public Builder mergeStrategy(MergeStrategy mergeStrategy) {
+            this.mergeStrategy = mergeStrategy;
+            return this;
+        }
+
+        /**
+         * 合并后保留的文档数，默认与 searchRequest 的 topK 一致
+         */
+        public Builder maxDocuments(int maxDocuments) {
+            this.maxDocuments = maxDocuments;
+            return this;
+        }
+
+        public Builder userTextAdvise(String userTextAdvise) {
+            this.userTextAdvise = userTextAdvise;
+            return this;
+        }
+
+        public Builder order(int order) {
+            this.order = order;
+            return this;
+        }
+
+        public RetrievalFanOutAdvisor build() {
+            Assert.notNull(this.searchRequest, "SearchRequest must not be null");
+            Assert.isTrue(!this.searchTimeout.isNegative() && !this.expandTimeout.isNegative(), "timeout must not be negative");
+            return new RetrievalFanOutAdvisor(this);
+        }
+    }
+
+}
@@ -0,0 +1,554 @@
+package top.kangyaocoding.ai.domain.agent.service.rag;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 描述: 按文档结构切分的并行分块器，可直接替换 TokenTextSplitter
+ * <p>
+ * 1. 按行扫描出结构块：Markdown 标题、围栏代码块（``` / ~~~）、空行分隔的段落；
+ * 2. 每个块只编码一次计数 token，块多时在 ForkJoinPool 上分段并行计数；超过 chunkSize 的块依次按行、按句、按字符窗口细分；
+ * 3. 顺序装箱：块的 token 数累加到 chunkSize 为止，分块文本直接截取原文区间，不做 decode / 重新编码；
+ * 相邻分块按 chunkOverlap 重叠末尾的若干块；遇到不深于 headingLevel 的标题且当前分块已有 minChunkTokens 时另起分块，章节之间不重叠；
+ * 分块的标题路径写入 metadata 的 section。多个文档之间同样在 ForkJoinPool 上并行切分，输出顺序与输入一致。
+ * <p>
+ * token 数按块分别编码后累加（块之间的分隔符按 1 个 token 计），与整段编码的结果会有少量出入。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 20:05
+ */
+public class StructuredTextSplitter extends TextSplitter {
+
+    public static final String SECTION = "section";
+
+    private static final EncodingRegistry REGISTRY = Encodings.newLazyEncodingRegistry();
+
+    /** 单个计数任务至少处理的字符数，避免任务过碎 */
+    private static final int MEASURE_THRESHOLD_CHARS = 16 * 1024;
+
+    private static final String SENTENCE_TERMINATORS = "。！？；.!?;";
+
+    private enum Kind {
+        HEADING, CODE, TEXT
+    }
+
+    /**
+     * 原文区间 [start, end)，tokens 在计数阶段填充
+     */
+    private static final class Block {
+
+        private final int start;
+        private final int end;
+        private final Kind kind;
+        private final int level;
+        private int tokens;
+
+        private Block(int start, int end, Kind kind, int level) {
+            this.start = start;
+            this.end = end;
+            this.kind = kind;
+            this.level = level;
+        }
+    }
+
+    private final Encoding encoding;
+    private final int chunkSize;
+    private final int chunkOverlap;
+    private final int minChunkTokens;
+    private final int headingLevel;
+    private final int minChunkLengthToEmbed;
+    private final int maxNumChunks;
+    private final ForkJoinPool pool;
+
+    private StructuredTextSplitter(Builder builder) {
+        this.encoding = REGISTRY.getEncoding(builder.encodingType);
+        this.chunkSize = builder.chunkSize;
+        this.chunkOverlap = builder.chunkOverlap != null ? builder.chunkOverlap : builder.chunkSize / 10;
+        this.minChunkTokens = builder.minChunkTokens != null ? builder.minChunkTokens : builder.chunkSize / 4;
+        this.headingLevel = builder.headingLevel;
+        this.minChunkLengthToEmbed = builder.minChunkLengthToEmbed;
+        this.maxNumChunks = builder.maxNumChunks;
+        this.pool = builder.pool;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<Document> apply(List<Document> documents) {
+        return this.split(documents);
+    }
+
+    @Override
+    public List<Document> split(List<Document> documents) {
+        List<ForkJoinTask<List<Document>>> tasks = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            tasks.add(ForkJoinTask.adapt(() -> this.split(document)));
+        }
+        this.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        List<Document> chunks = new ArrayList<>();
+        for (ForkJoinTask<List<Document>> task : tasks) {
+            chunks.addAll(task.join());
+        }
+        return chunks;
+    }
+
+    @Override
+    public List<Document> split(Document document) {
+        String text = document.getText();
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        Map<String, Object> metadata = new HashMap<>();
+        document.getMetadata().forEach((key, value) -> {
+            if (key != null && value != null) {
+                metadata.put(key, value);
+            }
+        });
+
+        List<Document> chunks = new ArrayList<>();
+        this.chunk(text, (chunk, section) -> {
+            Map<String, Object> chunkMetadata = new HashMap<>(metadata);
+            if (!section.isEmpty()) {
+                chunkMetadata.put(SECTION, section);
+            }
+            Document split = Document.builder().text(chunk).metadata(chunkMetadata).score(document.getScore()).build();
+            if (this.isCopyContentFormatter()) {
+                split.setContentFormatter(document.getContentFormatter());
+            }
+            chunks.add(split);
+        });
+        return chunks;
+    }
+
+    @Override
+    protected List<String> splitText(String text) {
+        List<String> chunks = new ArrayList<>();
+        this.chunk(text, (chunk, section) -> chunks.add(chunk));
+        return chunks;
+    }
+
+    private interface ChunkConsumer {
+        void accept(String chunk, String section);
+    }
+
+    private void chunk(String text, ChunkConsumer consumer) {
+        List<Block> blocks = this.invoke(new MeasureTask(text, parse(text)));
+
+        String[] headings = new String[7];
+        List<Block> current = new ArrayList<>();
+        int currentTokens = 0;
+        String section = "";
+        // 分块开头只有标题时，标题路径随后续标题继续细化
+        boolean open = true;
+        int emitted = 0;
+        for (Block block : blocks) {
+            if (emitted >= this.maxNumChunks) {
+                return;
+            }
+            boolean sectionBreak = block.kind == Kind.HEADING && block.level <= this.headingLevel && currentTokens >= this.minChunkTokens;
+            if (!current.isEmpty() && (sectionBreak || currentTokens + block.tokens + 1 > this.chunkSize)) {
+                // 末尾的标题挪到下一分块，不让标题与正文分离
+                int keep = current.size();
+                while (keep > 1 && current.get(keep - 1).kind == Kind.HEADING) {
+                    keep--;
+                }
+                List<Block> carried = current.subList(keep, current.size());
+                if (tokens(carried) + block.tokens + 1 > this.chunkSize) {
+                    keep = current.size();
+                    carried = List.of();
+                }
+                List<Block> emitting = current.subList(0, keep);
+                emitted += this.emit(text, emitting, section, consumer);
+                List<Block> next = !carried.isEmpty() ? carried : sectionBreak ? List.of() : this.overlap(emitting, block.tokens);
+                current = new ArrayList<>(next);
+                currentTokens = tokens(current);
+                open = true;
+            }
+            if (block.kind == Kind.HEADING) {
+                headings[block.level] = text.substring(block.start, block.end).strip().substring(block.level).strip();
+                for (int level = block.level + 1; level < headings.length; level++) {
+                    headings[level] = null;
+                }
+            }
+            if (open) {
+                section = section(headings);
+                open = block.kind == Kind.HEADING;
+            }
+            currentTokens += current.isEmpty() ? block.tokens : block.tokens + 1;
+            current.add(block);
+        }
+        if (!current.isEmpty() && emitted < this.maxNumChunks) {
+            this.emit(text, current, section, consumer);
+        }
+    }
+
+    private int emit(String text, List<Block> blocks, String section, ChunkConsumer consumer) {
+        String chunk = text.substring(blocks.get(0).start, blocks.get(blocks.size() - 1).end).strip();
+        if (chunk.length() <= this.minChunkLengthToEmbed) {
+            return 0;
+        }
+        consumer.accept(chunk, section);
+        return 1;
+    }
+
+    /**
+     * 上一分块末尾不超过 chunkOverlap 的若干块，且保证与下一块合计不超过 chunkSize；首块不参与，确保分块向前推进
+     */
+    private List<Block> overlap(List<Block> previous, int nextTokens) {
+        int budget = Math.min(this.chunkOverlap, this.chunkSize - nextTokens - 1);
+        int from = previous.size();
+        int tokens = 0;
+        while (from > 1) {
+            int cost = previous.get(from - 1).tokens + 1;
+            if (tokens + cost > budget) {
+                break;
+            }
+            tokens += cost;
+            from--;
+        }
+        return previous.subList(from, previous.size());
+    }
+
+    private static int tokens(List<Block> blocks) {
+        int tokens = 0;
+        for (Block block : blocks) {
+            tokens += block.tokens + 1;
+        }
+        return blocks.isEmpty() ? 0 : tokens - 1;
+    }
+
+    private static String section(String[] headings) {
+        StringBuilder section = new StringBuilder();
+        for (String heading : headings) {
+            if (heading != null && !heading.isEmpty()) {
+                if (!section.isEmpty()) {
+                    section.append(" > ");
+                }
+                section.append(heading);
+            }
+        }
+        return section.toString();
+    }
+
+    /**
+     * 按行扫描结构块；块之间的空行不属于任何块，截取分块文本时随原文保留
+     */
+    private static List<Block> parse(String text) {
+        List<Block> blocks = new ArrayList<>();
+        int length = text.length();
+        int position = 0;
+        int paragraphStart = -1;
+        int paragraphEnd = -1;
+        while (position < length) {
+            int lineEnd = text.indexOf('\n', position);
+            int next = lineEnd < 0 ? length : lineEnd + 1;
+            int contentEnd = lineEnd < 0 ? length : lineEnd;
+            int indent = indent(text, position, contentEnd);
+
+            int fence = indent <= 3 ? fence(text, position + indent, contentEnd) : 0;
+            int heading = indent <= 3 ? heading(text, position + indent, contentEnd) : 0;
+            if (fence > 0) {
+                flush(blocks, paragraphStart, paragraphEnd);
+                paragraphStart = -1;
+                char marker = text.charAt(position + indent);
+                int end = next;
+                while (end < length) {
+                    int closeEnd = text.indexOf('\n', end);
+                    int closeNext = closeEnd < 0 ? length : closeEnd + 1;
+                    int closeContentEnd = closeEnd < 0 ? length : closeEnd;
+                    int closeIndent = indent(text, end, closeContentEnd);
+                    boolean closed = closeIndent <= 3 && closing(text, end + closeIndent, closeContentEnd, marker, fence);
+                    end = closeNext;
+                    if (closed) {
+                        break;
+                    }
+                }
+                blocks.add(new Block(position, end, Kind.CODE, 0));
+                position = end;
+                continue;
+            }
+            if (heading > 0) {
+                flush(blocks, paragraphStart, paragraphEnd);
+                paragraphStart = -1;
+                blocks.add(new Block(position, next, Kind.HEADING, heading));
+            } else if (indent == contentEnd - position) {
+                flush(blocks, paragraphStart, paragraphEnd);
+                paragraphStart = -1;
+            } else {
+                if (paragraphStart < 0) {
+                    paragraphStart = position;
+                }
+                paragraphEnd = next;
+            }
+            position = next;
+        }
+        flush(blocks, paragraphStart, paragraphEnd);
+        return blocks;
+    }
+
+    private static void flush(List<Block> blocks, int start, int end) {
+        if (start >= 0) {
+            blocks.add(new Block(start, end, Kind.TEXT, 0));
+        }
+    }
+
+    private static int indent(String text, int from, int to) {
+        int i = from;
+        while (i < to && (text.charAt(i) == ' ' || text.charAt(i) == '\t' || text.charAt(i) == '\r')) {
+            i++;
+        }
+        return i - from;
+    }
+
+    /**
+     * 围栏开始标记的长度（至少 3 个 ` 或 ~），不是围栏时返回 0
+     */
+    private static int fence(String text, int from, int to) {
+        if (from >= to) {
+            return 0;
+        }
+        char marker = text.charAt(from);
+        if (marker != '`' && marker != '~') {
+            return 0;
+        }
+        int i = from;
+        while (i < to && text.charAt(i) == marker) {
+            i++;
+        }
+        return i - from >= 3 ? i - from : 0;
+    }
+
+    /**
+     * 与开始标记同字符、不短于开始标记、其后只有空白的行才是围栏结束
+     */
+    private static boolean closing(String text, int from, int to, char marker, int length) {
+        int i = from;
+        while (i < to && text.charAt(i) == marker) {
+            i++;
+        }
+        return i - from >= length && indent(text, i, to) == to - i;
+    }
+
+    /**
+     * 标题级别（1~6 个 # 后跟空白或行尾），不是标题时返回 0
+     */
+    private static int heading(String text, int from, int to) {
+        int i = from;
+        while (i < to && text.charAt(i) == '#') {
+            i++;
+        }
+        int level = i - from;
+        if (level == 0 || level > 6) {
+            return 0;
+        }
+        return i == to || Character.isWhitespace(text.charAt(i)) ? level : 0;
+    }
+
+    /**
+     * 并行计数 token，超长的块就地细分；按区间二分，结果保持原文顺序
+     */
+    private final class MeasureTask extends RecursiveTask<List<Block>> {
+
+        private final String text;
+        private final List<Block> blocks;
+
+        private MeasureTask(String text, List<Block> blocks) {
+            this.text = text;
+            this.blocks = blocks;
+        }
+
+        @Override
+        protected List<Block> compute() {
+            int chars = this.blocks.isEmpty() ? 0 : this.blocks.get(this.blocks.size() - 1).end - this.blocks.get(0).start;
+            if (this.blocks.size() > 1 && chars > MEASURE_THRESHOLD_CHARS) {
+                int middle = this.blocks.size() / 2;
+                MeasureTask left = new MeasureTask(this.text, this.blocks.subList(0, middle));
+                MeasureTask right = new MeasureTask(this.text, this.blocks.subList(middle, this.blocks.size()));
+                right.fork();
+                List<Block> measured = new ArrayList<>(left.compute());
+                measured.addAll(right.join());
+                return measured;
+            }
+            List<Block> measured = new ArrayList<>(this.blocks.size());
+            for (Block block : this.blocks) {
+                measure(this.text, block, measured);
+            }
+            return measured;
+        }
+    }
+
+    private void measure(String text, Block block, List<Block> measured) {
+        block.tokens = this.encoding.countTokensOrdinary(text.substring(block.start, block.end));
+        if (block.tokens <= this.chunkSize) {
+            measured.add(block);
+            return;
+        }
+        Kind kind = block.kind == Kind.CODE ? Kind.CODE : Kind.TEXT;
+        List<Block> pieces = lines(text, block, kind);
+        if (pieces.size() <= 1) {
+            pieces = sentences(text, block, kind);
+        }
+        if (pieces.size() <= 1) {
+            this.window(text, block, kind, measured);
+            return;
+        }
+        for (Block piece : pieces) {
+            this.measure(text, piece, measured);
+        }
+    }
+
+    private static List<Block> lines(String text, Block block, Kind kind) {
+        List<Block> pieces = new ArrayList<>();
+        int start = block.start;
+        while (start < block.end) {
+            int lineEnd = text.indexOf('\n', start);
+            int end = lineEnd < 0 || lineEnd >= block.end ? block.end : lineEnd + 1;
+            pieces.add(new Block(start, end, kind, 0));
+            start = end;
+        }
+        return pieces;
+    }
+
+    private static List<Block> sentences(String text, Block block, Kind kind) {
+        List<Block> pieces = new ArrayList<>();
+        int start = block.start;
+        for (int i = block.start; i < block.end; i++) {
+            if (SENTENCE_TERMINATORS.indexOf(text.charAt(i)) >= 0) {
+                pieces.add(new Block(start, i + 1, kind, 0));
+                start = i + 1;
+            }
+        }
+        if (start < block.end) {
+            pieces.add(new Block(start, block.end, kind, 0));
+        }
+        return pieces;
+    }
+
+    /**
+     * 没有任何可用边界时，按平均每 token 字符数估算窗口大小，逐窗口计数，超出则缩小窗口
+     */
+    private void window(String text, Block block, Kind kind, List<Block> measured) {
+        double charsPerToken = (double) (block.end - block.start) / block.tokens;
+        int start = block.start;
+        while (start < block.end) {
+            int size = Math.max(1, (int) (this.chunkSize * charsPerToken));
+            while (true) {
+                int end = Math.min(block.end, start + size);
+                if (end < block.end && Character.isHighSurrogate(text.charAt(end - 1))) {
+                    end--;
+                }
+                Block piece = new Block(start, Math.max(end, start + 1), kind, 0);
+                piece.tokens = this.encoding.countTokensOrdinary(text.substring(piece.start, piece.end));
+                if (piece.tokens <= this.chunkSize || size == 1) {
+                    measured.add(piece);
+                    start = piece.end;
+                    break;
+                }
+                size = Math.max(1, size * this.chunkSize / piece.tokens - 1);
+            }
+        }
+    }
+
+    private <T> T invoke(ForkJoinTask<T> task) {
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread worker && worker.getPool() == this.pool) {
+            return task.invoke();
+        }
+        return this.pool.invoke(task);
+    }
+
+    public static class Builder {
+
+        private int chunkSize = 800;
+        private Integer chunkOverlap;
+        private Integer minChunkTokens;
+        private int headingLevel = 3;
+        private int minChunkLengthToEmbed = 5;
+        private int maxNumChunks = 10000;
+        private EncodingType encodingType = EncodingType.CL100K_BASE;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        private Builder() {
+        }
+
+        /**
+         * 分块的最大 token 数
+         */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * 相邻分块重叠的最大 token 数，按整块重叠，0 表示不重叠；默认 chunkSize 的 1/10
+         */
+        public Builder chunkOverlap(int chunkOverlap) {
+            this.chunkOverlap = chunkOverlap;
+            return this;
+        }
+
+        /**
+         * 分块达到该 token 数后，遇到标题才另起分块，避免短章节各自成块；默认 chunkSize 的 1/4
+         */
+        public Builder minChunkTokens(int minChunkTokens) {
+            this.minChunkTokens = minChunkTokens;
+            return this;
+        }
+
+        /**
+         * 作为章节边界的最深标题级别，0 表示不按标题切分
+         */
+        public Builder headingLevel(int headingLevel) {
+            this.headingLevel = headingLevel;
+            return this;
+        }
+
+        public Builder minChunkLengthToEmbed(int minChunkLengthToEmbed) {
+            this.minChunkLengthToEmbed = minChunkLengthToEmbed;
+            return this;
+        }
+
+        public Builder maxNumChunks(int maxNumChunks) {
+            this.maxNumChunks = maxNumChunks;
+            return this;
+        }
+
+        public Builder encodingType(EncodingType encodingType) {
+            this.encodingType = encodingType;
+            return this;
+        }
+
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public StructuredTextSplitter build() {
+            Assert.isTrue(this.chunkSize > 0, "chunkSize must be positive");
+            Assert.isTrue(this.chunkOverlap == null || this.chunkOverlap >= 0 && this.chunkOverlap < this.chunkSize, "chunkOverlap must be in [0, chunkSize)");
+            Assert.isTrue(this.minChunkTokens == null || this.minChunkTokens >= 0 && this.minChunkTokens <= this.chunkSize, "minChunkTokens must be in [0, chunkSize]");
+            Assert.isTrue(this.headingLevel >= 0 && this.headingLevel <= 6, "headingLevel must be in [0, 6]");
+            Assert.isTrue(this.maxNumChunks > 0, "maxNumChunks must be positive");
+            Assert.notNull(this.encodingType, "encodingType must not be null");
+            Assert.notNull(this.pool, "pool must not be null");
+            return new StructuredTextSplitter(this);
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package top.kangyaocoding.ai.domain.agent.service.singleflight;
+
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 描述: 请求合并（single-flight）；同一 key 的并发请求只执行一次上游调用，结果分发给所有等待者
+ * <p>
+ * 1. 同步调用：第一个请求在自己的线程上执行，其余请求阻塞等待同一结果或同一异常；
+ * 2. 流式调用：上游只订阅一次，分片经 replay 缓存，晚到的订阅者从第一个分片开始收到完整的流；
+ * 所有订阅者都取消时才取消上游，之后才订阅上的等待者改为用自己的上游发起新调用，不会再次订阅发起者已消费的上游；
+ * 3. 调用结束即移除 key（流式调用在终止或取消信号传给订阅者之前移除），之后到达的相同请求重新调用上游，
+ * 这里只合并进行中的请求，不是结果缓存。
+ * 等待者与发起者共享同一个结果对象，调用方不应修改它。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 11:20
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final Map<K, Stream> streams = new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = this.calls.putIfAbsent(key, flight);
+        if (existing != null) {
+            this.shared.increment();
+            return await(existing);
+        }
+        this.leaders.increment();
+        try {
+            V value = call.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.calls.remove(key, flight);
+        }
+    }
+
+    public Flux<V> stream(K key, Supplier<Flux<V>> upstream) {
+        return Flux.defer(() -> {
+            Stream created = new Stream(key, upstream);
+            while (true) {
+                Stream existing = this.streams.putIfAbsent(key, created);
+                if (existing == null) {
+                    this.leaders.increment();
+                    return created.flux;
+                }
+                if (!existing.finished) {
+                    this.shared.increment();
+                    return existing.flux.onErrorResume(Abandoned.class::isInstance, e -> this.stream(key, upstream));
+                }
+                // 已结束但尚未移除的调用视为不存在
+                this.streams.remove(key, existing);
+            }
+        });
+    }
+
+    /**
+     * 实际发起上游调用的请求数
+     */
+    public long getLeaders() {
+        return this.leaders.sum();
+    }
+
+    /**
+     * 合并到进行中调用上的请求数
+     */
+    public long getShared() {
+        return this.shared.sum();
+    }
+
+    public int getInFlight() {
+        return this.calls.size() + this.streams.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待合并请求结果时被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 只组装不订阅；remove 按实例比较，避免移除之后相同 key 的新调用。
+     * 上游只订阅一次：全部取消后 refCount 会重新连接，此时以 {@link Abandoned} 结束，由晚到的等待者自己重新发起
+     */
+    private final class Stream {
+        private final AtomicBoolean connected = new AtomicBoolean();
+        private final Flux<V> flux;
+        private volatile boolean finished;
+
+        private Stream(K key, Supplier<Flux<V>> upstream) {
+            this.flux = Flux.defer(() -> this.connected.compareAndSet(false, true) ? upstream.get() : Flux.<V>error(new Abandoned()))
+                    .doOnTerminate(() -> this.finish(key))
+                    .doOnCancel(() -> this.finish(key))
+                    .replay()
+                    .refCount(1);
+        }
+
+        private void finish(K key) {
+            this.finished = true;
+            SingleFlight.this.streams.remove(key, this);
+        }
+    }
+
+    private static final class Abandoned extends RuntimeException {
+        private Abandoned() {
+            super("合并的流式调用已被全部订阅者取消", null, false, false);
+        }
+    }
+
+}
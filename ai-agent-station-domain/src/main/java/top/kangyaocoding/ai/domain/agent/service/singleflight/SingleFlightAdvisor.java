@@ -0,0 +1,201 @@
+package top.kangyaocoding.ai.domain.agent.service.singleflight;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.content.MediaContent;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.core.Ordered;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import top.kangyaocoding.ai.domain.agent.service.observability.AgentObservationAdvisor;
+import top.kangyaocoding.ai.domain.agent.service.observability.PipelineObservations;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * 描述: 对话请求合并；同一智能体、模型、参数与规范化提示词的并发请求只走一次后续链路（检索、模型调用），结果分发给所有请求
+ * <p>
+ * 1. key 由 agent、模型参数、工具、工具上下文、请求上下文与各消息的类型和文本组成，文本规范化只折叠首尾与连续空白；
+ * 2. 带图片等媒体的消息、上下文或工具上下文中有无法稳定比较的值时不合并，直接走后续链路；
+ * 3. 同步与流式各自合并，流式的分片经 replay 分发，晚到的请求也从第一个分片开始收到；
+ * 4. 等待者收到的响应上下文以自己的请求上下文覆盖发起者的上下文。
+ * 默认顺序在链首，检索也只执行一次；观测、审计 Advisor 在其后，只记录实际发起的上游调用，合并数见 {@link SingleFlight#getShared()}。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 11:25
+ */
+public class SingleFlightAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final char SEPARATOR = '\u0001';
+
+    private final SingleFlight<String, ChatClientResponse> singleFlight;
+    private final String agent;
+    private final int order;
+
+    private SingleFlightAdvisor(SingleFlight<String, ChatClientResponse> singleFlight, String agent, int order) {
+        this.singleFlight = singleFlight;
+        this.agent = agent;
+        this.order = order;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        String key = this.key(request);
+        if (key == null) {
+            return chain.nextCall(request);
+        }
+        return withContext(this.singleFlight.execute(key, () -> chain.nextCall(request)), request);
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        String key = this.key(request);
+        if (key == null) {
+            return chain.nextStream(request);
+        }
+        return this.singleFlight.stream(key, () -> chain.nextStream(request))
+                .map(response -> withContext(response, request));
+    }
+
+    public SingleFlight<String, ChatClientResponse> getSingleFlight() {
+        return this.singleFlight;
+    }
+
+    /**
+     * @return 不可合并时为 null
+     */
+    private String key(ChatClientRequest request) {
+        Object agent = request.context().get(AgentObservationAdvisor.AGENT_ID);
+        StringBuilder key = new StringBuilder(256).append(agent != null ? agent : this.agent).append(SEPARATOR);
+
+        ChatOptions options = request.prompt().getOptions();
+        if (options != null) {
+            key.append(ModelOptionsUtils.toJsonString(options)).append(SEPARATOR);
+            if (options instanceof ToolCallingChatOptions toolOptions) {
+                if (toolOptions.getToolNames() != null) {
+                    key.append(new TreeSet<>(toolOptions.getToolNames()));
+                }
+                key.append(SEPARATOR);
+                if (toolOptions.getToolCallbacks() != null) {
+                    for (ToolCallback callback : toolOptions.getToolCallbacks()) {
+                        key.append(callback.getToolDefinition().name()).append(',');
+                    }
+                }
+                key.append(SEPARATOR);
+                if (!appendStable(key, toolOptions.getToolContext())) {
+                    return null;
+                }
+            }
+        }
+        if (!appendStable(key, request.context())) {
+            return null;
+        }
+        for (Message message : request.prompt().getInstructions()) {
+            if (message instanceof MediaContent mediaContent && !mediaContent.getMedia().isEmpty()) {
+                return null;
+            }
+            String text = message.getText();
+            key.append(SEPARATOR).append(message.getMessageType().getValue()).append(':')
+                    .append(text == null ? "" : WHITESPACE.matcher(text.strip()).replaceAll(" "));
+        }
+        return key.toString();
+    }
+
+    /**
+     * 按 key 排序追加；只接受字符串、数字、布尔、枚举及其集合，其余类型的 toString 不能代表取值
+     */
+    private static boolean appendStable(StringBuilder key, Map<String, Object> values) {
+        if (values == null || values.isEmpty()) {
+            key.append(SEPARATOR);
+            return true;
+        }
+        for (Map.Entry<String, Object> entry : new TreeMap<>(values).entrySet()) {
+            if (!stable(entry.getValue())) {
+                return false;
+            }
+            key.append(entry.getKey()).append('=').append(entry.getValue()).append(',');
+        }
+        key.append(SEPARATOR);
+        return true;
+    }
+
+    private static boolean stable(Object value) {
+        if (value == null || value instanceof CharSequence || value instanceof Number
+                || value instanceof Boolean || value instanceof Enum<?>) {
+            return true;
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.stream().allMatch(SingleFlightAdvisor::stable);
+        }
+        return false;
+    }
+
+    private static ChatClientResponse withContext(ChatClientResponse response, ChatClientRequest request) {
+        Map<String, Object> context = new HashMap<>(response.context());
+        context.putAll(request.context());
+        return response.mutate().context(context).build();
+    }
+
+    @Override
+    public String getName() {
+        return SingleFlightAdvisor.class.getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    public static class Builder {
+
+        private SingleFlight<String, ChatClientResponse> singleFlight = new SingleFlight<>();
+        private String agent = PipelineObservations.UNKNOWN;
+        private int order = Ordered.HIGHEST_PRECEDENCE + 1000;
+
+        private Builder() {
+        }
+
+        public Builder singleFlight(SingleFlight<String, ChatClientResponse> singleFlight) {
+            this.singleFlight = singleFlight;
+            return this;
+        }
+
+        /**
+         * 请求上下文中没有 {@link AgentObservationAdvisor#AGENT_ID} 时使用的 agent 名称
+         */
+        public Builder agent(String agent) {
+            this.agent = agent;
+            return this;
+        }
+
+        public Builder order(int order) {
+            this.order = order;
+            return this;
+        }
+
+        public SingleFlightAdvisor build() {
+            Assert.notNull(this.singleFlight, "SingleFlight must not be null");
+            Assert.hasText(this.agent, "agent must not be empty");
+            return new SingleFlightAdvisor(this.singleFlight, this.agent, this.order);
+        }
+    }
+
+}
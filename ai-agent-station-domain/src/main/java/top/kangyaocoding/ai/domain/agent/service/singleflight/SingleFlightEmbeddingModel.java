@@ -0,0 +1,66 @@
+package top.kangyaocoding.ai.domain.agent.service.singleflight;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.model.ModelOptionsUtils;
+
+/**
+ * 描述: 向量化请求合并；文本列表与模型参数都相同的并发请求只调用一次上游
+ * <p>
+ * 检索时的问题向量化（embed(String) 最终也经过 call）在热门问题并发时合并；
+ * 写入路径的 embed(Document) 各文档内容不同，直接透传。返回的向量数组被所有等待者共享，调用方不应原地修改。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 11:30
+ */
+public class SingleFlightEmbeddingModel implements EmbeddingModel {
+
+    private static final char SEPARATOR = '\u0001';
+
+    private final EmbeddingModel delegate;
+    private final SingleFlight<String, EmbeddingResponse> singleFlight;
+
+    public SingleFlightEmbeddingModel(EmbeddingModel delegate) {
+        this(delegate, new SingleFlight<>());
+    }
+
+    public SingleFlightEmbeddingModel(EmbeddingModel delegate, SingleFlight<String, EmbeddingResponse> singleFlight) {
+        this.delegate = delegate;
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return this.singleFlight.execute(key(request), () -> this.delegate.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return this.delegate.embed(document);
+    }
+
+    @Override
+    public int dimensions() {
+        return this.delegate.dimensions();
+    }
+
+    public SingleFlight<String, EmbeddingResponse> getSingleFlight() {
+        return this.singleFlight;
+    }
+
+    private static String key(EmbeddingRequest request) {
+        EmbeddingOptions options = request.getOptions();
+        StringBuilder key = new StringBuilder(128);
+        if (options != null) {
+            key.append(ModelOptionsUtils.toJsonString(options));
+        }
+        for (String instruction : request.getInstructions()) {
+            key.append(SEPARATOR).append(instruction);
+        }
+        return key.toString();
+    }
+
+}
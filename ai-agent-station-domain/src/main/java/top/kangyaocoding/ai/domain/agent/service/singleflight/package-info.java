@@ -0,0 +1,4 @@
+/**
+ * 请求合并；并发的相同对话与向量化请求只调用一次上游，结果或流式分片分发给所有请求
+ */
+package top.kangyaocoding.ai.domain.agent.service.singleflight;
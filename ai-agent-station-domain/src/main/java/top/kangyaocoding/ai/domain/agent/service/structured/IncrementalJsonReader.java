@@ -0,0 +1,285 @@
+package top.kangyaocoding.ai.domain.agent.service.structured;
+
+import java.math.BigDecimal;
+
+/**
+ * 描述: 增量 JSON 读取器；按分片推入模型输出，顶层对象的每个字段一结束就回调
+ * <p>
+ * 1. 逐字符推进状态机，只保留当前字段名与当前值两个可复用缓冲区，不回头重新解析已收到的文本；
+ * 2. 字符串、数字、true / false / null 解析为 Java 值；对象与数组按括号深度截取原始 JSON 文本，交给调用方一次性反序列化；
+ * 3. 第一个 '{' 之前与根对象结束之后的内容被忽略，模型输出的 ```json 代码块、前后说明文字不影响解析；
+ * 4. 转义序列（含 Unicode 转义）可以被切在任意两个分片之间；字符串中未转义的换行按原样接收。
+ * 非线程安全，一个实例对应一次补全。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 13:00
+ */
+public final class IncrementalJsonReader {
+
+    private static final int BEFORE_ROOT = 0;
+    private static final int KEY_OR_END = 1;
+    private static final int KEY = 2;
+    private static final int COLON = 3;
+    private static final int VALUE = 4;
+    private static final int STRING = 5;
+    private static final int LITERAL = 6;
+    private static final int COMPOSITE = 7;
+    private static final int COMMA_OR_END = 8;
+    private static final int DONE = 9;
+
+    private final Handler handler;
+    private final StringBuilder key = new StringBuilder(32);
+    private final StringBuilder value = new StringBuilder(256);
+    private int state = BEFORE_ROOT;
+    private long position;
+    private boolean escape;
+    private int unicodeDigits;
+    private int unicodeValue;
+    private int depth;
+    private boolean inNestedString;
+
+    public IncrementalJsonReader(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * 字段回调
+     */
+    @FunctionalInterface
+    public interface Handler {
+
+        /**
+         * @param name      顶层字段名
+         * @param value     composite 为 false 时是 String、Long、BigDecimal、Boolean 或 null；为 true 时是对象或数组的原始 JSON 文本
+         * @param composite 值是否为对象或数组
+         */
+        void field(String name, Object value, boolean composite);
+    }
+
+    public void feed(CharSequence chunk) {
+        int length = chunk.length();
+        int i = 0;
+        while (i < length && this.state != DONE) {
+            if ((this.state == STRING || this.state == KEY) && !this.escape && this.unicodeDigits == 0) {
+                // 字符串正文占补全的绝大部分，不含引号与反斜杠的连续片段整段复制
+                int run = i;
+                while (run < length) {
+                    char c = chunk.charAt(run);
+                    if (c == '"' || c == '\\') {
+                        break;
+                    }
+                    run++;
+                }
+                if (run > i) {
+                    (this.state == STRING ? this.value : this.key).append(chunk, i, run);
+                    this.position += run - i;
+                    i = run;
+                    continue;
+                }
+            }
+            this.accept(chunk.charAt(i));
+            this.position++;
+            i++;
+        }
+    }
+
+    /**
+     * 补全结束；根对象未闭合时抛出 {@link IllegalStateException}
+     */
+    public void end() {
+        if (this.state != DONE) {
+            throw new IllegalStateException(this.state == BEFORE_ROOT ? "结构化输出中没有 JSON 对象"
+                    : "结构化输出在第 " + this.position + " 个字符处中断，JSON 不完整");
+        }
+    }
+
+    public boolean isDone() {
+        return this.state == DONE;
+    }
+
+    private void accept(char c) {
+        switch (this.state) {
+            case BEFORE_ROOT -> {
+                if (c == '{') {
+                    this.state = KEY_OR_END;
+                }
+            }
+            case KEY_OR_END -> {
+                if (c == '"') {
+                    this.key.setLength(0);
+                    this.state = KEY;
+                } else if (c == '}') {
+                    this.state = DONE;
+                } else if (!isWhitespace(c)) {
+                    throw this.unexpected(c);
+                }
+            }
+            case KEY -> {
+                if (this.string(this.key, c)) {
+                    this.state = COLON;
+                }
+            }
+            case COLON -> {
+                if (c == ':') {
+                    this.state = VALUE;
+                } else if (!isWhitespace(c)) {
+                    throw this.unexpected(c);
+                }
+            }
+            case VALUE -> this.startValue(c);
+            case STRING -> {
+                if (this.string(this.value, c)) {
+                    this.emit(this.value.toString(), false);
+                }
+            }
+            case LITERAL -> {
+                if (c == ',' || c == '}' || isWhitespace(c)) {
+                    this.emit(this.literal(), false);
+                    this.accept(c);
+                } else {
+                    this.value.append(c);
+                }
+            }
+            case COMPOSITE -> this.nested(c);
+            case COMMA_OR_END -> {
+                if (c == ',') {
+                    this.state = KEY_OR_END;
+                } else if (c == '}') {
+                    this.state = DONE;
+                } else if (!isWhitespace(c)) {
+                    throw this.unexpected(c);
+                }
+            }
+            default -> {
+                // 根对象之后的内容忽略
+            }
+        }
+    }
+
+    private void startValue(char c) {
+        if (isWhitespace(c)) {
+            return;
+        }
+        this.value.setLength(0);
+        if (c == '"') {
+            this.state = STRING;
+        } else if (c == '{' || c == '[') {
+            this.value.append(c);
+            this.depth = 1;
+            this.inNestedString = false;
+            this.state = COMPOSITE;
+        } else if (c == '-' || (c >= '0' && c <= '9') || c == 't' || c == 'f' || c == 'n') {
+            this.value.append(c);
+            this.state = LITERAL;
+        } else {
+            throw this.unexpected(c);
+        }
+    }
+
+    /**
+     * 字符串内容追加到 target，遇到结束引号返回 true
+     */
+    private boolean string(StringBuilder target, char c) {
+        if (this.unicodeDigits > 0) {
+            int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                throw this.unexpected(c);
+            }
+            this.unicodeValue = (this.unicodeValue << 4) | digit;
+            if (--this.unicodeDigits == 0) {
+                target.append((char) this.unicodeValue);
+            }
+            return false;
+        }
+        if (this.escape) {
+            this.escape = false;
+            switch (c) {
+                case '"', '\\', '/' -> target.append(c);
+                case 'n' -> target.append('\n');
+                case 't' -> target.append('\t');
+                case 'r' -> target.append('\r');
+                case 'b' -> target.append('\b');
+                case 'f' -> target.append('\f');
+                case 'u' -> {
+                    this.unicodeDigits = 4;
+                    this.unicodeValue = 0;
+                }
+                default -> throw this.unexpected(c);
+            }
+            return false;
+        }
+        if (c == '\\') {
+            this.escape = true;
+            return false;
+        }
+        if (c == '"') {
+            return true;
+        }
+        target.append(c);
+        return false;
+    }
+
+    /**
+     * 对象或数组只跟踪括号深度与字符串边界，原样截取
+     */
+    private void nested(char c) {
+        this.value.append(c);
+        if (this.inNestedString) {
+            if (this.escape) {
+                this.escape = false;
+            } else if (c == '\\') {
+                this.escape = true;
+            } else if (c == '"') {
+                this.inNestedString = false;
+            }
+            return;
+        }
+        switch (c) {
+            case '"' -> this.inNestedString = true;
+            case '{', '[' -> this.depth++;
+            case '}', ']' -> {
+                if (--this.depth == 0) {
+                    this.emit(this.value.toString(), true);
+                }
+            }
+            default -> {
+                // 其余字符原样保留
+            }
+        }
+    }
+
+    private Object literal() {
+        String text = this.value.toString();
+        switch (text) {
+            case "true":
+                return Boolean.TRUE;
+            case "false":
+                return Boolean.FALSE;
+            case "null":
+                return null;
+            default:
+                try {
+                    if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0 && text.length() <= 18) {
+                        return Long.parseLong(text);
+                    }
+                    return new BigDecimal(text);
+                } catch (NumberFormatException e) {
+                    throw new IllegalStateException("结构化输出第 " + this.position + " 个字符处的值不合法: " + text);
+                }
+        }
+    }
+
+    private void emit(Object value, boolean composite) {
+        this.state = COMMA_OR_END;
+        this.handler.field(this.key.toString(), value, composite);
+    }
+
+    private IllegalStateException unexpected(char c) {
+        return new IllegalStateException("结构化输出第 " + this.position + " 个字符处不是合法的 JSON: '" + c + "'");
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+}
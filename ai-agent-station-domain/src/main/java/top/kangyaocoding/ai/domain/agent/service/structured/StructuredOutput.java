@@ -0,0 +1,178 @@
+package top.kangyaocoding.ai.domain.agent.service.structured;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描述: 流式结构化输出；消费 {@code Flux<ChatResponse>}，目标类型的字段一完整就以 {@link Value} 发出
+ * <p>
+ * 1. 每次订阅一个 {@link IncrementalJsonReader}，分片只扫描一遍；字段按目标类型（record 组件或字段声明）转换，未声明的字段保留原始值；
+ * 2. {@link #getFormat()} 在 {@link BeanOutputConverter} 的格式说明后追加字段顺序要求，让标题、标签、简述等短字段排在正文之前；
+ * 3. {@link #field(Flux, String, Class)} 取单个字段，下游步骤（如钉钉通知）可以在正文生成完之前开始；字段流需 share() 后多处订阅；
+ * 4. {@link #object(Flux)} 把已发出的字段组装成目标对象，与补全结束后一次性解析的结果相同。
+ * 补全结束时根对象未闭合，字段流以 {@link IllegalStateException} 结束；已经发出的字段不受影响。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 13:05
+ */
+public final class StructuredOutput<T> {
+
+    private final Class<T> type;
+    private final ObjectMapper objectMapper;
+    private final Map<String, JavaType> fieldTypes;
+    private final String format;
+
+    private StructuredOutput(Class<T> type, ObjectMapper objectMapper) {
+        this.type = type;
+        this.objectMapper = objectMapper;
+        this.fieldTypes = fieldTypes(type, objectMapper);
+        this.format = new BeanOutputConverter<>(type, objectMapper).getFormat()
+                + "\nOutput the JSON properties in this exact order: " + String.join(", ", this.fieldTypes.keySet()) + ".\n";
+    }
+
+    public static <T> StructuredOutput<T> of(Class<T> type) {
+        return of(type, new ObjectMapper());
+    }
+
+    public static <T> StructuredOutput<T> of(Class<T> type, ObjectMapper objectMapper) {
+        Assert.notNull(type, "type must not be null");
+        Assert.notNull(objectMapper, "objectMapper must not be null");
+        return new StructuredOutput<>(type, objectMapper);
+    }
+
+    /**
+     * 已完成的顶层字段；value 已按目标类型转换
+     */
+    public record Value(String name, Object value) {
+
+        public <V> V as(Class<V> type) {
+            return type.cast(this.value);
+        }
+    }
+
+    /**
+     * 追加到提示词中的输出格式说明
+     */
+    public String getFormat() {
+        return this.format;
+    }
+
+    public Flux<Value> fields(Flux<ChatResponse> responses) {
+        return this.contentFields(responses.mapNotNull(StructuredOutput::text));
+    }
+
+    /**
+     * 与 {@link #fields(Flux)} 相同，输入为 ChatClient stream().content() 的文本分片
+     */
+    public Flux<Value> contentFields(Flux<String> chunks) {
+        return Flux.defer(() -> {
+            Collector collector = new Collector();
+            IncrementalJsonReader reader = new IncrementalJsonReader(collector);
+            return chunks
+                    .mapNotNull(chunk -> {
+                        reader.feed(chunk);
+                        return collector.drain();
+                    })
+                    .concatMapIterable(values -> values)
+                    .concatWith(Mono.<Value>fromRunnable(reader::end));
+        });
+    }
+
+    /**
+     * 单个字段；补全中没有该字段或值为 null 时为空
+     */
+    public static <V> Mono<V> field(Flux<Value> fields, String name, Class<V> type) {
+        return fields.filter(value -> name.equals(value.name())).next().mapNotNull(value -> value.as(type));
+    }
+
+    public Mono<T> object(Flux<Value> fields) {
+        return fields.collect(LinkedHashMap<String, Object>::new, (map, value) -> map.put(value.name(), value.value()))
+                .map(map -> this.objectMapper.convertValue(map, this.type));
+    }
+
+    private Value convert(String name, Object value, boolean composite) {
+        JavaType fieldType = this.fieldTypes.get(name);
+        try {
+            if (composite) {
+                return new Value(name, this.objectMapper.readValue((String) value, fieldType != null ? fieldType
+                        : this.objectMapper.constructType(Object.class)));
+            }
+            if (fieldType == null || value == null || fieldType.getRawClass().isInstance(value)) {
+                return new Value(name, value);
+            }
+            return new Value(name, this.objectMapper.convertValue(value, fieldType));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new IllegalStateException("结构化输出字段 " + name + " 无法转换为 " + fieldType + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 收集一个分片内完成的字段；大多数分片不产生字段，返回 null 由 mapNotNull 直接丢弃，不经过 concatMapIterable 的队列
+     */
+    private final class Collector implements IncrementalJsonReader.Handler {
+        private List<Value> pending;
+
+        @Override
+        public void field(String name, Object value, boolean composite) {
+            if (this.pending == null) {
+                this.pending = new ArrayList<>(2);
+            }
+            this.pending.add(StructuredOutput.this.convert(name, value, composite));
+        }
+
+        private List<Value> drain() {
+            List<Value> values = this.pending;
+            this.pending = null;
+            return values;
+        }
+    }
+
+    private static String text(ChatResponse response) {
+        Generation generation = response.getResult();
+        return generation == null || generation.getOutput() == null ? null : generation.getOutput().getText();
+    }
+
+    private static Map<String, JavaType> fieldTypes(Class<?> type, ObjectMapper objectMapper) {
+        Map<String, JavaType> fieldTypes = new LinkedHashMap<>();
+        if (type.isRecord()) {
+            for (RecordComponent component : type.getRecordComponents()) {
+                JsonProperty property = component.getAnnotation(JsonProperty.class);
+                fieldTypes.put(property != null && !property.value().isEmpty() ? property.value() : component.getName(),
+                        objectMapper.constructType(component.getGenericType()));
+            }
+            return fieldTypes;
+        }
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+        for (Class<?> current : hierarchy) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                JsonProperty property = field.getAnnotation(JsonProperty.class);
+                fieldTypes.put(property != null && !property.value().isEmpty() ? property.value() : field.getName(),
+                        objectMapper.constructType(field.getGenericType()));
+            }
+        }
+        return fieldTypes;
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * 结构化输出；从流式补全中增量解析 JSON，字段一完整就交给下游，不必等整段补全结束
+ */
+package top.kangyaocoding.ai.domain.agent.service.structured;
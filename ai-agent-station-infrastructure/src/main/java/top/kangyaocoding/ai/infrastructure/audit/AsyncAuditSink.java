@@ -0,0 +1,215 @@
+package top.kangyaocoding.ai.infrastructure.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+import top.kangyaocoding.ai.domain.agent.service.audit.AuditRecord;
+import top.kangyaocoding.ai.domain.agent.service.audit.AuditSink;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 描述: 异步审计写入；调用线程只入队，单个写入线程批量落盘
+ * <p>
+ * 1. 入队使用 {@link AuditRingBuffer}，不加锁、不等待；
+ * 2. 队列占用超过 sampleWatermark 后按 sampleRate 抽样接收，其余计为 sampled；队列满时直接丢弃，计为 dropped；
+ * 3. 写入线程每次取出最多 batchSize 条写成一批；队列为空时最多休眠 flushInterval，有积压时不休眠；
+ * 4. 写入失败的批次记录日志并计为 failed，不重试，避免阻塞后续记录。
+ * close 时停止接收，等正在入队的调用结束后写完队列中剩余的记录再关闭文件；offer 返回 true 的记录都会被写入（或计为 failed）。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 23:30
+ */
+@Slf4j
+public class AsyncAuditSink implements AuditSink, AutoCloseable {
+
+    private final SegmentedAuditLog auditLog;
+    private final AuditRingBuffer<AuditRecord> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int sampleWatermark;
+    private final double sampleRate;
+    private final Thread writer;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /** 已通过 running 检查、尚未结束的 offer 调用数；close 等其归零后才让写入线程退出 */
+    private final AtomicInteger offering = new AtomicInteger();
+
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+
+    private AsyncAuditSink(Builder builder) {
+        this.auditLog = builder.auditLog;
+        this.buffer = new AuditRingBuffer<>(builder.capacity);
+        this.batchSize = builder.batchSize;
+        this.flushIntervalNanos = builder.flushInterval.toNanos();
+        this.sampleWatermark = builder.sampleWatermark >= 1 ? Integer.MAX_VALUE : (int) (builder.capacity * builder.sampleWatermark);
+        this.sampleRate = builder.sampleRate;
+        this.writer = new Thread(this::write, "audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static Builder builder(SegmentedAuditLog auditLog) {
+        return new Builder(auditLog);
+    }
+
+    @Override
+    public boolean offer(AuditRecord record) {
+        this.offering.incrementAndGet();
+        try {
+            if (!this.running) {
+                this.dropped.increment();
+                return false;
+            }
+            if (this.buffer.size() >= this.sampleWatermark && ThreadLocalRandom.current().nextDouble() >= this.sampleRate) {
+                this.sampled.increment();
+                return false;
+            }
+            if (!this.buffer.offer(record)) {
+                this.dropped.increment();
+                return false;
+            }
+            this.accepted.increment();
+            return true;
+        } finally {
+            this.offering.decrementAndGet();
+        }
+    }
+
+    private void write() {
+        List<AuditRecord> batch = new ArrayList<>(this.batchSize);
+        long idleNanos = TimeUnit.MICROSECONDS.toNanos(100);
+        while (true) {
+            boolean stopping = this.stopped;
+            if (this.buffer.drain(batch, this.batchSize) == 0) {
+                if (stopping) {
+                    return;
+                }
+                LockSupport.parkNanos(this, idleNanos);
+                idleNanos = Math.min(idleNanos * 2, this.flushIntervalNanos);
+                continue;
+            }
+            idleNanos = TimeUnit.MICROSECONDS.toNanos(100);
+            try {
+                this.auditLog.append(batch);
+                this.written.add(batch.size());
+            } catch (IOException | RuntimeException e) {
+                this.failed.add(batch.size());
+                log.warn("审计记录写入失败，丢弃 {} 条", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    public long getAccepted() {
+        return this.accepted.sum();
+    }
+
+    public long getSampled() {
+        return this.sampled.sum();
+    }
+
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    public long getWritten() {
+        return this.written.sum();
+    }
+
+    public long getFailed() {
+        return this.failed.sum();
+    }
+
+    public int getQueued() {
+        return this.buffer.size();
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        this.running = false;
+        // 先于 running=false 通过检查的调用可能仍在入队，入队不阻塞，很快结束
+        while (this.offering.get() != 0) {
+            Thread.onSpinWait();
+        }
+        this.stopped = true;
+        LockSupport.unpark(this.writer);
+        this.writer.join();
+        this.auditLog.close();
+        log.info("审计写入已关闭 接收:{} 写入:{} 抽样丢弃:{} 溢出丢弃:{} 失败:{}",
+                this.getAccepted(), this.getWritten(), this.getSampled(), this.getDropped(), this.getFailed());
+    }
+
+    public static class Builder {
+
+        private final SegmentedAuditLog auditLog;
+        private int capacity = 65536;
+        private int batchSize = 512;
+        private Duration flushInterval = Duration.ofMillis(200);
+        private double sampleWatermark = 0.75;
+        private double sampleRate = 0.1;
+
+        private Builder(SegmentedAuditLog auditLog) {
+            Assert.notNull(auditLog, "SegmentedAuditLog must not be null");
+            this.auditLog = auditLog;
+        }
+
+        /**
+         * 队列容量，必须是 2 的幂
+         */
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * 队列为空时写入线程的最长休眠时间，即低负载下记录落盘的最大延迟
+         */
+        public Builder flushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        /**
+         * 开始抽样的队列占用比例，1 表示不抽样，只在队列满时丢弃
+         */
+        public Builder sampleWatermark(double sampleWatermark) {
+            this.sampleWatermark = sampleWatermark;
+            return this;
+        }
+
+        public Builder sampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        public AsyncAuditSink build() {
+            Assert.isTrue(this.capacity >= 2 && Integer.bitCount(this.capacity) == 1, "capacity must be a power of two");
+            Assert.isTrue(this.batchSize > 0, "batchSize must be positive");
+            Assert.isTrue(this.flushInterval != null && this.flushInterval.toNanos() >= TimeUnit.MICROSECONDS.toNanos(100),
+                    "flushInterval must be at least 100us");
+            Assert.isTrue(this.sampleWatermark > 0 && this.sampleWatermark <= 1, "sampleWatermark must be in (0, 1]");
+            Assert.isTrue(this.sampleRate >= 0 && this.sampleRate <= 1, "sampleRate must be in [0, 1]");
+            return new AsyncAuditSink(this);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package top.kangyaocoding.ai.infrastructure.audit;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.io.SerializedString;
+import top.kangyaocoding.ai.domain.agent.service.audit.AuditRecord;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 描述: 审计记录的 JSON 序列化；按字段手写输出，Jackson 生成器直接写入目标流
+ * <p>
+ * 1. 字段名预先编码为 {@link SerializedString}，不做反射与属性查找；
+ * 2. 正文经生成器的缓冲分段编码后写出，不再为整条记录生成 String 与 byte[]，长补全不产生大对象；
+ * 3. 生成器缓冲取自 JsonFactory 的回收池，同一写入线程的各批次复用同一组缓冲；
+ * 4. 输出与原 fastjson 格式一致：每条记录一行，null 字段省略。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:45
+ */
+public final class AuditRecordJsonWriter {
+
+    private static final JsonFactory FACTORY = new JsonFactoryBuilder()
+            .rootValueSeparator((String) null)
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private static final SerializableString TIMESTAMP = new SerializedString("timestamp");
+    private static final SerializableString AGENT = new SerializedString("agent");
+    private static final SerializableString CONVERSATION_ID = new SerializedString("conversationId");
+    private static final SerializableString MODEL = new SerializedString("model");
+    private static final SerializableString MODE = new SerializedString("mode");
+    private static final SerializableString MESSAGES = new SerializedString("messages");
+    private static final SerializableString ROLE = new SerializedString("role");
+    private static final SerializableString TEXT = new SerializedString("text");
+    private static final SerializableString RESPONSE = new SerializedString("response");
+    private static final SerializableString PROMPT_TOKENS = new SerializedString("promptTokens");
+    private static final SerializableString COMPLETION_TOKENS = new SerializedString("completionTokens");
+    private static final SerializableString LATENCY_MILLIS = new SerializedString("latencyMillis");
+    private static final SerializableString ERROR = new SerializedString("error");
+
+    private AuditRecordJsonWriter() {
+    }
+
+    /**
+     * 逐条写入，每条后跟换行；不关闭 out
+     */
+    public static void write(List<AuditRecord> records, OutputStream out) throws IOException {
+        try (JsonGenerator generator = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            for (AuditRecord record : records) {
+                write(record, generator);
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private static void write(AuditRecord record, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(TIMESTAMP);
+        generator.writeNumber(record.timestamp());
+        writeString(generator, AGENT, record.agent());
+        writeString(generator, CONVERSATION_ID, record.conversationId());
+        writeString(generator, MODEL, record.model());
+        writeString(generator, MODE, record.mode());
+        if (record.messages() != null) {
+            generator.writeFieldName(MESSAGES);
+            generator.writeStartArray();
+            for (AuditRecord.Message message : record.messages()) {
+                generator.writeStartObject();
+                writeString(generator, ROLE, message.role());
+                writeString(generator, TEXT, message.text());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        writeString(generator, RESPONSE, record.response());
+        writeNumber(generator, PROMPT_TOKENS, record.promptTokens());
+        writeNumber(generator, COMPLETION_TOKENS, record.completionTokens());
+        generator.writeFieldName(LATENCY_MILLIS);
+        generator.writeNumber(record.latencyMillis());
+        writeString(generator, ERROR, record.error());
+        generator.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator generator, SerializableString name, String value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            generator.writeString(value);
+        }
+    }
+
+    private static void writeNumber(JsonGenerator generator, SerializableString name, Integer value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            generator.writeNumber(value);
+        }
+    }
+
+}
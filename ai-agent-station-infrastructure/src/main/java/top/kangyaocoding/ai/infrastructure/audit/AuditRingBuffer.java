@@ -0,0 +1,95 @@
+package top.kangyaocoding.ai.infrastructure.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 描述: 有界无锁环形队列，多生产者、单消费者
+ * <p>
+ * 每个槽位带一个序号：生产者 CAS 推进 tail 抢到槽位后写入元素，再把序号置为 pos + 1 发布；
+ * 消费者看到序号为 pos + 1 才读取，读完把序号置为 pos + capacity 归还给下一轮生产者。
+ * 队列满时 offer 立即返回 false，生产者从不等待。poll / drain 只允许一个线程调用。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 23:20
+ */
+class AuditRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    AuditRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    boolean offer(E element) {
+        long pos = this.tail.get();
+        while (true) {
+            int index = (int) (pos & this.mask);
+            long diff = this.sequences.get(index) - pos;
+            if (diff == 0) {
+                if (this.tail.compareAndSet(pos, pos + 1)) {
+                    this.elements.lazySet(index, element);
+                    this.sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+                pos = this.tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = this.tail.get();
+            }
+        }
+    }
+
+    E poll() {
+        long pos = this.head.get();
+        int index = (int) (pos & this.mask);
+        if (this.sequences.get(index) != pos + 1) {
+            return null;
+        }
+        E element = this.elements.get(index);
+        this.elements.lazySet(index, null);
+        this.sequences.lazySet(index, pos + this.capacity);
+        this.head.lazySet(pos + 1);
+        return element;
+    }
+
+    /**
+     * 取出最多 max 个元素追加到 target，返回取出的个数
+     */
+    int drain(List<E> target, int max) {
+        int count = 0;
+        for (E element; count < max && (element = this.poll()) != null; count++) {
+            target.add(element);
+        }
+        return count;
+    }
+
+    /**
+     * 近似长度，只用于过载判断
+     */
+    int size() {
+        return (int) Math.max(0, Math.min(this.capacity, this.tail.get() - this.head.get()));
+    }
+
+    int capacity() {
+        return this.capacity;
+    }
+
+}
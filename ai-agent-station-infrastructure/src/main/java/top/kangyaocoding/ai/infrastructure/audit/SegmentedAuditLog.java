@@ -0,0 +1,146 @@
+package top.kangyaocoding.ai.infrastructure.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+import top.kangyaocoding.ai.domain.agent.service.audit.AuditRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 描述: 只追加的分段审计文件，每行一条 JSON 记录
+ * <p>
+ * 1. 每批记录压缩成一个独立的 gzip member 追加到当前分段；多个 member 首尾相接仍是合法的 gzip 文件，zcat 可直接读取，
+ * 进程异常退出时最多丢失正在写的一批；
+ * 2. 当前分段压缩后超过 segmentBytes，或打开时间超过 segmentDuration 时滚动到新文件，旧文件不再改写；
+ * 3. 文件名 audit-yyyyMMdd-HHmmss-序号.jsonl.gz，按名称排序即写入顺序。
+ * 只由单个写入线程调用，不做并发控制。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 23:25
+ */
+@Slf4j
+public class SegmentedAuditLog implements AutoCloseable {
+
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long segmentNanos;
+    private final boolean sync;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256 * 1024);
+
+    private FileChannel channel;
+    private Path segment;
+    private long openedAt;
+    private int sequence;
+
+    private SegmentedAuditLog(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.segmentBytes = builder.segmentBytes;
+        this.segmentNanos = builder.segmentDuration.toNanos();
+        this.sync = builder.sync;
+        Files.createDirectories(this.directory);
+    }
+
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    public void append(List<AuditRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        this.buffer.reset();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(this.buffer, 64 * 1024)) {
+            AuditRecordJsonWriter.write(records, gzip);
+        }
+        FileChannel channel = this.channel();
+        // 直接写出缓冲区内部数组，不再复制
+        this.buffer.writeTo(Channels.newOutputStream(channel));
+        if (this.sync) {
+            channel.force(false);
+        }
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.channel != null) {
+            this.channel.force(false);
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (this.channel != null && (this.channel.size() >= this.segmentBytes || System.nanoTime() - this.openedAt >= this.segmentNanos)) {
+            this.close();
+            log.info("审计分段 {} 已滚动", this.segment.getFileName());
+        }
+        if (this.channel == null) {
+            String time = LocalDateTime.now().format(SEGMENT_TIME);
+            do {
+                this.segment = this.directory.resolve("audit-" + time + "-" + this.sequence++ + ".jsonl.gz");
+            } while (Files.exists(this.segment));
+            this.channel = FileChannel.open(this.segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            this.openedAt = System.nanoTime();
+        }
+        return this.channel;
+    }
+
+    public static class Builder {
+
+        private final Path directory;
+        private long segmentBytes = 64L * 1024 * 1024;
+        private Duration segmentDuration = Duration.ofHours(1);
+        private boolean sync;
+
+        private Builder(Path directory) {
+            Assert.notNull(directory, "directory must not be null");
+            this.directory = directory;
+        }
+
+        /**
+         * 单个分段压缩后的大小上限
+         */
+        public Builder segmentBytes(long segmentBytes) {
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        public Builder segmentDuration(Duration segmentDuration) {
+            this.segmentDuration = segmentDuration;
+            return this;
+        }
+
+        /**
+         * 每批写入后 fsync；默认只依赖操作系统刷盘
+         */
+        public Builder sync(boolean sync) {
+            this.sync = sync;
+            return this;
+        }
+
+        public SegmentedAuditLog build() throws IOException {
+            Assert.isTrue(this.segmentBytes > 0, "segmentBytes must be positive");
+            Assert.isTrue(this.segmentDuration != null && !this.segmentDuration.isNegative() && !this.segmentDuration.isZero(),
+                    "segmentDuration must be positive");
+            return new SegmentedAuditLog(this);
+        }
+    }
+
+}
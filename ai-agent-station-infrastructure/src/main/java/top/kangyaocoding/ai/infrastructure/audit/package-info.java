@@ -0,0 +1,4 @@
+/**
+ * 审计落盘；无锁环形队列缓冲，单线程批量写入 gzip 压缩的只追加分段文件
+ */
+package top.kangyaocoding.ai.infrastructure.audit;
@@ -0,0 +1,23 @@
+package top.kangyaocoding.ai.infrastructure.cache;
+
+/**
+ * 描述: 缓存区域名称；各区域的容量与过期在 cache.config.regions 下配置
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:15
+ */
+public final class CacheRegions {
+
+    /** 检索结果 */
+    public static final String RETRIEVAL = "retrieval";
+    /** 渲染后的提示词 */
+    public static final String PROMPT = "prompt";
+    /** 智能体配置 */
+    public static final String AGENT_CONFIG = "agent-config";
+    /** 工具调用结果 */
+    public static final String TOOL_RESULT = "tool-result";
+
+    private CacheRegions() {
+    }
+
+}
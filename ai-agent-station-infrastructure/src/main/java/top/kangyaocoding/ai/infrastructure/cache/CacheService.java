@@ -0,0 +1,209 @@
+package top.kangyaocoding.ai.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 缓存服务；持有各命名区域，并在区域之间共用一个 Redis 失效频道
+ * <p>
+ * 1. 失效消息为 节点ID、区域、key，节点忽略自己发出的消息；整个区域失效时 key 位置为分隔符加区域的新代号；
+ * 2. 没有 RedissonClient 时所有区域只用近端缓存，行为与单机缓存相同；
+ * 3. 订阅在后台线程进行，创建服务不等待 Redis 连接；订阅失败（如启动时 Redis 不可用）只记录告警，之后取区域时每 30 秒在后台重试一次；
+ * 未订阅期间其他节点的修改要等近端过期后才可见。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:25
+ */
+@Slf4j
+public class CacheService implements AutoCloseable {
+
+    private static final String SEPARATOR = "\u0001";
+    private static final long RESUBSCRIBE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Map<String, TieredCache> regions = new LinkedHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString();
+    private final RTopic topic;
+    private volatile Integer listenerId;
+    private volatile long nextSubscribe;
+    private volatile boolean closed;
+
+    private CacheService(Builder builder) {
+        this.topic = builder.redisson == null ? null
+                : builder.redisson.getTopic(builder.keyPrefix + ":invalidate", StringCodec.INSTANCE);
+        for (CacheSpec spec : builder.specs) {
+            this.regions.put(spec.name(), new TieredCache(spec, builder.redisson, builder.objectMapper, builder.keyPrefix,
+                    builder.lockWait, builder.lockLease, key -> this.publish(spec.name(), key)));
+        }
+        this.nextSubscribe = System.nanoTime();
+        this.subscribeInBackground();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public TieredCache region(String name) {
+        this.subscribeInBackground();
+        TieredCache region = this.regions.get(name);
+        if (region == null) {
+            throw new IllegalArgumentException("未配置的缓存区域: " + name + "，已配置: " + this.regions.keySet());
+        }
+        return region;
+    }
+
+    public Collection<TieredCache> getRegions() {
+        return Collections.unmodifiableCollection(this.regions.values());
+    }
+
+    public boolean isRemote() {
+        return this.topic != null;
+    }
+
+    /**
+     * @return 是否已订阅失效频道
+     */
+    public boolean isSubscribed() {
+        return this.listenerId != null;
+    }
+
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        if (this.listenerId != null) {
+            try {
+                this.topic.removeListener(this.listenerId);
+            } catch (RuntimeException e) {
+                log.warn("取消订阅缓存失效频道失败 error:{}", e.getMessage());
+            }
+            this.listenerId = null;
+        }
+    }
+
+    private void subscribeInBackground() {
+        if (this.topic != null && this.listenerId == null && !this.closed && System.nanoTime() - this.nextSubscribe >= 0) {
+            // 连接 Redis 可能耗时到连接超时，不在调用线程上订阅
+            this.nextSubscribe = System.nanoTime() + RESUBSCRIBE_NANOS;
+            CompletableFuture.runAsync(this::subscribe);
+        }
+    }
+
+    private synchronized void subscribe() {
+        if (this.topic == null || this.listenerId != null || this.closed) {
+            return;
+        }
+        try {
+            this.listenerId = this.topic.addListener(String.class, (channel, message) -> this.onInvalidation(message));
+        } catch (RuntimeException e) {
+            this.nextSubscribe = System.nanoTime() + RESUBSCRIBE_NANOS;
+            log.warn("订阅缓存失效频道失败，{} 秒后重试 error:{}", TimeUnit.NANOSECONDS.toSeconds(RESUBSCRIBE_NANOS), e.getMessage());
+        }
+    }
+
+    private void publish(String region, String key) {
+        if (this.topic == null) {
+            return;
+        }
+        try {
+            String target = key == null ? SEPARATOR + this.regions.get(region).getGeneration() : key;
+            this.topic.publish(this.nodeId + SEPARATOR + region + SEPARATOR + target);
+        } catch (RuntimeException e) {
+            log.warn("缓存 {} 失效广播失败 key:{} error:{}", region, key, e.getMessage());
+        }
+    }
+
+    private void onInvalidation(String message) {
+        String[] parts = message.split(SEPARATOR, 3);
+        if (parts.length != 3 || this.nodeId.equals(parts[0])) {
+            return;
+        }
+        TieredCache region = this.regions.get(parts[1]);
+        if (region == null) {
+            return;
+        }
+        if (parts[2].startsWith(SEPARATOR)) {
+            region.evictAll(Long.parseLong(parts[2].substring(SEPARATOR.length())));
+        } else {
+            region.evictNear(parts[2]);
+        }
+    }
+
+    public static class Builder {
+
+        private RedissonClient redisson;
+        private ObjectMapper objectMapper = new ObjectMapper();
+        private String keyPrefix = "agent:cache";
+        private Duration lockWait = Duration.ofSeconds(3);
+        private Duration lockLease = Duration.ofSeconds(30);
+        private final List<CacheSpec> specs = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * 为 null 时只用近端缓存
+         */
+        public Builder redisson(RedissonClient redisson) {
+            this.redisson = redisson;
+            return this;
+        }
+
+        /**
+         * 值写入 Redis 时的 JSON 序列化
+         */
+        public Builder objectMapper(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+            return this;
+        }
+
+        public Builder keyPrefix(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+            return this;
+        }
+
+        /**
+         * 跨节点加载锁的等待时长，超时后不等其他节点直接加载
+         */
+        public Builder lockWait(Duration lockWait) {
+            this.lockWait = lockWait;
+            return this;
+        }
+
+        /**
+         * 跨节点加载锁的租期，持锁节点宕机时锁在租期后释放
+         */
+        public Builder lockLease(Duration lockLease) {
+            this.lockLease = lockLease;
+            return this;
+        }
+
+        public Builder region(CacheSpec spec) {
+            this.specs.add(spec);
+            return this;
+        }
+
+        public CacheService build() {
+            Assert.notNull(this.objectMapper, "objectMapper must not be null");
+            Assert.hasText(this.keyPrefix, "keyPrefix must not be empty");
+            Assert.isTrue(this.lockWait != null && !this.lockWait.isNegative(), "lockWait must not be negative");
+            Assert.isTrue(this.lockLease != null && !this.lockLease.isNegative() && !this.lockLease.isZero(), "lockLease must be positive");
+            Assert.isTrue(this.specs.stream().map(CacheSpec::name).distinct().count() == this.specs.size(), "region names must be unique");
+            return new CacheService(this);
+        }
+    }
+
+}
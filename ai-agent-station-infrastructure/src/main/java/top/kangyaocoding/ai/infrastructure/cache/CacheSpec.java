@@ -0,0 +1,31 @@
+package top.kangyaocoding.ai.infrastructure.cache;
+
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+
+/**
+ * 描述: 缓存区域的配置
+ *
+ * @param maximumSize 近端缓存的最大条数，超出按最近最少使用淘汰
+ * @param nearTtl     近端缓存的过期时间，也是丢失失效消息时近端数据的最长陈旧时间
+ * @param remoteTtl   Redis 中的过期时间，为 0 时该区域只用近端缓存
+ * @param expiry      近端缓存按写入还是按访问计算过期
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:15
+ */
+public record CacheSpec(String name, long maximumSize, Duration nearTtl, Duration remoteTtl, Expiry expiry) {
+
+    public enum Expiry {
+        AFTER_WRITE, AFTER_ACCESS
+    }
+
+    public CacheSpec {
+        Assert.hasText(name, "name must not be empty");
+        Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+        Assert.isTrue(nearTtl != null && !nearTtl.isNegative() && !nearTtl.isZero(), "nearTtl must be positive");
+        Assert.isTrue(remoteTtl != null && !remoteTtl.isNegative(), "remoteTtl must not be negative");
+        Assert.notNull(expiry, "expiry must not be null");
+    }
+
+}
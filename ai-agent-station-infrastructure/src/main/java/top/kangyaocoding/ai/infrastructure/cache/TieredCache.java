@@ -0,0 +1,432 @@
+package top.kangyaocoding.ai.infrastructure.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.RemovalCause;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 描述: 一个缓存区域；近端 Guava 缓存 + Redis，值在 Redis 中以 JSON 保存
+ * <p>
+ * 1. 读取顺序：近端 → Redis → 加载函数，加载结果写回两级；
+ * 2. 防击穿：同一节点内同一 key 只有一个线程加载（Guava 按 key 加锁），跨节点再以 Redis 锁串行，拿到锁后重新检查 Redis；
+ * 等锁超时则直接加载，不无限阻塞；
+ * 3. put / invalidate 写 Redis 后广播失效，其他节点丢弃近端副本；
+ * 4. 整个区域失效不扫描删除 key：两级缓存的 key 都带区域的代号，invalidateAll 以 Redis INCR 推进代号并广播，旧代的值不再可达，
+ * 在 Redis 中按 remoteTtl 过期；其他节点收到广播时跟进代号，未收到广播（如未订阅）时最多 1 秒后从 Redis 读到新代号；
+ * 5. 加载前记下代号，加载期间区域失效（代号已变）时不写回 Redis，早于失效开始的加载不会在失效后写入旧结果；
+ * 6. Redis 异常时记录错误并在一段时间内只用近端缓存与加载函数，缓存故障不影响请求；此时 invalidateAll 无法推进代号，只清空近端；
+ * 7. 加载函数返回 null 时不缓存。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:20
+ */
+@Slf4j
+public class TieredCache {
+
+    /** Redis 异常后跳过 Redis 的时长 */
+    private static final long REMOTE_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+    /** 从 Redis 同步区域代号的间隔，兜底未收到的失效广播 */
+    private static final long GENERATION_SYNC_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final CacheSpec spec;
+    private final Cache<String, Object> near;
+    private final RedissonClient redisson;
+    private final ObjectMapper objectMapper;
+    private final String keyPrefix;
+    private final String lockPrefix;
+    private final String generationKey;
+    private final Duration lockWait;
+    private final Duration lockLease;
+    private final Consumer<String> invalidation;
+
+    private final LongAdder nearHits = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder expiredEvictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder remoteErrors = new LongAdder();
+    private volatile long remoteBackoffUntil;
+    /** 区域代号；有 Redis 时跟随 Redis 计数器，只增不减 */
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long generationSyncedAt;
+
+    /**
+     * @param redisson     为 null 或区域的 remoteTtl 为 0 时只用近端缓存
+     * @param invalidation 广播失效，参数为 key，整个区域失效时为 null（广播中带上 {@link #getGeneration()}）
+     */
+    TieredCache(CacheSpec spec, RedissonClient redisson, ObjectMapper objectMapper, String keyPrefix,
+                Duration lockWait, Duration lockLease, Consumer<String> invalidation) {
+        this.spec = spec;
+        this.redisson = spec.remoteTtl().isZero() ? null : redisson;
+        this.objectMapper = objectMapper;
+        this.keyPrefix = keyPrefix + ":" + spec.name() + ":";
+        this.lockPrefix = keyPrefix + ":lock:" + spec.name() + ":";
+        this.generationKey = keyPrefix + ":generation:" + spec.name();
+        this.lockWait = lockWait;
+        this.lockLease = lockLease;
+        this.invalidation = invalidation;
+        this.remoteBackoffUntil = System.nanoTime();
+        this.generationSyncedAt = System.nanoTime() - GENERATION_SYNC_NANOS;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(spec.maximumSize());
+        if (spec.expiry() == CacheSpec.Expiry.AFTER_ACCESS) {
+            builder.expireAfterAccess(spec.nearTtl());
+        } else {
+            builder.expireAfterWrite(spec.nearTtl());
+        }
+        this.near = builder.<String, Object>removalListener(notification -> {
+            if (notification.getCause() == RemovalCause.SIZE) {
+                this.sizeEvictions.increment();
+            } else if (notification.getCause() == RemovalCause.EXPIRED) {
+                this.expiredEvictions.increment();
+            }
+        }).build();
+    }
+
+    public <V> V get(String key, Class<V> type, Supplier<V> loader) {
+        return this.get(key, this.objectMapper.constructType(type), loader);
+    }
+
+    public <V> V get(String key, TypeReference<V> type, Supplier<V> loader) {
+        return this.get(key, this.objectMapper.constructType(type), loader);
+    }
+
+    /**
+     * 只查缓存，不加载
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V getIfPresent(String key, Class<V> type) {
+        String versioned = this.versioned(this.generation(), key);
+        Object value = this.near.getIfPresent(versioned);
+        if (value != null) {
+            this.nearHits.increment();
+            return (V) value;
+        }
+        V remote = this.remoteGet(versioned, this.objectMapper.constructType(type));
+        if (remote == null) {
+            this.misses.increment();
+            return null;
+        }
+        this.remoteHits.increment();
+        this.near.put(versioned, remote);
+        return remote;
+    }
+
+    public void put(String key, Object value) {
+        String versioned = this.versioned(this.generation(), key);
+        this.near.put(versioned, value);
+        this.remoteSet(versioned, value);
+        this.invalidation.accept(key);
+    }
+
+    public void invalidate(String key) {
+        String versioned = this.versioned(this.generation(), key);
+        this.near.invalidate(versioned);
+        if (this.remoteAvailable()) {
+            try {
+                this.redisson.getBucket(this.keyPrefix + versioned, StringCodec.INSTANCE).delete();
+            } catch (RuntimeException e) {
+                this.remoteFailed("delete", key, e);
+            }
+        }
+        this.invalidation.accept(key);
+    }
+
+    /**
+     * 推进区域代号后广播，不扫描 Redis
+     */
+    public void invalidateAll() {
+        if (this.redisson == null) {
+            this.generation.incrementAndGet();
+        } else if (this.remoteAvailable()) {
+            try {
+                this.advance(this.redisson.getAtomicLong(this.generationKey).incrementAndGet());
+            } catch (RuntimeException e) {
+                this.remoteFailed("incr", this.generationKey, e);
+            }
+        }
+        this.near.invalidateAll();
+        this.invalidation.accept(null);
+    }
+
+    /**
+     * 收到其他节点的失效广播，只丢弃近端副本
+     */
+    void evictNear(String key) {
+        this.near.invalidate(this.versioned(this.generation.get(), key));
+        this.invalidations.increment();
+    }
+
+    /**
+     * 收到其他节点整个区域失效的广播，跟进代号并清空近端
+     */
+    void evictAll(long generation) {
+        this.advance(generation);
+        this.near.invalidateAll();
+        this.invalidations.increment();
+    }
+
+    public String getName() {
+        return this.spec.name();
+    }
+
+    public CacheSpec getSpec() {
+        return this.spec;
+    }
+
+    public boolean isRemote() {
+        return this.redisson != null;
+    }
+
+    public long getSize() {
+        return this.near.size();
+    }
+
+    public long getNearHits() {
+        return this.nearHits.sum();
+    }
+
+    public long getRemoteHits() {
+        return this.remoteHits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public long getLoadFailures() {
+        return this.loadFailures.sum();
+    }
+
+    public long getSizeEvictions() {
+        return this.sizeEvictions.sum();
+    }
+
+    public long getExpiredEvictions() {
+        return this.expiredEvictions.sum();
+    }
+
+    public long getInvalidations() {
+        return this.invalidations.sum();
+    }
+
+    public long getRemoteErrors() {
+        return this.remoteErrors.sum();
+    }
+
+    public long getGeneration() {
+        return this.generation.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V get(String key, JavaType type, Supplier<V> loader) {
+        long generation = this.generation();
+        String versioned = this.versioned(generation, key);
+        Object value = this.near.getIfPresent(versioned);
+        if (value != null) {
+            this.nearHits.increment();
+            return (V) value;
+        }
+        boolean[] loaded = new boolean[1];
+        try {
+            // 加载期间区域失效时结果只进入旧代的近端 key，不再可达
+            value = this.near.get(versioned, () -> {
+                loaded[0] = true;
+                return this.loadThrough(generation, versioned, type, loader);
+            });
+        } catch (CacheLoader.InvalidCacheLoadException e) {
+            // 加载函数返回 null
+            return null;
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        if (!loaded[0]) {
+            // 等到了同节点其他线程的加载结果
+            this.nearHits.increment();
+        }
+        return (V) value;
+    }
+
+    /**
+     * @param key 带代号的 key
+     */
+    private <V> V loadThrough(long generation, String key, JavaType type, Supplier<V> loader) {
+        V cached = this.remoteGet(key, type);
+        if (cached != null) {
+            this.remoteHits.increment();
+            return cached;
+        }
+        RLock lock = this.tryLock(key);
+        try {
+            if (lock != null && (cached = this.remoteGet(key, type)) != null) {
+                // 其他节点在等锁期间已加载
+                this.remoteHits.increment();
+                return cached;
+            }
+            this.misses.increment();
+            V value;
+            try {
+                value = loader.get();
+            } catch (RuntimeException | Error e) {
+                this.loadFailures.increment();
+                throw e;
+            }
+            if (value != null && this.syncGeneration() == generation) {
+                this.remoteSet(key, value);
+            } else if (value != null) {
+                log.debug("缓存 {} 加载期间区域已失效，不写回 key:{}", this.spec.name(), key);
+            }
+            return value;
+        } finally {
+            if (lock != null) {
+                this.unlock(lock);
+            }
+        }
+    }
+
+    private <V> V remoteGet(String key, JavaType type) {
+        if (!this.remoteAvailable()) {
+            return null;
+        }
+        String json;
+        try {
+            json = this.redisson.<String>getBucket(this.keyPrefix + key, StringCodec.INSTANCE).get();
+        } catch (RuntimeException e) {
+            this.remoteFailed("get", key, e);
+            return null;
+        }
+        if (json == null) {
+            return null;
+        }
+        try {
+            return this.objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            // 值类型变化后的旧数据，当作未命中，加载后覆盖
+            log.warn("缓存 {} 反序列化失败 key:{} type:{}", this.spec.name(), key, type, e);
+            return null;
+        }
+    }
+
+    private void remoteSet(String key, Object value) {
+        if (!this.remoteAvailable()) {
+            return;
+        }
+        String json;
+        try {
+            json = this.objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            log.warn("缓存 {} 序列化失败，只写近端 key:{} type:{}", this.spec.name(), key, value.getClass().getName(), e);
+            return;
+        }
+        try {
+            this.redisson.getBucket(this.keyPrefix + key, StringCodec.INSTANCE).set(json, this.spec.remoteTtl());
+        } catch (RuntimeException e) {
+            this.remoteFailed("set", key, e);
+        }
+    }
+
+    /**
+     * @return 拿到的锁；Redis 不可用或等锁超时为 null
+     */
+    private RLock tryLock(String key) {
+        if (!this.remoteAvailable()) {
+            return null;
+        }
+        RLock lock = this.redisson.getLock(this.lockPrefix + key);
+        try {
+            if (lock.tryLock(this.lockWait.toMillis(), this.lockLease.toMillis(), TimeUnit.MILLISECONDS)) {
+                return lock;
+            }
+            log.warn("缓存 {} 等待加载锁超时，直接加载 key:{}", this.spec.name(), key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            this.remoteFailed("lock", key, e);
+        }
+        return null;
+    }
+
+    private void unlock(RLock lock) {
+        try {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        } catch (RuntimeException e) {
+            // 锁会在租期后自动释放
+            this.remoteFailed("unlock", lock.getName(), e);
+        }
+    }
+
+    private String versioned(long generation, String key) {
+        return generation + ":" + key;
+    }
+
+    /**
+     * 当前代号；距上次同步超过 {@link #GENERATION_SYNC_NANOS} 时先从 Redis 同步
+     */
+    private long generation() {
+        if (this.redisson != null && System.nanoTime() - this.generationSyncedAt >= GENERATION_SYNC_NANOS) {
+            return this.syncGeneration();
+        }
+        return this.generation.get();
+    }
+
+    /**
+     * 从 Redis 读取代号；Redis 不可用时返回本地代号
+     */
+    private long syncGeneration() {
+        if (!this.remoteAvailable()) {
+            return this.generation.get();
+        }
+        try {
+            long remote = this.redisson.getAtomicLong(this.generationKey).get();
+            this.generationSyncedAt = System.nanoTime();
+            return this.advance(remote);
+        } catch (RuntimeException e) {
+            this.remoteFailed("get", this.generationKey, e);
+            return this.generation.get();
+        }
+    }
+
+    private long advance(long generation) {
+        return this.generation.accumulateAndGet(generation, Math::max);
+    }
+
+    private boolean remoteAvailable() {
+        return this.redisson != null && System.nanoTime() - this.remoteBackoffUntil >= 0;
+    }
+
+    private void remoteFailed(String operation, String key, RuntimeException e) {
+        this.remoteErrors.increment();
+        this.remoteBackoffUntil = System.nanoTime() + REMOTE_BACKOFF_NANOS;
+        log.warn("缓存 {} Redis {} 失败，{} 秒内只用近端缓存 key:{} error:{}", this.spec.name(), operation,
+                TimeUnit.NANOSECONDS.toSeconds(REMOTE_BACKOFF_NANOS), key, e.getMessage());
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * 二级缓存；进程内近端缓存在前、Redis 在后，按区域配置容量与过期，跨节点经 pub/sub 失效
+ */
+package top.kangyaocoding.ai.infrastructure.cache;
@@ -0,0 +1,88 @@
+package top.kangyaocoding.ai.infrastructure.datasource;
+
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 描述: 连接池配置位置校验；放错层级的配置不会绑定到任何连接池，也不会报错，这里在启动时直接失败
+ * <p>
+ * 1. spring.hikari.* 应为 spring.datasource.hikari.*；
+ * 2. spring.type 应为 spring.datasource.type；
+ * 3. spring.datasource 下直接出现的 Hikari 属性（如 maximum-pool-size）应放到 spring.datasource.hikari 下。
+ * 按松散绑定规则比较，同时检查 yml、启动参数与环境变量。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 09:15
+ */
+public final class DataSourcePropertiesValidator {
+
+    private static final String HIKARI = "spring.hikari.";
+    private static final String TYPE = "spring.type";
+    private static final String DATASOURCE = "spring.datasource.";
+    private static final String DATASOURCE_HIKARI = "spring.datasource.hikari.";
+
+    /** Hikari 独有、不会被 spring.datasource 本身绑定的属性，已去掉连字符并转小写 */
+    private static final Set<String> HIKARI_PROPERTIES = Set.of(
+            "poolname", "minimumidle", "maximumpoolsize", "idletimeout", "maxlifetime", "connectiontimeout",
+            "validationtimeout", "keepalivetime", "leakdetectionthreshold", "autocommit", "readonly",
+            "connectiontestquery", "connectioninitsql", "initializationfailtimeout", "isolatecontainerqueries",
+            "transactionisolation", "datasourceproperties");
+
+    private DataSourcePropertiesValidator() {
+    }
+
+    public static void validate(ConfigurableEnvironment environment) {
+        List<String> misplaced = new ArrayList<>();
+        for (PropertySource<?> source : environment.getPropertySources()) {
+            if (!(source instanceof EnumerablePropertySource<?> enumerable)) {
+                continue;
+            }
+            boolean systemEnvironment = StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME.equals(source.getName());
+            for (String name : enumerable.getPropertyNames()) {
+                String expected = expected(canonical(name, systemEnvironment));
+                if (expected != null) {
+                    misplaced.add(name + " [" + source.getName() + "] 应为 " + expected);
+                }
+            }
+        }
+        if (!misplaced.isEmpty()) {
+            throw new IllegalStateException("连接池配置位置错误，以下配置不会生效：\n  " + String.join("\n  ", misplaced));
+        }
+    }
+
+    /**
+     * 错误位置对应的正确写法，位置正确时返回 null
+     */
+    static String expected(String name) {
+        if (name.startsWith(HIKARI)) {
+            return DATASOURCE_HIKARI + name.substring(HIKARI.length());
+        }
+        if (name.equals(TYPE)) {
+            return DATASOURCE + "type";
+        }
+        if (name.startsWith(DATASOURCE)) {
+            String property = name.substring(DATASOURCE.length());
+            int dot = property.indexOf('.');
+            String head = dot < 0 ? property : property.substring(0, dot);
+            if (HIKARI_PROPERTIES.contains(head.replace("-", ""))
+                    || HIKARI_PROPERTIES.contains(property.replace(".", "").replace("-", ""))) {
+                return DATASOURCE_HIKARI + property;
+            }
+        }
+        return null;
+    }
+
+    private static String canonical(String name, boolean systemEnvironment) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        // 环境变量 SPRING_HIKARI_MAXIMUM_POOL_SIZE 按段名比较，段内下划线与连字符一样忽略
+        return systemEnvironment ? lower.replace('_', '.') : lower.replace("_", "");
+    }
+
+}
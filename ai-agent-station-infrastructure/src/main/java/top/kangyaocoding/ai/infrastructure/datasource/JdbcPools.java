@@ -0,0 +1,214 @@
+package top.kangyaocoding.ai.infrastructure.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 描述: 按用途创建的命名 Hikari 连接池
+ * <p>
+ * 1. 每个池有独立的 poolName 与容量，批量写入占满自己的池时不影响在线检索拿连接；
+ * 2. 按驱动设置预编译语句缓存：PostgreSQL 为 prepareThreshold / preparedStatementCacheQueries / preparedStatementCacheSizeMiB，
+ * MySQL 为 cachePrepStmts / prepStmtCacheSize / useServerPrepStmts；reWriteBatchedInserts 把 batchUpdate 合并成多值 INSERT；
+ * 3. statementTimeout 在连接级别设置语句超时，慢查询不会长期占住检索连接；
+ * 4. 传入 MeterRegistry 时以 hikaricp.* 指标暴露，pool 标签为池名。
+ * 连接在第一次取用时才建立，不拖慢启动。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 09:10
+ */
+public final class JdbcPools {
+
+    private static final String POSTGRESQL = "jdbc:postgresql:";
+    private static final String MYSQL = "jdbc:mysql:";
+
+    private JdbcPools() {
+    }
+
+    public static Builder builder(String name, String url) {
+        return new Builder(name, url);
+    }
+
+    public static class Builder {
+
+        private final String name;
+        private final String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maximumPoolSize = 10;
+        private Integer minimumIdle;
+        private Duration connectionTimeout = Duration.ofSeconds(30);
+        private Duration idleTimeout = Duration.ofMinutes(10);
+        private Duration maxLifetime = Duration.ofMinutes(30);
+        private boolean readOnly;
+        private Duration statementTimeout;
+        private int prepareThreshold = 5;
+        private int preparedStatementCacheQueries = 256;
+        private int preparedStatementCacheSizeMiB = 5;
+        private boolean reWriteBatchedInserts;
+        private final Map<String, String> dataSourceProperties = new LinkedHashMap<>();
+        private MeterRegistry meterRegistry;
+
+        private Builder(String name, String url) {
+            Assert.hasText(name, "name must not be empty");
+            Assert.hasText(url, "url must not be empty");
+            this.name = name;
+            this.url = url;
+        }
+
+        public Builder username(String username) {
+            this.username = username;
+            return this;
+        }
+
+        public Builder password(String password) {
+            this.password = password;
+            return this;
+        }
+
+        public Builder driverClassName(String driverClassName) {
+            this.driverClassName = driverClassName;
+            return this;
+        }
+
+        public Builder maximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+            return this;
+        }
+
+        /**
+         * 最小空闲连接数，默认等于 maximumPoolSize，即固定大小的池
+         */
+        public Builder minimumIdle(Integer minimumIdle) {
+            this.minimumIdle = minimumIdle;
+            return this;
+        }
+
+        public Builder connectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+            return this;
+        }
+
+        public Builder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        public Builder maxLifetime(Duration maxLifetime) {
+            this.maxLifetime = maxLifetime;
+            return this;
+        }
+
+        public Builder readOnly(boolean readOnly) {
+            this.readOnly = readOnly;
+            return this;
+        }
+
+        /**
+         * 连接级语句超时，null 表示不限制
+         */
+        public Builder statementTimeout(Duration statementTimeout) {
+            this.statementTimeout = statementTimeout;
+            return this;
+        }
+
+        /**
+         * 同一条 SQL 执行多少次后转为服务端预编译，0 表示不使用服务端预编译
+         */
+        public Builder prepareThreshold(int prepareThreshold) {
+            this.prepareThreshold = prepareThreshold;
+            return this;
+        }
+
+        public Builder preparedStatementCacheQueries(int preparedStatementCacheQueries) {
+            this.preparedStatementCacheQueries = preparedStatementCacheQueries;
+            return this;
+        }
+
+        public Builder preparedStatementCacheSizeMiB(int preparedStatementCacheSizeMiB) {
+            this.preparedStatementCacheSizeMiB = preparedStatementCacheSizeMiB;
+            return this;
+        }
+
+        public Builder reWriteBatchedInserts(boolean reWriteBatchedInserts) {
+            this.reWriteBatchedInserts = reWriteBatchedInserts;
+            return this;
+        }
+
+        /**
+         * 额外的驱动参数，覆盖按驱动推导出的同名参数
+         */
+        public Builder dataSourceProperties(Map<String, String> dataSourceProperties) {
+            if (dataSourceProperties != null) {
+                this.dataSourceProperties.putAll(dataSourceProperties);
+            }
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public HikariDataSource build() {
+            Assert.isTrue(this.maximumPoolSize > 0, "maximumPoolSize must be positive");
+            Assert.isTrue(this.minimumIdle == null || (this.minimumIdle >= 0 && this.minimumIdle <= this.maximumPoolSize),
+                    "minimumIdle must be in [0, maximumPoolSize]");
+            Assert.isTrue(this.prepareThreshold >= 0, "prepareThreshold must not be negative");
+            Assert.isTrue(this.preparedStatementCacheQueries >= 0, "preparedStatementCacheQueries must not be negative");
+            Assert.isTrue(this.preparedStatementCacheSizeMiB >= 0, "preparedStatementCacheSizeMiB must not be negative");
+
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(this.name);
+            dataSource.setJdbcUrl(this.url);
+            dataSource.setUsername(this.username);
+            dataSource.setPassword(this.password);
+            if (this.driverClassName != null) {
+                dataSource.setDriverClassName(this.driverClassName);
+            }
+            dataSource.setMaximumPoolSize(this.maximumPoolSize);
+            dataSource.setMinimumIdle(this.minimumIdle != null ? this.minimumIdle : this.maximumPoolSize);
+            dataSource.setConnectionTimeout(this.connectionTimeout.toMillis());
+            dataSource.setIdleTimeout(this.idleTimeout.toMillis());
+            dataSource.setMaxLifetime(this.maxLifetime.toMillis());
+            dataSource.setReadOnly(this.readOnly);
+            this.driverProperties().forEach(dataSource::addDataSourceProperty);
+            if (this.meterRegistry != null) {
+                dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(this.meterRegistry));
+            }
+            return dataSource;
+        }
+
+        private Map<String, String> driverProperties() {
+            Map<String, String> properties = new LinkedHashMap<>();
+            if (this.url.startsWith(POSTGRESQL)) {
+                properties.put("prepareThreshold", String.valueOf(this.prepareThreshold));
+                properties.put("preparedStatementCacheQueries", String.valueOf(this.preparedStatementCacheQueries));
+                properties.put("preparedStatementCacheSizeMiB", String.valueOf(this.preparedStatementCacheSizeMiB));
+                properties.put("reWriteBatchedInserts", String.valueOf(this.reWriteBatchedInserts));
+                properties.put("ApplicationName", this.name);
+                if (this.statementTimeout != null) {
+                    properties.put("options", "-c statement_timeout=" + this.statementTimeout.toMillis());
+                }
+            } else if (this.url.startsWith(MYSQL)) {
+                properties.put("cachePrepStmts", String.valueOf(this.preparedStatementCacheQueries > 0));
+                properties.put("prepStmtCacheSize", String.valueOf(this.preparedStatementCacheQueries));
+                properties.put("prepStmtCacheSqlLimit", "2048");
+                properties.put("useServerPrepStmts", String.valueOf(this.prepareThreshold > 0));
+                properties.put("rewriteBatchedStatements", String.valueOf(this.reWriteBatchedInserts));
+                if (this.statementTimeout != null) {
+                    properties.put("sessionVariables", "max_execution_time=" + this.statementTimeout.toMillis());
+                }
+            }
+            properties.putAll(this.dataSourceProperties);
+            return properties;
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * 数据访问连接池；按用途拆分的命名 Hikari 连接池、预编译语句缓存与连接池配置校验
+ */
+package top.kangyaocoding.ai.infrastructure.datasource;
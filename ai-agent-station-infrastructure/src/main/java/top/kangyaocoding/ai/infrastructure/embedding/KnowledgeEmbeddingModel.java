@@ -0,0 +1,299 @@
+package top.kangyaocoding.ai.infrastructure.embedding;
+
+import io.micrometer.context.ThreadLocalAccessor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 描述: 按知识库选择向量模型；未配置的知识库使用默认（远程）模型
+ * <p>
+ * 1. 写入：文档按 metadata 中的知识库分组，各组交给对应模型批量向量化，结果按原顺序返回；
+ * 2. 检索：问题文本本身不带知识库，由 {@link #withKnowledge(String, Supplier)} 在检索期间绑定到当前线程，
+ * {@code KnowledgeRoutingVectorStore} 在过滤条件限定为单个知识库时绑定；不限定或跨多个知识库的检索由它按 {@link #select} 拆分，
+ * 每组知识库在各自模型的绑定下检索，未绑定时使用默认模型；
+ * 3. 构建时校验本地模型的输出维度与 pgvector 的 dimensions 一致，不一致时拒绝启动，避免写入时才报列维度错误；
+ * 4. {@link #withModel(EmbeddingModel, Supplier)} 在当前线程内以指定模型替代全部路由，供启动预热以进程内桩模型走真实检索链路；
+ * 5. 两个线程绑定经 {@link KnowledgeAccessor}、{@link OverrideAccessor} 注册到 context-propagation，
+ * 以 ContextSnapshot 包装的线程池（如并行检索）在工作线程上沿用提交线程的绑定。
+ * 同一知识库的写入与检索必须使用同一模型；切换知识库的模型后需重新导入该知识库。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 13:35
+ */
+@Slf4j
+public class KnowledgeEmbeddingModel implements EmbeddingModel, DisposableBean {
+
+    private static final ThreadLocal<String> KNOWLEDGE = new ThreadLocal<>();
+    private static final ThreadLocal<EmbeddingModel> OVERRIDE = new ThreadLocal<>();
+
+    private final EmbeddingModel defaultModel;
+    private final String knowledgeKey;
+    private final Map<String, EmbeddingModel> models;
+
+    private KnowledgeEmbeddingModel(Builder builder) {
+        this.defaultModel = builder.defaultModel;
+        this.knowledgeKey = builder.knowledgeKey;
+        this.models = Map.copyOf(builder.models);
+    }
+
+    public static Builder builder(EmbeddingModel defaultModel) {
+        return new Builder(defaultModel);
+    }
+
+    /**
+     * 在 action 执行期间把当前线程的检索绑定到 knowledge；可嵌套，结束后恢复外层绑定
+     */
+    public static <T> T withKnowledge(String knowledge, Supplier<T> action) {
+        String previous = KNOWLEDGE.get();
+        KNOWLEDGE.set(knowledge);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                KNOWLEDGE.remove();
+            } else {
+                KNOWLEDGE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 在 action 执行期间当前线程的向量化全部交给 model，不经过知识库路由；可嵌套，结束后恢复外层绑定
+     */
+    public static <T> T withModel(EmbeddingModel model, Supplier<T> action) {
+        Assert.notNull(model, "model must not be null");
+        EmbeddingModel previous = OVERRIDE.get();
+        OVERRIDE.set(model);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                OVERRIDE.remove();
+            } else {
+                OVERRIDE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前线程是否处于 {@link #withModel} 范围内
+     */
+    public static boolean isOverridden() {
+        return OVERRIDE.get() != null;
+    }
+
+    /**
+     * 当前线程的向量化是否按知识库选择模型；未配置本地模型或处于 withModel 范围内时所有知识库共用一个模型
+     */
+    public boolean isRouted() {
+        return !this.models.isEmpty() && OVERRIDE.get() == null;
+    }
+
+    public EmbeddingModel select(String knowledge) {
+        if (knowledge == null) {
+            return this.defaultModel;
+        }
+        return this.models.getOrDefault(knowledge, this.defaultModel);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return this.route(KNOWLEDGE.get()).call(request);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return this.route(this.knowledgeOf(document)).embed(document);
+    }
+
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+        EmbeddingModel override = OVERRIDE.get();
+        if (override != null) {
+            return override.embed(documents, options, batchingStrategy);
+        }
+        if (this.models.isEmpty()) {
+            return this.defaultModel.embed(documents, options, batchingStrategy);
+        }
+        Map<EmbeddingModel, List<Integer>> groups = new IdentityHashMap<>();
+        for (int i = 0; i < documents.size(); i++) {
+            groups.computeIfAbsent(this.select(this.knowledgeOf(documents.get(i))), model -> new ArrayList<>()).add(i);
+        }
+        if (groups.size() == 1) {
+            return groups.keySet().iterator().next().embed(documents, options, batchingStrategy);
+        }
+        float[][] embeddings = new float[documents.size()][];
+        for (Map.Entry<EmbeddingModel, List<Integer>> group : groups.entrySet()) {
+            List<Integer> indexes = group.getValue();
+            List<Document> groupDocuments = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                groupDocuments.add(documents.get(index));
+            }
+            List<float[]> groupEmbeddings = group.getKey().embed(groupDocuments, options, batchingStrategy);
+            for (int i = 0; i < indexes.size(); i++) {
+                embeddings[indexes.get(i)] = groupEmbeddings.get(i);
+            }
+        }
+        return List.of(embeddings);
+    }
+
+    @Override
+    public int dimensions() {
+        return this.defaultModel.dimensions();
+    }
+
+    public Set<String> getKnowledges() {
+        return this.models.keySet();
+    }
+
+    /**
+     * 关闭本地模型；默认模型由其自身的 bean 管理
+     */
+    @Override
+    public void destroy() throws Exception {
+        for (EmbeddingModel model : Set.copyOf(this.models.values())) {
+            if (model instanceof AutoCloseable closeable && model != this.defaultModel) {
+                closeable.close();
+            }
+        }
+    }
+
+    private EmbeddingModel route(String knowledge) {
+        EmbeddingModel override = OVERRIDE.get();
+        return override != null ? override : this.select(knowledge);
+    }
+
+    private String knowledgeOf(Document document) {
+        Object knowledge = document.getMetadata().get(this.knowledgeKey);
+        return knowledge == null ? null : knowledge.toString();
+    }
+
+    /**
+     * {@link #withKnowledge} 绑定的知识库，经 ServiceLoader 注册
+     */
+    public static final class KnowledgeAccessor implements ThreadLocalAccessor<String> {
+
+        public static final String KEY = "agent.embedding.knowledge";
+
+        @Override
+        public Object key() {
+            return KEY;
+        }
+
+        @Override
+        public String getValue() {
+            return KNOWLEDGE.get();
+        }
+
+        @Override
+        public void setValue(String value) {
+            KNOWLEDGE.set(value);
+        }
+
+        @Override
+        public void setValue() {
+            KNOWLEDGE.remove();
+        }
+    }
+
+    /**
+     * {@link #withModel} 绑定的替代模型，经 ServiceLoader 注册
+     */
+    public static final class OverrideAccessor implements ThreadLocalAccessor<EmbeddingModel> {
+
+        public static final String KEY = "agent.embedding.override";
+
+        @Override
+        public Object key() {
+            return KEY;
+        }
+
+        @Override
+        public EmbeddingModel getValue() {
+            return OVERRIDE.get();
+        }
+
+        @Override
+        public void setValue(EmbeddingModel value) {
+            OVERRIDE.set(value);
+        }
+
+        @Override
+        public void setValue() {
+            OVERRIDE.remove();
+        }
+    }
+
+    public static class Builder {
+
+        private final EmbeddingModel defaultModel;
+        private String knowledgeKey = "knowledge";
+        private final Map<String, EmbeddingModel> models = new LinkedHashMap<>();
+        private Integer dimensions;
+
+        private Builder(EmbeddingModel defaultModel) {
+            Assert.notNull(defaultModel, "defaultModel must not be null");
+            this.defaultModel = defaultModel;
+        }
+
+        /**
+         * 文档 metadata 中标识知识库的 key
+         */
+        public Builder knowledgeKey(String knowledgeKey) {
+            this.knowledgeKey = knowledgeKey;
+            return this;
+        }
+
+        public Builder knowledge(String knowledge, EmbeddingModel model) {
+            Assert.hasText(knowledge, "knowledge must not be empty");
+            Assert.notNull(model, "model must not be null");
+            this.models.put(knowledge, model);
+            return this;
+        }
+
+        /**
+         * 向量列维度（spring.ai.vectorstore.pgvector.dimensions）；设置后校验各知识库模型的输出维度
+         */
+        public Builder dimensions(Integer dimensions) {
+            this.dimensions = dimensions;
+            return this;
+        }
+
+        public KnowledgeEmbeddingModel build() {
+            Assert.hasText(this.knowledgeKey, "knowledgeKey must not be empty");
+            if (this.dimensions != null && this.dimensions > 0) {
+                for (Map.Entry<String, EmbeddingModel> entry : this.models.entrySet()) {
+                    int actual = entry.getValue().dimensions();
+                    if (actual != this.dimensions) {
+                        throw new IllegalStateException("知识库 " + entry.getKey() + " 的向量模型输出 " + actual
+                                + " 维，与 pgvector 向量列的 " + this.dimensions + " 维不一致；"
+                                + "请换用同维度的模型，或调整 spring.ai.vectorstore.pgvector.dimensions 并重建向量表");
+                    }
+                }
+            }
+            KnowledgeEmbeddingModel model = new KnowledgeEmbeddingModel(this);
+            if (!this.models.isEmpty()) {
+                log.info("知识库向量模型 {}", this.models.entrySet().stream()
+                        .map(entry -> entry.getKey() + "=" + (entry.getValue() instanceof OnnxEmbeddingModel onnx
+                                ? onnx.getName() : entry.getValue().getClass().getSimpleName())).toList());
+            }
+            return model;
+        }
+    }
+
+}
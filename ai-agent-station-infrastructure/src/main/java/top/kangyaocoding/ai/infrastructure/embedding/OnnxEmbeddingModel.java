@@ -0,0 +1,561 @@
+package top.kangyaocoding.ai.infrastructure.embedding;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述: 本地 ONNX 句向量模型；在 CPU 上运行小型 sentence-embedding 模型（bge-small-zh、all-MiniLM 等），不经过网络
+ * <p>
+ * 1. 会话池：每个工作线程独占一个单线程的 OrtSession 与一组直接内存输入缓冲区，会话只在所属线程上运行，线程之间不争用算子线程池；
+ * 2. 批量推理：每次调用把自己的文本按 token 数排序后入队，工作线程一次取出最多 maxBatchSize 条、按批内最长序列补齐后推理；
+ * 并发的检索请求会被合并成批，导入时同一次调用的大批文档长短相近的落在同一批，补齐浪费少。
+ * 队列按到达顺序出队，不跨调用按长度重排，持续负载下长文本也不会一直排在后面；
+ * 3. 分词复用：{@link WordPieceTokenizer} 的结果按文本缓存，热门问题与重复导入的分块不再分词；
+ * 4. 输出为 [batch, seq, dim] 时按 attention mask 取均值或取 [CLS]，为 [batch, dim] 时直接使用；默认做 L2 归一化；
+ * 5. 调用方最多等待 timeout，超时后撤回尚未推理的文本；推理中的任何异常（包括 Error）都交给这一批的调用方，工作线程继续运行。
+ * 请求中的 EmbeddingOptions 被忽略，维度由模型决定，启动时试跑一次得到。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 13:25
+ */
+@Slf4j
+public class OnnxEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    public enum Pooling {
+        /** 按 attention mask 对所有 token 取均值，all-MiniLM、text2vec 等 */
+        MEAN,
+        /** 取 [CLS] 位置，bge 系列 */
+        CLS
+    }
+
+    private static final long POLL_MILLIS = 100;
+
+    private final String name;
+    private final WordPieceTokenizer tokenizer;
+    private final int maxSequenceLength;
+    private final int maxBatchSize;
+    private final Pooling pooling;
+    private final boolean normalize;
+    private final long timeoutNanos;
+    private final Cache<String, int[]> tokenCache;
+    private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private final List<Worker> workers = new ArrayList<>();
+    private final int dimensions;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder texts = new LongAdder();
+    private final LongAdder tokenCacheHits = new LongAdder();
+    private final LongAdder tokenCacheMisses = new LongAdder();
+    private volatile boolean closed;
+
+    private OnnxEmbeddingModel(Builder builder, WordPieceTokenizer tokenizer) throws OrtException {
+        this.name = builder.name;
+        this.tokenizer = tokenizer;
+        this.maxSequenceLength = builder.maxSequenceLength;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.pooling = builder.pooling;
+        this.normalize = builder.normalize;
+        this.timeoutNanos = builder.timeout.toNanos();
+        this.tokenCache = builder.tokenCacheSize > 0
+                ? CacheBuilder.newBuilder().maximumSize(builder.tokenCacheSize).build() : null;
+        OrtEnvironment environment = OrtEnvironment.getEnvironment();
+        try {
+            for (int i = 0; i < builder.sessions; i++) {
+                this.workers.add(new Worker(environment, builder, i));
+            }
+            // 工作线程启动前在当前线程试跑一次，确定输出维度
+            Task probe = new Task(this.tokenizer.encode("dimension probe", this.maxSequenceLength), new Call(1), 0);
+            this.workers.get(0).run(List.of(probe));
+            if (probe.call.error != null) {
+                throw new IllegalStateException("ONNX 模型试跑失败: " + probe.call.error.getMessage(), probe.call.error);
+            }
+            this.dimensions = probe.call.results[0].length;
+        } catch (OrtException | RuntimeException e) {
+            this.workers.forEach(Worker::closeSession);
+            throw e;
+        }
+        for (Worker worker : this.workers) {
+            worker.thread.start();
+        }
+        log.info("ONNX 向量模型 {} 已加载 path:{} sessions:{} dimensions:{}", this.name, builder.modelPath,
+                builder.sessions, this.dimensions);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> instructions = request.getInstructions();
+        if (instructions.isEmpty()) {
+            return new EmbeddingResponse(List.of(), new EmbeddingResponseMetadata(this.name, new DefaultUsage(0, 0)));
+        }
+        Call call = new Call(instructions.size());
+        Task[] tasks = new Task[instructions.size()];
+        int tokens = 0;
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task(this.tokenize(instructions.get(i)), call, i);
+            tokens += tasks[i].ids.length;
+        }
+        // 按长度入队，同一批中的序列长度接近
+        Arrays.sort(tasks, Comparator.comparingInt(task -> task.ids.length));
+        if (this.closed) {
+            throw new IllegalStateException("ONNX 向量模型 " + this.name + " 已关闭");
+        }
+        this.queue.addAll(Arrays.asList(tasks));
+        this.texts.add(tasks.length);
+        if (this.closed) {
+            // 与 close() 并发时，入队的任务可能已经没有线程处理
+            this.failPending();
+        }
+        try {
+            if (!call.latch.await(this.timeoutNanos, TimeUnit.NANOSECONDS)) {
+                this.queue.removeIf(task -> task.call == call);
+                throw new IllegalStateException("ONNX 向量模型 " + this.name + " 推理超时 queue:" + this.queue.size());
+            }
+        } catch (InterruptedException e) {
+            this.queue.removeIf(task -> task.call == call);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待 ONNX 推理时被中断", e);
+        }
+        if (call.error != null) {
+            throw new IllegalStateException("ONNX 推理失败: " + call.error.getMessage(), call.error);
+        }
+        List<Embedding> embeddings = new ArrayList<>(tasks.length);
+        for (int i = 0; i < call.results.length; i++) {
+            embeddings.add(new Embedding(call.results[i], i));
+        }
+        return new EmbeddingResponse(embeddings, new EmbeddingResponseMetadata(this.name, new DefaultUsage(tokens, 0)));
+    }
+
+    /**
+     * 与批量写入（默认的 embed(List&lt;Document&gt;, ...)）一致，只向量化正文
+     */
+    @Override
+    public float[] embed(Document document) {
+        return this.embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return this.dimensions;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getBatches() {
+        return this.batches.sum();
+    }
+
+    public long getTexts() {
+        return this.texts.sum();
+    }
+
+    public long getTokenCacheHits() {
+        return this.tokenCacheHits.sum();
+    }
+
+    public long getTokenCacheMisses() {
+        return this.tokenCacheMisses.sum();
+    }
+
+    public int getQueueDepth() {
+        return this.queue.size();
+    }
+
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        for (Worker worker : this.workers) {
+            worker.thread.interrupt();
+        }
+        for (Worker worker : this.workers) {
+            try {
+                worker.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker.closeSession();
+        }
+        this.failPending();
+    }
+
+    private void failPending() {
+        IllegalStateException closed = new IllegalStateException("ONNX 向量模型 " + this.name + " 已关闭");
+        for (Task task = this.queue.poll(); task != null; task = this.queue.poll()) {
+            task.call.fail(closed);
+        }
+    }
+
+    private int[] tokenize(String text) {
+        if (this.tokenCache == null) {
+            return this.tokenizer.encode(text, this.maxSequenceLength);
+        }
+        int[] ids = this.tokenCache.getIfPresent(text);
+        if (ids != null) {
+            this.tokenCacheHits.increment();
+            return ids;
+        }
+        this.tokenCacheMisses.increment();
+        ids = this.tokenizer.encode(text, this.maxSequenceLength);
+        this.tokenCache.put(text, ids);
+        return ids;
+    }
+
+    /**
+     * 一次 call 的全部文本；每条文本完成时计数减一
+     */
+    private static final class Call {
+        private final float[][] results;
+        private final CountDownLatch latch;
+        private volatile Throwable error;
+
+        private Call(int size) {
+            this.results = new float[size][];
+            this.latch = new CountDownLatch(size);
+        }
+
+        private void fail(Throwable error) {
+            this.error = error;
+            this.latch.countDown();
+        }
+    }
+
+    private record Task(int[] ids, Call call, int index) {
+    }
+
+    /**
+     * 工作线程；会话与输入缓冲区只在本线程上使用
+     */
+    private final class Worker implements Runnable {
+        private final OrtEnvironment environment;
+        private final OrtSession.SessionOptions options;
+        private final OrtSession session;
+        private final String outputName;
+        private final boolean tokenTypes;
+        private final LongBuffer inputIds;
+        private final LongBuffer attentionMask;
+        private final LongBuffer tokenTypeIds;
+        private final List<Task> batch;
+        private final Thread thread;
+
+        private Worker(OrtEnvironment environment, Builder builder, int index) throws OrtException {
+            this.environment = environment;
+            this.options = new OrtSession.SessionOptions();
+            this.options.setIntraOpNumThreads(1);
+            this.options.setInterOpNumThreads(1);
+            this.options.setExecutionMode(OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL);
+            this.options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            try {
+                this.session = environment.createSession(builder.modelPath.toString(), this.options);
+            } catch (OrtException e) {
+                this.options.close();
+                throw e;
+            }
+            this.outputName = builder.outputName != null ? builder.outputName : this.session.getOutputNames().iterator().next();
+            this.tokenTypes = this.session.getInputNames().contains("token_type_ids");
+            int capacity = builder.maxBatchSize * builder.maxSequenceLength;
+            this.inputIds = directLongBuffer(capacity);
+            this.attentionMask = directLongBuffer(capacity);
+            this.tokenTypeIds = this.tokenTypes ? directLongBuffer(capacity) : null;
+            this.batch = new ArrayList<>(builder.maxBatchSize);
+            this.thread = new Thread(this, "onnx-embedding-" + builder.name + "-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!OnnxEmbeddingModel.this.closed) {
+                Task first;
+                try {
+                    first = OnnxEmbeddingModel.this.queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (first == null) {
+                    continue;
+                }
+                this.batch.add(first);
+                OnnxEmbeddingModel.this.queue.drainTo(this.batch, OnnxEmbeddingModel.this.maxBatchSize - 1);
+                this.run(this.batch);
+                this.batch.clear();
+            }
+        }
+
+        private void run(List<Task> tasks) {
+            try {
+                this.infer(tasks);
+                OnnxEmbeddingModel.this.batches.increment();
+            } catch (Throwable e) {
+                // Error 同样要唤醒调用方，否则它们一直等到超时
+                log.warn("ONNX 向量模型 {} 推理失败 batch:{} error:{}", OnnxEmbeddingModel.this.name, tasks.size(), e.toString());
+                for (Task task : tasks) {
+                    task.call.fail(e);
+                }
+            }
+        }
+
+        private void infer(List<Task> tasks) throws OrtException {
+            int size = tasks.size();
+            int length = 0;
+            for (Task task : tasks) {
+                length = Math.max(length, task.ids.length);
+            }
+            int pad = OnnxEmbeddingModel.this.tokenizer.getPadId();
+            this.inputIds.clear();
+            this.attentionMask.clear();
+            if (this.tokenTypeIds != null) {
+                this.tokenTypeIds.clear();
+            }
+            for (Task task : tasks) {
+                int[] ids = task.ids;
+                for (int i = 0; i < length; i++) {
+                    boolean token = i < ids.length;
+                    this.inputIds.put(token ? ids[i] : pad);
+                    this.attentionMask.put(token ? 1L : 0L);
+                    if (this.tokenTypeIds != null) {
+                        this.tokenTypeIds.put(0L);
+                    }
+                }
+            }
+            this.inputIds.flip();
+            this.attentionMask.flip();
+            long[] shape = {size, length};
+            Map<String, OnnxTensor> inputs = new HashMap<>(4);
+            try {
+                inputs.put("input_ids", OnnxTensor.createTensor(this.environment, this.inputIds, shape));
+                inputs.put("attention_mask", OnnxTensor.createTensor(this.environment, this.attentionMask, shape));
+                if (this.tokenTypeIds != null) {
+                    this.tokenTypeIds.flip();
+                    inputs.put("token_type_ids", OnnxTensor.createTensor(this.environment, this.tokenTypeIds, shape));
+                }
+                try (OrtSession.Result result = this.session.run(inputs, Set.of(this.outputName))) {
+                    OnnxTensor output = (OnnxTensor) result.get(0);
+                    this.complete(tasks, output.getFloatBuffer(), output.getInfo().getShape(), length);
+                }
+            } finally {
+                inputs.values().forEach(OnnxTensor::close);
+            }
+        }
+
+        private void complete(List<Task> tasks, FloatBuffer values, long[] shape, int length) {
+            boolean pooled = shape.length == 2;
+            int dimensions = (int) shape[shape.length - 1];
+            for (int t = 0; t < tasks.size(); t++) {
+                Task task = tasks.get(t);
+                float[] vector = new float[dimensions];
+                if (pooled) {
+                    values.get(t * dimensions, vector);
+                } else if (OnnxEmbeddingModel.this.pooling == Pooling.CLS) {
+                    values.get(t * length * dimensions, vector);
+                } else {
+                    int offset = t * length * dimensions;
+                    int tokens = task.ids.length;
+                    for (int i = 0; i < tokens; i++) {
+                        int row = offset + i * dimensions;
+                        for (int d = 0; d < dimensions; d++) {
+                            vector[d] += values.get(row + d);
+                        }
+                    }
+                    for (int d = 0; d < dimensions; d++) {
+                        vector[d] /= tokens;
+                    }
+                }
+                if (OnnxEmbeddingModel.this.normalize) {
+                    normalize(vector);
+                }
+                task.call.results[task.index] = vector;
+                task.call.latch.countDown();
+            }
+        }
+
+        private void closeSession() {
+            try {
+                this.session.close();
+            } catch (OrtException e) {
+                log.warn("关闭 ONNX 会话失败 error:{}", e.getMessage());
+            }
+            this.options.close();
+        }
+    }
+
+    private static LongBuffer directLongBuffer(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    private static void normalize(float[] vector) {
+        double sum = 0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        if (sum == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(sum));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+
+    public static class Builder {
+
+        private String name = "onnx";
+        private Path modelPath;
+        private Path vocabPath;
+        private int sessions = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private int maxBatchSize = 32;
+        private int maxSequenceLength = 256;
+        private Pooling pooling = Pooling.MEAN;
+        private boolean normalize = true;
+        private boolean lowerCase = true;
+        private long tokenCacheSize = 10000;
+        private String outputName;
+        private Duration timeout = Duration.ofSeconds(30);
+
+        private Builder() {
+        }
+
+        /**
+         * 模型名，写入响应元数据与工作线程名
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * model.onnx 路径
+         */
+        public Builder modelPath(Path modelPath) {
+            this.modelPath = modelPath;
+            return this;
+        }
+
+        /**
+         * vocab.txt 路径，为空时取模型同目录下的 vocab.txt
+         */
+        public Builder vocabPath(Path vocabPath) {
+            this.vocabPath = vocabPath;
+            return this;
+        }
+
+        /**
+         * 会话数，即推理线程数；每个会话各占一份模型权重
+         */
+        public Builder sessions(int sessions) {
+            this.sessions = sessions;
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * 含 [CLS] 与 [SEP] 的最大 token 数，超出截断
+         */
+        public Builder maxSequenceLength(int maxSequenceLength) {
+            this.maxSequenceLength = maxSequenceLength;
+            return this;
+        }
+
+        public Builder pooling(Pooling pooling) {
+            this.pooling = pooling;
+            return this;
+        }
+
+        public Builder normalize(boolean normalize) {
+            this.normalize = normalize;
+            return this;
+        }
+
+        /**
+         * 与模型 tokenizer_config.json 中的 do_lower_case 一致
+         */
+        public Builder lowerCase(boolean lowerCase) {
+            this.lowerCase = lowerCase;
+            return this;
+        }
+
+        /**
+         * 分词结果缓存条数，0 表示不缓存
+         */
+        public Builder tokenCacheSize(long tokenCacheSize) {
+            this.tokenCacheSize = tokenCacheSize;
+            return this;
+        }
+
+        /**
+         * 输出名，为空时取模型的第一个输出（last_hidden_state 或 sentence_embedding）
+         */
+        public Builder outputName(String outputName) {
+            this.outputName = outputName;
+            return this;
+        }
+
+        /**
+         * 一次调用等待推理结果的时限，包括排队时间
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public OnnxEmbeddingModel build() {
+            Assert.hasText(this.name, "name must not be empty");
+            Assert.notNull(this.modelPath, "modelPath must not be null");
+            Assert.isTrue(this.sessions > 0, "sessions must be positive");
+            Assert.isTrue(this.maxBatchSize > 0, "maxBatchSize must be positive");
+            Assert.isTrue(this.maxSequenceLength > 2, "maxSequenceLength must be greater than 2");
+            Assert.notNull(this.pooling, "pooling must not be null");
+            Assert.isTrue(this.tokenCacheSize >= 0, "tokenCacheSize must not be negative");
+            Assert.isTrue(this.timeout != null && !this.timeout.isNegative() && !this.timeout.isZero(), "timeout must be positive");
+            Path vocab = this.vocabPath != null ? this.vocabPath : this.modelPath.resolveSibling("vocab.txt");
+            try {
+                return new OnnxEmbeddingModel(this, WordPieceTokenizer.load(vocab, this.lowerCase));
+            } catch (IOException | OrtException e) {
+                throw new IllegalStateException("加载 ONNX 向量模型 " + this.name + " 失败 path:" + this.modelPath + " error:" + e.getMessage(), e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+package top.kangyaocoding.ai.infrastructure.embedding;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描述: BERT WordPiece 分词；读取模型目录中的 vocab.txt，与 HuggingFace BertTokenizer 的切分一致
+ * <p>
+ * 1. 基础切分：去掉控制字符，中日韩字符逐字切开，按空白与标点切词；lowerCase 时转小写并去掉重音符号；
+ * 2. WordPiece：每个词贪心取最长的词表前缀，后续片段带 ## 前缀，无法切分或超过 100 个字符的词记为 [UNK]；
+ * 3. 输出为 [CLS] … [SEP] 的 token id，超过 maxLength 时截断正文。
+ * 纯 Java 实现，不依赖 tokenizers 原生库；实例只读，可多线程共用。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 13:20
+ */
+public final class WordPieceTokenizer {
+
+    private static final int MAX_WORD_CHARS = 100;
+
+    private final Map<String, Integer> vocabulary;
+    private final boolean lowerCase;
+    private final int cls;
+    private final int sep;
+    private final int unk;
+    private final int pad;
+
+    public WordPieceTokenizer(List<String> tokens, boolean lowerCase) {
+        this.vocabulary = new HashMap<>(tokens.size() * 2);
+        for (int i = 0; i < tokens.size(); i++) {
+            this.vocabulary.putIfAbsent(tokens.get(i), i);
+        }
+        this.lowerCase = lowerCase;
+        this.cls = this.required("[CLS]");
+        this.sep = this.required("[SEP]");
+        this.unk = this.required("[UNK]");
+        this.pad = this.vocabulary.getOrDefault("[PAD]", 0);
+    }
+
+    public static WordPieceTokenizer load(Path vocabPath, boolean lowerCase) throws IOException {
+        List<String> tokens = Files.readAllLines(vocabPath, StandardCharsets.UTF_8).stream().map(String::strip).toList();
+        return new WordPieceTokenizer(tokens, lowerCase);
+    }
+
+    /**
+     * @param maxLength 含 [CLS] 与 [SEP] 的最大长度
+     */
+    public int[] encode(String text, int maxLength) {
+        int[] ids = new int[maxLength];
+        int length = 0;
+        ids[length++] = this.cls;
+        int limit = maxLength - 1;
+        String normalized = this.lowerCase ? stripAccents(text.toLowerCase()) : text;
+        StringBuilder word = new StringBuilder(32);
+        for (int i = 0, n = normalized.length(); i < n && length < limit; ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint == 0 || codePoint == 0xFFFD || isControl(codePoint)) {
+                continue;
+            }
+            if (Character.isWhitespace(codePoint) || Character.isSpaceChar(codePoint)) {
+                length = this.wordPiece(word, ids, length, limit);
+            } else if (isCjk(codePoint) || isPunctuation(codePoint)) {
+                length = this.wordPiece(word, ids, length, limit);
+                word.appendCodePoint(codePoint);
+                length = this.wordPiece(word, ids, length, limit);
+            } else {
+                word.appendCodePoint(codePoint);
+            }
+        }
+        length = this.wordPiece(word, ids, length, limit);
+        ids[length++] = this.sep;
+        return length == ids.length ? ids : Arrays.copyOf(ids, length);
+    }
+
+    public int getPadId() {
+        return this.pad;
+    }
+
+    public int size() {
+        return this.vocabulary.size();
+    }
+
+    /**
+     * 把 word 切成词表片段写入 ids，返回新的长度并清空 word
+     */
+    private int wordPiece(StringBuilder word, int[] ids, int length, int limit) {
+        int wordLength = word.length();
+        if (wordLength == 0 || length >= limit) {
+            word.setLength(0);
+            return length;
+        }
+        if (word.codePointCount(0, wordLength) > MAX_WORD_CHARS) {
+            word.setLength(0);
+            ids[length] = this.unk;
+            return length + 1;
+        }
+        int start = length;
+        int from = 0;
+        while (from < wordLength && length < limit) {
+            int to = wordLength;
+            Integer id = null;
+            while (to > from) {
+                String piece = from == 0 ? word.substring(from, to) : "##" + word.substring(from, to);
+                id = this.vocabulary.get(piece);
+                if (id != null) {
+                    break;
+                }
+                to--;
+                if (to > from && Character.isLowSurrogate(word.charAt(to))) {
+                    to--;
+                }
+            }
+            if (id == null) {
+                // 任一片段无法匹配时整个词记为 [UNK]
+                length = start;
+                ids[length++] = this.unk;
+                break;
+            }
+            ids[length++] = id;
+            from = to;
+        }
+        word.setLength(0);
+        return length;
+    }
+
+    private int required(String token) {
+        Integer id = this.vocabulary.get(token);
+        if (id == null) {
+            throw new IllegalArgumentException("词表缺少 " + token);
+        }
+        return id;
+    }
+
+    private static String stripAccents(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+                StringBuilder builder = new StringBuilder(decomposed.length());
+                for (int j = 0; j < decomposed.length(); j++) {
+                    char c = decomposed.charAt(j);
+                    if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                        builder.append(c);
+                    }
+                }
+                return builder.toString();
+            }
+        }
+        return text;
+    }
+
+    private static boolean isControl(int codePoint) {
+        if (codePoint == '\t' || codePoint == '\n' || codePoint == '\r') {
+            return false;
+        }
+        int type = Character.getType(codePoint);
+        return type == Character.CONTROL || type == Character.FORMAT;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        return (codePoint >= 0x4E00 && codePoint <= 0x9FFF)
+                || (codePoint >= 0x3400 && codePoint <= 0x4DBF)
+                || (codePoint >= 0x20000 && codePoint <= 0x2A6DF)
+                || (codePoint >= 0x2A700 && codePoint <= 0x2B73F)
+                || (codePoint >= 0x2B740 && codePoint <= 0x2B81F)
+                || (codePoint >= 0x2B820 && codePoint <= 0x2CEAF)
+                || (codePoint >= 0xF900 && codePoint <= 0xFAFF)
+                || (codePoint >= 0x2F800 && codePoint <= 0x2FA1F);
+    }
+
+    private static boolean isPunctuation(int codePoint) {
+        if ((codePoint >= 33 && codePoint <= 47) || (codePoint >= 58 && codePoint <= 64)
+                || (codePoint >= 91 && codePoint <= 96) || (codePoint >= 123 && codePoint <= 126)) {
+            return true;
+        }
+        int type = Character.getType(codePoint);
+        return type == Character.CONNECTOR_PUNCTUATION || type == Character.DASH_PUNCTUATION
+                || type == Character.START_PUNCTUATION || type == Character.END_PUNCTUATION
+                || type == Character.INITIAL_QUOTE_PUNCTUATION || type == Character.FINAL_QUOTE_PUNCTUATION
+                || type == Character.OTHER_PUNCTUATION;
+    }
+
+}
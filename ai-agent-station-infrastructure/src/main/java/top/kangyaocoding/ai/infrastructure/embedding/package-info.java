@@ -0,0 +1,4 @@
+/**
+ * 本地向量模型；ONNX Runtime 在 CPU 上批量推理句向量，按知识库在本地模型与远程模型之间选择
+ */
+package top.kangyaocoding.ai.infrastructure.embedding;
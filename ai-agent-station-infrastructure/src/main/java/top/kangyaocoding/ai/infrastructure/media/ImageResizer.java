@@ -0,0 +1,140 @@
+package top.kangyaocoding.ai.infrastructure.media;
+
+import org.springframework.util.MimeType;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 描述: 图片缩放与重编码；把图片缩到视觉模型的最佳分辨率，超出的像素只会增加图片 token 与传输时间
+ * <p>
+ * 1. 像素数不超过 maxPixels 的 JPEG、PNG 与所有 GIF（可能是动图）原样保留，不做有损的重复编码；
+ * 2. 超过时按比例缩小到 maxPixels 以内，宽高向下取整到 patchSize 的倍数（通义千问 VL 为 28），模型服务端不必再次缩放；
+ * 3. 大图先在解码时按整数倍抽样，再做双三次插值，解码的内存与耗时都按缩小后的尺寸计算；
+ * 4. 有透明通道的输出 PNG，其余输出 JPEG；ImageIO 不能解码的格式原样保留。
+ * 无状态，可多线程共用。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:20
+ */
+public final class ImageResizer {
+
+    public static final MimeType JPEG = MimeType.valueOf("image/jpeg");
+    public static final MimeType PNG = MimeType.valueOf("image/png");
+
+    private final long maxPixels;
+    private final int patchSize;
+    private final float jpegQuality;
+
+    public ImageResizer(long maxPixels, int patchSize, float jpegQuality) {
+        this.maxPixels = maxPixels;
+        this.patchSize = patchSize;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * @param data     原图
+     * @param mimeType 原图声明的类型，无法识别格式时沿用
+     */
+    public Result resize(byte[] data, MimeType mimeType) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return new Result(data, mimeType, 0, 0, false);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                String format = reader.getFormatName().toLowerCase();
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                boolean keep = (long) width * height <= this.maxPixels;
+                if (format.equals("gif") || (keep && (format.equals("jpeg") || format.equals("png")))) {
+                    MimeType detected = format.equals("jpeg") ? JPEG : MimeType.valueOf("image/" + format);
+                    return new Result(data, detected, width, height, false);
+                }
+                int[] target = keep ? new int[]{width, height} : this.target(width, height);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.min(width / (target[0] * 2), height / (target[1] * 2)));
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage source = reader.read(0, param);
+                boolean alpha = source.getColorModel().hasAlpha();
+                BufferedImage scaled = scale(source, target[0], target[1], alpha);
+                return alpha ? new Result(png(scaled), PNG, target[0], target[1], true)
+                        : new Result(this.jpeg(scaled), JPEG, target[0], target[1], true);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 按比例缩小到 maxPixels 以内，宽高取 patchSize 的倍数且至少为一个 patch
+     */
+    int[] target(int width, int height) {
+        double scale = Math.sqrt((double) this.maxPixels / ((long) width * height));
+        int targetWidth = Math.max(1, (int) Math.floor(width * scale));
+        int targetHeight = Math.max(1, (int) Math.floor(height * scale));
+        if (this.patchSize > 1) {
+            targetWidth = Math.max(this.patchSize, targetWidth / this.patchSize * this.patchSize);
+            targetHeight = Math.max(this.patchSize, targetHeight / this.patchSize * this.patchSize);
+        }
+        return new int[]{targetWidth, targetHeight};
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, int height, boolean alpha) {
+        BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] jpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(image.getWidth() * image.getHeight() / 4);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(this.jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(image.getWidth() * image.getHeight());
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @param resized 是否重新编码；为 false 时 data 即原图
+     */
+    public record Result(byte[] data, MimeType mimeType, int width, int height, boolean resized) {
+    }
+
+}
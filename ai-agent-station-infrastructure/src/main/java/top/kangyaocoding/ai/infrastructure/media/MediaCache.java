@@ -0,0 +1,329 @@
+package top.kangyaocoding.ai.infrastructure.media;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+import org.springframework.util.MimeType;
+import top.kangyaocoding.ai.domain.agent.service.media.MediaPreprocessor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 描述: 按内容哈希寻址的媒体磁盘缓存；处理后的图片以 SHA-256 命名，读取时内存映射，不复制进堆
+ * <p>
+ * 1. objects/ab/&lt;sha256&gt;.&lt;ext&gt; 保存处理后的字节，id 即文件名，相同内容只存一份；
+ * 2. sources/&lt;sha256(来源)&gt; 记录来源（图片地址或原图哈希，加处理参数）对应的 id，重启后同一来源不再下载与处理；
+ * 3. 映射后的缓冲区按字节数在内存中保留一部分，热门图片的读取不再打开文件；
+ * 4. 总大小超过 maxBytes 时按最后使用时间删除最旧的对象，指向已删除对象的来源在下次使用时重新处理。
+ * 文件先写临时文件再原子改名，并发写入同一内容只会留下一份完整文件。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:15
+ */
+@Slf4j
+public class MediaCache {
+
+    private static final Pattern ID = Pattern.compile("[0-9a-f]{64}\\.[a-z]{3,4}");
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", "jpg", "image/png", "png", "image/gif", "gif", "image/webp", "webp", "image/bmp", "bmp");
+    /** 最后使用时间的刷新间隔，避免每次命中都写文件属性 */
+    private static final long TOUCH_INTERVAL_MILLIS = Duration.ofHours(1).toMillis();
+
+    private final Path objects;
+    private final Path sources;
+    private final long maxBytes;
+    private final Cache<String, String> sourceIds;
+    private final Cache<String, MappedByteBuffer> mapped;
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder evictions = new LongAdder();
+    private final Object evictLock = new Object();
+
+    private MediaCache(Builder builder) throws IOException {
+        this.objects = builder.directory.resolve("objects");
+        this.sources = builder.directory.resolve("sources");
+        this.maxBytes = builder.maxBytes;
+        Files.createDirectories(this.objects);
+        Files.createDirectories(this.sources);
+        this.sourceIds = CacheBuilder.newBuilder().maximumSize(builder.maxSources).build();
+        this.mapped = CacheBuilder.newBuilder()
+                .maximumWeight(builder.maxMappedBytes)
+                .<String, MappedByteBuffer>weigher((id, buffer) -> buffer.capacity())
+                .build();
+        try (Stream<Path> files = Files.walk(this.objects)) {
+            this.bytes.set(files.filter(Files::isRegularFile).mapToLong(MediaCache::size).sum());
+        }
+        log.info("媒体缓存 {} 已有 {} 字节", builder.directory.toAbsolutePath(), this.bytes.get());
+    }
+
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    /**
+     * 来源对应的 id；对象已被删除时返回空
+     */
+    public Optional<String> lookup(String source) {
+        String id = this.sourceIds.getIfPresent(source);
+        if (id == null) {
+            Path link = this.sources.resolve(sha256(source.getBytes(StandardCharsets.UTF_8)));
+            try {
+                id = Files.readString(link, StandardCharsets.UTF_8).strip();
+            } catch (NoSuchFileException e) {
+                return Optional.empty();
+            } catch (IOException e) {
+                log.warn("读取媒体缓存索引失败 {} error:{}", link, e.getMessage());
+                return Optional.empty();
+            }
+            if (!ID.matcher(id).matches()) {
+                return Optional.empty();
+            }
+        }
+        Path object = this.object(id);
+        if (this.mapped.getIfPresent(id) == null && !Files.exists(object)) {
+            this.sourceIds.invalidate(source);
+            return Optional.empty();
+        }
+        this.sourceIds.put(source, id);
+        touch(object);
+        return Optional.of(id);
+    }
+
+    /**
+     * 保存处理后的内容并把来源指向它，返回 id
+     */
+    public String put(String source, byte[] data, MimeType mimeType) {
+        String id = sha256(data) + "." + extension(mimeType);
+        Path object = this.object(id);
+        try {
+            if (!Files.exists(object)) {
+                Files.createDirectories(object.getParent());
+                write(object, data);
+                this.bytes.addAndGet(data.length);
+                this.evict();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入媒体缓存失败 " + object, e);
+        }
+        this.link(source, id);
+        return id;
+    }
+
+    /**
+     * 来源指向已有的 id；例如同一张图片的不同地址
+     */
+    public void link(String source, String id) {
+        Path link = this.sources.resolve(sha256(source.getBytes(StandardCharsets.UTF_8)));
+        try {
+            write(link, id.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // 索引写入失败只影响重启后的命中
+            log.warn("写入媒体缓存索引失败 {} error:{}", link, e.getMessage());
+        }
+        this.sourceIds.put(source, id);
+    }
+
+    public Optional<MediaPreprocessor.Content> read(String id) {
+        if (id == null || !ID.matcher(id).matches()) {
+            return Optional.empty();
+        }
+        MimeType mimeType = mimeType(id);
+        MappedByteBuffer buffer = this.mapped.getIfPresent(id);
+        if (buffer == null) {
+            Path object = this.object(id);
+            try (FileChannel channel = FileChannel.open(object, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (NoSuchFileException e) {
+                return Optional.empty();
+            } catch (IOException e) {
+                log.warn("读取媒体缓存失败 {} error:{}", object, e.getMessage());
+                return Optional.empty();
+            }
+            this.mapped.put(id, buffer);
+        }
+        return Optional.of(new MediaPreprocessor.Content(mimeType, buffer.asReadOnlyBuffer()));
+    }
+
+    public long getBytes() {
+        return this.bytes.get();
+    }
+
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    public static MimeType mimeType(String id) {
+        String extension = id.substring(id.lastIndexOf('.') + 1);
+        for (Map.Entry<String, String> entry : EXTENSIONS.entrySet()) {
+            if (entry.getValue().equals(extension)) {
+                return MimeType.valueOf(entry.getKey());
+            }
+        }
+        return MimeType.valueOf("application/octet-stream");
+    }
+
+    public static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String extension(MimeType mimeType) {
+        return EXTENSIONS.getOrDefault(mimeType.getType() + "/" + mimeType.getSubtype(), "bin");
+    }
+
+    private Path object(String id) {
+        return this.objects.resolve(id.substring(0, 2)).resolve(id);
+    }
+
+    /**
+     * 超过上限时删除最久未使用的对象，降到上限的 90%
+     */
+    private void evict() {
+        if (this.bytes.get() <= this.maxBytes) {
+            return;
+        }
+        synchronized (this.evictLock) {
+            if (this.bytes.get() <= this.maxBytes) {
+                return;
+            }
+            List<Path> files = new ArrayList<>();
+            try (Stream<Path> paths = Files.walk(this.objects)) {
+                paths.filter(Files::isRegularFile).forEach(files::add);
+            } catch (IOException e) {
+                log.warn("清理媒体缓存失败 error:{}", e.getMessage());
+                return;
+            }
+            files.sort(Comparator.comparingLong(MediaCache::lastModified));
+            long target = this.maxBytes * 9 / 10;
+            for (Path file : files) {
+                if (this.bytes.get() <= target) {
+                    break;
+                }
+                long size = size(file);
+                try {
+                    if (Files.deleteIfExists(file)) {
+                        this.bytes.addAndGet(-size);
+                        this.mapped.invalidate(file.getFileName().toString());
+                        this.evictions.increment();
+                    }
+                } catch (IOException e) {
+                    log.warn("删除媒体缓存失败 {} error:{}", file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void write(Path target, byte[] data) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".media", ".tmp");
+        try {
+            Files.write(temp, data);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            long now = System.currentTimeMillis();
+            if (now - Files.getLastModifiedTime(file).toMillis() > TOUCH_INTERVAL_MILLIS) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+            }
+        } catch (IOException e) {
+            // 只影响清理顺序
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public static class Builder {
+
+        private final Path directory;
+        private long maxBytes = 2L * 1024 * 1024 * 1024;
+        private long maxMappedBytes = 256L * 1024 * 1024;
+        private long maxSources = 100_000;
+
+        private Builder(Path directory) {
+            Assert.notNull(directory, "directory must not be null");
+            this.directory = directory;
+        }
+
+        /**
+         * 磁盘上处理后对象的总大小上限
+         */
+        public Builder maxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * 保留在内存中的映射缓冲区总大小
+         */
+        public Builder maxMappedBytes(long maxMappedBytes) {
+            this.maxMappedBytes = maxMappedBytes;
+            return this;
+        }
+
+        /**
+         * 内存中的来源索引条数，未命中时读 sources 目录
+         */
+        public Builder maxSources(long maxSources) {
+            this.maxSources = maxSources;
+            return this;
+        }
+
+        public MediaCache build() throws IOException {
+            Assert.isTrue(this.maxBytes > 0, "maxBytes must be positive");
+            Assert.isTrue(this.maxMappedBytes >= 0, "maxMappedBytes must not be negative");
+            Assert.isTrue(this.maxSources > 0, "maxSources must be positive");
+            return new MediaCache(this);
+        }
+    }
+
+}
@@ -0,0 +1,595 @@
+package top.kangyaocoding.ai.infrastructure.media;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.content.Media;
+import org.springframework.util.Assert;
+import org.springframework.util.MimeType;
+import top.kangyaocoding.ai.domain.agent.service.media.MediaPreprocessor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 描述: 图片预处理流水线；下载一次、缩放一次，之后同一图片直接取磁盘缓存
+ * <p>
+ * 1. 图片地址与处理参数组成来源 key，命中 {@link MediaCache} 时不再下载；未命中时用 HttpClient 异步下载，大小超过 maxDownloadBytes 时中止；
+ * 2. 下载得到的原图再按内容哈希查一次缓存，不同地址的同一张图片只处理一次；内联的 byte[] 与 data URL 直接按内容哈希查找；
+ * 3. 缩放与重编码在有界线程池中执行，线程数与排队数都有上限，过载时直接使用原图而不是排队等待；
+ * 4. 同一来源的并发请求共用一次下载与处理；
+ * 5. 输出 INLINE 时为 base64 data URL，从映射缓冲区直接编码；输出 URL 时为 baseUrl/&lt;id&gt;，由本服务的媒体接口提供；
+ * 6. 图片地址来自用户输入，下载前解析域名，指向回环、内网、链路本地（含云厂商元数据 169.254.169.254）、组播等地址的一律拒绝，
+ * trustedHosts 中的主机除外；HttpClient 不自动跟随重定向，每一跳都重新校验，最多 maxRedirects 跳。
+ * 校验与连接各自解析域名，防不住 DNS rebinding，对此有要求的部署需在出口网络上再做限制。
+ * 任一步骤失败或超过 timeout 时返回原 Media，请求照常发给模型。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:25
+ */
+@Slf4j
+public class MediaPipeline implements MediaPreprocessor, AutoCloseable {
+
+    public enum Delivery {
+        /** base64 data URL 内联在请求中 */
+        INLINE,
+        /** 本服务地址，模型服务端需能访问 baseUrl */
+        URL
+    }
+
+    private static final String DATA_URL = "data:";
+    private static final Set<Integer> REDIRECTS = Set.of(301, 302, 303, 307, 308);
+
+    private final MediaCache cache;
+    private final ImageResizer resizer;
+    private final HttpClient httpClient;
+    private final Delivery delivery;
+    private final String baseUrl;
+    private final long maxDownloadBytes;
+    private final Set<String> trustedHosts;
+    private final int maxRedirects;
+    private final Duration timeout;
+    private final String profile;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder downloadedBytes = new LongAdder();
+    private final LongAdder processedBytes = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private MediaPipeline(Builder builder) {
+        this.cache = builder.cache;
+        this.resizer = new ImageResizer(builder.maxPixels, builder.patchSize, builder.jpegQuality);
+        this.httpClient = builder.httpClient != null ? builder.httpClient : HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.delivery = builder.delivery;
+        this.baseUrl = builder.baseUrl == null ? null
+                : builder.baseUrl.endsWith("/") ? builder.baseUrl.substring(0, builder.baseUrl.length() - 1) : builder.baseUrl;
+        this.maxDownloadBytes = builder.maxDownloadBytes;
+        this.trustedHosts = builder.trustedHosts.stream().map(host -> host.toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+        this.maxRedirects = builder.maxRedirects;
+        this.timeout = builder.timeout;
+        // 处理参数变化后，同一来源对应新的缓存项
+        this.profile = "|" + builder.maxPixels + "," + builder.patchSize + "," + builder.jpegQuality;
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(builder.threads, builder.threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(builder.queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "media-worker-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static Builder builder(MediaCache cache) {
+        return new Builder(cache);
+    }
+
+    @Override
+    public Media process(Media media) {
+        return this.process(List.of(media)).get(0);
+    }
+
+    @Override
+    public List<Media> process(List<Media> media) {
+        List<CompletableFuture<String>> ids = new ArrayList<>(media.size());
+        for (Media item : media) {
+            ids.add(this.resolve(item));
+        }
+        long deadline = System.nanoTime() + this.timeout.toNanos();
+        List<Media> processed = new ArrayList<>(media.size());
+        for (int i = 0; i < media.size(); i++) {
+            Media item = media.get(i);
+            CompletableFuture<String> id = ids.get(i);
+            if (id == null) {
+                processed.add(item);
+                continue;
+            }
+            try {
+                processed.add(this.output(item, id.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                processed.add(item);
+            } catch (ExecutionException | TimeoutException | RuntimeException e) {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                if (cause instanceof RejectedExecutionException) {
+                    this.rejected.increment();
+                } else {
+                    this.failures.increment();
+                }
+                log.warn("媒体预处理失败，使用原图 source:{} error:{}", describe(item), cause.toString());
+                processed.add(item);
+            }
+        }
+        return processed;
+    }
+
+    @Override
+    public Optional<Content> read(String id) {
+        return this.cache.read(id);
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public long getShared() {
+        return this.shared.sum();
+    }
+
+    public long getDownloadedBytes() {
+        return this.downloadedBytes.sum();
+    }
+
+    public long getProcessedBytes() {
+        return this.processedBytes.sum();
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    public long getFailures() {
+        return this.failures.sum();
+    }
+
+    public int getQueueDepth() {
+        return this.executor.getQueue().size();
+    }
+
+    public MediaCache getCache() {
+        return this.cache;
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * 处理后的 id；不需要处理的媒体返回 null
+     */
+    private CompletableFuture<String> resolve(Media media) {
+        if (!"image".equals(media.getMimeType().getType())) {
+            return null;
+        }
+        Object data = media.getData();
+        if (data instanceof byte[] bytes) {
+            return this.fromBytes(bytes, media.getMimeType());
+        }
+        if (!(data instanceof String text)) {
+            return null;
+        }
+        if (text.startsWith(DATA_URL)) {
+            int comma = text.indexOf(',');
+            if (comma < 0 || !text.substring(0, comma).endsWith(";base64")) {
+                return null;
+            }
+            byte[] bytes;
+            try {
+                bytes = Base64.getDecoder().decode(text.substring(comma + 1));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            return this.fromBytes(bytes, media.getMimeType());
+        }
+        if (!text.startsWith("http://") && !text.startsWith("https://")) {
+            return null;
+        }
+        if (this.baseUrl != null && text.startsWith(this.baseUrl + "/")) {
+            // 已经是本服务提供的地址
+            return null;
+        }
+        String source = "url:" + text + this.profile;
+        Optional<String> cached = this.cache.lookup(source);
+        if (cached.isPresent()) {
+            this.hits.increment();
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        return this.flight(source, () -> this.download(URI.create(text), 0).thenCompose(bytes -> {
+            String content = "sha256:" + MediaCache.sha256(bytes) + this.profile;
+            Optional<String> existing = this.cache.lookup(content);
+            if (existing.isPresent()) {
+                this.cache.link(source, existing.get());
+                return CompletableFuture.completedFuture(existing.get());
+            }
+            return CompletableFuture.supplyAsync(() -> {
+                String id = this.transform(content, bytes, media.getMimeType());
+                this.cache.link(source, id);
+                return id;
+            }, this.executor);
+        }));
+    }
+
+    private CompletableFuture<String> fromBytes(byte[] bytes, MimeType mimeType) {
+        String source = "sha256:" + MediaCache.sha256(bytes) + this.profile;
+        Optional<String> cached = this.cache.lookup(source);
+        if (cached.isPresent()) {
+            this.hits.increment();
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        return this.flight(source, () -> CompletableFuture.supplyAsync(() -> this.transform(source, bytes, mimeType), this.executor));
+    }
+
+    /**
+     * 同一来源进行中的处理只发起一次；执行器拒绝时异常同样交给等待者
+     */
+    private CompletableFuture<String> flight(String source, Supplier<CompletableFuture<String>> call) {
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> existing = this.inFlight.putIfAbsent(source, flight);
+        if (existing != null) {
+            this.shared.increment();
+            return existing;
+        }
+        this.misses.increment();
+        CompletableFuture<String> upstream;
+        try {
+            upstream = call.get();
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((id, error) -> {
+            this.inFlight.remove(source, flight);
+            if (error != null) {
+                flight.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            } else {
+                flight.complete(id);
+            }
+        });
+        return flight;
+    }
+
+    private String transform(String source, byte[] bytes, MimeType mimeType) {
+        try {
+            ImageResizer.Result result = this.resizer.resize(bytes, mimeType);
+            this.processedBytes.add(result.data().length);
+            if (result.resized()) {
+                log.debug("图片已缩放 {} 字节 → {}x{} {} 字节", bytes.length, result.width(), result.height(), result.data().length);
+            }
+            return this.cache.put(source, result.data(), result.mimeType());
+        } catch (IOException e) {
+            throw new UncheckedIOException("图片解码失败", e);
+        }
+    }
+
+    /**
+     * 逐跳下载：每一跳先校验目标地址，重定向的 Location 按当前地址解析后重新校验
+     */
+    private CompletableFuture<byte[]> download(URI uri, int redirects) {
+        try {
+            this.checkTarget(uri);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(this.timeout).GET().build();
+        return this.httpClient.sendAsync(request, info -> REDIRECTS.contains(info.statusCode())
+                        ? HttpResponse.BodySubscribers.<byte[]>replacing(null)
+                        : new LimitedBodySubscriber(info.statusCode(), this.maxDownloadBytes))
+                .thenCompose(response -> {
+                    if (!REDIRECTS.contains(response.statusCode())) {
+                        this.downloadedBytes.add(response.body().length);
+                        return CompletableFuture.completedFuture(response.body());
+                    }
+                    if (redirects >= this.maxRedirects) {
+                        return CompletableFuture.failedFuture(new IOException("重定向超过 " + this.maxRedirects + " 次"));
+                    }
+                    Optional<String> location = response.headers().firstValue("Location");
+                    if (location.isEmpty()) {
+                        return CompletableFuture.failedFuture(new IOException("重定向缺少 Location"));
+                    }
+                    return this.download(uri.resolve(location.get()), redirects + 1);
+                });
+    }
+
+    private void checkTarget(URI uri) throws IOException {
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme) || host == null) {
+            throw new IOException("不支持的图片地址 " + uri);
+        }
+        // IPv6 字面量的 host 带方括号
+        String name = host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+        if (this.trustedHosts.contains(name.toLowerCase(Locale.ROOT))) {
+            return;
+        }
+        for (InetAddress address : InetAddress.getAllByName(name)) {
+            if (isInternal(address)) {
+                throw new IOException("拒绝下载内网地址 " + host + " -> " + address.getHostAddress());
+            }
+        }
+    }
+
+    /**
+     * 回环、内网、链路本地、组播与保留地址
+     */
+    private static boolean isInternal(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            // 0.0.0.0/8 与运营商 NAT 的 100.64.0.0/10
+            return bytes[0] == 0 || (bytes[0] & 0xff) == 100 && (bytes[1] & 0xc0) == 64;
+        }
+        // fc00::/7 唯一本地地址；isSiteLocalAddress 只识别已废弃的 fec0::/10
+        return (bytes[0] & 0xfe) == 0xfc;
+    }
+
+    private Media output(Media media, String id) {
+        String data;
+        if (this.delivery == Delivery.URL) {
+            data = this.baseUrl + "/" + id;
+        } else {
+            Content content = this.cache.read(id).orElseThrow(() -> new IllegalStateException("媒体缓存中没有 " + id));
+            byte[] prefix = (DATA_URL + content.mimeType() + ";base64,").getBytes(StandardCharsets.US_ASCII);
+            ByteBuffer encoded = Base64.getEncoder().encode(content.data());
+            byte[] url = new byte[prefix.length + encoded.remaining()];
+            System.arraycopy(prefix, 0, url, 0, prefix.length);
+            encoded.get(url, prefix.length, encoded.remaining());
+            data = new String(url, StandardCharsets.US_ASCII);
+        }
+        MimeType mimeType = MediaCache.mimeType(id);
+        return Media.builder()
+                // 无法识别的格式沿用原 Media 声明的类型
+                .mimeType("image".equals(mimeType.getType()) ? mimeType : media.getMimeType())
+                .data(data)
+                .id(media.getId())
+                .name(media.getName())
+                .build();
+    }
+
+    private static String describe(Media media) {
+        return media.getData() instanceof String text
+                ? (text.startsWith(DATA_URL) ? "data-url" : text) : media.getName();
+    }
+
+    /**
+     * 累计超过上限时取消下载；非 2xx 响应不读正文
+     */
+    private static final class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final HttpResponse.BodySubscriber<byte[]> delegate = HttpResponse.BodySubscribers.ofByteArray();
+        private final int status;
+        private final long maxBytes;
+        private Flow.Subscription subscription;
+        private long received;
+        private boolean failed;
+
+        private LimitedBodySubscriber(int status, long maxBytes) {
+            this.status = status;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return this.delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            this.delegate.onSubscribe(subscription);
+            if (this.status < 200 || this.status >= 300) {
+                this.fail(new IOException("下载图片失败 HTTP " + this.status));
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (this.failed) {
+                return;
+            }
+            for (ByteBuffer item : items) {
+                this.received += item.remaining();
+            }
+            if (this.received > this.maxBytes) {
+                this.fail(new IOException("图片超过 " + this.maxBytes + " 字节"));
+                return;
+            }
+            this.delegate.onNext(items);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!this.failed) {
+                this.delegate.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!this.failed) {
+                this.delegate.onComplete();
+            }
+        }
+
+        private void fail(IOException error) {
+            this.failed = true;
+            this.subscription.cancel();
+            this.delegate.onError(error);
+        }
+    }
+
+    public static class Builder {
+
+        private final MediaCache cache;
+        private HttpClient httpClient;
+        private Delivery delivery = Delivery.INLINE;
+        private String baseUrl;
+        private long maxPixels = 1280L * 28 * 28;
+        private int patchSize = 28;
+        private float jpegQuality = 0.85f;
+        private long maxDownloadBytes = 20L * 1024 * 1024;
+        private Collection<String> trustedHosts = List.of();
+        private int maxRedirects = 3;
+        private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private int queueCapacity = 64;
+        private Duration timeout = Duration.ofSeconds(15);
+
+        private Builder(MediaCache cache) {
+            Assert.notNull(cache, "MediaCache must not be null");
+            this.cache = cache;
+        }
+
+        /**
+         * 自定义的 HttpClient 不能自动跟随重定向，否则重定向到内网的地址绕过校验
+         */
+        public Builder httpClient(HttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        public Builder delivery(Delivery delivery) {
+            this.delivery = delivery;
+            return this;
+        }
+
+        /**
+         * 媒体接口的对外地址，例如 http://agent.example.com/api/v1/media；delivery 为 URL 时必填
+         */
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        /**
+         * 缩放后的最大像素数，默认与通义千问 VL 的 max_pixels（1280 * 28 * 28）一致
+         */
+        public Builder maxPixels(long maxPixels) {
+            this.maxPixels = maxPixels;
+            return this;
+        }
+
+        /**
+         * 缩放后宽高取整的倍数，0 或 1 表示不取整
+         */
+        public Builder patchSize(int patchSize) {
+            this.patchSize = patchSize;
+            return this;
+        }
+
+        public Builder jpegQuality(float jpegQuality) {
+            this.jpegQuality = jpegQuality;
+            return this;
+        }
+
+        public Builder maxDownloadBytes(long maxDownloadBytes) {
+            this.maxDownloadBytes = maxDownloadBytes;
+            return this;
+        }
+
+        /**
+         * 不做内网地址校验的主机，例如内网的图片服务；按主机名精确匹配，不区分大小写
+         */
+        public Builder trustedHosts(Collection<String> trustedHosts) {
+            this.trustedHosts = trustedHosts;
+            return this;
+        }
+
+        public Builder maxRedirects(int maxRedirects) {
+            this.maxRedirects = maxRedirects;
+            return this;
+        }
+
+        /**
+         * 缩放线程数；解码大图占用较多内存，不宜过多
+         */
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * 缩放任务的排队上限，超出时使用原图
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * 一次请求中全部媒体的下载与处理时限
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public MediaPipeline build() {
+            Assert.notNull(this.delivery, "delivery must not be null");
+            Assert.isTrue(this.delivery != Delivery.URL || this.baseUrl != null && !this.baseUrl.isBlank(),
+                    "baseUrl must not be empty when delivery is URL");
+            Assert.isTrue(this.maxPixels > 0, "maxPixels must be positive");
+            Assert.isTrue(this.patchSize >= 0, "patchSize must not be negative");
+            Assert.isTrue(this.jpegQuality > 0 && this.jpegQuality <= 1, "jpegQuality must be in (0, 1]");
+            Assert.isTrue(this.maxDownloadBytes > 0, "maxDownloadBytes must be positive");
+            Assert.isTrue(this.httpClient == null || this.httpClient.followRedirects() == HttpClient.Redirect.NEVER,
+                    "httpClient must not follow redirects");
+            Assert.notNull(this.trustedHosts, "trustedHosts must not be null");
+            Assert.isTrue(this.maxRedirects >= 0, "maxRedirects must not be negative");
+            Assert.isTrue(this.threads > 0, "threads must be positive");
+            Assert.isTrue(this.queueCapacity > 0, "queueCapacity must be positive");
+            Assert.isTrue(this.timeout != null && !this.timeout.isNegative() && !this.timeout.isZero(), "timeout must be positive");
+            return new MediaPipeline(this);
+        }
+    }
+
+}
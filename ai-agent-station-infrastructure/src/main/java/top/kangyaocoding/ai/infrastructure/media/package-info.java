@@ -0,0 +1,4 @@
+/**
+ * 媒体预处理实现；图片下载一次，在有界线程池中缩放重编码，按内容哈希缓存在本地磁盘并以内存映射读取
+ */
+package top.kangyaocoding.ai.infrastructure.media;
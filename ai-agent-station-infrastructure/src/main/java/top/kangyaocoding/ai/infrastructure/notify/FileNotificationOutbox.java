@@ -0,0 +1,519 @@
+package top.kangyaocoding.ai.infrastructure.notify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+import top.kangyaocoding.ai.domain.agent.service.notify.Notification;
+import top.kangyaocoding.ai.domain.agent.service.notify.NotificationOutbox;
+import top.kangyaocoding.ai.domain.agent.service.notify.NotificationSender;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 描述: 本地目录上的通知发件箱；智能体入队即返回，单个分发线程按渠道合并、限流后发送
+ * <p>
+ * 1. 每条通知先写成 pending/ 下的独立文件（临时文件再原子改名）才算接收，重启后按文件名顺序恢复；
+ * 2. 同一渠道的队首通知等待 window，期间到达的、参数相同的通知合并为一条摘要，最多 maxBatch 条、正文合计 maxDigestChars 个字符；
+ * 3. 每个渠道一个令牌桶，速率 ratePerMinute、突发 burst，对应机器人每分钟的发送上限；令牌不足时继续积压，下一条摘要合并得更多；
+ * 4. 发送失败按指数退避（带抖动）重试，同一摘要连续失败 maxAttempts 次后文件移入 dead/，不再阻塞后续通知；
+ * 5. 积压达到 maxPending 时拒绝入队，由调用方直接发送。
+ * 发送成功后删除对应文件；close 时停止分发，未发送的通知留在磁盘上，下次启动后继续发送。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:25
+ */
+@Slf4j
+public class FileNotificationOutbox implements NotificationOutbox, AutoCloseable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Pattern FILE = Pattern.compile("\\d{13}-(\\d{10})\\.json");
+    private static final DateTimeFormatter DIGEST_TIME = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final long MAX_IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Path pending;
+    private final Path dead;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final int maxDigestChars;
+    private final int ratePerMinute;
+    private final int burst;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final int maxPending;
+    private final boolean sync;
+
+    private final Object lock = new Object();
+    /** 按插入顺序轮询，发送过的渠道移到末尾；由 lock 保护 */
+    private final LinkedHashMap<String, Channel> channels = new LinkedHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+    /** 没有可发送的渠道时的等待时间，只由分发线程读写 */
+    private long waitNanos;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder digests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    private FileNotificationOutbox(Builder builder) throws IOException {
+        this.pending = builder.directory.resolve("pending");
+        this.dead = builder.directory.resolve("dead");
+        this.windowNanos = builder.window.toNanos();
+        this.maxBatch = builder.maxBatch;
+        this.maxDigestChars = builder.maxDigestChars;
+        this.ratePerMinute = builder.ratePerMinute;
+        this.burst = builder.burst;
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffNanos = builder.initialBackoff.toNanos();
+        this.maxBackoffNanos = builder.maxBackoff.toNanos();
+        this.maxPending = builder.maxPending;
+        this.sync = builder.sync;
+        Files.createDirectories(this.pending);
+        Files.createDirectories(this.dead);
+        this.recover();
+        this.dispatcher = new Thread(this::dispatch, "notify-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    @Override
+    public void register(String channel, NotificationSender sender) {
+        Assert.notNull(sender, "NotificationSender must not be null");
+        synchronized (this.lock) {
+            this.channel(channel).sender = sender;
+            this.lock.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean offer(Notification notification) {
+        if (!this.running || this.pendingCount.get() >= this.maxPending) {
+            this.rejected.increment();
+            return false;
+        }
+        Path file = this.pending.resolve(String.format("%013d-%010d.json", notification.createdAt(), this.sequence.incrementAndGet()));
+        try {
+            this.write(file, OBJECT_MAPPER.writeValueAsBytes(notification));
+        } catch (IOException e) {
+            log.warn("通知写入发件箱失败，改为直接发送 channel:{} error:{}", notification.channel(), e.getMessage());
+            this.rejected.increment();
+            return false;
+        }
+        this.pendingCount.incrementAndGet();
+        synchronized (this.lock) {
+            this.channel(notification.channel()).queue.add(new Entry(file, notification, System.nanoTime()));
+            this.lock.notifyAll();
+        }
+        this.enqueued.increment();
+        return true;
+    }
+
+    public long getEnqueued() {
+        return this.enqueued.sum();
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    public long getSent() {
+        return this.sent.sum();
+    }
+
+    public long getDigests() {
+        return this.digests.sum();
+    }
+
+    public long getRetries() {
+        return this.retries.sum();
+    }
+
+    public long getDeadLettered() {
+        return this.deadLettered.sum();
+    }
+
+    public int getPending() {
+        return this.pendingCount.get();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        this.running = false;
+        synchronized (this.lock) {
+            this.lock.notifyAll();
+        }
+        // 正在进行的发送不中断，由发送方自身的超时限定
+        this.dispatcher.join();
+        log.info("通知发件箱已关闭 入队:{} 发送:{} 摘要:{} 重试:{} 失败移出:{} 拒绝:{} 待发送:{}", this.getEnqueued(), this.getSent(),
+                this.getDigests(), this.getRetries(), this.getDeadLettered(), this.getRejected(), this.getPending());
+    }
+
+    private void dispatch() {
+        while (this.running) {
+            Batch batch;
+            synchronized (this.lock) {
+                batch = this.next(System.nanoTime());
+                if (batch == null) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this.lock, Math.max(TimeUnit.MILLISECONDS.toNanos(1), this.waitNanos));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    continue;
+                }
+            }
+            this.send(batch);
+        }
+    }
+
+    /**
+     * 第一个到期且有令牌的渠道取出一条摘要；都不满足时记下最近的到期时间
+     */
+    private Batch next(long now) {
+        long wait = MAX_IDLE_NANOS;
+        for (Iterator<Channel> iterator = this.channels.values().iterator(); iterator.hasNext(); ) {
+            Channel channel = iterator.next();
+            if (channel.queue.isEmpty() || channel.sender == null) {
+                continue;
+            }
+            // 攒满一批时不必等满窗口
+            long readyAt = channel.queue.size() >= this.maxBatch ? channel.retryAt
+                    : later(channel.queue.peekFirst().enqueuedAt() + this.windowNanos, channel.retryAt);
+            if (readyAt - now > 0) {
+                wait = Math.min(wait, readyAt - now);
+                continue;
+            }
+            long tokenWait = channel.bucket.tryAcquire(now);
+            if (tokenWait > 0) {
+                wait = Math.min(wait, tokenWait);
+                continue;
+            }
+            iterator.remove();
+            this.channels.put(channel.name, channel);
+            return this.take(channel);
+        }
+        this.waitNanos = wait;
+        return null;
+    }
+
+    /**
+     * 队首起连续的、参数相同的通知合为一批，不从队列移除，发送结束后再移除
+     */
+    private Batch take(Channel channel) {
+        List<Entry> entries = new ArrayList<>();
+        String arguments = channel.queue.peekFirst().notification().arguments();
+        int chars = 0;
+        for (Entry entry : channel.queue) {
+            Notification notification = entry.notification();
+            if (entries.size() >= this.maxBatch || !arguments.equals(notification.arguments())) {
+                break;
+            }
+            if (!entries.isEmpty() && chars + notification.text().length() > this.maxDigestChars) {
+                break;
+            }
+            entries.add(entry);
+            chars += notification.text().length();
+        }
+        return new Batch(channel, channel.sender, entries, digest(channel.name, arguments, entries));
+    }
+
+    private static Notification digest(String channel, String arguments, List<Entry> entries) {
+        Notification first = entries.get(0).notification();
+        if (entries.size() == 1) {
+            return first;
+        }
+        StringBuilder text = new StringBuilder("共 ").append(entries.size()).append(" 条通知");
+        for (Entry entry : entries) {
+            text.append("\n\n【").append(DIGEST_TIME.format(Instant.ofEpochMilli(entry.notification().createdAt()))).append("】")
+                    .append(entry.notification().text());
+        }
+        return new Notification(channel, arguments, text.toString(), first.createdAt());
+    }
+
+    private void send(Batch batch) {
+        Channel channel = batch.channel();
+        try {
+            batch.sender().send(batch.digest());
+        } catch (Exception e) {
+            this.failed(batch, e);
+            return;
+        }
+        channel.attempts = 0;
+        this.remove(batch);
+        for (Entry entry : batch.entries()) {
+            try {
+                Files.deleteIfExists(entry.file());
+            } catch (IOException e) {
+                log.warn("删除已发送的通知失败 {} error:{}", entry.file(), e.getMessage());
+            }
+        }
+        this.sent.add(batch.entries().size());
+        this.digests.increment();
+    }
+
+    private void failed(Batch batch, Exception error) {
+        Channel channel = batch.channel();
+        int attempts = ++channel.attempts;
+        if (attempts < this.maxAttempts) {
+            long backoff = this.backoff(attempts);
+            channel.retryAt = System.nanoTime() + backoff;
+            this.retries.increment();
+            log.warn("通知发送失败，{} 毫秒后第 {} 次重试 channel:{} 条数:{} error:{}", TimeUnit.NANOSECONDS.toMillis(backoff), attempts,
+                    channel.name, batch.entries().size(), error.toString());
+            return;
+        }
+        channel.attempts = 0;
+        this.remove(batch);
+        for (Entry entry : batch.entries()) {
+            try {
+                Files.move(entry.file(), this.dead.resolve(entry.file().getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                log.warn("通知移入 dead 失败 {} error:{}", entry.file(), e.getMessage());
+            }
+        }
+        this.deadLettered.add(batch.entries().size());
+        log.error("通知连续发送失败 {} 次，{} 条移入 {} channel:{}", attempts, batch.entries().size(), this.dead, channel.name, error);
+    }
+
+    private void remove(Batch batch) {
+        synchronized (this.lock) {
+            for (int i = 0; i < batch.entries().size(); i++) {
+                batch.channel().queue.pollFirst();
+            }
+        }
+        this.pendingCount.addAndGet(-batch.entries().size());
+    }
+
+    /**
+     * 指数退避，取上限后在 [d/2, d] 之间随机，避免多个渠道同时重试
+     */
+    private long backoff(int attempts) {
+        long backoff = Math.min(this.maxBackoffNanos, this.initialBackoffNanos * (1L << Math.min(attempts - 1, 20)));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private Channel channel(String name) {
+        return this.channels.computeIfAbsent(name, key -> new Channel(key, new TokenBucket(this.ratePerMinute, this.burst, System.nanoTime())));
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(this.pending)) {
+            files = paths.sorted().toList();
+        }
+        // 恢复的通知已经等过窗口，注册发送方后立即发送
+        long enqueuedAt = System.nanoTime() - this.windowNanos;
+        for (Path file : files) {
+            Matcher matcher = FILE.matcher(file.getFileName().toString());
+            if (!matcher.matches()) {
+                // 写入中途退出留下的临时文件
+                Files.deleteIfExists(file);
+                continue;
+            }
+            this.sequence.set(Math.max(this.sequence.get(), Long.parseLong(matcher.group(1))));
+            Notification notification;
+            try {
+                notification = OBJECT_MAPPER.readValue(file.toFile(), Notification.class);
+            } catch (IOException e) {
+                log.warn("无法解析的通知移入 dead {} error:{}", file, e.getMessage());
+                Files.move(file, this.dead.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                continue;
+            }
+            this.channel(notification.channel()).queue.add(new Entry(file, notification, enqueuedAt));
+            this.pendingCount.incrementAndGet();
+        }
+        log.info("通知发件箱 {} 恢复 {} 条待发送通知", this.pending.getParent().toAbsolutePath(), this.pendingCount.get());
+    }
+
+    private void write(Path target, byte[] data) throws IOException {
+        Path temp = Files.createTempFile(this.pending, ".notify", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (this.sync) {
+                    channel.force(true);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static long later(long a, long b) {
+        return a - b > 0 ? a : b;
+    }
+
+    private record Entry(Path file, Notification notification, long enqueuedAt) {
+    }
+
+    private record Batch(Channel channel, NotificationSender sender, List<Entry> entries, Notification digest) {
+    }
+
+    /**
+     * queue 由 lock 保护；attempts、retryAt 与 bucket 只由分发线程读写
+     */
+    private static final class Channel {
+        private final String name;
+        private final TokenBucket bucket;
+        private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+        private NotificationSender sender;
+        private int attempts;
+        private long retryAt = System.nanoTime();
+
+        private Channel(String name, TokenBucket bucket) {
+            this.name = name;
+            this.bucket = bucket;
+        }
+    }
+
+    public static class Builder {
+
+        private final Path directory;
+        private Duration window = Duration.ofSeconds(10);
+        private int maxBatch = 20;
+        private int maxDigestChars = 4000;
+        private int ratePerMinute = 20;
+        private int burst = 5;
+        private int maxAttempts = 8;
+        private Duration initialBackoff = Duration.ofSeconds(2);
+        private Duration maxBackoff = Duration.ofMinutes(5);
+        private int maxPending = 10_000;
+        private boolean sync;
+
+        private Builder(Path directory) {
+            Assert.notNull(directory, "directory must not be null");
+            this.directory = directory;
+        }
+
+        /**
+         * 合并窗口；队首通知最多等待这么久，期间到达的通知并入同一条摘要，0 表示不等待
+         */
+        public Builder window(Duration window) {
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * 一条摘要最多合并的通知条数，攒满时不等窗口结束
+         */
+        public Builder maxBatch(int maxBatch) {
+            this.maxBatch = maxBatch;
+            return this;
+        }
+
+        /**
+         * 一条摘要中正文的字符数上限；单条超过上限的通知单独发送
+         */
+        public Builder maxDigestChars(int maxDigestChars) {
+            this.maxDigestChars = maxDigestChars;
+            return this;
+        }
+
+        /**
+         * 每个渠道每分钟的发送条数，钉钉机器人为 20
+         */
+        public Builder ratePerMinute(int ratePerMinute) {
+            this.ratePerMinute = ratePerMinute;
+            return this;
+        }
+
+        /**
+         * 每个渠道允许的突发条数，即令牌桶容量
+         */
+        public Builder burst(int burst) {
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * 同一摘要的最多发送次数，用尽后移入 dead/
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder initialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        public Builder maxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * 待发送通知的上限，达到后拒绝入队
+         */
+        public Builder maxPending(int maxPending) {
+            this.maxPending = maxPending;
+            return this;
+        }
+
+        /**
+         * 每条通知写入后是否 fsync
+         */
+        public Builder sync(boolean sync) {
+            this.sync = sync;
+            return this;
+        }
+
+        public FileNotificationOutbox build() throws IOException {
+            Assert.isTrue(this.window != null && !this.window.isNegative(), "window must not be negative");
+            Assert.isTrue(this.maxBatch > 0, "maxBatch must be positive");
+            Assert.isTrue(this.maxDigestChars > 0, "maxDigestChars must be positive");
+            Assert.isTrue(this.ratePerMinute > 0, "ratePerMinute must be positive");
+            Assert.isTrue(this.burst > 0, "burst must be positive");
+            Assert.isTrue(this.maxAttempts > 0, "maxAttempts must be positive");
+            Assert.isTrue(this.initialBackoff != null && this.initialBackoff.toNanos() > 0, "initialBackoff must be positive");
+            Assert.isTrue(this.maxBackoff != null && this.maxBackoff.compareTo(this.initialBackoff) >= 0,
+                    "maxBackoff must not be less than initialBackoff");
+            Assert.isTrue(this.maxPending > 0, "maxPending must be positive");
+            return new FileNotificationOutbox(this);
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package top.kangyaocoding.ai.infrastructure.notify;
+
+/**
+ * 描述: 令牌桶；按固定速率补充令牌，容量即允许的突发条数。只由分发线程使用，不做并发控制
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 15:20
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double nanosPerToken;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(int ratePerMinute, int burst, long now) {
+        this.capacity = burst;
+        this.nanosPerToken = 60_000_000_000d / ratePerMinute;
+        this.tokens = burst;
+        this.refilledAt = now;
+    }
+
+    /**
+     * 取一个令牌；返回 0 表示成功，否则为还需等待的纳秒数
+     */
+    long tryAcquire(long now) {
+        this.tokens = Math.min(this.capacity, this.tokens + (now - this.refilledAt) / this.nanosPerToken);
+        this.refilledAt = now;
+        if (this.tokens >= 1) {
+            this.tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - this.tokens) * this.nanosPerToken);
+    }
+
+}
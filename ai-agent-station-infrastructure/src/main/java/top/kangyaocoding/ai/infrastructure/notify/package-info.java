@@ -0,0 +1,4 @@
+/**
+ * 通知发件箱；通知逐条持久化到本地目录，单个分发线程按渠道合并、令牌桶限流并退避重试
+ */
+package top.kangyaocoding.ai.infrastructure.notify;
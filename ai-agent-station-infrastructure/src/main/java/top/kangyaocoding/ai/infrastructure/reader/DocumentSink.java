@@ -0,0 +1,33 @@
+package top.kangyaocoding.ai.infrastructure.reader;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * 描述: 流式读取的分块输出；各方法会在多个解析线程上并发调用，实现需线程安全
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 20:50
+ */
+@FunctionalInterface
+public interface DocumentSink {
+
+    /**
+     * 文件有变化、重新解析之前调用，可按 source 删除旧分块
+     */
+    default void begin(String source) {
+    }
+
+    /**
+     * 一段文本切分后的分块
+     */
+    void accept(List<Document> chunks);
+
+    /**
+     * 上次读取过、本次已不存在的文件
+     */
+    default void remove(String source) {
+    }
+
+}
@@ -0,0 +1,140 @@
+package top.kangyaocoding.ai.infrastructure.reader;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 描述: 已读取文件的清单，用于增量读取时跳过未变化的文件
+ * <p>
+ * 每个文件记录 size、mtime 与内容摘要：size 与 mtime 都未变直接跳过，不读文件；
+ * 任一变化再计算摘要，摘要相同（如仅 touch、重新拷贝）同样跳过并更新 mtime。
+ * 只有解析成功后才记录，失败的文件下次仍会重新读取。清单以 properties 文件保存，先写临时文件再原子替换。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 20:55
+ */
+@Slf4j
+public class IngestionManifest {
+
+    private record Entry(long size, long mtime, String hash) {
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private IngestionManifest(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 只在内存中记录，不落盘
+     */
+    public static IngestionManifest inMemory() {
+        return new IngestionManifest(null);
+    }
+
+    public static IngestionManifest load(Path file) {
+        IngestionManifest manifest = new IngestionManifest(file);
+        if (!Files.exists(file)) {
+            return manifest;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            log.warn("读取清单 {} 失败，全部文件将重新解析", file, e);
+            return manifest;
+        }
+        for (String key : properties.stringPropertyNames()) {
+            String[] values = properties.getProperty(key).split(",", 3);
+            if (values.length == 3) {
+                manifest.entries.put(key, new Entry(Long.parseLong(values[0]), Long.parseLong(values[1]), values[2]));
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * size 与 mtime 未变，或摘要未变时返回 true；后者会同时更新记录中的 size 与 mtime
+     */
+    public boolean unchanged(String key, long size, long mtime, Supplier<String> hash) {
+        Entry entry = this.entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.size() == size && entry.mtime() == mtime) {
+            return true;
+        }
+        if (entry.size() != size || !entry.hash().equals(hash.get())) {
+            return false;
+        }
+        this.entries.put(key, new Entry(size, mtime, entry.hash()));
+        return true;
+    }
+
+    public void record(String key, long size, long mtime, String hash) {
+        this.entries.put(key, new Entry(size, mtime, hash));
+    }
+
+    public void remove(String key) {
+        this.entries.remove(key);
+    }
+
+    public List<String> keys(String prefix) {
+        return this.entries.keySet().stream().filter(key -> key.startsWith(prefix)).toList();
+    }
+
+    public synchronized void save() {
+        if (this.file == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        this.entries.forEach((key, entry) -> properties.setProperty(key, entry.size() + "," + entry.mtime() + "," + entry.hash()));
+        try {
+            Path parent = this.file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temporary = Files.createTempFile(parent, this.file.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temporary)) {
+                properties.store(writer, null);
+            }
+            Files.move(temporary, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("保存清单 {} 失败", this.file, e);
+        }
+    }
+
+    /**
+     * 流式计算文件的 SHA-256，内存占用与文件大小无关
+     */
+    public static String sha256(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
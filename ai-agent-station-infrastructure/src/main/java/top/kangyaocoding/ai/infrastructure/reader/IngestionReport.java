@@ -0,0 +1,16 @@
+package top.kangyaocoding.ai.infrastructure.reader;
+
+/**
+ * 描述: 一次读取的统计
+ *
+ * @param parsed    解析的文件数（压缩包按条目计）
+ * @param skipped   未变化而跳过的文件数
+ * @param removed   已删除的文件数
+ * @param failed    解析失败的文件数，下次读取会重试
+ * @param truncated 超过单文件字符上限被截断的文件数
+ * @param chunks    输出的分块数
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 20:50
+ */
+public record IngestionReport(int parsed, int skipped, int removed, int failed, int truncated, long chunks) {
+}
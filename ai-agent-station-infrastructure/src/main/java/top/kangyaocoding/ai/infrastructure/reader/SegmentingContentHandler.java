@@ -0,0 +1,191 @@
+package top.kangyaocoding.ai.infrastructure.reader;
+
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 描述: 接收 Tika 输出的 XHTML SAX 事件，按段输出正文
+ * <p>
+ * 1. 只收集 body 内的文本；h1~h6 转成 Markdown 标题、pre 转成围栏代码块，块级元素结束时换行，保留结构供分块器识别；
+ * 2. 缓冲达到 segmentChars 后在下一个块级元素结束时输出一段；纯文本等没有块级元素的内容，缓冲达到 2 倍 segmentChars 时在最后一个换行处截断输出；
+ * 3. 累计字符数超过 maxChars 时抛出 {@link WriteLimitReachedException} 终止解析，已收集的文本照常输出。
+ * 内存占用上限约为 2 倍 segmentChars，与文件大小无关。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 21:00
+ */
+class SegmentingContentHandler extends DefaultHandler {
+
+    private static final Set<String> BLOCKS = Set.of("p", "div", "li", "tr", "table", "ul", "ol", "dl", "dt", "dd",
+            "blockquote", "section", "article", "br", "h1", "h2", "h3", "h4", "h5", "h6", "pre");
+
+    private final int segmentChars;
+    private final int maxSegmentChars;
+    private final long maxChars;
+    private final Consumer<String> segments;
+    private final StringBuilder buffer;
+
+    private boolean inBody;
+    private long total;
+
+    SegmentingContentHandler(int segmentChars, long maxChars, Consumer<String> segments) {
+        this.segmentChars = segmentChars;
+        this.maxSegmentChars = segmentChars * 2;
+        this.maxChars = maxChars;
+        this.segments = segments;
+        this.buffer = new StringBuilder(this.maxSegmentChars + 1024);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        String name = name(localName, qName);
+        if ("body".equals(name)) {
+            this.inBody = true;
+            return;
+        }
+        if (!this.inBody) {
+            return;
+        }
+        int level = heading(name);
+        if (level > 0) {
+            this.newLine();
+            this.buffer.append("#".repeat(level)).append(' ');
+        } else if ("pre".equals(name)) {
+            this.newLine();
+            this.buffer.append("```\n");
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        String name = name(localName, qName);
+        if ("body".equals(name)) {
+            this.inBody = false;
+            return;
+        }
+        if (!this.inBody || !BLOCKS.contains(name)) {
+            return;
+        }
+        if ("pre".equals(name)) {
+            this.newLine();
+            this.buffer.append("```\n");
+        }
+        this.buffer.append(heading(name) > 0 || "p".equals(name) || "pre".equals(name) ? "\n\n" : "\n");
+        if (this.buffer.length() >= this.segmentChars) {
+            this.flush();
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (!this.inBody) {
+            return;
+        }
+        long allowed = this.maxChars - this.total;
+        if (length > allowed) {
+            this.append(ch, start, (int) Math.max(0, allowed));
+            this.total = this.maxChars;
+            throw new WriteLimitReachedException((int) Math.min(Integer.MAX_VALUE, this.maxChars));
+        }
+        this.total += length;
+        this.append(ch, start, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        this.characters(ch, start, length);
+    }
+
+    @Override
+    public void endDocument() {
+        this.flush();
+    }
+
+    /**
+     * 解析异常终止时输出剩余文本
+     */
+    void finish() {
+        this.flush();
+    }
+
+    long getTotal() {
+        return this.total;
+    }
+
+    private void append(char[] ch, int start, int length) {
+        int offset = start;
+        int remaining = length;
+        while (remaining > 0) {
+            int count = Math.min(remaining, this.maxSegmentChars - this.buffer.length());
+            this.buffer.append(ch, offset, count);
+            offset += count;
+            remaining -= count;
+            if (this.buffer.length() >= this.maxSegmentChars) {
+                this.cut();
+            }
+        }
+    }
+
+    /**
+     * 缓冲已满仍没有块级元素结束：在最后一个换行（没有则为空白）处输出，剩余部分留到下一段
+     */
+    private void cut() {
+        int at = this.buffer.lastIndexOf("\n");
+        if (at < this.segmentChars / 2) {
+            at = this.lastWhitespace();
+        }
+        if (at < this.segmentChars / 2) {
+            at = this.buffer.length() - 1;
+            if (Character.isHighSurrogate(this.buffer.charAt(at))) {
+                at--;
+            }
+        }
+        String segment = this.buffer.substring(0, at + 1);
+        this.buffer.delete(0, at + 1);
+        this.emit(segment);
+    }
+
+    private int lastWhitespace() {
+        for (int i = this.buffer.length() - 1; i >= 0; i--) {
+            if (Character.isWhitespace(this.buffer.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void flush() {
+        if (this.buffer.isEmpty()) {
+            return;
+        }
+        String segment = this.buffer.toString();
+        this.buffer.setLength(0);
+        this.emit(segment);
+    }
+
+    private void emit(String segment) {
+        if (!segment.isBlank()) {
+            this.segments.accept(segment);
+        }
+    }
+
+    private void newLine() {
+        if (!this.buffer.isEmpty() && this.buffer.charAt(this.buffer.length() - 1) != '\n') {
+            this.buffer.append('\n');
+        }
+    }
+
+    private static String name(String localName, String qName) {
+        return localName == null || localName.isEmpty() ? qName : localName;
+    }
+
+    private static int heading(String name) {
+        return name.length() == 2 && name.charAt(0) == 'h' && name.charAt(1) >= '1' && name.charAt(1) <= '6' ? name.charAt(1) - '0' : 0;
+    }
+
+}
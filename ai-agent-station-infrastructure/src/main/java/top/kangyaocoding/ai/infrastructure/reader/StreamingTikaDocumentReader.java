@@ -0,0 +1,338 @@
+package top.kangyaocoding.ai.infrastructure.reader;
+
+import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 描述: 基于 Tika SAX 的流式文档读取，替代一次性读出全文的 TikaDocumentReader
+ * <p>
+ * 1. 解析时由 {@link SegmentingContentHandler} 按段（默认 64K 字符）输出正文，每段立即交给分块器切分并写入 {@link DocumentSink}，
+ * 不保留整篇文本，内存占用与段大小相关而与文件大小无关；文件经 {@link TikaInputStream} 打开，PDF 等需要随机读取的格式直接读文件而不是缓冲到内存；
+ * 2. 目录下的文件、zip/jar 内的条目在固定大小的线程池上并行解析；其他格式的压缩包（tar、7z 等）由 Tika 在单个任务内递归解析；
+ * 3. 通过 {@link IngestionManifest} 跳过未变化的文件（zip 条目按 CRC 判断），并对上次读取过、本次不存在的文件回调 {@link DocumentSink#remove}；
+ * 4. 单个文件正文超过 maxFileChars 时截断，已读取部分照常输出。
+ * 分块的 metadata 中 source 为相对读取根目录的路径，压缩包条目为 {@code 包路径!/条目路径}。
+ * 段与段之间的分块不重叠，段边界尽量落在块级元素或换行处。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 21:10
+ */
+@Slf4j
+public class StreamingTikaDocumentReader {
+
+    public static final String SOURCE = "source";
+    public static final String SEGMENT = "segment";
+
+    private static final String ARCHIVE_SEPARATOR = "!/";
+
+    @FunctionalInterface
+    private interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    private static final class Counters {
+        private final AtomicInteger parsed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger removed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger truncated = new AtomicInteger();
+        private final AtomicLong chunks = new AtomicLong();
+
+        private IngestionReport report() {
+            return new IngestionReport(this.parsed.get(), this.skipped.get(), this.removed.get(), this.failed.get(),
+                    this.truncated.get(), this.chunks.get());
+        }
+    }
+
+    private final TextSplitter splitter;
+    private final Parser parser;
+    private final IngestionManifest manifest;
+    private final int parallelism;
+    private final int segmentChars;
+    private final long maxFileChars;
+
+    private StreamingTikaDocumentReader(Builder builder) {
+        this.splitter = builder.splitter;
+        this.parser = builder.parser;
+        this.manifest = builder.manifest;
+        this.parallelism = builder.parallelism;
+        this.segmentChars = builder.segmentChars;
+        this.maxFileChars = builder.maxFileChars;
+    }
+
+    public static Builder builder(TextSplitter splitter) {
+        return new Builder(splitter);
+    }
+
+    /**
+     * 读取单个文件或整个目录（递归），阻塞到全部文件处理完成并保存清单
+     */
+    public IngestionReport read(Path root, DocumentSink sink) throws IOException {
+        Path base = root.toAbsolutePath().normalize();
+        Path relativeTo = Files.isDirectory(base) ? base : base.getParent();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(base)) {
+            files = walk.filter(Files::isRegularFile).sorted().toList();
+        }
+
+        long start = System.currentTimeMillis();
+        Counters counters = new Counters();
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism,
+                new ThreadFactoryBuilder().setNameFormat("tika-reader-%d").setDaemon(true).build());
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                seen.add(file.toString());
+                futures.add(CompletableFuture.supplyAsync(() -> this.changed(file, seen, counters), executor)
+                        .thenCompose(changed -> changed ? this.ingest(file, relativeTo, sink, seen, counters, executor)
+                                : CompletableFuture.completedFuture(null)));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        String prefix = Files.isDirectory(base) ? base.toString() + base.getFileSystem().getSeparator() : base.toString();
+        for (String key : this.manifest.keys(prefix)) {
+            if (!seen.contains(key)) {
+                sink.remove(source(relativeTo, key));
+                this.manifest.remove(key);
+                counters.removed.incrementAndGet();
+            }
+        }
+        this.manifest.save();
+
+        IngestionReport report = counters.report();
+        log.info("读取 {} 完成 {} 耗时:{}ms", base, report, System.currentTimeMillis() - start);
+        return report;
+    }
+
+    /**
+     * 未变化的压缩包不展开，其条目也视为仍然存在
+     */
+    private boolean changed(Path file, Set<String> seen, Counters counters) {
+        try {
+            String key = file.toString();
+            if (this.manifest.unchanged(key, Files.size(file), Files.getLastModifiedTime(file).toMillis(), () -> IngestionManifest.sha256(file))) {
+                if (isZip(file)) {
+                    seen.addAll(this.manifest.keys(key + ARCHIVE_SEPARATOR));
+                }
+                counters.skipped.incrementAndGet();
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("读取文件属性 {} 失败", file, e);
+            counters.failed.incrementAndGet();
+            return false;
+        }
+    }
+
+    private CompletableFuture<Void> ingest(Path file, Path relativeTo, DocumentSink sink, Set<String> seen,
+                                           Counters counters, ExecutorService executor) {
+        String key = file.toString();
+        String source = source(relativeTo, key);
+        long size;
+        long mtime;
+        try {
+            size = Files.size(file);
+            mtime = Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            counters.failed.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+        Supplier<String> hash = Suppliers.memoize(() -> IngestionManifest.sha256(file));
+
+        if (!isZip(file)) {
+            if (this.parse(source, file.getFileName().toString(), () -> TikaInputStream.get(file), sink, counters)) {
+                this.manifest.record(key, size, mtime, hash.get());
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        ZipFile zip;
+        try {
+            zip = new ZipFile(file.toFile());
+        } catch (IOException e) {
+            log.warn("打开压缩包 {} 失败", source, e);
+            counters.failed.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+        AtomicInteger failures = new AtomicInteger();
+        List<CompletableFuture<Void>> entries = new ArrayList<>();
+        for (Enumeration<? extends ZipEntry> enumeration = zip.entries(); enumeration.hasMoreElements(); ) {
+            ZipEntry entry = enumeration.nextElement();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String entryKey = key + ARCHIVE_SEPARATOR + entry.getName();
+            String crc = Long.toHexString(entry.getCrc());
+            seen.add(entryKey);
+            if (this.manifest.unchanged(entryKey, entry.getSize(), entry.getTime(), () -> crc)) {
+                counters.skipped.incrementAndGet();
+                continue;
+            }
+            entries.add(CompletableFuture.runAsync(() -> {
+                String name = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+                if (this.parse(source + ARCHIVE_SEPARATOR + entry.getName(), name, () -> zip.getInputStream(entry), sink, counters)) {
+                    this.manifest.record(entryKey, entry.getSize(), entry.getTime(), crc);
+                } else {
+                    failures.incrementAndGet();
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(entries.toArray(CompletableFuture[]::new)).whenComplete((ignored, throwable) -> {
+            try {
+                zip.close();
+            } catch (IOException e) {
+                log.warn("关闭压缩包 {} 失败", source, e);
+            }
+            // 有条目失败时不记录压缩包本身，下次重新展开，已成功的条目按 CRC 跳过
+            if (throwable == null && failures.get() == 0) {
+                this.manifest.record(key, size, mtime, hash.get());
+            }
+        });
+    }
+
+    /**
+     * 解析单个文件，正文按段切分后写入 sink；截断视为成功
+     */
+    private boolean parse(String source, String resourceName, StreamOpener opener, DocumentSink sink, Counters counters) {
+        sink.begin(source);
+        AtomicInteger segment = new AtomicInteger();
+        SegmentingContentHandler handler = new SegmentingContentHandler(this.segmentChars, this.maxFileChars, text -> {
+            Document document = Document.builder()
+                    .text(text)
+                    .metadata(SOURCE, source)
+                    .metadata(SEGMENT, segment.getAndIncrement())
+                    .build();
+            List<Document> chunks = this.splitter.apply(List.of(document));
+            counters.chunks.addAndGet(chunks.size());
+            sink.accept(chunks);
+        });
+
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, resourceName);
+        ParseContext context = new ParseContext();
+        context.set(Parser.class, this.parser);
+        try (InputStream in = opener.open()) {
+            this.parser.parse(in, handler, metadata, context);
+            counters.parsed.incrementAndGet();
+            return true;
+        } catch (Exception e) {
+            if (WriteLimitReachedException.isWriteLimitReached(e)) {
+                handler.finish();
+                log.warn("{} 正文超过 {} 字符，已截断", source, this.maxFileChars);
+                counters.parsed.incrementAndGet();
+                counters.truncated.incrementAndGet();
+                return true;
+            }
+            log.warn("解析 {} 失败", source, e);
+            counters.failed.incrementAndGet();
+            return false;
+        }
+    }
+
+    private static boolean isZip(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".zip") || name.endsWith(".jar");
+    }
+
+    private static String source(Path relativeTo, String key) {
+        int separator = key.indexOf(ARCHIVE_SEPARATOR);
+        String path = separator < 0 ? key : key.substring(0, separator);
+        String source = relativeTo.relativize(Path.of(path)).toString().replace('\\', '/');
+        return separator < 0 ? source : source + key.substring(separator);
+    }
+
+    public static class Builder {
+
+        private final TextSplitter splitter;
+        private Parser parser = new AutoDetectParser();
+        private IngestionManifest manifest = IngestionManifest.inMemory();
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int segmentChars = 64 * 1024;
+        private long maxFileChars = 50_000_000L;
+
+        private Builder(TextSplitter splitter) {
+            Assert.notNull(splitter, "TextSplitter must not be null");
+            this.splitter = splitter;
+        }
+
+        public Builder parser(Parser parser) {
+            this.parser = parser;
+            return this;
+        }
+
+        public Builder manifest(IngestionManifest manifest) {
+            this.manifest = manifest;
+            return this;
+        }
+
+        /**
+         * 并行解析的线程数
+         */
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * 每段正文的目标字符数，单个解析线程的缓冲上限约为其 2 倍
+         */
+        public Builder segmentChars(int segmentChars) {
+            this.segmentChars = segmentChars;
+            return this;
+        }
+
+        /**
+         * 单个文件最多读取的正文字符数，超出部分截断
+         */
+        public Builder maxFileChars(long maxFileChars) {
+            this.maxFileChars = maxFileChars;
+            return this;
+        }
+
+        public StreamingTikaDocumentReader build() {
+            Assert.notNull(this.parser, "Parser must not be null");
+            Assert.notNull(this.manifest, "IngestionManifest must not be null");
+            Assert.isTrue(this.parallelism > 0, "parallelism must be positive");
+            Assert.isTrue(this.segmentChars >= 1024, "segmentChars must be at least 1024");
+            Assert.isTrue(this.maxFileChars > 0, "maxFileChars must be positive");
+            return new StreamingTikaDocumentReader(this);
+        }
+    }
+
+}
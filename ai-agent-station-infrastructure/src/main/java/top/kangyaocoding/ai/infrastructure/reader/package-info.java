@@ -0,0 +1,4 @@
+/**
+ * 文档读取；基于 Tika SAX 的流式解析，按段送入分块器，支持目录与压缩包并行解析和增量跳过
+ */
+package top.kangyaocoding.ai.infrastructure.reader;
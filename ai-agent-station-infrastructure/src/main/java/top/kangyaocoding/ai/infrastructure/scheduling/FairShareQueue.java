@@ -0,0 +1,459 @@
+package top.kangyaocoding.ai.infrastructure.scheduling;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 描述: 严格优先 + 租户加权公平的工作队列，供 {@link PriorityThreadPoolExecutor} 使用
+ * <p>
+ * 1. 流量类别映射到优先级，出队总是先取优先级数值最小且非空的一级，低优先级只在高优先级为空时执行；
+ * 2. 同一优先级内按租户做自计时公平排队（SCFQ）：任务的虚拟完成时间 = max(当前虚拟时间, 该租户上一个任务的完成时间) + 1 / 权重，
+ * 按完成时间出队，积压多的租户不会挤占其他租户，权重为 3 的租户约得到权重为 1 的租户 3 倍的执行机会；
+ * 3. 入队时类别队列或总队列已满，或按前方积压与平均执行耗时估算的等待超过该类别的排队时限，返回 false，由线程池扩容或执行拒绝策略，
+ * 拒绝策略可通过 {@link #offerEvicting} 挤出低优先级任务；
+ * 4. 出队时已超过截止时间的任务：submit 提交的以失败结束并跳过，无法通知失败的任务照常执行并计为 late。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:00
+ */
+final class FairShareQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    static final String FULL = "full";
+    static final String DEADLINE = "deadline";
+
+    private static final Comparator<TrafficTask> ORDER = Comparator
+            .<TrafficTask>comparingDouble(task -> task.tag().finishTag)
+            .thenComparingLong(task -> task.tag().sequence);
+
+    /**
+     * 回调在持有队列锁时执行，实现只做计数
+     */
+    interface Listener {
+        void dequeued(TrafficClass trafficClass, long waitNanos);
+
+        void overflowed(TrafficClass trafficClass, String reason);
+
+        void expired(TrafficClass trafficClass, boolean dropped);
+    }
+
+    /**
+     * @param deadlineNanos 排队时限，0 表示不限
+     */
+    record Policy(int priority, int capacity, long deadlineNanos) {
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private final Map<TrafficClass, Policy> policies;
+    private final TreeMap<Integer, Tier> tiers = new TreeMap<>();
+    private final Map<String, Integer> tenantWeights;
+    private final int defaultWeight;
+    private final int capacity;
+    private final Listener listener;
+    private final AtomicIntegerArray depths = new AtomicIntegerArray(TrafficClass.values().length);
+
+    private final AtomicLong serviceNanos = new AtomicLong();
+    /** 存活的工作线程数，由线程池的线程工厂维护；持有队列锁时不回调线程池，避免与其 mainLock 反序加锁 */
+    private final AtomicInteger workers = new AtomicInteger();
+    private int count;
+    private long sequence;
+
+    FairShareQueue(Map<TrafficClass, Policy> policies, Map<String, Integer> tenantWeights, int defaultWeight,
+                   int capacity, Listener listener) {
+        this.policies = new EnumMap<>(policies);
+        this.tenantWeights = Map.copyOf(tenantWeights);
+        this.defaultWeight = defaultWeight;
+        this.capacity = capacity;
+        this.listener = listener;
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            this.tiers.computeIfAbsent(this.policy(trafficClass).priority(), priority -> new Tier());
+        }
+    }
+
+    /**
+     * 包装线程工厂，工作线程启动与退出时维护 {@link #workers}
+     */
+    ThreadFactory countingWorkers(ThreadFactory threadFactory) {
+        return runnable -> threadFactory.newThread(() -> {
+            this.workers.incrementAndGet();
+            try {
+                runnable.run();
+            } finally {
+                this.workers.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * 单个任务执行耗时，按指数移动平均用于估算排队等待；多个工作线程同时结束时以 CAS 更新，样本不会互相覆盖
+     */
+    void recordService(long nanos) {
+        this.serviceNanos.updateAndGet(previous -> previous == 0 ? nanos : previous + (nanos - previous) / 5);
+    }
+
+    int depth(TrafficClass trafficClass) {
+        return this.depths.get(trafficClass.ordinal());
+    }
+
+    @Override
+    public boolean offer(Runnable runnable) {
+        if (!(runnable instanceof TrafficTask task)) {
+            throw new IllegalArgumentException("只接受 TrafficTask，请通过 PriorityThreadPoolExecutor 提交任务");
+        }
+        this.lock.lock();
+        try {
+            return this.enqueue(task, false);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 队列已满时为 task 挤出位置后入队，供拒绝策略在入队失败后调用，失败已计入 overflow，这里不再重复计数；
+     * 只从优先级不高于 task 的最低一级非空队列中挤出最晚轮到的任务（类别队列已满时只在同类别中选），
+     * 被挤出的任务以 {@link TrafficTask#discard()} 结束。预计排队超时或没有可挤出的任务时返回 false，不挤出任何任务
+     */
+    boolean offerEvicting(TrafficTask task) {
+        this.lock.lock();
+        try {
+            return this.enqueue(task, true);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean enqueue(TrafficTask task, boolean evict) {
+        TrafficTask.Tag tag = task.tag();
+        Policy policy = this.policy(tag.trafficClass);
+        boolean classFull = this.depth(tag.trafficClass) >= policy.capacity();
+        boolean full = classFull || this.count >= this.capacity;
+        if (full && !evict) {
+            this.listener.overflowed(tag.trafficClass, FULL);
+            return false;
+        }
+        long now = System.nanoTime();
+        if (policy.deadlineNanos() > 0 && this.estimateWait(policy.priority()) > policy.deadlineNanos()) {
+            if (!evict) {
+                this.listener.overflowed(tag.trafficClass, DEADLINE);
+            }
+            return false;
+        }
+        if (full) {
+            TrafficTask victim = this.victim(policy.priority(), classFull ? tag.trafficClass : null);
+            if (victim == null) {
+                return false;
+            }
+            this.tiers.get(this.policy(victim.tag().trafficClass).priority()).remove(victim);
+            this.count--;
+            this.depths.decrementAndGet(victim.tag().trafficClass.ordinal());
+            victim.discard();
+        }
+        tag.enqueueNanos = now;
+        tag.deadlineNanos = policy.deadlineNanos() > 0 ? now + policy.deadlineNanos() : 0;
+        tag.sequence = this.sequence++;
+        this.tiers.get(policy.priority()).add(task, this.tenantWeights.getOrDefault(tag.tenant, this.defaultWeight));
+        this.count++;
+        this.depths.incrementAndGet(tag.trafficClass.ordinal());
+        this.notEmpty.signal();
+        return true;
+    }
+
+    @Override
+    public boolean offer(Runnable runnable, long timeout, TimeUnit unit) {
+        return this.offer(runnable);
+    }
+
+    @Override
+    public void put(Runnable runnable) {
+        if (!this.offer(runnable)) {
+            throw new RejectedExecutionException("队列已满或预计排队超时");
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        this.lock.lock();
+        try {
+            return this.dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            TrafficTask task;
+            while ((task = this.dequeue()) == null) {
+                this.notEmpty.await();
+            }
+            return task;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            TrafficTask task;
+            while ((task = this.dequeue()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = this.notEmpty.awaitNanos(nanos);
+            }
+            return task;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        this.lock.lock();
+        try {
+            Tier tier = this.firstNonEmpty();
+            return tier == null ? null : tier.tasks.peek();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof TrafficTask task)) {
+            return false;
+        }
+        this.lock.lock();
+        try {
+            Tier tier = this.tiers.get(this.policy(task.tag().trafficClass).priority());
+            if (!tier.remove(task)) {
+                return false;
+            }
+            this.count--;
+            this.depths.decrementAndGet(task.tag().trafficClass.ordinal());
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        this.lock.lock();
+        try {
+            return this.capacity - this.count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 快照迭代，供线程池 purge / shutdownNow 使用
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        List<Runnable> snapshot = new ArrayList<>();
+        this.lock.lock();
+        try {
+            this.tiers.values().forEach(tier -> snapshot.addAll(tier.tasks));
+        } finally {
+            this.lock.unlock();
+        }
+        Iterator<Runnable> iterator = snapshot.iterator();
+        return new Iterator<>() {
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                this.last = iterator.next();
+                return this.last;
+            }
+
+            @Override
+            public void remove() {
+                FairShareQueue.this.remove(this.last);
+            }
+        };
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> collection) {
+        return this.drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 线程池关闭时取出剩余任务，不检查截止时间
+     */
+    @Override
+    public int drainTo(Collection<? super Runnable> collection, int maxElements) {
+        this.lock.lock();
+        try {
+            int drained = 0;
+            Tier tier;
+            while (drained < maxElements && (tier = this.firstNonEmpty()) != null) {
+                TrafficTask task = tier.poll();
+                this.count--;
+                this.depths.decrementAndGet(task.tag().trafficClass.ordinal());
+                collection.add(task);
+                drained++;
+            }
+            return drained;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private TrafficTask dequeue() {
+        long now = System.nanoTime();
+        Tier tier;
+        while ((tier = this.firstNonEmpty()) != null) {
+            TrafficTask task = tier.poll();
+            TrafficTask.Tag tag = task.tag();
+            this.count--;
+            this.depths.decrementAndGet(tag.trafficClass.ordinal());
+            if (tag.deadlineNanos != 0 && now - tag.deadlineNanos > 0) {
+                boolean dropped = task.expire();
+                this.listener.expired(tag.trafficClass, dropped);
+                if (dropped) {
+                    continue;
+                }
+            }
+            this.listener.dequeued(tag.trafficClass, now - tag.enqueueNanos);
+            return task;
+        }
+        return null;
+    }
+
+    /**
+     * 前方（同级及更高优先级）积压 × 平均执行耗时 / 线程数；还没有执行耗时样本时不估算
+     */
+    private long estimateWait(int priority) {
+        long service = this.serviceNanos.get();
+        if (service <= 0) {
+            return 0;
+        }
+        int ahead = 0;
+        for (Tier tier : this.tiers.headMap(priority, true).values()) {
+            ahead += tier.tasks.size();
+        }
+        return ahead * service / Math.max(1, this.workers.get());
+    }
+
+    /**
+     * 从最低优先级往上找到 priority 为止，取第一个有候选任务的一级中按公平顺序最晚轮到的任务，即积压最多的租户的队尾
+     *
+     * @param trafficClass 不为 null 时只在该类别的任务中选
+     */
+    private TrafficTask victim(int priority, TrafficClass trafficClass) {
+        for (Tier tier : this.tiers.tailMap(priority, true).descendingMap().values()) {
+            TrafficTask victim = null;
+            for (TrafficTask task : tier.tasks) {
+                if ((trafficClass == null || task.tag().trafficClass == trafficClass)
+                        && (victim == null || ORDER.compare(task, victim) > 0)) {
+                    victim = task;
+                }
+            }
+            if (victim != null) {
+                return victim;
+            }
+        }
+        return null;
+    }
+
+    private Tier firstNonEmpty() {
+        for (Tier tier : this.tiers.values()) {
+            if (!tier.tasks.isEmpty()) {
+                return tier;
+            }
+        }
+        return null;
+    }
+
+    private Policy policy(TrafficClass trafficClass) {
+        Policy policy = this.policies.get(trafficClass);
+        if (policy == null) {
+            throw new IllegalStateException("未配置流量类别的调度策略: " + trafficClass);
+        }
+        return policy;
+    }
+
+    /**
+     * 一个优先级内的公平队列；租户没有排队任务时丢弃其完成时间，重新入队从当前虚拟时间开始，不积攒空闲期的份额
+     */
+    private static final class Tier {
+        private final PriorityQueue<TrafficTask> tasks = new PriorityQueue<>(ORDER);
+        private final Map<String, Double> lastFinish = new HashMap<>();
+        private final Map<String, Integer> queued = new HashMap<>();
+        private double virtualTime;
+
+        private void add(TrafficTask task, int weight) {
+            TrafficTask.Tag tag = task.tag();
+            double start = Math.max(this.virtualTime, this.lastFinish.getOrDefault(tag.tenant, 0D));
+            tag.finishTag = start + 1D / weight;
+            this.lastFinish.put(tag.tenant, tag.finishTag);
+            this.queued.merge(tag.tenant, 1, Integer::sum);
+            this.tasks.add(task);
+        }
+
+        private TrafficTask poll() {
+            TrafficTask task = this.tasks.poll();
+            this.virtualTime = Math.max(this.virtualTime, task.tag().finishTag);
+            this.release(task.tag().tenant);
+            return task;
+        }
+
+        private boolean remove(TrafficTask task) {
+            if (!this.tasks.remove(task)) {
+                return false;
+            }
+            this.release(task.tag().tenant);
+            return true;
+        }
+
+        private void release(String tenant) {
+            if (this.queued.merge(tenant, -1, Integer::sum) <= 0) {
+                this.queued.remove(tenant);
+                this.lastFinish.remove(tenant);
+            }
+        }
+    }
+
+}
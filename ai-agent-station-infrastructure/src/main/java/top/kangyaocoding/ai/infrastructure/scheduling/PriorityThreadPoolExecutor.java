@@ -0,0 +1,336 @@
+package top.kangyaocoding.ai.infrastructure.scheduling;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 按流量类别与租户调度的线程池；替代 FIFO 的 LinkedBlockingQueue，批处理积压不再拖慢交互式对话
+ * <p>
+ * 1. 任务的类别与租户取显式参数，否则取提交线程的 {@link TrafficContext}，都没有时取默认上下文；
+ * 2. 排队顺序见 {@link FairShareQueue}：类别之间严格优先，同级按租户加权公平，排队时限内预计排不上的任务在入队时即被拒绝；
+ * 3. 指标：agent.scheduler.queue{class} 排队数、agent.scheduler.wait{class} 排队耗时、
+ * agent.scheduler.overflow{class,reason} 入队被拒（随后扩容或执行拒绝策略）、agent.scheduler.rejected{class} 执行拒绝策略、
+ * agent.scheduler.expired{class,result} 出队时已超时（dropped 以失败结束，late 照常执行）；
+ * 4. 任务执行期间工作线程处于任务的 {@link TrafficContext} 中，任务内再次提交的子任务沿用同一类别与租户；
+ * 5. 需要丢弃旧任务时使用 {@link DiscardLowestPriorityPolicy}，不接受 {@link ThreadPoolExecutor.DiscardOldestPolicy}。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 12:05
+ */
+public class PriorityThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final FairShareQueue queue;
+    private final TrafficContext defaultContext;
+    private final ThreadLocal<Long> started = new ThreadLocal<>();
+    private final ThreadLocal<TrafficContext.Scope> scopes = new ThreadLocal<>();
+
+    private PriorityThreadPoolExecutor(Builder builder, FairShareQueue queue, Metrics metrics) {
+        super(builder.corePoolSize, builder.maxPoolSize, builder.keepAlive.toNanos(), TimeUnit.NANOSECONDS, queue,
+                queue.countingWorkers(builder.threadFactory), (runnable, executor) -> {
+                    metrics.rejected(runnable);
+                    builder.rejectedExecutionHandler.rejectedExecution(runnable, executor);
+                });
+        this.queue = queue;
+        this.defaultContext = builder.defaultContext;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Assert.notNull(command, "command must not be null");
+        super.execute(command instanceof TrafficTask ? command : new TrafficTask.Executed(command, this.context()));
+    }
+
+    public void execute(TrafficClass trafficClass, String tenant, Runnable command) {
+        super.execute(new TrafficTask.Executed(command, new TrafficContext(trafficClass, tenant)));
+    }
+
+    public <T> Future<T> submit(TrafficClass trafficClass, String tenant, Callable<T> task) {
+        TrafficTask.Submitted<T> future = new TrafficTask.Submitted<>(task, new TrafficContext(trafficClass, tenant));
+        super.execute(future);
+        return future;
+    }
+
+    public Future<?> submit(TrafficClass trafficClass, String tenant, Runnable task) {
+        TrafficTask.Submitted<Object> future = new TrafficTask.Submitted<>(task, null, new TrafficContext(trafficClass, tenant));
+        super.execute(future);
+        return future;
+    }
+
+    public int getQueueDepth(TrafficClass trafficClass) {
+        return this.queue.depth(trafficClass);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new TrafficTask.Submitted<>(callable, this.context());
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new TrafficTask.Submitted<>(runnable, value, this.context());
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable runnable) {
+        if (runnable instanceof TrafficTask task) {
+            this.scopes.set(TrafficContext.open(task.tag().trafficClass, task.tag().tenant));
+        }
+        this.started.set(System.nanoTime());
+    }
+
+    @Override
+    protected void afterExecute(Runnable runnable, Throwable throwable) {
+        Long start = this.started.get();
+        if (start != null) {
+            this.queue.recordService(System.nanoTime() - start);
+            this.started.remove();
+        }
+        TrafficContext.Scope scope = this.scopes.get();
+        if (scope != null) {
+            scope.close();
+            this.scopes.remove();
+        }
+    }
+
+    private TrafficContext context() {
+        TrafficContext current = TrafficContext.current();
+        return current != null ? current : this.defaultContext;
+    }
+
+    /**
+     * 按类别挤出排队任务的拒绝策略，替代 {@link ThreadPoolExecutor.DiscardOldestPolicy}：后者 poll 出的是最高优先级一级的队首，
+     * 溢出的入库任务会挤掉交互式任务，且 submit 的 Future 永远不会完成。
+     * <p>
+     * 1. 只从优先级不高于新任务的最低一级非空队列中挤出最晚轮到的任务，再让新任务入队，见 {@link FairShareQueue#offerEvicting}；
+     * 2. 没有可挤出的任务、预计排队超时或线程池已关闭时丢弃新任务；
+     * 3. 被丢弃的 submit 任务以 RejectedExecutionException 结束，execute 提交的任务无法通知，直接丢弃。
+     */
+    public static class DiscardLowestPriorityPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            if (!(executor instanceof PriorityThreadPoolExecutor priorityExecutor) || !(runnable instanceof TrafficTask task)) {
+                throw new RejectedExecutionException("DiscardLowestPriorityPolicy 只用于 PriorityThreadPoolExecutor");
+            }
+            if (executor.isShutdown() || !priorityExecutor.queue.offerEvicting(task)) {
+                task.discard();
+            }
+        }
+    }
+
+    /**
+     * 未配置 MeterRegistry 时只做空操作
+     */
+    private static final class Metrics implements FairShareQueue.Listener {
+        private final Map<TrafficClass, Timer> wait = new EnumMap<>(TrafficClass.class);
+        private final Map<TrafficClass, Counter> full = new EnumMap<>(TrafficClass.class);
+        private final Map<TrafficClass, Counter> deadline = new EnumMap<>(TrafficClass.class);
+        private final Map<TrafficClass, Counter> rejected = new EnumMap<>(TrafficClass.class);
+        private final Map<TrafficClass, Counter> dropped = new EnumMap<>(TrafficClass.class);
+        private final Map<TrafficClass, Counter> late = new EnumMap<>(TrafficClass.class);
+
+        private Metrics(MeterRegistry registry) {
+            if (registry == null) {
+                return;
+            }
+            for (TrafficClass trafficClass : TrafficClass.values()) {
+                String name = trafficClass.name().toLowerCase();
+                this.wait.put(trafficClass, Timer.builder("agent.scheduler.wait")
+                        .description("任务排队耗时")
+                        .tag("class", name)
+                        .publishPercentileHistogram()
+                        .register(registry));
+                this.full.put(trafficClass, overflow(registry, name, FairShareQueue.FULL));
+                this.deadline.put(trafficClass, overflow(registry, name, FairShareQueue.DEADLINE));
+                this.rejected.put(trafficClass, Counter.builder("agent.scheduler.rejected")
+                        .description("线程池已满，执行拒绝策略的任务数")
+                        .tag("class", name)
+                        .register(registry));
+                this.dropped.put(trafficClass, expired(registry, name, "dropped"));
+                this.late.put(trafficClass, expired(registry, name, "late"));
+            }
+        }
+
+        private static Counter overflow(MeterRegistry registry, String name, String reason) {
+            return Counter.builder("agent.scheduler.overflow")
+                    .description("入队被拒的任务数，reason 为 full（容量）/ deadline（预计排队超时）")
+                    .tags("class", name, "reason", reason)
+                    .register(registry);
+        }
+
+        private static Counter expired(MeterRegistry registry, String name, String result) {
+            return Counter.builder("agent.scheduler.expired")
+                    .description("出队时已超过排队时限的任务数，result 为 dropped（以失败结束）/ late（照常执行）")
+                    .tags("class", name, "result", result)
+                    .register(registry);
+        }
+
+        @Override
+        public void dequeued(TrafficClass trafficClass, long waitNanos) {
+            Timer timer = this.wait.get(trafficClass);
+            if (timer != null) {
+                timer.record(waitNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void overflowed(TrafficClass trafficClass, String reason) {
+            increment(FairShareQueue.FULL.equals(reason) ? this.full : this.deadline, trafficClass);
+        }
+
+        @Override
+        public void expired(TrafficClass trafficClass, boolean dropped) {
+            increment(dropped ? this.dropped : this.late, trafficClass);
+        }
+
+        private void rejected(Runnable runnable) {
+            if (runnable instanceof TrafficTask task) {
+                increment(this.rejected, task.tag().trafficClass);
+            }
+        }
+
+        private static void increment(Map<TrafficClass, Counter> counters, TrafficClass trafficClass) {
+            Counter counter = counters.get(trafficClass);
+            if (counter != null) {
+                counter.increment();
+            }
+        }
+    }
+
+    public static final class Builder {
+        private int corePoolSize = 20;
+        private int maxPoolSize = 200;
+        private Duration keepAlive = Duration.ofSeconds(10);
+        private int capacity = 5000;
+        private ThreadFactory threadFactory = Executors.defaultThreadFactory();
+        private RejectedExecutionHandler rejectedExecutionHandler = new ThreadPoolExecutor.AbortPolicy();
+        private final Map<TrafficClass, FairShareQueue.Policy> policies = new EnumMap<>(TrafficClass.class);
+        private final Map<String, Integer> tenantWeights = new HashMap<>();
+        private int defaultWeight = 1;
+        private TrafficContext defaultContext = new TrafficContext(TrafficClass.INTERACTIVE, TrafficContext.DEFAULT_TENANT);
+        private MeterRegistry meterRegistry;
+
+        private Builder() {
+            this.trafficClass(TrafficClass.INTERACTIVE, 0, 1000, Duration.ofSeconds(2));
+            this.trafficClass(TrafficClass.STREAMING, 0, 1000, Duration.ofSeconds(2));
+            this.trafficClass(TrafficClass.BATCH, 1, 2000, Duration.ofSeconds(60));
+            this.trafficClass(TrafficClass.INGESTION, 2, 1000, Duration.ofMinutes(5));
+        }
+
+        public Builder corePoolSize(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+            return this;
+        }
+
+        public Builder maxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+            return this;
+        }
+
+        public Builder keepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * 所有类别合计的排队上限
+         */
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        public Builder rejectedExecutionHandler(RejectedExecutionHandler rejectedExecutionHandler) {
+            this.rejectedExecutionHandler = rejectedExecutionHandler;
+            return this;
+        }
+
+        /**
+         * @param priority 数值越小越优先，相同数值的类别在同一级内按租户公平排队
+         * @param deadline 排队时限，为 0 时不限
+         */
+        public Builder trafficClass(TrafficClass trafficClass, int priority, int capacity, Duration deadline) {
+            Assert.isTrue(capacity > 0, "capacity must be positive");
+            Assert.isTrue(deadline != null && !deadline.isNegative(), "deadline must not be negative");
+            this.policies.put(trafficClass, new FairShareQueue.Policy(priority, capacity, deadline.toNanos()));
+            return this;
+        }
+
+        public Builder tenantWeight(String tenant, int weight) {
+            Assert.isTrue(weight > 0, "weight must be positive");
+            this.tenantWeights.put(tenant, weight);
+            return this;
+        }
+
+        /**
+         * 未配置权重的租户的权重
+         */
+        public Builder defaultWeight(int defaultWeight) {
+            this.defaultWeight = defaultWeight;
+            return this;
+        }
+
+        /**
+         * 未指定类别且提交线程没有 {@link TrafficContext} 时使用
+         */
+        public Builder defaultContext(TrafficClass trafficClass, String tenant) {
+            this.defaultContext = new TrafficContext(trafficClass, tenant);
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public PriorityThreadPoolExecutor build() {
+            Assert.isTrue(this.corePoolSize >= 0 && this.maxPoolSize > 0 && this.maxPoolSize >= this.corePoolSize,
+                    "require 0 <= corePoolSize <= maxPoolSize and maxPoolSize > 0");
+            Assert.isTrue(this.capacity > 0, "capacity must be positive");
+            Assert.isTrue(this.defaultWeight > 0, "defaultWeight must be positive");
+            Assert.notNull(this.threadFactory, "threadFactory must not be null");
+            Assert.notNull(this.rejectedExecutionHandler, "rejectedExecutionHandler must not be null");
+            Assert.isTrue(!(this.rejectedExecutionHandler instanceof ThreadPoolExecutor.DiscardOldestPolicy),
+                    "DiscardOldestPolicy discards the head of the highest-priority tier, use DiscardLowestPriorityPolicy");
+            Metrics metrics = new Metrics(this.meterRegistry);
+            FairShareQueue queue = new FairShareQueue(this.policies, this.tenantWeights, this.defaultWeight, this.capacity, metrics);
+            PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(this, queue, metrics);
+            if (this.meterRegistry != null) {
+                for (TrafficClass trafficClass : TrafficClass.values()) {
+                    Gauge.builder("agent.scheduler.queue", executor, e -> e.getQueueDepth(trafficClass))
+                            .description("排队中的任务数")
+                            .tag("class", trafficClass.name().toLowerCase())
+                            .register(this.meterRegistry);
+                }
+            }
+            return executor;
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package top.kangyaocoding.ai.infrastructure.scheduling;
+
+/**
+ * 描述: 流量类别；优先级、队列容量与排队时限按类别配置，默认交互与流式对话优先于批处理和知识库导入
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 11:50
+ */
+public enum TrafficClass {
+
+    /** 交互式对话，用户在等待完整响应 */
+    INTERACTIVE,
+    /** 流式对话，用户在等待首个 token */
+    STREAMING,
+    /** 批处理任务，如批量问答、评测 */
+    BATCH,
+    /** 知识库导入，文档解析、分块与向量化 */
+    INGESTION
+
+}
@@ -0,0 +1,78 @@
+package top.kangyaocoding.ai.infrastructure.scheduling;
+
+import io.micrometer.context.ThreadLocalAccessor;
+import org.springframework.util.Assert;
+
+/**
+ * 描述: 当前线程的流量类别与租户；未显式指定类别的任务在提交时取当前线程的上下文
+ * <p>
+ * 用法：{@code try (TrafficContext.Scope scope = TrafficContext.open(TrafficClass.BATCH, tenant)) { executor.submit(...); }}，
+ * 作用域结束后恢复外层上下文。经 {@link Accessor} 注册到 context-propagation，以 ContextSnapshot 包装的线程池在工作线程上沿用提交线程的上下文。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 11:50
+ */
+public record TrafficContext(TrafficClass trafficClass, String tenant) {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final ThreadLocal<TrafficContext> CURRENT = new ThreadLocal<>();
+
+    public TrafficContext {
+        Assert.notNull(trafficClass, "trafficClass must not be null");
+        Assert.hasText(tenant, "tenant must not be empty");
+    }
+
+    public static Scope open(TrafficClass trafficClass, String tenant) {
+        TrafficContext previous = CURRENT.get();
+        CURRENT.set(new TrafficContext(trafficClass, tenant));
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * @return 当前线程未设置时为 null
+     */
+    public static TrafficContext current() {
+        return CURRENT.get();
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * 经 ServiceLoader 注册
+     */
+    public static final class Accessor implements ThreadLocalAccessor<TrafficContext> {
+
+        public static final String KEY = "agent.traffic";
+
+        @Override
+        public Object key() {
+            return KEY;
+        }
+
+        @Override
+        public TrafficContext getValue() {
+            return CURRENT.get();
+        }
+
+        @Override
+        public void setValue(TrafficContext value) {
+            CURRENT.set(value);
+        }
+
+        @Override
+        public void setValue() {
+            CURRENT.remove();
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package top.kangyaocoding.ai.infrastructure.scheduling;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 描述: 带流量类别与租户的任务；入队时由 {@link FairShareQueue} 写入排队时间、截止时间与公平排队的虚拟完成时间
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 11:55
+ */
+interface TrafficTask extends Runnable {
+
+    Tag tag();
+
+    /**
+     * 排队超过截止时间时调用；返回 false 表示任务无法以失败结束，仍需执行
+     */
+    boolean expire();
+
+    /**
+     * 队列已满、被拒绝策略挤出队列时调用
+     */
+    void discard();
+
+    final class Tag {
+        final TrafficClass trafficClass;
+        final String tenant;
+        long enqueueNanos;
+        long deadlineNanos;
+        double finishTag;
+        long sequence;
+
+        Tag(TrafficContext context) {
+            this.trafficClass = context.trafficClass();
+            this.tenant = context.tenant();
+        }
+    }
+
+    /**
+     * execute 提交的普通任务；无法通知调用方失败（如 CompletableFuture.supplyAsync 的内部任务），超时后仍执行
+     */
+    final class Executed implements TrafficTask {
+        private final Runnable delegate;
+        private final Tag tag;
+
+        Executed(Runnable delegate, TrafficContext context) {
+            this.delegate = delegate;
+            this.tag = new Tag(context);
+        }
+
+        @Override
+        public Tag tag() {
+            return this.tag;
+        }
+
+        @Override
+        public boolean expire() {
+            return false;
+        }
+
+        /**
+         * 无法通知调用方，直接丢弃
+         */
+        @Override
+        public void discard() {
+        }
+
+        @Override
+        public void run() {
+            this.delegate.run();
+        }
+    }
+
+    /**
+     * submit 提交的任务；超时后以 RejectedExecutionException 结束，调用方的 Future 立即得到失败
+     */
+    final class Submitted<V> extends FutureTask<V> implements TrafficTask {
+        private final Tag tag;
+
+        Submitted(Callable<V> callable, TrafficContext context) {
+            super(callable);
+            this.tag = new Tag(context);
+        }
+
+        Submitted(Runnable runnable, V result, TrafficContext context) {
+            super(runnable, result);
+            this.tag = new Tag(context);
+        }
+
+        @Override
+        public Tag tag() {
+            return this.tag;
+        }
+
+        @Override
+        public boolean expire() {
+            this.setException(new RejectedExecutionException(String.format("%s 任务排队超过截止时间（租户 %s）",
+                    this.tag.trafficClass, this.tag.tenant)));
+            return true;
+        }
+
+        @Override
+        public void discard() {
+            this.setException(new RejectedExecutionException(String.format("%s 任务被挤出已满的队列（租户 %s）",
+                    this.tag.trafficClass, this.tag.tenant)));
+        }
+    }
+
+}
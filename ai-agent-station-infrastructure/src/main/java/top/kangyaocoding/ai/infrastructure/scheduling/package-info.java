@@ -0,0 +1,4 @@
+/**
+ * 任务调度；按流量类别严格优先、同级按租户加权公平排队，排队超时提前拒绝
+ */
+package top.kangyaocoding.ai.infrastructure.scheduling;
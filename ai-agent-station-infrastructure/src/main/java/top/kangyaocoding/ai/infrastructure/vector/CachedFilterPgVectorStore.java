@@ -0,0 +1,112 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StringUtils;
+import top.kangyaocoding.ai.domain.agent.service.rag.FilterExpressionCache;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 描述: 复用过滤条件转换结果的 pgvector 检索
+ * <p>
+ * 写入、删除委托给 {@link PgVectorStore}；检索使用与其相同的 SQL 模板，但过滤片段取自 {@link FilterExpressionCache}，
+ * 避免每次检索都重新转换 jsonpath。开启 {@link PgVectorQuantization} 时额外在量化向量上建 HNSW 索引并走两阶段检索，
+ * 此时应将 spring.ai.vectorstore.pgvector.index-type 设为 none，避免重复维护全精度索引。
+ * 检索使用传入的 jdbcTemplate，可指向独立的检索连接池；建索引与写入一样使用 delegate 自己的连接。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 11:05
+ */
+public class CachedFilterPgVectorStore implements VectorStore, InitializingBean {
+
+    private final PgVectorStore delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddingModel embeddingModel;
+    private final FilterExpressionCache filterExpressionCache;
+    private final String tableName;
+    private final String qualifiedTableName;
+    private final PgVectorQuantization quantization;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final PgVectorDocumentRowMapper rowMapper = new PgVectorDocumentRowMapper(new ObjectMapper());
+
+    public CachedFilterPgVectorStore(PgVectorStore delegate, JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel,
+                                     FilterExpressionCache filterExpressionCache, String schemaName, String tableName) {
+        this(delegate, jdbcTemplate, embeddingModel, filterExpressionCache, schemaName, tableName,
+                PgVectorQuantization.DISABLED, 16, 64, 40);
+    }
+
+    public CachedFilterPgVectorStore(PgVectorStore delegate, JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel,
+                                     FilterExpressionCache filterExpressionCache, String schemaName, String tableName,
+                                     PgVectorQuantization quantization, int m, int efConstruction, int efSearch) {
+        this.delegate = delegate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.embeddingModel = embeddingModel;
+        this.filterExpressionCache = filterExpressionCache;
+        this.tableName = tableName;
+        this.qualifiedTableName = schemaName + "." + tableName;
+        this.quantization = quantization;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (this.quantization.isEnabled()) {
+            JdbcTemplate ddlJdbcTemplate = this.delegate.<JdbcTemplate>getNativeClient().orElse(this.jdbcTemplate);
+            ddlJdbcTemplate.execute(this.quantization.indexDdl(
+                    PgIdentifiers.of(this.tableName + "_", this.quantization.getType().name().toLowerCase(), "_idx"),
+                    this.qualifiedTableName, this.delegate.getDistanceType(), this.m, this.efConstruction));
+        }
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        this.delegate.add(documents);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        this.delegate.delete(idList);
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        this.delegate.delete(filterExpression);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        String filterSql = this.filterExpressionCache.convert(request.getFilterExpression());
+        String where = StringUtils.hasText(filterSql) ? " AND " + filterSql : "";
+        String sql = this.quantization.searchSql(this.qualifiedTableName, where, this.delegate.getDistanceType());
+
+        PGvector queryEmbedding = new PGvector(this.embeddingModel.embed(request.getQuery()));
+        double distance = 1 - request.getSimilarityThreshold();
+        List<Object> args = this.quantization.searchArgs(queryEmbedding, distance, request.getTopK());
+        if (!this.quantization.isEnabled()) {
+            return this.jdbcTemplate.query(sql, this.rowMapper, args.toArray());
+        }
+        return PgVectorQueries.query(this.jdbcTemplate, this.rowMapper, sql, args,
+                this.quantization.efSearch(this.efSearch, request.getTopK()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> getNativeClient() {
+        return Optional.of((T) this.jdbcTemplate);
+    }
+
+}
@@ -0,0 +1,134 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.util.DigestUtils;
+import top.kangyaocoding.ai.infrastructure.cache.CacheRegions;
+import top.kangyaocoding.ai.infrastructure.cache.TieredCache;
+import top.kangyaocoding.ai.infrastructure.embedding.KnowledgeEmbeddingModel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 描述: 检索结果缓存；问题、过滤条件、topK 与相似度阈值都相同的检索在 {@link CacheRegions#RETRIEVAL} 区域内复用结果
+ * <p>
+ * 1. key 为上述参数的摘要，值为文档的 id、文本、元数据与分数，每次读取都复制出新的 Document，调用方修改元数据不影响缓存；
+ * 2. 写入与删除后整个区域失效（推进区域代号，见 {@link TieredCache}）并广播给其他节点，失效前已开始的检索不会写回旧结果；
+ * 绕过本存储直接改动数据库的数据、以及进程内索引追平前缓存的结果，
+ * 要等区域过期后才可见，区域的过期时间按可接受的延迟配置；
+ * 3. {@link KnowledgeEmbeddingModel#withModel} 范围内的检索（如预热回放以桩模型向量化问题）不读也不写缓存，
+ * 这类结果没有语义，不能被线上请求命中；
+ * 4. 结果中含媒体的文档无法按上述结构保存，整次检索不缓存。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 16:00
+ */
+public class CachedRetrievalVectorStore implements VectorStore {
+
+    private static final TypeReference<List<CachedDocument>> CACHED_DOCUMENTS = new TypeReference<>() {
+    };
+    private static final char SEPARATOR = '\u0001';
+
+    private final VectorStore delegate;
+    private final TieredCache cache;
+
+    public CachedRetrievalVectorStore(VectorStore delegate, TieredCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public String getName() {
+        return this.delegate.getName();
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        try {
+            this.delegate.add(documents);
+        } finally {
+            this.cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        try {
+            this.delegate.delete(idList);
+        } finally {
+            this.cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        try {
+            this.delegate.delete(filterExpression);
+        } finally {
+            this.cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (KnowledgeEmbeddingModel.isOverridden()) {
+            return this.delegate.similaritySearch(request);
+        }
+        List<CachedDocument> cached = this.cache.get(key(request), CACHED_DOCUMENTS,
+                () -> toCached(this.delegate.similaritySearch(request)));
+        if (cached == null) {
+            return this.delegate.similaritySearch(request);
+        }
+        List<Document> documents = new ArrayList<>(cached.size());
+        for (CachedDocument document : cached) {
+            documents.add(document.toDocument());
+        }
+        return documents;
+    }
+
+    @Override
+    public <T> Optional<T> getNativeClient() {
+        return this.delegate.getNativeClient();
+    }
+
+    static String key(SearchRequest request) {
+        String raw = request.getQuery() + SEPARATOR + request.getTopK() + SEPARATOR + request.getSimilarityThreshold()
+                + SEPARATOR + request.getFilterExpression();
+        return DigestUtils.md5DigestAsHex(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return 含媒体的结果返回 null，不缓存
+     */
+    private static List<CachedDocument> toCached(List<Document> documents) {
+        List<CachedDocument> cached = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            if (document.getMedia() != null) {
+                return null;
+            }
+            cached.add(new CachedDocument(document.getId(), document.getText(), document.getMetadata(), document.getScore()));
+        }
+        return List.copyOf(cached);
+    }
+
+    record CachedDocument(String id, String text, Map<String, Object> metadata, Double score) {
+
+        Document toDocument() {
+            return Document.builder()
+                    .id(this.id)
+                    .text(this.text)
+                    .metadata(this.metadata == null ? new HashMap<>() : new HashMap<>(this.metadata))
+                    .score(this.score)
+                    .build();
+        }
+    }
+
+}
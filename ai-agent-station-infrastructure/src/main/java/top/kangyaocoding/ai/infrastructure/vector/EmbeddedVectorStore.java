@@ -0,0 +1,302 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * 描述: 进程内向量存储，基于 {@link HnswIndex}
+ * <p>
+ * 适合体量小、读多写少的热点知识库：检索不出进程，不占用数据库连接。
+ * 数据一般由 {@link EmbeddedVectorStoreSynchronizer} 从 pgvector 同步而来（向量直接复用，不重新 embedding），
+ * 也可以直接 add。被删除节点超过一定比例时整体重建索引，避免墓碑拖慢检索。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 17:50
+ */
+@Slf4j
+public class EmbeddedVectorStore implements VectorStore {
+
+    static final String INDEX_FILE = "index.hnsw";
+    static final String DOCUMENTS_FILE = "documents.json";
+
+    private static final double REBUILD_DELETED_RATIO = 0.2;
+    private static final TypeReference<List<StoredDocument>> DOCUMENTS_TYPE = new TypeReference<>() {
+    };
+
+    private final EmbeddingModel embeddingModel;
+    private final BatchingStrategy batchingStrategy;
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, StoredDocument> documents = new HashMap<>();
+    private HnswIndex index;
+
+    private EmbeddedVectorStore(Builder builder) {
+        this.embeddingModel = builder.embeddingModel;
+        this.batchingStrategy = builder.batchingStrategy;
+        this.dimensions = builder.dimensions;
+        this.m = builder.m;
+        this.efConstruction = builder.efConstruction;
+        this.efSearch = builder.efSearch;
+        this.index = new HnswIndex(this.dimensions, this.m, this.efConstruction);
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel) {
+        return new Builder(embeddingModel);
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        List<float[]> embeddings = this.embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(), this.batchingStrategy);
+        this.upsert(documents, embeddings);
+    }
+
+    /**
+     * 写入已有向量的文档，同步 pgvector 时使用
+     */
+    public void upsert(List<Document> documents, List<float[]> embeddings) {
+        Assert.isTrue(documents.size() == embeddings.size(), "documents and embeddings size mismatch");
+        this.lock.writeLock().lock();
+        try {
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                this.index.add(document.getId(), embeddings.get(i));
+                this.documents.put(document.getId(), new StoredDocument(document.getId(), document.getText(), document.getMetadata()));
+            }
+            this.rebuildIfFragmented();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        this.lock.writeLock().lock();
+        try {
+            for (String id : idList) {
+                this.index.remove(id);
+                this.documents.remove(id);
+            }
+            this.rebuildIfFragmented();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        List<String> ids = new ArrayList<>();
+        this.lock.readLock().lock();
+        try {
+            this.documents.values().stream()
+                    .filter(document -> MetadataFilterEvaluator.test(filterExpression, document.metadata()))
+                    .forEach(document -> ids.add(document.id()));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        this.delete(ids);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        float[] query = this.embeddingModel.embed(request.getQuery());
+        Filter.Expression filter = request.getFilterExpression();
+        double maxDistance = 1 - request.getSimilarityThreshold();
+
+        this.lock.readLock().lock();
+        try {
+            HnswIndex current = this.index;
+            IntPredicate accept = filter == null ? null
+                    : node -> MetadataFilterEvaluator.test(filter, this.documents.get(current.idOf(node)).metadata());
+            List<Document> results = new ArrayList<>(request.getTopK());
+            for (HnswIndex.Neighbor neighbor : current.search(query, request.getTopK(), this.efSearch, accept)) {
+                if (neighbor.distance() > maxDistance) {
+                    break;
+                }
+                StoredDocument document = this.documents.get(neighbor.id());
+                Map<String, Object> metadata = new HashMap<>(document.metadata());
+                metadata.put(DocumentMetadata.DISTANCE.value(), neighbor.distance());
+                results.add(Document.builder()
+                        .id(document.id())
+                        .text(document.text())
+                        .metadata(metadata)
+                        .score(1.0 - neighbor.distance())
+                        .build());
+            }
+            return results;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> getNativeClient() {
+        return Optional.of((T) this.index);
+    }
+
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.documents.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public long offHeapBytes() {
+        this.lock.readLock().lock();
+        try {
+            return this.index.offHeapBytes();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前索引是否仍映射着 {@link #load} 的快照目录；追加写入、重建或替换索引后为 false
+     */
+    public boolean isSnapshotMapped() {
+        this.lock.readLock().lock();
+        try {
+            return this.index.isMapped();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 保存快照到目录；写入期间阻塞写操作，检索不受影响
+     */
+    public void save(Path directory) throws IOException {
+        this.lock.readLock().lock();
+        try {
+            Files.createDirectories(directory);
+            this.index.save(directory.resolve(INDEX_FILE));
+            this.objectMapper.writeValue(directory.resolve(DOCUMENTS_FILE).toFile(), List.copyOf(this.documents.values()));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从快照目录恢复，替换当前全部数据
+     */
+    public void load(Path directory) throws IOException {
+        HnswIndex loaded = HnswIndex.load(directory.resolve(INDEX_FILE));
+        Assert.isTrue(loaded.getDimensions() == this.dimensions, "snapshot dimensions mismatch: " + loaded.getDimensions());
+        List<StoredDocument> stored = this.objectMapper.readValue(directory.resolve(DOCUMENTS_FILE).toFile(), DOCUMENTS_TYPE);
+
+        this.lock.writeLock().lock();
+        try {
+            this.index = loaded;
+            this.documents.clear();
+            stored.forEach(document -> this.documents.put(document.id(), document));
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        log.info("加载向量快照 {} documents:{}", directory, stored.size());
+    }
+
+    /**
+     * 清空数据，全量同步前使用
+     */
+    public void clear() {
+        this.lock.writeLock().lock();
+        try {
+            this.index = new HnswIndex(this.dimensions, this.m, this.efConstruction);
+            this.documents.clear();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuildIfFragmented() {
+        if (this.index.deletedCount() <= Math.max(1024, this.index.size() * REBUILD_DELETED_RATIO)) {
+            return;
+        }
+        HnswIndex rebuilt = new HnswIndex(this.dimensions, this.m, this.efConstruction);
+        for (String id : this.index.ids()) {
+            rebuilt.add(id, this.index.vector(id));
+        }
+        log.info("重建向量索引 live:{} deleted:{}", rebuilt.size(), this.index.deletedCount());
+        this.index = rebuilt;
+    }
+
+    record StoredDocument(String id, String text, Map<String, Object> metadata) {
+    }
+
+    public static final class Builder {
+        private final EmbeddingModel embeddingModel;
+        private BatchingStrategy batchingStrategy = new TokenCountBatchingStrategy();
+        private int dimensions;
+        private int m = 16;
+        private int efConstruction = 64;
+        private int efSearch = 40;
+
+        private Builder(EmbeddingModel embeddingModel) {
+            Assert.notNull(embeddingModel, "EmbeddingModel must not be null");
+            this.embeddingModel = embeddingModel;
+        }
+
+        public Builder batchingStrategy(BatchingStrategy batchingStrategy) {
+            this.batchingStrategy = batchingStrategy;
+            return this;
+        }
+
+        public Builder dimensions(int dimensions) {
+            this.dimensions = dimensions;
+            return this;
+        }
+
+        public Builder m(int m) {
+            this.m = m;
+            return this;
+        }
+
+        public Builder efConstruction(int efConstruction) {
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        public Builder efSearch(int efSearch) {
+            this.efSearch = efSearch;
+            return this;
+        }
+
+        public EmbeddedVectorStore build() {
+            Assert.isTrue(this.dimensions > 0, "dimensions must be greater than 0");
+            Assert.isTrue(this.m > 1 && this.efConstruction > 0 && this.efSearch > 0, "HNSW parameters must be greater than 0");
+            return new EmbeddedVectorStore(this);
+        }
+    }
+
+}
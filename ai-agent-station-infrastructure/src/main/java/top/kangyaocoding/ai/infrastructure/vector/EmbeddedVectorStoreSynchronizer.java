@@ -0,0 +1,246 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 描述: 将 pgvector 中某个知识库的数据同步到 {@link EmbeddedVectorStore}
+ * <p>
+ * 1. 启动后异步执行：有未过期的本地快照时 mmap 加载并从快照游标继续消费变更，否则全量读取；
+ * 2. 之后按固定间隔轮询 {@link PgVectorChangeFeed}，按 id 回表应用变更；
+ * 3. 有变更时按间隔落快照，关闭时再落一次，重启只需补齐快照之后的变更；
+ * 4. 每次快照写入新的版本目录，写完后原子替换 CURRENT 指针文件指向它，不移动也不覆盖已有目录：加载后的索引以 mmap 映射快照文件，
+ * Windows 上映射中的文件不能移动或删除。旧版本目录在索引不再映射它（追加写入或替换索引）之后才删除，删除失败的在下次快照时重试。
+ * 首次同步完成前 {@link #isReady()} 为 false，检索应回退到 pgvector。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 18:30
+ */
+@Slf4j
+public class EmbeddedVectorStoreSynchronizer {
+
+    private static final String CHECKPOINT_FILE = "checkpoint.properties";
+    private static final String CURRENT_FILE = "CURRENT";
+    private static final String VERSION_PREFIX = "v";
+
+    private final String knowledge;
+    private final EmbeddedVectorStore store;
+    private final PgVectorChangeFeed changeFeed;
+    private final ScheduledExecutorService scheduler;
+    private final Path snapshotDirectory;
+    private final long pollIntervalMillis;
+    private final long snapshotIntervalMillis;
+    private final long changeRetentionHours;
+    private final int batchSize;
+
+    private volatile boolean ready;
+    private boolean installed;
+    private boolean dirty;
+    private long lastSnapshotTime;
+    private PgVectorChangeFeed.Cursor cursor;
+    /** 当前索引加载自的版本目录，索引不再映射它后置为 null */
+    private Path mappedSnapshot;
+    private ScheduledFuture<?> future;
+
+    public EmbeddedVectorStoreSynchronizer(String knowledge, EmbeddedVectorStore store, PgVectorChangeFeed changeFeed,
+                                           ScheduledExecutorService scheduler, Path snapshotBaseDirectory,
+                                           long pollIntervalMillis, long snapshotIntervalMillis,
+                                           long changeRetentionHours, int batchSize) {
+        this.knowledge = knowledge;
+        this.store = store;
+        this.changeFeed = changeFeed;
+        this.scheduler = scheduler;
+        this.snapshotDirectory = snapshotBaseDirectory.resolve(PgIdentifiers.of("kb_", knowledge, ""));
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+        this.changeRetentionHours = changeRetentionHours;
+        this.batchSize = batchSize;
+    }
+
+    public void start() {
+        this.future = this.scheduler.scheduleWithFixedDelay(this::sync, 0, this.pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (this.future != null) {
+            this.future.cancel(false);
+        }
+        if (this.ready && this.dirty) {
+            this.snapshot();
+        }
+    }
+
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    public String getKnowledge() {
+        return this.knowledge;
+    }
+
+    public EmbeddedVectorStore getStore() {
+        return this.store;
+    }
+
+    synchronized void sync() {
+        try {
+            if (!this.installed) {
+                this.installed = this.changeFeed.install();
+                if (!this.installed) {
+                    log.debug("知识库 {} 的源表尚不存在，稍后重试", this.knowledge);
+                    return;
+                }
+                this.initialize();
+                this.ready = true;
+            }
+            this.applyChanges();
+            if (this.dirty && System.currentTimeMillis() - this.lastSnapshotTime >= this.snapshotIntervalMillis) {
+                this.snapshot();
+            }
+        } catch (Exception e) {
+            log.error("知识库 {} 向量同步失败", this.knowledge, e);
+        }
+    }
+
+    private void initialize() throws IOException {
+        if (this.loadSnapshot()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        this.cursor = this.changeFeed.snapshotCursor();
+        this.store.clear();
+        this.changeFeed.scan(this.batchSize, this.store::upsert);
+        log.info("知识库 {} 全量同步完成 documents:{} 耗时:{}ms", this.knowledge, this.store.size(), System.currentTimeMillis() - start);
+        this.snapshot();
+    }
+
+    private void applyChanges() {
+        while (true) {
+            PgVectorChangeFeed.Changes changes = this.changeFeed.poll(this.cursor, this.batchSize);
+            if (changes.ids().isEmpty()) {
+                return;
+            }
+            Map<String, Map.Entry<Document, float[]>> rows = this.changeFeed.fetch(changes.ids());
+            List<Document> documents = new ArrayList<>(rows.size());
+            List<float[]> embeddings = new ArrayList<>(rows.size());
+            List<String> deleted = new ArrayList<>();
+            for (String id : changes.ids()) {
+                Map.Entry<Document, float[]> row = rows.get(id);
+                if (row == null) {
+                    deleted.add(id);
+                } else {
+                    documents.add(row.getKey());
+                    embeddings.add(row.getValue());
+                }
+            }
+            this.store.upsert(documents, embeddings);
+            this.store.delete(deleted);
+            this.cursor = changes.cursor();
+            this.dirty = true;
+            if (changes.ids().size() < this.batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 快照早于变更保留期时，期间的变更可能已被清理，只能全量同步
+     */
+    private boolean loadSnapshot() {
+        Path pointer = this.snapshotDirectory.resolve(CURRENT_FILE);
+        if (!Files.exists(pointer)) {
+            return false;
+        }
+        try {
+            Path current = this.snapshotDirectory.resolve(Files.readString(pointer).strip());
+            Path checkpointFile = current.resolve(CHECKPOINT_FILE);
+            Properties checkpoint = new Properties();
+            try (Reader reader = Files.newBufferedReader(checkpointFile)) {
+                checkpoint.load(reader);
+            }
+            long syncedAt = Long.parseLong(checkpoint.getProperty("syncedAt"));
+            if (System.currentTimeMillis() - syncedAt > TimeUnit.HOURS.toMillis(this.changeRetentionHours)) {
+                log.info("知识库 {} 的本地快照已超过变更保留期，重新全量同步", this.knowledge);
+                return false;
+            }
+            this.store.load(current);
+            this.mappedSnapshot = current;
+            this.cursor = new PgVectorChangeFeed.Cursor(Long.parseLong(checkpoint.getProperty("tx")), Long.parseLong(checkpoint.getProperty("seq")));
+            this.lastSnapshotTime = syncedAt;
+            return true;
+        } catch (Exception e) {
+            log.warn("知识库 {} 的本地快照加载失败，重新全量同步", this.knowledge, e);
+            return false;
+        }
+    }
+
+    private void snapshot() {
+        try {
+            Path version = this.snapshotDirectory.resolve(VERSION_PREFIX + System.currentTimeMillis());
+            for (long next = System.currentTimeMillis() + 1; Files.exists(version); next++) {
+                version = this.snapshotDirectory.resolve(VERSION_PREFIX + next);
+            }
+            this.store.save(version);
+            Properties checkpoint = new Properties();
+            checkpoint.setProperty("tx", String.valueOf(this.cursor.tx()));
+            checkpoint.setProperty("seq", String.valueOf(this.cursor.seq()));
+            checkpoint.setProperty("syncedAt", String.valueOf(System.currentTimeMillis()));
+            try (Writer writer = Files.newBufferedWriter(version.resolve(CHECKPOINT_FILE))) {
+                checkpoint.store(writer, this.knowledge);
+            }
+
+            Path pointer = this.snapshotDirectory.resolve(CURRENT_FILE + ".tmp");
+            Files.writeString(pointer, version.getFileName().toString());
+            Files.move(pointer, this.snapshotDirectory.resolve(CURRENT_FILE),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            this.deleteStaleSnapshots(version);
+
+            this.changeFeed.prune(this.changeRetentionHours);
+            this.lastSnapshotTime = System.currentTimeMillis();
+            this.dirty = false;
+        } catch (Exception e) {
+            log.warn("知识库 {} 向量快照保存失败", this.knowledge, e);
+        }
+    }
+
+    /**
+     * 删除当前版本与仍被索引映射的版本以外的目录，包括之前写了一半的目录
+     */
+    private void deleteStaleSnapshots(Path current) throws IOException {
+        if (this.mappedSnapshot != null && !this.store.isSnapshotMapped()) {
+            this.mappedSnapshot = null;
+        }
+        List<Path> stale;
+        try (Stream<Path> children = Files.list(this.snapshotDirectory)) {
+            stale = children.filter(Files::isDirectory)
+                    .filter(child -> child.getFileName().toString().startsWith(VERSION_PREFIX))
+                    .filter(child -> !child.equals(current) && !child.equals(this.mappedSnapshot))
+                    .toList();
+        }
+        for (Path directory : stale) {
+            try {
+                FileSystemUtils.deleteRecursively(directory);
+            } catch (IOException e) {
+                // 已替换的映射要等 GC 回收后才解除，下次快照时重试
+                log.debug("知识库 {} 旧快照 {} 暂时无法删除 error:{}", this.knowledge, directory, e.getMessage());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,544 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import org.springframework.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * 描述: 进程内 HNSW 向量索引（余弦距离）
+ * <p>
+ * 向量归一化后以 float32 存放在堆外 {@link ByteBuffer} 中，图结构（各层邻居）在堆内。
+ * 快照文件布局为 [头部][向量区][图结构区]，加载时向量区以 {@link FileChannel.MapMode#READ_ONLY} 映射，
+ * 无需逐条读取即可恢复检索；映射区容量等于节点数，之后首次追加写入会整体复制到新的堆外缓冲区，不会改动快照文件。
+ * 删除采用墓碑标记，被删节点仍参与图遍历但不出现在结果中。
+ * 非线程安全：写入需与检索互斥，多个检索可以并发。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 17:20
+ */
+public class HnswIndex {
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    private final int dimensions;
+    private final int m;
+    private final int maxConnections0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42L);
+
+    /** 归一化后的向量，node * dimensions * 4 为偏移 */
+    private ByteBuffer vectors;
+    /** links[node][level] 首元素为邻居数量 */
+    private int[][][] links;
+    private String[] ids;
+    private final Map<String, Integer> nodes = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private int capacity;
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    /** 向量区是否仍是快照文件的映射 */
+    private boolean mapped;
+
+    public HnswIndex(int dimensions, int m, int efConstruction) {
+        Assert.isTrue(dimensions > 0, "dimensions must be greater than 0");
+        Assert.isTrue(m > 1 && efConstruction > 0, "HNSW parameters must be greater than 0");
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxConnections0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.vectors = ByteBuffer.allocateDirect(0).order(ByteOrder.LITTLE_ENDIAN);
+        this.links = new int[0][][];
+        this.ids = new String[0];
+    }
+
+    /**
+     * 写入向量；id 已存在时旧节点标记删除
+     */
+    public void add(String id, float[] vector) {
+        Assert.isTrue(vector.length == this.dimensions, "vector dimensions mismatch");
+        this.remove(id);
+        float[] normalized = normalize(vector);
+
+        this.ensureCapacity(this.size + 1);
+        int node = this.size++;
+        int base = node * this.dimensions * Float.BYTES;
+        for (int i = 0; i < this.dimensions; i++) {
+            this.vectors.putFloat(base + i * Float.BYTES, normalized[i]);
+        }
+        this.ids[node] = id;
+        this.nodes.put(id, node);
+
+        int level = (int) (-Math.log(1 - this.random.nextDouble()) * this.levelMultiplier);
+        this.links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            this.links[node][l] = new int[this.maxConnections(l) + 1];
+        }
+        if (this.entryPoint < 0) {
+            this.entryPoint = node;
+            this.maxLevel = level;
+            return;
+        }
+
+        int ep = this.entryPoint;
+        for (int l = this.maxLevel; l > level; l--) {
+            ep = this.greedy(normalized, ep, l);
+        }
+        for (int l = Math.min(level, this.maxLevel); l >= 0; l--) {
+            long[] candidates = this.searchLayer(normalized, ep, this.efConstruction, l, null);
+            int[] selected = this.selectNeighbors(candidates, this.maxConnections(l));
+            int[] own = this.links[node][l];
+            own[0] = selected.length;
+            System.arraycopy(selected, 0, own, 1, selected.length);
+            for (int neighbor : selected) {
+                this.link(neighbor, node, l);
+            }
+            ep = nodeOf(candidates[0]);
+        }
+        if (level > this.maxLevel) {
+            this.entryPoint = node;
+            this.maxLevel = level;
+        }
+    }
+
+    public boolean remove(String id) {
+        Integer node = this.nodes.remove(id);
+        if (node == null) {
+            return false;
+        }
+        this.deleted.set(node);
+        return true;
+    }
+
+    public boolean contains(String id) {
+        return this.nodes.containsKey(id);
+    }
+
+    /**
+     * 检索距离最近的 k 个节点；accept 为 null 表示不过滤，过滤不通过的节点仍用于图遍历
+     */
+    public List<Neighbor> search(float[] query, int k, int ef, IntPredicate accept) {
+        Assert.isTrue(query.length == this.dimensions, "query dimensions mismatch");
+        if (this.entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+        float[] normalized = normalize(query);
+        int ep = this.entryPoint;
+        for (int l = this.maxLevel; l > 0; l--) {
+            ep = this.greedy(normalized, ep, l);
+        }
+        IntPredicate live = accept == null ? node -> !this.deleted.get(node) : node -> !this.deleted.get(node) && accept.test(node);
+        long[] results = this.searchLayer(normalized, ep, Math.max(ef, k), 0, live);
+        List<Neighbor> neighbors = new ArrayList<>(Math.min(k, results.length));
+        for (int i = 0; i < results.length && i < k; i++) {
+            neighbors.add(new Neighbor(this.ids[nodeOf(results[i])], distanceOf(results[i])));
+        }
+        return neighbors;
+    }
+
+    /**
+     * 节点对应的业务 id；用于在过滤条件中按 id 取元数据
+     */
+    public String idOf(int node) {
+        return this.ids[node];
+    }
+
+    public float[] vector(String id) {
+        Integer node = this.nodes.get(id);
+        if (node == null) {
+            return null;
+        }
+        float[] vector = new float[this.dimensions];
+        int base = node * this.dimensions * Float.BYTES;
+        for (int i = 0; i < this.dimensions; i++) {
+            vector[i] = this.vectors.getFloat(base + i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    public List<String> ids() {
+        return List.copyOf(this.nodes.keySet());
+    }
+
+    public int size() {
+        return this.nodes.size();
+    }
+
+    public int deletedCount() {
+        return this.size - this.nodes.size();
+    }
+
+    public int getDimensions() {
+        return this.dimensions;
+    }
+
+    /**
+     * 向量区占用的堆外内存字节数
+     */
+    public long offHeapBytes() {
+        return (long) this.capacity * this.dimensions * Float.BYTES;
+    }
+
+    public void save(Path path) throws IOException {
+        long vectorBytes = (long) this.size * this.dimensions * Float.BYTES;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(this.dimensions).putInt(this.m).putInt(this.efConstruction)
+                    .putInt(this.size).putInt(this.entryPoint).putInt(this.maxLevel).putLong(HEADER_BYTES + vectorBytes);
+            header.clear();
+            writeFully(channel, header);
+
+            ByteBuffer region = this.vectors.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            region.clear().limit((int) vectorBytes);
+            writeFully(channel, region);
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            for (int node = 0; node < this.size; node++) {
+                out.writeUTF(this.ids[node]);
+                out.writeBoolean(this.deleted.get(node));
+                out.writeInt(this.links[node].length);
+                for (int[] level : this.links[node]) {
+                    out.writeInt(level[0]);
+                    for (int i = 1; i <= level[0]; i++) {
+                        out.writeInt(level[i]);
+                    }
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * 是否仍映射着 {@link #load} 的快照文件；为 true 时不能删除该文件（Windows 上会失败）
+     */
+    public boolean isMapped() {
+        return this.mapped;
+    }
+
+    public static HnswIndex load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // 读满头部
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Invalid HNSW snapshot: " + path);
+            }
+            HnswIndex index = new HnswIndex(header.getInt(), header.getInt(), header.getInt());
+            int size = header.getInt();
+            index.entryPoint = header.getInt();
+            index.maxLevel = header.getInt();
+            long graphOffset = header.getLong();
+
+            index.vectors = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, graphOffset - HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            index.mapped = true;
+            index.capacity = size;
+            index.size = size;
+            index.links = new int[size][][];
+            index.ids = new String[size];
+
+            channel.position(graphOffset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            for (int node = 0; node < size; node++) {
+                index.ids[node] = in.readUTF();
+                if (in.readBoolean()) {
+                    index.deleted.set(node);
+                } else {
+                    index.nodes.put(index.ids[node], node);
+                }
+                int levels = in.readInt();
+                index.links[node] = new int[levels][];
+                for (int l = 0; l < levels; l++) {
+                    int[] level = new int[index.maxConnections(l) + 1];
+                    level[0] = in.readInt();
+                    for (int i = 1; i <= level[0]; i++) {
+                        level[i] = in.readInt();
+                    }
+                    index.links[node][l] = level;
+                }
+            }
+            return index;
+        }
+    }
+
+    private int greedy(float[] query, int ep, int level) {
+        int current = ep;
+        float currentDistance = this.distance(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbors = this.links[current][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                float distance = this.distance(query, neighbors[i]);
+                if (distance < currentDistance) {
+                    currentDistance = distance;
+                    current = neighbors[i];
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 单层 beam search，返回按距离升序的 (distance, node) 编码；accept 为 null 时所有节点都可进入结果
+     */
+    private long[] searchLayer(float[] query, int ep, int ef, int level, IntPredicate accept) {
+        BitSet visited = new BitSet(this.size);
+        LongHeap candidates = new LongHeap(ef * 2);
+        LongHeap results = new LongHeap(ef + 1);
+
+        visited.set(ep);
+        long start = encode(this.distance(query, ep), ep);
+        candidates.push(start);
+        if (accept == null || accept.test(ep)) {
+            results.push(-start);
+        }
+        while (!candidates.isEmpty()) {
+            long candidate = candidates.pop();
+            if (results.size() >= ef && distanceOf(candidate) > distanceOf(-results.peek())) {
+                break;
+            }
+            int[] neighbors = this.links[nodeOf(candidate)][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float distance = this.distance(query, neighbor);
+                if (results.size() < ef || distance < distanceOf(-results.peek())) {
+                    long encoded = encode(distance, neighbor);
+                    candidates.push(encoded);
+                    if (accept == null || accept.test(neighbor)) {
+                        results.push(-encoded);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+
+        long[] sorted = new long[results.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = -results.pop();
+        }
+        return sorted;
+    }
+
+    /**
+     * 启发式选邻：候选比已选邻居更靠近目标时才保留，保证图的连通性；不足时用剩余最近的候选补齐
+     */
+    private int[] selectNeighbors(long[] candidates, int maxConnections) {
+        int[] selected = new int[Math.min(maxConnections, candidates.length)];
+        boolean[] taken = new boolean[candidates.length];
+        int count = 0;
+        for (int i = 0; i < candidates.length && count < selected.length; i++) {
+            int node = nodeOf(candidates[i]);
+            float distance = distanceOf(candidates[i]);
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (this.distance(node, selected[j]) < distance) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = node;
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < candidates.length && count < selected.length; i++) {
+            if (!taken[i]) {
+                selected[count++] = nodeOf(candidates[i]);
+            }
+        }
+        return selected;
+    }
+
+    private void link(int from, int to, int level) {
+        int[] neighbors = this.links[from][level];
+        int maxConnections = this.maxConnections(level);
+        if (neighbors[0] < maxConnections) {
+            neighbors[++neighbors[0]] = to;
+            return;
+        }
+        long[] candidates = new long[maxConnections + 1];
+        for (int i = 1; i <= maxConnections; i++) {
+            candidates[i - 1] = encode(this.distance(from, neighbors[i]), neighbors[i]);
+        }
+        candidates[maxConnections] = encode(this.distance(from, to), to);
+        Arrays.sort(candidates);
+        int[] selected = this.selectNeighbors(candidates, maxConnections);
+        neighbors[0] = selected.length;
+        System.arraycopy(selected, 0, neighbors, 1, selected.length);
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? this.maxConnections0 : this.m;
+    }
+
+    private float distance(float[] query, int node) {
+        int base = node * this.dimensions * Float.BYTES;
+        float dot = 0;
+        for (int i = 0; i < this.dimensions; i++) {
+            dot += query[i] * this.vectors.getFloat(base + i * Float.BYTES);
+        }
+        return 1 - dot;
+    }
+
+    private float distance(int a, int b) {
+        int baseA = a * this.dimensions * Float.BYTES;
+        int baseB = b * this.dimensions * Float.BYTES;
+        float dot = 0;
+        for (int i = 0; i < this.dimensions; i++) {
+            dot += this.vectors.getFloat(baseA + i * Float.BYTES) * this.vectors.getFloat(baseB + i * Float.BYTES);
+        }
+        return 1 - dot;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= this.capacity) {
+            return;
+        }
+        int newCapacity = Math.max(16, Math.max(required, this.capacity * 2));
+        long bytes = (long) newCapacity * this.dimensions * Float.BYTES;
+        Assert.isTrue(bytes <= Integer.MAX_VALUE, "HNSW index exceeds 2GB vector storage");
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer old = this.vectors.duplicate();
+        old.clear().limit(this.size * this.dimensions * Float.BYTES);
+        grown.put(old).clear();
+        this.vectors = grown;
+        this.mapped = false;
+        this.links = Arrays.copyOf(this.links, newCapacity);
+        this.ids = Arrays.copyOf(this.ids, newCapacity);
+        this.capacity = newCapacity;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 距离非负时 float 的位模式与数值同序，高 32 位放距离、低 32 位放节点即可按 long 比较
+     */
+    private static long encode(float distance, int node) {
+        return ((long) Float.floatToIntBits(Math.max(0f, distance)) << 32) | node;
+    }
+
+    private static int nodeOf(long encoded) {
+        return (int) encoded;
+    }
+
+    private static float distanceOf(long encoded) {
+        return Float.intBitsToFloat((int) (encoded >>> 32));
+    }
+
+    public record Neighbor(String id, float distance) {
+    }
+
+    /**
+     * long 小顶堆；大顶堆通过存入相反数实现
+     */
+    private static final class LongHeap {
+
+        private long[] heap;
+        private int size;
+
+        private LongHeap(int capacity) {
+            this.heap = new long[Math.max(capacity, 4)];
+        }
+
+        private void push(long value) {
+            if (this.size == this.heap.length) {
+                this.heap = Arrays.copyOf(this.heap, this.size * 2);
+            }
+            int i = this.size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (this.heap[parent] <= value) {
+                    break;
+                }
+                this.heap[i] = this.heap[parent];
+                i = parent;
+            }
+            this.heap[i] = value;
+        }
+
+        private long pop() {
+            long top = this.heap[0];
+            long last = this.heap[--this.size];
+            int i = 0;
+            int half = this.size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < this.size && this.heap[child + 1] < this.heap[child]) {
+                    child++;
+                }
+                if (last <= this.heap[child]) {
+                    break;
+                }
+                this.heap[i] = this.heap[child];
+                i = child;
+            }
+            this.heap[i] = last;
+            return top;
+        }
+
+        private long peek() {
+            return this.heap[0];
+        }
+
+        private int size() {
+            return this.size;
+        }
+
+        private boolean isEmpty() {
+            return this.size == 0;
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.lang.Nullable;
+import top.kangyaocoding.ai.infrastructure.embedding.KnowledgeEmbeddingModel;
+import top.kangyaocoding.ai.infrastructure.scheduling.TrafficClass;
+import top.kangyaocoding.ai.infrastructure.scheduling.TrafficContext;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * 描述: 按知识库选择检索位置
+ * <p>
+ * 过滤条件限定为单个知识库、且该知识库已配置进程内索引并完成首次同步时，检索走 {@link EmbeddedVectorStore}；
+ * 其余检索与全部写入、删除都交给 pgvector（数据以 pgvector 为准，进程内索引通过变更轮询追平，存在秒级延迟）。
+ * 限定为单个知识库的检索在 {@link KnowledgeEmbeddingModel#withKnowledge} 范围内执行，问题文本用该知识库的向量模型向量化。
+ * 部分知识库配置了本地向量模型时，不限定或限定多个知识库的检索按向量模型拆分：每组知识库各自用所属模型向量化问题、
+ * 在追加了知识库条件的过滤下检索（使用默认模型的一组在不限定时以 NIN 排除其余知识库），结果按相似度合并取 topK，
+ * 不同向量空间的向量不会混在一次检索里比较。
+ * 写入是知识库导入的统一入口，在 INGESTION 类别的 {@link TrafficContext} 中执行（租户沿用调用线程），期间提交到调度线程池的任务排在对话之后。
+ * 同时负责各知识库同步任务及其调度线程的启停。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 18:50
+ */
+public class KnowledgeRoutingVectorStore implements VectorStore, InitializingBean, DisposableBean {
+
+    private final VectorStore delegate;
+    private final String partitionKey;
+    private final Map<String, EmbeddedVectorStoreSynchronizer> embedded;
+    private final ScheduledExecutorService scheduler;
+    @Nullable
+    private final KnowledgeEmbeddingModel embeddingModel;
+
+    /**
+     * @param embeddingModel 写入与检索使用的向量模型；为 null 时视为所有知识库共用一个模型
+     */
+    public KnowledgeRoutingVectorStore(VectorStore delegate, String partitionKey, List<EmbeddedVectorStoreSynchronizer> synchronizers,
+                                       ScheduledExecutorService scheduler, @Nullable KnowledgeEmbeddingModel embeddingModel) {
+        this.delegate = delegate;
+        this.partitionKey = partitionKey;
+        this.embeddingModel = embeddingModel;
+        this.embedded = synchronizers.stream()
+                .collect(Collectors.toUnmodifiableMap(EmbeddedVectorStoreSynchronizer::getKnowledge, synchronizer -> synchronizer));
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        for (EmbeddedVectorStoreSynchronizer synchronizer : this.embedded.values()) {
+            synchronizer.start();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (EmbeddedVectorStoreSynchronizer synchronizer : this.embedded.values()) {
+            synchronizer.stop();
+        }
+        this.scheduler.shutdown();
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        TrafficContext current = TrafficContext.current();
+        String tenant = current != null ? current.tenant() : TrafficContext.DEFAULT_TENANT;
+        try (TrafficContext.Scope scope = TrafficContext.open(TrafficClass.INGESTION, tenant)) {
+            this.delegate.add(documents);
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        this.delegate.delete(idList);
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        this.delegate.delete(filterExpression);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        Set<String> knowledges = this.knowledgesOf(request.getFilterExpression());
+        if (knowledges != null && knowledges.size() == 1) {
+            String knowledge = knowledges.iterator().next();
+            return KnowledgeEmbeddingModel.withKnowledge(knowledge, () -> this.route(knowledge).similaritySearch(request));
+        }
+        if (this.embeddingModel == null || !this.embeddingModel.isRouted()) {
+            return this.delegate.similaritySearch(request);
+        }
+
+        // 按向量模型分组；不限定知识库时只需列出配置了本地模型的知识库，其余都走默认模型
+        EmbeddingModel defaultModel = this.embeddingModel.select(null);
+        Map<EmbeddingModel, List<String>> groups = new IdentityHashMap<>();
+        for (String knowledge : knowledges != null ? knowledges : this.embeddingModel.getKnowledges()) {
+            groups.computeIfAbsent(this.embeddingModel.select(knowledge), model -> new ArrayList<>()).add(knowledge);
+        }
+        if (knowledges != null && groups.size() == 1) {
+            String knowledge = knowledges.iterator().next();
+            return KnowledgeEmbeddingModel.withKnowledge(knowledge, () -> this.delegate.similaritySearch(request));
+        }
+
+        List<Document> merged = new ArrayList<>();
+        for (Map.Entry<EmbeddingModel, List<String>> group : groups.entrySet()) {
+            if (group.getKey() == defaultModel) {
+                continue;
+            }
+            List<String> groupKnowledges = group.getValue();
+            SearchRequest groupRequest = this.restrict(request, groupKnowledges, Filter.ExpressionType.IN);
+            merged.addAll(KnowledgeEmbeddingModel.withKnowledge(groupKnowledges.get(0), () -> (groupKnowledges.size() == 1
+                    ? this.route(groupKnowledges.get(0)) : this.delegate).similaritySearch(groupRequest)));
+        }
+        if (knowledges == null) {
+            List<String> routed = groups.entrySet().stream()
+                    .filter(group -> group.getKey() != defaultModel)
+                    .flatMap(group -> group.getValue().stream())
+                    .toList();
+            merged.addAll(this.delegate.similaritySearch(this.restrict(request, routed, Filter.ExpressionType.NIN)));
+        } else if (groups.containsKey(defaultModel)) {
+            merged.addAll(this.delegate.similaritySearch(this.restrict(request, groups.get(defaultModel), Filter.ExpressionType.IN)));
+        }
+        merged.sort(Comparator.comparingDouble((Document document) -> document.getScore() != null ? document.getScore() : 0).reversed());
+        return merged.size() > request.getTopK() ? List.copyOf(merged.subList(0, request.getTopK())) : merged;
+    }
+
+    @Override
+    public <T> Optional<T> getNativeClient() {
+        return this.delegate.getNativeClient();
+    }
+
+    VectorStore route(Filter.Expression filterExpression) {
+        String knowledge = this.knowledgeOf(filterExpression);
+        return knowledge == null ? this.delegate : this.route(knowledge);
+    }
+
+    private VectorStore route(String knowledge) {
+        EmbeddedVectorStoreSynchronizer synchronizer = this.embedded.get(knowledge);
+        return synchronizer != null && synchronizer.isReady() ? synchronizer.getStore() : this.delegate;
+    }
+
+    /**
+     * 过滤条件限定的唯一知识库，不限定或限定多个时为 null
+     */
+    private String knowledgeOf(Filter.Expression filterExpression) {
+        Set<String> values = this.knowledgesOf(filterExpression);
+        return values == null || values.size() != 1 ? null : values.iterator().next();
+    }
+
+    /**
+     * 过滤条件限定的知识库，不限定时为 null
+     */
+    private Set<String> knowledgesOf(Filter.Expression filterExpression) {
+        return filterExpression == null ? null : PartitionRoute.of(filterExpression, this.partitionKey).values();
+    }
+
+    /**
+     * 在原过滤条件上追加知识库条件；单个知识库用 ==，与单知识库检索的过滤形式一致
+     */
+    private SearchRequest restrict(SearchRequest request, List<String> knowledges, Filter.ExpressionType type) {
+        Filter.Key key = new Filter.Key(this.partitionKey);
+        Filter.Expression condition = type == Filter.ExpressionType.IN && knowledges.size() == 1
+                ? new Filter.Expression(Filter.ExpressionType.EQ, key, new Filter.Value(knowledges.get(0)))
+                : new Filter.Expression(type, key, new Filter.Value(knowledges));
+        Filter.Expression filter = request.getFilterExpression();
+        return SearchRequest.from(request)
+                .filterExpression(filter == null ? condition : new Filter.Expression(Filter.ExpressionType.AND, condition, filter))
+                .build();
+    }
+
+}
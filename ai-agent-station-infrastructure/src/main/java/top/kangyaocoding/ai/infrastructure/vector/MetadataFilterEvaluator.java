@@ -0,0 +1,83 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 描述: 在内存中对文档元数据求值过滤表达式
+ * <p>
+ * 与 pgvector 的 jsonpath 语义保持一致：数值统一按 double 比较；key 不存在时比较（包括 {@code $.k != "x"}）均不匹配，
+ * 只有 NIN 匹配，因为它被转换为 {@code !($.k == "a" || ...)}。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 17:35
+ */
+final class MetadataFilterEvaluator {
+
+    private MetadataFilterEvaluator() {
+    }
+
+    static boolean test(Filter.Operand operand, Map<String, Object> metadata) {
+        if (operand instanceof Filter.Group group) {
+            return test(group.content(), metadata);
+        }
+        Filter.Expression expression = (Filter.Expression) operand;
+        return switch (expression.type()) {
+            case AND -> test(expression.left(), metadata) && test(expression.right(), metadata);
+            case OR -> test(expression.left(), metadata) || test(expression.right(), metadata);
+            case NOT -> !test(expression.left(), metadata);
+            default -> compare(expression, metadata);
+        };
+    }
+
+    private static boolean compare(Filter.Expression expression, Map<String, Object> metadata) {
+        String key = unquote(((Filter.Key) expression.left()).key());
+        Object actual = metadata.get(key);
+        Object expected = ((Filter.Value) expression.right()).value();
+        return switch (expression.type()) {
+            case EQ -> actual != null && equal(actual, expected);
+            case NE -> actual != null && !equal(actual, expected);
+            case IN -> actual != null && contains((List<?>) expected, actual);
+            case NIN -> actual == null || !contains((List<?>) expected, actual);
+            case GT -> actual != null && order(actual, expected) > 0;
+            case GTE -> actual != null && order(actual, expected) >= 0;
+            case LT -> actual != null && order(actual, expected) < 0;
+            case LTE -> actual != null && order(actual, expected) <= 0;
+            default -> throw new IllegalArgumentException("Unsupported filter expression type: " + expression.type());
+        };
+    }
+
+    private static boolean contains(List<?> values, Object actual) {
+        for (Object value : values) {
+            if (equal(actual, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean equal(Object actual, Object expected) {
+        if (actual instanceof Number a && expected instanceof Number e) {
+            return a.doubleValue() == e.doubleValue();
+        }
+        return Objects.equals(actual.toString(), expected.toString());
+    }
+
+    private static int order(Object actual, Object expected) {
+        if (actual instanceof Number a && expected instanceof Number e) {
+            return Double.compare(a.doubleValue(), e.doubleValue());
+        }
+        return actual.toString().compareTo(expected.toString());
+    }
+
+    private static String unquote(String key) {
+        if (key.length() >= 2 && (key.startsWith("\"") && key.endsWith("\"") || key.startsWith("'") && key.endsWith("'"))) {
+            return key.substring(1, key.length() - 1);
+        }
+        return key;
+    }
+
+}
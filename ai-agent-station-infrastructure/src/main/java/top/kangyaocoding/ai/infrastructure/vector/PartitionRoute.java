@@ -0,0 +1,57 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 描述: 按分区键（如 knowledge）拆分过滤表达式
+ * <p>
+ * 顶层 AND 中分区键的 == / IN 条件取交集作为 values，其余条件作为 residual 在分区内过滤；values 为 null 表示未限定分区。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 17:05
+ */
+record PartitionRoute(@Nullable Set<String> values, @Nullable Filter.Expression residual) {
+
+    static PartitionRoute of(@Nullable Filter.Expression expression, String partitionKey) {
+        if (expression == null) {
+            return new PartitionRoute(null, null);
+        }
+        Set<String> values = null;
+        List<Filter.Expression> residuals = new ArrayList<>();
+        for (Filter.Expression conjunct : PgVectorFilterSqlConverter.conjuncts(expression)) {
+            Set<String> conjunctValues = valuesOf(conjunct, partitionKey);
+            if (conjunctValues == null) {
+                residuals.add(conjunct);
+            } else if (values == null) {
+                values = conjunctValues;
+            } else {
+                values.retainAll(conjunctValues);
+            }
+        }
+        return new PartitionRoute(values, PgVectorFilterSqlConverter.and(residuals));
+    }
+
+    private static Set<String> valuesOf(Filter.Expression conjunct, String partitionKey) {
+        if (!(conjunct.left() instanceof Filter.Key key) || !partitionKey.equals(key.key())
+                || !(conjunct.right() instanceof Filter.Value value)) {
+            return null;
+        }
+        if (conjunct.type() == Filter.ExpressionType.EQ && value.value() instanceof String text) {
+            return new LinkedHashSet<>(List.of(text));
+        }
+        if (conjunct.type() == Filter.ExpressionType.IN && value.value() instanceof List<?> list
+                && list.stream().allMatch(String.class::isInstance)) {
+            Set<String> values = new LinkedHashSet<>();
+            list.forEach(each -> values.add((String) each));
+            return values;
+        }
+        return null;
+    }
+
+}
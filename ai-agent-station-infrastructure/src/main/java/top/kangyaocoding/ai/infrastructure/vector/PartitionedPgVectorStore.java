@@ -0,0 +1,436 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import top.kangyaocoding.ai.domain.agent.service.rag.FilterExpressionCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述: 按知识库分表的 pgvector 存储
+ * <p>
+ * 每个分区键取值（默认 metadata.knowledge）对应一张独立的表和 HNSW 索引，首次写入时建表并登记到分区注册表。
+ * 检索时从过滤表达式的顶层 AND 中提取分区键的 == / IN 条件直接路由到对应表，剩余条件在分区内过滤；
+ * 未指定分区键时对全部分区各取 topK 后合并。这样过滤检索不再在共享 HNSW 候选集上做后置过滤，召回不随总量下降。
+ * 可配合 {@link PgVectorQuantization} 将 HNSW 索引建在量化后的向量上。
+ * 分区映射缓存在本地：指定的分区在本地找不到时立即从注册表重新加载（间隔不小于 1 秒），
+ * 全分区检索按 partitionRefreshInterval 定期重新加载，删除前总是重新加载，其他节点新建的分区不会被漏掉。
+ * 检索可通过 searchJdbcTemplate 走独立的连接池，建表与写入不与在线检索争抢连接。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 14:05
+ */
+@Slf4j
+public class PartitionedPgVectorStore implements VectorStore, InitializingBean {
+
+    public static final String DEFAULT_PARTITION = "default";
+
+    /** 指定分区未命中时重新加载注册表的最小间隔，避免不存在的知识库每次检索都查注册表 */
+    private static final long MISS_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate searchJdbcTemplate;
+    private final EmbeddingModel embeddingModel;
+    private final BatchingStrategy batchingStrategy;
+    private final FilterExpressionCache filterExpressionCache;
+    private final PgVectorStore.PgDistanceType distanceType;
+    private final String schemaName;
+    private final String tablePrefix;
+    private final String partitionKey;
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int maxDocumentBatchSize;
+    private final PgVectorQuantization quantization;
+    private final List<String> indexedMetadataKeys;
+    private final boolean metadataGinIndex;
+    private final long partitionRefreshNanos;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PgVectorDocumentRowMapper rowMapper = new PgVectorDocumentRowMapper(this.objectMapper);
+    /** 分区键取值 -> 表名 */
+    private final ConcurrentMap<String, String> partitions = new ConcurrentHashMap<>();
+    private final Object refreshLock = new Object();
+    private volatile long refreshedAt;
+
+    private PartitionedPgVectorStore(Builder builder) {
+        this.jdbcTemplate = builder.jdbcTemplate;
+        this.searchJdbcTemplate = builder.searchJdbcTemplate != null ? builder.searchJdbcTemplate : builder.jdbcTemplate;
+        this.embeddingModel = builder.embeddingModel;
+        this.batchingStrategy = builder.batchingStrategy;
+        this.filterExpressionCache = builder.filterExpressionCache;
+        this.distanceType = builder.distanceType;
+        this.schemaName = builder.schemaName;
+        this.tablePrefix = builder.tablePrefix;
+        this.partitionKey = builder.partitionKey;
+        this.dimensions = builder.dimensions;
+        this.m = builder.m;
+        this.efConstruction = builder.efConstruction;
+        this.efSearch = builder.efSearch;
+        this.maxDocumentBatchSize = builder.maxDocumentBatchSize;
+        this.quantization = builder.quantization;
+        this.indexedMetadataKeys = builder.indexedMetadataKeys.stream()
+                .filter(key -> !key.equals(builder.partitionKey))
+                .toList();
+        this.metadataGinIndex = builder.metadataGinIndex;
+        this.partitionRefreshNanos = builder.partitionRefreshInterval.toNanos();
+    }
+
+    public static Builder builder(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel, FilterExpressionCache filterExpressionCache) {
+        return new Builder(jdbcTemplate, embeddingModel, filterExpressionCache);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS vector");
+        this.jdbcTemplate.execute(String.format("""
+                CREATE TABLE IF NOT EXISTS %s (
+                    partition_value text PRIMARY KEY,
+                    table_name text NOT NULL,
+                    create_time timestamp NOT NULL DEFAULT now()
+                )""", this.registryTableName()));
+        this.reloadPartitions();
+        log.info("向量分区加载完成 prefix:{} partitions:{}", this.tablePrefix, this.partitions.keySet());
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        Map<String, List<Document>> grouped = new LinkedHashMap<>();
+        for (Document document : documents) {
+            grouped.computeIfAbsent(this.partitionValueOf(document), key -> new ArrayList<>()).add(document);
+        }
+        grouped.forEach((partitionValue, partitionDocuments) -> {
+            String tableName = this.ensurePartition(partitionValue);
+            List<float[]> embeddings = this.embeddingModel.embed(partitionDocuments, EmbeddingOptionsBuilder.builder().build(), this.batchingStrategy);
+            for (int from = 0; from < partitionDocuments.size(); from += this.maxDocumentBatchSize) {
+                int to = Math.min(from + this.maxDocumentBatchSize, partitionDocuments.size());
+                this.insertBatch(tableName, partitionDocuments.subList(from, to), embeddings.subList(from, to));
+            }
+        });
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        this.refreshPartitions(0);
+        for (String tableName : this.partitions.values()) {
+            this.jdbcTemplate.batchUpdate("DELETE FROM " + this.qualified(tableName) + " WHERE id = ?",
+                    idList.stream().map(id -> new Object[]{id}).toList());
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        PartitionRoute route = PartitionRoute.of(filterExpression, this.partitionKey);
+        String residualSql = this.filterExpressionCache.convert(route.residual());
+        this.refreshPartitions(0);
+        for (String tableName : this.tablesOf(route)) {
+            this.jdbcTemplate.update("DELETE FROM " + this.qualified(tableName)
+                    + (StringUtils.hasText(residualSql) ? " WHERE " + residualSql : ""));
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        PartitionRoute route = PartitionRoute.of(request.getFilterExpression(), this.partitionKey);
+        List<String> tableNames = this.tablesOf(route);
+        if (tableNames.isEmpty()) {
+            return List.of();
+        }
+
+        String residualSql = this.filterExpressionCache.convert(route.residual());
+        String where = StringUtils.hasText(residualSql) ? " AND " + residualSql : "";
+        PGvector queryEmbedding = new PGvector(this.embeddingModel.embed(request.getQuery()));
+        double distance = 1 - request.getSimilarityThreshold();
+
+        // 单分区直接查询；多分区各取 topK 后合并排序
+        List<Object> args = new ArrayList<>();
+        List<String> subQueries = new ArrayList<>();
+        for (String tableName : tableNames) {
+            subQueries.add(this.quantization.searchSql(this.qualified(tableName), where, this.distanceType));
+            args.addAll(this.quantization.searchArgs(queryEmbedding, distance, request.getTopK()));
+        }
+        String sql;
+        if (subQueries.size() == 1) {
+            sql = subQueries.get(0);
+        } else {
+            sql = "SELECT * FROM ((" + String.join(") UNION ALL (", subQueries) + ")) AS p ORDER BY distance LIMIT ?";
+            args.add(request.getTopK());
+        }
+        return PgVectorQueries.query(this.searchJdbcTemplate, this.rowMapper, sql, args,
+                this.quantization.efSearch(this.efSearch, request.getTopK()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> getNativeClient() {
+        return Optional.of((T) this.jdbcTemplate);
+    }
+
+    public Map<String, String> getPartitions() {
+        return Map.copyOf(this.partitions);
+    }
+
+    /**
+     * 分区值对应的表名（不含 schema），与建表时的命名规则一致
+     */
+    public static String tableNameOf(String tablePrefix, String partitionValue) {
+        return PgIdentifiers.of(tablePrefix + "_", partitionValue, "");
+    }
+
+    private List<String> tablesOf(PartitionRoute route) {
+        if (route.values() == null) {
+            this.refreshPartitions(this.partitionRefreshNanos);
+            return List.copyOf(this.partitions.values());
+        }
+        if (!this.partitions.keySet().containsAll(route.values())) {
+            this.refreshPartitions(MISS_REFRESH_NANOS);
+        }
+        return route.values().stream()
+                .map(this.partitions::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * 距上次加载超过 maxAgeNanos 时从注册表重新加载；并发调用只加载一次
+     */
+    private void refreshPartitions(long maxAgeNanos) {
+        if (System.nanoTime() - this.refreshedAt < maxAgeNanos) {
+            return;
+        }
+        synchronized (this.refreshLock) {
+            if (maxAgeNanos > 0 && System.nanoTime() - this.refreshedAt < maxAgeNanos) {
+                return;
+            }
+            this.reloadPartitions();
+        }
+    }
+
+    private void reloadPartitions() {
+        long start = System.nanoTime();
+        this.jdbcTemplate.query("SELECT partition_value, table_name FROM " + this.registryTableName(),
+                (RowCallbackHandler) rs -> this.partitions.putIfAbsent(rs.getString("partition_value"), rs.getString("table_name")));
+        this.refreshedAt = start;
+    }
+
+    private String partitionValueOf(Document document) {
+        Object value = document.getMetadata().get(this.partitionKey);
+        return value == null || !StringUtils.hasText(value.toString()) ? DEFAULT_PARTITION : value.toString();
+    }
+
+    /**
+     * 建表在映射之外执行，不在 ConcurrentHashMap 的桶锁内做数据库往返；DDL 都带 IF NOT EXISTS，并发创建同一分区是幂等的
+     */
+    private String ensurePartition(String partitionValue) {
+        String tableName = this.partitions.get(partitionValue);
+        if (tableName != null) {
+            return tableName;
+        }
+        try {
+            tableName = this.createPartition(partitionValue);
+        } catch (DuplicateKeyException e) {
+            // 两个会话同时 CREATE TABLE IF NOT EXISTS 时后者可能违反系统表唯一约束，表已由对方创建，重试一次即可
+            log.info("向量分区 {} 已由其他会话创建，重试", partitionValue);
+            tableName = this.createPartition(partitionValue);
+        }
+        String existing = this.partitions.putIfAbsent(partitionValue, tableName);
+        return existing != null ? existing : tableName;
+    }
+
+    private String createPartition(String partitionValue) {
+        String tableName = tableNameOf(this.tablePrefix, partitionValue);
+        String qualifiedTableName = this.qualified(tableName);
+        log.info("创建向量分区 {} -> {}", partitionValue, qualifiedTableName);
+
+        this.jdbcTemplate.execute(String.format("""
+                CREATE TABLE IF NOT EXISTS %s (
+                    id text PRIMARY KEY,
+                    content text,
+                    metadata jsonb,
+                    embedding vector(%d)
+                )""", qualifiedTableName, this.dimensions));
+        this.jdbcTemplate.execute(this.quantization.indexDdl(PgIdentifiers.of(tableName + "_", "embedding", "_idx"),
+                qualifiedTableName, this.distanceType, this.m, this.efConstruction));
+        new PgVectorMetadataIndexInitializer(this.jdbcTemplate, this.schemaName, tableName,
+                this.indexedMetadataKeys, this.metadataGinIndex).afterPropertiesSet();
+
+        this.jdbcTemplate.update("INSERT INTO " + this.registryTableName() + " (partition_value, table_name) VALUES (?, ?) ON CONFLICT (partition_value) DO NOTHING",
+                partitionValue, tableName);
+        return tableName;
+    }
+
+    private void insertBatch(String tableName, List<Document> documents, List<float[]> embeddings) {
+        String sql = "INSERT INTO " + this.qualified(tableName) + " (id, content, metadata, embedding) VALUES (?, ?, ?::jsonb, ?) "
+                + "ON CONFLICT (id) DO UPDATE SET content = EXCLUDED.content, metadata = EXCLUDED.metadata, embedding = EXCLUDED.embedding";
+        List<Object[]> batchArgs = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            batchArgs.add(new Object[]{document.getId(), document.getText(), this.toJson(document.getMetadata()), new PGvector(embeddings.get(i))});
+        }
+        this.jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
+
+    private String toJson(Map<String, Object> metadata) {
+        try {
+            return this.objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize document metadata", e);
+        }
+    }
+
+    private String registryTableName() {
+        return this.qualified(PgIdentifiers.of(this.tablePrefix + "_", "partition", ""));
+    }
+
+    private String qualified(String tableName) {
+        return this.schemaName + "." + tableName;
+    }
+
+    public static final class Builder {
+        private final JdbcTemplate jdbcTemplate;
+        private final EmbeddingModel embeddingModel;
+        private final FilterExpressionCache filterExpressionCache;
+        private JdbcTemplate searchJdbcTemplate;
+        private BatchingStrategy batchingStrategy = new TokenCountBatchingStrategy();
+        private PgVectorStore.PgDistanceType distanceType = PgVectorStore.PgDistanceType.COSINE_DISTANCE;
+        private String schemaName = PgVectorStore.DEFAULT_SCHEMA_NAME;
+        private String tablePrefix = "vector_store_kb";
+        private String partitionKey = "knowledge";
+        private int dimensions = PgVectorStore.OPENAI_EMBEDDING_DIMENSION_SIZE;
+        private int m = 16;
+        private int efConstruction = 64;
+        private int efSearch = 40;
+        private int maxDocumentBatchSize = PgVectorStore.MAX_DOCUMENT_BATCH_SIZE;
+        private PgVectorQuantization quantization = PgVectorQuantization.DISABLED;
+        private Collection<String> indexedMetadataKeys = List.of();
+        private boolean metadataGinIndex = false;
+        private Duration partitionRefreshInterval = Duration.ofSeconds(30);
+
+        private Builder(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel, FilterExpressionCache filterExpressionCache) {
+            Assert.notNull(jdbcTemplate, "JdbcTemplate must not be null");
+            Assert.notNull(embeddingModel, "EmbeddingModel must not be null");
+            Assert.notNull(filterExpressionCache, "FilterExpressionCache must not be null");
+            this.jdbcTemplate = jdbcTemplate;
+            this.embeddingModel = embeddingModel;
+            this.filterExpressionCache = filterExpressionCache;
+        }
+
+        /**
+         * 检索使用的连接，默认与建表、写入共用 jdbcTemplate
+         */
+        public Builder searchJdbcTemplate(JdbcTemplate searchJdbcTemplate) {
+            this.searchJdbcTemplate = searchJdbcTemplate;
+            return this;
+        }
+
+        public Builder batchingStrategy(BatchingStrategy batchingStrategy) {
+            this.batchingStrategy = batchingStrategy;
+            return this;
+        }
+
+        public Builder distanceType(PgVectorStore.PgDistanceType distanceType) {
+            this.distanceType = distanceType;
+            return this;
+        }
+
+        public Builder schemaName(String schemaName) {
+            this.schemaName = schemaName;
+            return this;
+        }
+
+        public Builder tablePrefix(String tablePrefix) {
+            this.tablePrefix = tablePrefix;
+            return this;
+        }
+
+        public Builder partitionKey(String partitionKey) {
+            this.partitionKey = partitionKey;
+            return this;
+        }
+
+        public Builder dimensions(int dimensions) {
+            this.dimensions = dimensions;
+            return this;
+        }
+
+        public Builder m(int m) {
+            this.m = m;
+            return this;
+        }
+
+        public Builder efConstruction(int efConstruction) {
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        public Builder efSearch(int efSearch) {
+            this.efSearch = efSearch;
+            return this;
+        }
+
+        public Builder maxDocumentBatchSize(int maxDocumentBatchSize) {
+            this.maxDocumentBatchSize = maxDocumentBatchSize;
+            return this;
+        }
+
+        public Builder quantization(PgVectorQuantization quantization) {
+            this.quantization = quantization;
+            return this;
+        }
+
+        public Builder indexedMetadataKeys(Collection<String> indexedMetadataKeys) {
+            this.indexedMetadataKeys = indexedMetadataKeys;
+            return this;
+        }
+
+        public Builder metadataGinIndex(boolean metadataGinIndex) {
+            this.metadataGinIndex = metadataGinIndex;
+            return this;
+        }
+
+        /**
+         * 全分区检索时重新加载分区注册表的间隔；指定分区未命中与删除时不受此限制
+         */
+        public Builder partitionRefreshInterval(Duration partitionRefreshInterval) {
+            this.partitionRefreshInterval = partitionRefreshInterval;
+            return this;
+        }
+
+        public PartitionedPgVectorStore build() {
+            Assert.isTrue(this.dimensions > 0, "dimensions must be greater than 0");
+            Assert.isTrue(this.m > 0 && this.efConstruction > 0 && this.efSearch > 0, "HNSW parameters must be greater than 0");
+            Assert.isTrue(this.partitionRefreshInterval != null && !this.partitionRefreshInterval.isNegative(),
+                    "partitionRefreshInterval must not be negative");
+            return new PartitionedPgVectorStore(this);
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * 描述: 由业务值生成 PG 标识符（表名、索引名）
+ * <p>
+ * 只保留小写字母数字与下划线；非 ASCII 值（如中文知识库名）或超长时追加 CRC 区分，包括前缀与后缀在内的总长度不超过 PG 上限 63。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 13:40
+ */
+final class PgIdentifiers {
+
+    static final int MAX_LENGTH = 63;
+
+    private PgIdentifiers() {
+    }
+
+    /**
+     * 上限作用于整个名称：前缀本身已接近上限时（如以 63 字符的表名为前缀）连同前缀一起截断，保留后缀，
+     * 追加整个原始名称的 CRC，避免截断后与前缀所指的表同名
+     */
+    static String of(String prefix, String value, String suffix) {
+        String normalized = value.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "");
+        String name = prefix + normalized + suffix;
+        if (normalized.equals(value) && name.length() <= MAX_LENGTH) {
+            return name;
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update((prefix + value + suffix).getBytes(StandardCharsets.UTF_8));
+        String crc = Long.toHexString(crc32.getValue());
+        String head = prefix + normalized;
+        int keep = Math.max(0, Math.min(head.length(), MAX_LENGTH - suffix.length() - crc.length() - 1));
+        return (keep == 0 ? "" : head.substring(0, keep) + "_") + crc + suffix;
+    }
+
+}
@@ -0,0 +1,222 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.lang.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * 描述: pgvector 表的变更日志
+ * <p>
+ * 通过触发器把向量表的写入、删除记录到 {table}_change（id、事务号、序号），消费方按 (tx, seq) 游标轮询。
+ * 只返回事务号小于当前快照 xmin 的记录，这些事务一定已经结束，从而不会因为长事务晚提交而漏掉变更（需要 PostgreSQL 13+）。
+ * 变更只记录 id，消费时按 id 回表读取最新状态：查到即写入，查不到（或已不属于当前知识库）即删除，重复消费是幂等的。
+ * 高频的轮询与回表走检索连接；建表、建触发器、清理与全量同步（快照游标与耗时较长的全量读取）走写入连接，不受检索连接的语句超时限制。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 18:10
+ */
+@Slf4j
+public class PgVectorChangeFeed {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate writeJdbcTemplate;
+    private final String schemaName;
+    private final String tableName;
+    @Nullable
+    private final String partitionKey;
+    @Nullable
+    private final String partitionValue;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PgVectorDocumentRowMapper metadataMapper = new PgVectorDocumentRowMapper(this.objectMapper);
+    /** 源表 id 列类型，PgVectorStore 默认为 uuid，分区表为 text；回表时按该类型绑定参数才能走主键索引 */
+    private volatile String idType = "text";
+
+    /**
+     * @param jdbcTemplate      轮询变更与回表读取
+     * @param writeJdbcTemplate 建表、全量同步与清理
+     * @param partitionKey      共享表时按 metadata 中该 key 过滤，分表时传 null
+     * @param partitionValue    对应的取值
+     */
+    public PgVectorChangeFeed(JdbcTemplate jdbcTemplate, JdbcTemplate writeJdbcTemplate, String schemaName, String tableName,
+                              @Nullable String partitionKey, @Nullable String partitionValue) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeJdbcTemplate = writeJdbcTemplate;
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.partitionKey = partitionKey;
+        this.partitionValue = partitionValue;
+    }
+
+    /**
+     * 创建变更表与触发器；源表不存在时返回 false，由调用方稍后重试
+     */
+    public boolean install() {
+        Boolean exists = this.writeJdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.tables WHERE table_schema = ? AND table_name = ?)",
+                Boolean.class, this.schemaName, this.tableName);
+        if (!Boolean.TRUE.equals(exists)) {
+            return false;
+        }
+        this.idType = this.writeJdbcTemplate.queryForObject(
+                "SELECT udt_name FROM information_schema.columns WHERE table_schema = ? AND table_name = ? AND column_name = 'id'",
+                String.class, this.schemaName, this.tableName);
+        String function = this.qualified(PgIdentifiers.of(this.tableName + "_", "change", "_fn"));
+        String trigger = PgIdentifiers.of(this.tableName + "_", "change", "_trg");
+        this.writeJdbcTemplate.execute(String.format("""
+                CREATE TABLE IF NOT EXISTS %s (
+                    seq bigserial PRIMARY KEY,
+                    id text NOT NULL,
+                    tx bigint NOT NULL DEFAULT pg_current_xact_id()::text::bigint,
+                    create_time timestamp NOT NULL DEFAULT now()
+                )""", this.changeTableName()));
+        this.writeJdbcTemplate.execute(String.format("CREATE INDEX IF NOT EXISTS %s ON %s (tx, seq)",
+                PgIdentifiers.of(this.tableName + "_", "change", "_tx_idx"), this.changeTableName()));
+        this.writeJdbcTemplate.execute(String.format("""
+                CREATE OR REPLACE FUNCTION %s() RETURNS trigger AS $$
+                BEGIN
+                    IF TG_OP = 'DELETE' THEN
+                        INSERT INTO %s (id) VALUES (OLD.id);
+                        RETURN OLD;
+                    END IF;
+                    INSERT INTO %s (id) VALUES (NEW.id);
+                    RETURN NEW;
+                END
+                $$ LANGUAGE plpgsql""", function, this.changeTableName(), this.changeTableName()));
+        Boolean triggerExists = this.writeJdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = ? AND tgrelid = ?::regclass)",
+                Boolean.class, trigger, this.qualified(this.tableName));
+        if (!Boolean.TRUE.equals(triggerExists)) {
+            this.writeJdbcTemplate.execute(String.format("CREATE TRIGGER %s AFTER INSERT OR UPDATE OR DELETE ON %s FOR EACH ROW EXECUTE FUNCTION %s()",
+                    trigger, this.qualified(this.tableName), function));
+            log.info("创建向量变更触发器 {} on {}", trigger, this.qualified(this.tableName));
+        }
+        return true;
+    }
+
+    /**
+     * 全量同步开始前的游标：所有小于当前 xmin 的事务都已在随后的全量读取中可见，之后的变更从这里继续消费
+     */
+    public Cursor snapshotCursor() {
+        Long xmin = this.writeJdbcTemplate.queryForObject("SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint", Long.class);
+        return new Cursor(xmin == null ? 0 : xmin - 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * 全量读取，按 batchSize 分批回调
+     */
+    public void scan(int batchSize, BiConsumer<List<Document>, List<float[]>> consumer) {
+        List<Document> documents = new ArrayList<>(batchSize);
+        List<float[]> embeddings = new ArrayList<>(batchSize);
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT id, content, metadata, embedding::text AS embedding FROM " + this.qualified(this.tableName)
+                + " WHERE true" + this.partitionPredicate(args);
+        this.writeJdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            documents.add(this.toDocument(rs));
+            embeddings.add(toVector(rs.getString("embedding")));
+            if (documents.size() >= batchSize) {
+                consumer.accept(List.copyOf(documents), List.copyOf(embeddings));
+                documents.clear();
+                embeddings.clear();
+            }
+        }, args.toArray());
+        if (!documents.isEmpty()) {
+            consumer.accept(documents, embeddings);
+        }
+    }
+
+    /**
+     * 读取游标之后的一批变更，返回变更的 id 与推进后的游标
+     */
+    public Changes poll(Cursor cursor, int limit) {
+        Set<String> ids = new LinkedHashSet<>();
+        long[] last = {cursor.tx(), cursor.seq()};
+        this.jdbcTemplate.query("SELECT id, tx, seq FROM " + this.changeTableName()
+                        + " WHERE (tx, seq) > (?, ?) AND tx < pg_snapshot_xmin(pg_current_snapshot())::text::bigint"
+                        + " ORDER BY tx, seq LIMIT ?",
+                (RowCallbackHandler) rs -> {
+                    ids.add(rs.getString("id"));
+                    last[0] = rs.getLong("tx");
+                    last[1] = rs.getLong("seq");
+                }, cursor.tx(), cursor.seq(), limit);
+        return new Changes(ids, new Cursor(last[0], last[1]));
+    }
+
+    /**
+     * 按 id 回表读取最新状态；返回的 map 中不存在的 id 表示已删除或已不属于当前知识库
+     */
+    public Map<String, Map.Entry<Document, float[]>> fetch(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Object> args = new ArrayList<>(ids);
+        String sql = "SELECT id, content, metadata, embedding::text AS embedding FROM " + this.qualified(this.tableName)
+                + " WHERE id IN (" + String.join(", ", Collections.nCopies(ids.size(), "CAST(? AS " + this.idType + ")")) + ")"
+                + this.partitionPredicate(args);
+        Map<String, Map.Entry<Document, float[]>> rows = new HashMap<>();
+        this.jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            Document document = this.toDocument(rs);
+            rows.put(document.getId(), Map.entry(document, toVector(rs.getString("embedding"))));
+        }, args.toArray());
+        return rows;
+    }
+
+    /**
+     * 清理早于保留期的变更记录
+     */
+    public int prune(long retentionHours) {
+        return this.writeJdbcTemplate.update("DELETE FROM " + this.changeTableName() + " WHERE create_time < now() - make_interval(hours => ?)",
+                (int) retentionHours);
+    }
+
+    private String partitionPredicate(List<Object> args) {
+        if (this.partitionKey == null) {
+            return "";
+        }
+        args.add(this.partitionValue);
+        return " AND " + PgVectorFilterSqlConverter.metadataKeyExpression(this.partitionKey) + " = ?";
+    }
+
+    private Document toDocument(ResultSet rs) throws SQLException {
+        Map<String, Object> metadata = this.metadataMapper.metadataOf(rs);
+        return Document.builder()
+                .id(rs.getString("id"))
+                .text(rs.getString("content"))
+                .metadata(metadata)
+                .build();
+    }
+
+    private static float[] toVector(String text) throws SQLException {
+        return new PGvector(text).toArray();
+    }
+
+    private String changeTableName() {
+        return this.qualified(PgIdentifiers.of(this.tableName + "_", "change", ""));
+    }
+
+    private String qualified(String name) {
+        return this.schemaName + "." + name;
+    }
+
+    public record Cursor(long tx, long seq) {
+    }
+
+    public record Changes(Set<String> ids, Cursor cursor) {
+    }
+
+}
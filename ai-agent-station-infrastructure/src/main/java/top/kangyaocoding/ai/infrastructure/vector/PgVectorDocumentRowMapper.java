@@ -0,0 +1,63 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.util.PGobject;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 描述: 向量检索结果映射，与 PgVectorStore 内部的 DocumentRowMapper 保持一致：score = 1 - distance
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 10:52
+ */
+public class PgVectorDocumentRowMapper implements RowMapper<Document> {
+
+    private static final TypeReference<HashMap<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    public PgVectorDocumentRowMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Document mapRow(ResultSet rs, int rowNum) throws SQLException {
+        float distance = rs.getFloat("distance");
+
+        Map<String, Object> metadata = this.metadataOf(rs);
+        metadata.put(DocumentMetadata.DISTANCE.value(), distance);
+
+        return Document.builder()
+                .id(rs.getString("id"))
+                .text(rs.getString("content"))
+                .metadata(metadata)
+                .score(1.0 - distance)
+                .build();
+    }
+
+    Map<String, Object> metadataOf(ResultSet rs) throws SQLException {
+        return this.toMap(rs.getObject("metadata", PGobject.class));
+    }
+
+    private Map<String, Object> toMap(PGobject pgObject) {
+        if (pgObject == null || pgObject.getValue() == null) {
+            return new HashMap<>();
+        }
+        try {
+            return this.objectMapper.readValue(pgObject.getValue(), METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to parse document metadata", e);
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionConverter;
+import org.springframework.ai.vectorstore.pgvector.PgVectorFilterExpressionConverter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 描述: 将过滤表达式转换为 pgvector 查询的 WHERE 片段
+ * <p>
+ * 顶层 AND 中对已建索引 key 的字符串 == / IN 条件，改写为 {@code (metadata::jsonb ->> 'key')} 表达式，
+ * 以命中 {@link PgVectorMetadataIndexInitializer} 创建的表达式索引；其余条件仍交给官方转换器生成 jsonpath，
+ * 由 GIN(jsonb_path_ops) 索引支持。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 10:30
+ */
+public class PgVectorFilterSqlConverter implements FilterExpressionConverter {
+
+    private final PgVectorFilterExpressionConverter jsonPathConverter = new PgVectorFilterExpressionConverter();
+    private final Set<String> indexedKeys;
+
+    public PgVectorFilterSqlConverter(Collection<String> indexedKeys) {
+        this.indexedKeys = Set.copyOf(indexedKeys);
+    }
+
+    @Override
+    public String convertExpression(Filter.Expression expression) {
+        List<String> predicates = new ArrayList<>();
+        List<Filter.Expression> residuals = new ArrayList<>();
+        for (Filter.Expression conjunct : conjuncts(expression)) {
+            String predicate = this.toIndexedPredicate(conjunct);
+            if (predicate != null) {
+                predicates.add(predicate);
+            } else {
+                residuals.add(conjunct);
+            }
+        }
+        if (!residuals.isEmpty()) {
+            predicates.add("metadata::jsonb @@ '" + escape(this.jsonPathConverter.convertExpression(and(residuals))) + "'::jsonpath");
+        }
+        return String.join(" AND ", predicates);
+    }
+
+    /**
+     * 展开顶层 AND（含括号分组），返回各个合取项
+     */
+    static List<Filter.Expression> conjuncts(Filter.Expression expression) {
+        List<Filter.Expression> conjuncts = new ArrayList<>();
+        collect(expression, conjuncts);
+        return conjuncts;
+    }
+
+    /**
+     * 将合取项重新以 AND 组合，两侧包一层 Group 保证 OR 的优先级不被打乱；空列表返回 null
+     */
+    static Filter.Expression and(List<Filter.Expression> conjuncts) {
+        if (conjuncts.isEmpty()) {
+            return null;
+        }
+        Filter.Expression expression = conjuncts.get(0);
+        for (int i = 1; i < conjuncts.size(); i++) {
+            expression = new Filter.Expression(Filter.ExpressionType.AND, new Filter.Group(expression), new Filter.Group(conjuncts.get(i)));
+        }
+        return expression;
+    }
+
+    /**
+     * 元数据 key 对应的取值表达式，索引与查询必须使用完全相同的写法
+     */
+    public static String metadataKeyExpression(String key) {
+        return "(metadata::jsonb ->> '" + escape(key) + "')";
+    }
+
+    static String escape(String text) {
+        return text.replace("'", "''");
+    }
+
+    private static void collect(Filter.Operand operand, List<Filter.Expression> conjuncts) {
+        if (operand instanceof Filter.Group group) {
+            collect(group.content(), conjuncts);
+            return;
+        }
+        Filter.Expression expression = (Filter.Expression) operand;
+        if (expression.type() == Filter.ExpressionType.AND) {
+            collect(expression.left(), conjuncts);
+            collect(expression.right(), conjuncts);
+            return;
+        }
+        conjuncts.add(expression);
+    }
+
+    private String toIndexedPredicate(Filter.Expression expression) {
+        if (!(expression.left() instanceof Filter.Key key) || !(expression.right() instanceof Filter.Value value)) {
+            return null;
+        }
+        String keyName = key.key();
+        if (!this.indexedKeys.contains(keyName)) {
+            return null;
+        }
+        if (expression.type() == Filter.ExpressionType.EQ && value.value() instanceof String text) {
+            return metadataKeyExpression(keyName) + " = '" + escape(text) + "'";
+        }
+        if (expression.type() == Filter.ExpressionType.IN && value.value() instanceof List<?> list
+                && !list.isEmpty() && list.stream().allMatch(String.class::isInstance)) {
+            return metadataKeyExpression(keyName) + " IN (" + list.stream()
+                    .map(each -> "'" + escape((String) each) + "'")
+                    .collect(Collectors.joining(", ")) + ")";
+        }
+        return null;
+    }
+
+}
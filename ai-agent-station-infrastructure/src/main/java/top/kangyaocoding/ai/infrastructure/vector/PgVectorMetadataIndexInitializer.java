@@ -0,0 +1,63 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * 描述: 按配置为向量表的元数据创建索引
+ * <p>
+ * 1. GIN(jsonb_path_ops) 索引，支持 {@code metadata::jsonb @@ jsonpath} 形式的任意过滤；
+ * 2. 常用过滤 key（如 knowledge）的 B-Tree 表达式索引，配合 {@link PgVectorFilterSqlConverter} 的改写，
+ * 选择性高的过滤可走索引扫描后精确排序，而不是在 HNSW 候选集上做后置过滤。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 10:46
+ */
+@Slf4j
+public class PgVectorMetadataIndexInitializer implements InitializingBean {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String schemaName;
+    private final String tableName;
+    private final List<String> indexedKeys;
+    private final boolean ginIndex;
+
+    public PgVectorMetadataIndexInitializer(JdbcTemplate jdbcTemplate, String schemaName, String tableName,
+                                            List<String> indexedKeys, boolean ginIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.indexedKeys = List.copyOf(indexedKeys);
+        this.ginIndex = ginIndex;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Boolean exists = this.jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.tables WHERE table_schema = ? AND table_name = ?)",
+                Boolean.class, this.schemaName, this.tableName);
+        if (!Boolean.TRUE.equals(exists)) {
+            log.warn("向量表 {}.{} 不存在，跳过元数据索引创建", this.schemaName, this.tableName);
+            return;
+        }
+
+        String qualifiedTableName = this.schemaName + "." + this.tableName;
+        if (this.ginIndex) {
+            this.createIndex(String.format("CREATE INDEX IF NOT EXISTS %s ON %s USING gin ((metadata::jsonb) jsonb_path_ops)",
+                    PgIdentifiers.of(this.tableName + "_", "metadata_gin", "_idx"), qualifiedTableName));
+        }
+        for (String key : this.indexedKeys) {
+            this.createIndex(String.format("CREATE INDEX IF NOT EXISTS %s ON %s (%s)",
+                    PgIdentifiers.of(this.tableName + "_meta_", key, "_idx"), qualifiedTableName, PgVectorFilterSqlConverter.metadataKeyExpression(key)));
+        }
+    }
+
+    private void createIndex(String sql) {
+        log.info("创建元数据索引：{}", sql);
+        this.jdbcTemplate.execute(sql);
+    }
+
+}
@@ -0,0 +1,69 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * 描述: 用 pg_prewarm 把向量表及其索引读入共享缓冲区，避免发布后的首批检索从磁盘加载 HNSW 页
+ * <p>
+ * 1. 扩展不存在时尝试创建，未安装或无权限时记录日志并跳过；
+ * 2. 共用表布局预热 spring.ai.vectorstore.pgvector 的表，分区布局预热所有以前缀开头的分区表；
+ * 3. 先预热索引（HNSW、元数据索引）再预热表，共享缓冲区不足时优先保留检索最先访问的索引页。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 10:50
+ */
+@Slf4j
+public class PgVectorPrewarm {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String schemaName;
+    private final String tableNamePattern;
+
+    /**
+     * @param prefix 为 true 时 tableName 作为表名前缀，匹配 {@code {tableName}_*} 的所有分区表
+     */
+    public PgVectorPrewarm(JdbcTemplate jdbcTemplate, String schemaName, String tableName, boolean prefix) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.schemaName = schemaName;
+        String escaped = tableName.replace("\\", "\\\\").replace("_", "\\_").replace("%", "\\%");
+        this.tableNamePattern = prefix ? escaped + "\\_%" : escaped;
+    }
+
+    /**
+     * @return 读入共享缓冲区的总块数；扩展不可用时为 0
+     */
+    public long prewarm() {
+        try {
+            this.jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_prewarm");
+        } catch (DataAccessException e) {
+            log.warn("pg_prewarm 扩展不可用，跳过向量表预热: {}", e.getMessage());
+            return 0;
+        }
+
+        List<String> tables = this.jdbcTemplate.queryForList("""
+                SELECT c.oid::regclass::text FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = ? AND c.relkind = 'r' AND c.relname LIKE ? ORDER BY c.relname""",
+                String.class, this.schemaName, this.tableNamePattern);
+        long blocks = 0;
+        for (String table : tables) {
+            List<String> indexes = this.jdbcTemplate.queryForList(
+                    "SELECT indexrelid::regclass::text FROM pg_index WHERE indrelid = ?::regclass", String.class, table);
+            for (String index : indexes) {
+                blocks += this.prewarm(index);
+            }
+            blocks += this.prewarm(table);
+        }
+        log.info("向量表预热完成 表:{} 块数:{}", tables, blocks);
+        return blocks;
+    }
+
+    private long prewarm(String relation) {
+        Long blocks = this.jdbcTemplate.queryForObject("SELECT pg_prewarm(?::regclass)", Long.class, relation);
+        return blocks == null ? 0 : blocks;
+    }
+
+}
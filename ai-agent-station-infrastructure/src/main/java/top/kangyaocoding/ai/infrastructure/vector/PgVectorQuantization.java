@@ -0,0 +1,154 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import com.pgvector.PGvector;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.util.Assert;
+
+import java.util.List;
+
+/**
+ * 描述: 向量量化与降维检索
+ * <p>
+ * 表中始终保留全精度 vector 列，HNSW 索引建在其紧凑表示上：
+ * 1. HALFVEC：{@code embedding::halfvec(d)}，索引体积减半；
+ * 2. BINARY：{@code binary_quantize(embedding)::bit(d)}，按汉明距离检索，索引体积约为 1/32；
+ * 3. truncateDimensions > 0 时先取 {@code subvector(embedding, 1, d)}，适用于 text-embedding-v4 这类 Matryoshka 训练的模型。
+ * 检索分两阶段：先在紧凑索引上取 topK * rescoreFactor 个候选，再按全精度距离重排取 topK。
+ * 未开启量化与降维时退化为 PgVectorStore 原始的单阶段检索。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 16:10
+ */
+public class PgVectorQuantization {
+
+    public enum Type {
+        /** 不量化 */
+        NONE,
+        /** float16 */
+        HALFVEC,
+        /** 1 bit/维 */
+        BINARY,
+    }
+
+    public static final PgVectorQuantization DISABLED = new PgVectorQuantization(Type.NONE, 0, 0, 1);
+
+    private final Type type;
+    private final int dimensions;
+    private final int truncateDimensions;
+    private final int rescoreFactor;
+
+    public PgVectorQuantization(Type type, int dimensions, int truncateDimensions, int rescoreFactor) {
+        Assert.notNull(type, "type must not be null");
+        Assert.isTrue(truncateDimensions >= 0 && (truncateDimensions == 0 || truncateDimensions <= dimensions),
+                "truncateDimensions must be between 0 and dimensions");
+        Assert.isTrue(rescoreFactor >= 1, "rescoreFactor must be greater than or equal to 1");
+        this.type = type;
+        this.dimensions = dimensions;
+        this.truncateDimensions = truncateDimensions;
+        this.rescoreFactor = rescoreFactor;
+    }
+
+    public boolean isEnabled() {
+        return this.type != Type.NONE || this.truncateDimensions > 0;
+    }
+
+    /**
+     * 建在 embedding 紧凑表示上的 HNSW 索引；未开启时为全精度索引
+     */
+    public String indexDdl(String indexName, String qualifiedTableName, PgVectorStore.PgDistanceType distanceType, int m, int efConstruction) {
+        String indexed = this.isEnabled() ? "(" + this.coarseExpression("embedding") + ")" : "embedding";
+        return String.format("CREATE INDEX IF NOT EXISTS %s ON %s USING hnsw (%s %s) WITH (m = %d, ef_construction = %d)",
+                indexName, qualifiedTableName, indexed, this.indexOps(distanceType), m, efConstruction);
+    }
+
+    /**
+     * 检索 SQL，where 为空串或以 " AND " 开头的过滤片段；参数顺序与 {@link #searchArgs} 一致
+     */
+    public String searchSql(String qualifiedTableName, String where, PgVectorStore.PgDistanceType distanceType) {
+        if (!this.isEnabled()) {
+            return String.format(distanceType.similaritySearchSqlTemplate, qualifiedTableName, where);
+        }
+        String operator = this.type == Type.BINARY ? "<~>" : distanceType.operator;
+        return "SELECT * FROM (SELECT *, " + distanceExpression(distanceType) + " AS distance FROM ("
+                + "SELECT * FROM " + qualifiedTableName + " WHERE true" + where
+                + " ORDER BY " + this.coarseExpression("embedding") + " " + operator + " " + this.coarseExpression("?::vector")
+                + " LIMIT ?) AS candidates) AS rescored WHERE distance < ? ORDER BY distance LIMIT ?";
+    }
+
+    public List<Object> searchArgs(PGvector queryEmbedding, double distance, int topK) {
+        if (!this.isEnabled()) {
+            return List.of(queryEmbedding, queryEmbedding, distance, topK);
+        }
+        return List.of(queryEmbedding, queryEmbedding, this.candidates(topK), distance, topK);
+    }
+
+    /**
+     * HNSW 最多返回 ef_search 个结果，粗排候选数不能超过它
+     */
+    public int efSearch(int configuredEfSearch, int topK) {
+        return Math.max(configuredEfSearch, this.isEnabled() ? this.candidates(topK) : topK);
+    }
+
+    public int candidates(int topK) {
+        return topK * this.rescoreFactor;
+    }
+
+    /**
+     * 索引中每个向量的字节数（不含 HNSW 图结构），用于估算内存
+     */
+    public int bytesPerVector() {
+        int d = this.coarseDimensions();
+        return switch (this.type) {
+            case NONE -> d * Float.BYTES;
+            case HALFVEC -> d * 2;
+            case BINARY -> (d + 7) / 8;
+        };
+    }
+
+    String coarseExpression(String vectorExpression) {
+        int d = this.coarseDimensions();
+        String vector = this.truncateDimensions > 0
+                ? "subvector(" + vectorExpression + ", 1, " + this.truncateDimensions + ")"
+                : vectorExpression;
+        return switch (this.type) {
+            case NONE -> vector + "::vector(" + d + ")";
+            case HALFVEC -> vector + "::halfvec(" + d + ")";
+            case BINARY -> "binary_quantize(" + vector + ")::bit(" + d + ")";
+        };
+    }
+
+    private String indexOps(PgVectorStore.PgDistanceType distanceType) {
+        return switch (this.type) {
+            case NONE -> distanceType.index;
+            case HALFVEC -> distanceType.index.replace("vector_", "halfvec_");
+            case BINARY -> "bit_hamming_ops";
+        };
+    }
+
+    private int coarseDimensions() {
+        return this.truncateDimensions > 0 ? this.truncateDimensions : this.dimensions;
+    }
+
+    /**
+     * 与 PgVectorStore 的 SQL 模板保持一致的全精度距离表达式
+     */
+    private static String distanceExpression(PgVectorStore.PgDistanceType distanceType) {
+        if (distanceType == PgVectorStore.PgDistanceType.NEGATIVE_INNER_PRODUCT) {
+            return "(1 + (embedding <#> ?))";
+        }
+        return "embedding " + distanceType.operator + " ?";
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    public int getTruncateDimensions() {
+        return this.truncateDimensions;
+    }
+
+    public int getRescoreFactor() {
+        return this.rescoreFactor;
+    }
+
+}
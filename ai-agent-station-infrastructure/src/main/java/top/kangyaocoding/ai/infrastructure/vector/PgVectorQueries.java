@@ -0,0 +1,65 @@
+package top.kangyaocoding.ai.infrastructure.vector;
+
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 描述: 带 hnsw.ef_search 的检索执行
+ * <p>
+ * ef_search 通过 SET LOCAL 只在当前事务内生效，不污染连接池中的其他连接。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-18 16:25
+ */
+final class PgVectorQueries {
+
+    private PgVectorQueries() {
+    }
+
+    static List<Document> query(JdbcTemplate jdbcTemplate, RowMapper<Document> rowMapper, String sql, List<Object> args, int efSearch) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Document>>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                List<Document> documents = doQuery(connection, rowMapper, sql, args, efSearch);
+                connection.commit();
+                return documents;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    private static List<Document> doQuery(Connection connection, RowMapper<Document> rowMapper, String sql, List<Object> args, int efSearch) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LOCAL hnsw.ef_search = " + efSearch);
+        }
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            List<Document> documents = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                int rowNum = 0;
+                while (rs.next()) {
+                    documents.add(rowMapper.mapRow(rs, rowNum++));
+                }
+            }
+            return documents;
+        }
+    }
+
+}
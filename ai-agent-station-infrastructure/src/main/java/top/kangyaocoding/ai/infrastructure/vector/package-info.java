@@ -0,0 +1,4 @@
+/**
+ * 向量存储实现；基于 pgvector 的检索、索引与过滤条件转换，以及热点知识库的进程内 HNSW 索引
+ */
+package top.kangyaocoding.ai.infrastructure.vector;
@@ -0,0 +1,217 @@
+package top.kangyaocoding.ai.test.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 描述: 测试与基准共用的合成 ONNX 句向量模型；直接按 ONNX protobuf 格式写出 model.onnx 与 vocab.txt，不需要下载模型
+ * <p>
+ * 结构为 input_ids → Gather(词向量表) → layers 个残差前馈层（MatMul → Relu → MatMul → Add）→ last_hidden_state，
+ * 输入带 attention_mask 与 token_type_ids，与 BERT 类模型的导出格式一致。layers 为 0 时输出即词向量，便于按行核对池化结果；
+ * 384 维、6 层、1536 隐层时前馈部分的计算量与 all-MiniLM-L6-v2 相当。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 13:45
+ */
+public class SyntheticOnnxModel {
+
+    private static final int FLOAT = 1;
+    private static final int INT64 = 7;
+
+    private final List<String> vocabulary;
+    private final int dimensions;
+    private final int layers;
+    private final int hidden;
+    private final float[] embeddings;
+
+    public SyntheticOnnxModel(List<String> vocabulary, int dimensions, int layers, int hidden) {
+        this.vocabulary = vocabulary;
+        this.dimensions = dimensions;
+        this.layers = layers;
+        this.hidden = hidden;
+        this.embeddings = random(vocabulary.size() * dimensions, 7);
+    }
+
+    /**
+     * 特殊 token 加上 words，中日韩字符可直接作为词
+     */
+    public static List<String> vocabulary(List<String> words) {
+        List<String> vocabulary = new ArrayList<>(List.of("[PAD]", "[UNK]", "[CLS]", "[SEP]", "[MASK]"));
+        vocabulary.addAll(words);
+        return vocabulary;
+    }
+
+    /**
+     * 写出 model.onnx 与同目录的 vocab.txt，返回 model.onnx 路径
+     */
+    public Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("vocab.txt"), this.vocabulary, StandardCharsets.UTF_8);
+        Path model = directory.resolve("model.onnx");
+        Files.write(model, this.model());
+        return model;
+    }
+
+    /**
+     * 词表第 id 行的词向量
+     */
+    public float[] row(int id) {
+        float[] row = new float[this.dimensions];
+        System.arraycopy(this.embeddings, id * this.dimensions, row, 0, this.dimensions);
+        return row;
+    }
+
+    public int id(String token) {
+        return this.vocabulary.indexOf(token);
+    }
+
+    private byte[] model() {
+        Proto graph = new Proto();
+        graph.message(5, tensor("embeddings", new long[]{this.vocabulary.size(), this.dimensions}, this.embeddings));
+        graph.message(1, node("Gather", List.of("embeddings", "input_ids"), "h0"));
+        for (int layer = 0; layer < this.layers; layer++) {
+            String in = "h" + layer;
+            String w1 = "w1_" + layer;
+            String w2 = "w2_" + layer;
+            graph.message(5, tensor(w1, new long[]{this.dimensions, this.hidden}, scaled(random(this.dimensions * this.hidden, layer * 2 + 11), this.dimensions)));
+            graph.message(5, tensor(w2, new long[]{this.hidden, this.dimensions}, scaled(random(this.hidden * this.dimensions, layer * 2 + 12), this.hidden)));
+            graph.message(1, node("MatMul", List.of(in, w1), "up" + layer));
+            graph.message(1, node("Relu", List.of("up" + layer), "act" + layer));
+            graph.message(1, node("MatMul", List.of("act" + layer, w2), "down" + layer));
+            graph.message(1, node("Add", List.of(in, "down" + layer), "h" + (layer + 1)));
+        }
+        graph.message(1, node("Identity", List.of("h" + this.layers), "last_hidden_state"));
+        graph.string(2, "synthetic-encoder");
+        for (String input : List.of("input_ids", "attention_mask", "token_type_ids")) {
+            graph.message(11, valueInfo(input, INT64, "batch", "sequence"));
+        }
+        graph.message(12, valueInfo("last_hidden_state", FLOAT, "batch", "sequence", String.valueOf(this.dimensions)));
+
+        Proto opset = new Proto();
+        opset.string(1, "");
+        opset.varint(2, 13);
+        Proto model = new Proto();
+        model.varint(1, 8);
+        model.string(2, "ai-agent-station-test-support");
+        model.message(7, graph);
+        model.message(8, opset);
+        return model.bytes();
+    }
+
+    private static Proto node(String opType, List<String> inputs, String output) {
+        Proto node = new Proto();
+        inputs.forEach(input -> node.string(1, input));
+        node.string(2, output);
+        node.string(3, opType + "_" + output);
+        node.string(4, opType);
+        return node;
+    }
+
+    private static Proto tensor(String name, long[] dims, float[] values) {
+        Proto tensor = new Proto();
+        for (long dim : dims) {
+            tensor.varint(1, dim);
+        }
+        tensor.varint(2, FLOAT);
+        tensor.string(8, name);
+        ByteBuffer raw = ByteBuffer.allocate(values.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float value : values) {
+            raw.putFloat(value);
+        }
+        tensor.bytes(9, raw.array());
+        return tensor;
+    }
+
+    /**
+     * 数字为固定维度，其余为命名的动态维度
+     */
+    private static Proto valueInfo(String name, int elementType, String... dims) {
+        Proto shape = new Proto();
+        for (String dim : dims) {
+            Proto dimension = new Proto();
+            if (Character.isDigit(dim.charAt(0))) {
+                dimension.varint(1, Long.parseLong(dim));
+            } else {
+                dimension.string(2, dim);
+            }
+            shape.message(1, dimension);
+        }
+        Proto tensorType = new Proto();
+        tensorType.varint(1, elementType);
+        tensorType.message(2, shape);
+        Proto type = new Proto();
+        type.message(1, tensorType);
+        Proto valueInfo = new Proto();
+        valueInfo.string(1, name);
+        valueInfo.message(2, type);
+        return valueInfo;
+    }
+
+    private static float[] random(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = (float) (random.nextDouble() * 2 - 1);
+        }
+        return values;
+    }
+
+    private static float[] scaled(float[] values, int fanIn) {
+        float scale = (float) (1 / Math.sqrt(fanIn));
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= scale;
+        }
+        return values;
+    }
+
+    /**
+     * 最小的 protobuf 写入器，只支持 varint 与长度前缀两种编码
+     */
+    private static final class Proto {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private void varint(int field, long value) {
+            this.tag(field, 0);
+            this.raw(value);
+        }
+
+        private void string(int field, String value) {
+            this.bytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void message(int field, Proto message) {
+            this.bytes(field, message.bytes());
+        }
+
+        private void bytes(int field, byte[] value) {
+            this.tag(field, 2);
+            this.raw(value.length);
+            this.out.writeBytes(value);
+        }
+
+        private void tag(int field, int wireType) {
+            this.raw(((long) field << 3) | wireType);
+        }
+
+        private void raw(long value) {
+            while ((value & ~0x7FL) != 0) {
+                this.out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            this.out.write((int) value);
+        }
+
+        private byte[] bytes() {
+            return this.out.toByteArray();
+        }
+    }
+
+}
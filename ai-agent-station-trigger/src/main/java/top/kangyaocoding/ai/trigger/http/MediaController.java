@@ -0,0 +1,62 @@
+package top.kangyaocoding.ai.trigger.http;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import top.kangyaocoding.ai.domain.agent.service.media.MediaPreprocessor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Optional;
+
+/**
+ * 描述: 预处理后的媒体；视觉模型按 MediaPipeline 输出的地址来取图，内容按哈希寻址，永久可缓存
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:30
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/media")
+public class MediaController {
+
+    private final MediaPreprocessor mediaPreprocessor;
+
+    public MediaController(MediaPreprocessor mediaPreprocessor) {
+        this.mediaPreprocessor = mediaPreprocessor;
+    }
+
+    /**
+     * 内存映射的内容直接写入响应，不复制到堆上
+     */
+    @GetMapping("/{id}")
+    public void media(@PathVariable("id") String id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<MediaPreprocessor.Content> content = this.mediaPreprocessor.read(id);
+        if (content.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String etag = "\"" + id + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable");
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        ByteBuffer data = content.get().data();
+        response.setContentType(content.get().mimeType().toString());
+        response.setContentLength(data.remaining());
+        WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+}
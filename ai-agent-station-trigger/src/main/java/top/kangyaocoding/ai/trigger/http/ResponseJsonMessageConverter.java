@@ -0,0 +1,92 @@
+package top.kangyaocoding.ai.trigger.http;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+import top.kangyaocoding.ai.api.response.Response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 描述: {@link Response} 响应体的流式 JSON 输出；接口返回的统一包装不再经过通用的 Bean 序列化
+ * <p>
+ * 1. code、info、data 三个字段名预先编码，包装层手写输出，不做反射与属性查找；
+ * 2. data 交给应用的 ObjectMapper 写入同一个生成器，遵循全局的 Jackson 配置；
+ * 3. 生成器直接写响应输出流，长补全经生成器缓冲分段编码，不生成整段 JSON 的 String 或 byte[]；缓冲取自 JsonFactory 的回收池。
+ * 只负责写出，请求体仍由默认转换器读取。
+ *
+ * @author K·Herbert herbert501@qq.com
+ * @since 2026-10-19 14:50
+ */
+public class ResponseJsonMessageConverter extends AbstractHttpMessageConverter<Response<?>> {
+
+    private static final SerializableString CODE = new SerializedString("code");
+    private static final SerializableString INFO = new SerializedString("info");
+    private static final SerializableString DATA = new SerializedString("data");
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter dataWriter;
+
+    public ResponseJsonMessageConverter(ObjectMapper objectMapper) {
+        super(StandardCharsets.UTF_8, MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.objectMapper = objectMapper;
+        // 整个响应写完后由容器统一刷出
+        this.dataWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * 写入 out，不关闭 out
+     */
+    public void write(Response<?> response, OutputStream out) throws IOException {
+        try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(StreamUtils.nonClosing(out), JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeFieldName(CODE);
+            generator.writeString(response.getCode());
+            generator.writeFieldName(INFO);
+            generator.writeString(response.getInfo());
+            generator.writeFieldName(DATA);
+            Object data = response.getData();
+            if (data == null) {
+                generator.writeNull();
+            } else if (data instanceof String text) {
+                generator.writeString(text);
+            } else {
+                this.dataWriter.writeValue(generator, data);
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Response.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Response<?> readInternal(Class<? extends Response<?>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Response 只用于输出", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Response<?> response, HttpOutputMessage outputMessage) throws IOException {
+        this.write(response, outputMessage.getBody());
+    }
+
+}